@@ -32,6 +32,12 @@ public class TelnetServerNioSession extends NioServerSession {
 
     static Logger LOG = LoggerManager.getLogger(TelnetServerNioSession.class);
 
+    private static final int WRITE_BUF_SIZE = 4096;
+    /**
+     * IO线程写缓冲池中FastBuf的大小
+     */
+    private static final int POOLED_BUF_SIZE = 32768;
+
     private FastBuf buf;
 
     private ScheduledFuture<?> scheduledFuture;
@@ -87,30 +93,44 @@ public class TelnetServerNioSession extends NioServerSession {
     }
 
     public void writeBytes(byte... bs) {
-        if (buf == null) {
-            buf = new FastBuf(4096);
-        }
-        buf.reset();
-        buf.write(bs, 0, bs.length);
-        try {
-            fastWrite(buf);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        write(bs);
     }
 
     public void writeString(String data) {
-        if (buf == null) {
-            buf = new FastBuf(4096);
-        }
-        buf.reset();
-        byte[] bs = data.getBytes(StandardCharsets.UTF_8);
-        buf.write(bs, 0, bs.length);
+        write(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 连接可写时直接发送数据，未能一次发送完成的部分以及已有暂存数据时的新数据追加到暂存链表，由IO线程在连接可写时
+     * 继续发送，保证数据不会被截断并且按写入的顺序发送
+     * @param bs 待发送的数据
+     */
+    private synchronized void write(byte[] bs) {
+        int offset = 0;
         try {
-            fastWrite(buf);
+            if (!hasPendingWrite()) {
+                if (buf == null) {
+                    buf = new FastBuf(WRITE_BUF_SIZE);
+                }
+                while (offset < bs.length) {
+                    buf.reset();
+                    int len = buf.write(bs, offset, bs.length - offset);
+                    boolean finished = writeToChannel(buf);
+                    offset += len - buf.remain();
+                    if (!finished) {
+                        break;
+                    }
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        if (offset < bs.length) {
+            // 发送完成后FastBuf会归还到IO线程的写缓冲池，所以不小于池中写缓冲的大小
+            FastBuf pending = new FastBuf(Math.max(POOLED_BUF_SIZE, bs.length - offset));
+            pending.write(bs, offset, bs.length - offset);
+            enqueueWrite(pending);
+        }
     }
 
     public ScheduledExecutorService getScheduledExecutorService() {
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protocol.telnet.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.protocol.telnet.TelnetServerNioSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 连接暂时不可写时输出的数据不能被截断或者乱序
+ */
+public class TestTelnetWrite {
+
+    private ServerSocketChannel server;
+    private Socket client;
+    private SocketChannel channel;
+    private TelnetServerNioSession session;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        client = new Socket("127.0.0.1", ((InetSocketAddress) server.getLocalAddress()).getPort());
+        client.setSoTimeout(5000);
+        channel = server.accept();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+
+        session = new TelnetServerNioSession();
+        session.setSocketChannel(channel);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        client.close();
+        channel.close();
+        server.close();
+    }
+
+    @Test
+    public void testWriteWhenChannelFull() throws Exception {
+        StringBuilder expect = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            expect.append("line ").append(i).append("\r\n");
+        }
+        session.writeString(expect.toString());
+        assertTrue(session.hasPendingWrite());
+        // 已有暂存数据时后写入的数据需要排在后面
+        session.writeString("\n-> ");
+        session.writeBytes((byte)'o', (byte)'k');
+        expect.append("\n-> ok");
+        byte[] expectBytes = expect.toString().getBytes(StandardCharsets.UTF_8);
+
+        CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                InputStream in = client.getInputStream();
+                byte[] bs = new byte[8192];
+                int n;
+                while (out.size() < expectBytes.length && (n = in.read(bs)) > 0) {
+                    out.write(bs, 0, n);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return out.toByteArray();
+        });
+        // 与IO线程一样在连接可写时发送暂存的数据
+        FastBuf iov = new FastBuf(1024);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!session.flushWriteChain(iov, null)) {
+            assertTrue(System.currentTimeMillis() < deadline, "flush timeout");
+            Thread.sleep(1);
+        }
+        assertArrayEquals(expectBytes, received.get(5, TimeUnit.SECONDS));
+    }
+}
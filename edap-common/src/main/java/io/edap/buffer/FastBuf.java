@@ -165,9 +165,18 @@ public class FastBuf extends BasePoolEntry {
     }
 
     public FastBuf(int capacity, String path) throws IOException {
-        FileChannel fc = FileChannel.open(Paths.get(path), READ, WRITE);
+        this(FileChannel.open(Paths.get(path), READ, WRITE), 0, capacity);
+    }
 
-        this.buf     = fc.map(READ_WRITE, 0, capacity);
+    /**
+     * 将文件中从position开始capacity长度的区域映射为FastBuf，文件的长度不足时会自动扩展到映射区域的结束位置
+     * @param fc 以读写方式打开的文件通道
+     * @param position 映射区域在文件中的开始位置
+     * @param capacity 映射区域的大小
+     * @throws IOException 映射失败时抛出
+     */
+    public FastBuf(FileChannel fc, long position, int capacity) throws IOException {
+        this.buf     = fc.map(READ_WRITE, position, capacity);
         this.type    = BufType.MAPPED_FILE;
         this.address = UnsafeUtil.address(buf);
         this.endAddress = address + buf.capacity();
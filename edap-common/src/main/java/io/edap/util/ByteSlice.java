@@ -0,0 +1,193 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 不可变的字节数组视图，只记录源数组以及数据的起始位置和长度。解码器可以直接返回指向输入缓冲区的视图，转发类的场景
+ * (例如RPC代理透传请求体)不需要为每个字段复制一次数据。
+ *
+ * <p>视图和源缓冲区共享数据，源缓冲区被复用或者回收后视图的内容也会变化。需要在缓冲区生命周期以外保存数据时调用
+ * {@link #retain()}，共享的视图会复制为独立的数据，已经独立的数据直接返回自身。</p>
+ */
+public final class ByteSlice {
+
+    public static final ByteSlice EMPTY = new ByteSlice(new byte[0], 0, 0, true);
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    /**
+     * 数据是否由该对象独占，为false时数据属于外部的缓冲区
+     */
+    private final boolean owned;
+    private int hash;
+
+    private ByteSlice(byte[] bytes, int offset, int length, boolean owned) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.owned = owned;
+    }
+
+    /**
+     * 使用整个数组创建独立的数据，调用者不应再修改该数组
+     */
+    public static ByteSlice wrap(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return new ByteSlice(bytes, 0, bytes.length, true);
+    }
+
+    /**
+     * 创建指向缓冲区[offset, offset+length)的视图，缓冲区复用前需要调用{@link #retain()}
+     */
+    public static ByteSlice view(byte[] buf, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buf.length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length
+                    + ", capacity=" + buf.length);
+        }
+        return new ByteSlice(buf, offset, length, false);
+    }
+
+    public static ByteSlice copyOf(byte[] buf, int offset, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] bs = new byte[length];
+        System.arraycopy(buf, offset, bs, 0, length);
+        return new ByteSlice(bs, 0, length, true);
+    }
+
+    public static ByteSlice of(String value) {
+        if (value == null) {
+            return null;
+        }
+        return wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * 数据是否和外部的缓冲区共享
+     */
+    public boolean isShared() {
+        return !owned;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        }
+        return bytes[offset + index];
+    }
+
+    /**
+     * 截取[from, from+len)的子视图，和当前对象共享数据
+     */
+    public ByteSlice slice(int from, int len) {
+        if (from < 0 || len < 0 || from + len > length) {
+            throw new IndexOutOfBoundsException("from=" + from + ", len=" + len + ", length=" + length);
+        }
+        return new ByteSlice(bytes, offset + from, len, owned);
+    }
+
+    /**
+     * 保证数据在源缓冲区复用后仍然有效，共享的视图复制一份数据，独立的数据直接返回
+     */
+    public ByteSlice retain() {
+        return owned ? this : copy();
+    }
+
+    /**
+     * 复制一份独立的数据
+     */
+    public ByteSlice copy() {
+        return copyOf(bytes, offset, length);
+    }
+
+    /**
+     * 复制数据到新的byte数组
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    public String toString(Charset charset) {
+        return new String(bytes, offset, length, charset);
+    }
+
+    /**
+     * 按UTF-8解码为字符串
+     */
+    @Override
+    public String toString() {
+        return toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteSlice)) {
+            return false;
+        }
+        ByteSlice other = (ByteSlice) o;
+        return Arrays.equals(bytes, offset, offset + length,
+                other.bytes, other.offset, other.offset + other.length);
+    }
+
+    /**
+     * 共享的视图内容可能随源缓冲区变化，只缓存独立数据的哈希值
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h != 0 && owned) {
+            return h;
+        }
+        h = 1;
+        byte[] bs = bytes;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + bs[i];
+        }
+        if (owned) {
+            hash = h;
+        }
+        return h;
+    }
+}
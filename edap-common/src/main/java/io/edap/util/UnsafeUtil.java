@@ -86,10 +86,21 @@ public class UnsafeUtil {
         copyMemory0(bs, UNSAFE.ARRAY_BYTE_BASE_OFFSET + offset, null, address, length);
     }
 
+    /**
+     * 复制byte数组的数据到base对象的offset位置，base为null时offset为堆外内存的地址
+     */
+    public static void copyMemory(byte[] bs, int offset, Object base, long toOffset, int length) {
+        copyMemory0(bs, UNSAFE.ARRAY_BYTE_BASE_OFFSET + offset, base, toOffset, length);
+    }
+
     public static void copyUtf16le(char[] cs, int offset, byte[] dest, int destOffset, int len) {
         copyMemory0(cs, ARRAY_CHAR_BASE_OFFSET + offset * 2, dest, ARRAY_BYTE_BASE_OFFSET + destOffset, len * 2);
     }
 
+    public static void copyUtf16le(char[] cs, int offset, Object base, long toOffset, int len) {
+        copyMemory0(cs, ARRAY_CHAR_BASE_OFFSET + offset * 2, base, toOffset, len * 2);
+    }
+
     static void copyMemory0(Object from, long fromOffset, Object to, long toOffset, long length) {
         // use a loop to ensure there is a safe point every so often.
         while (length > 0) {
@@ -162,6 +173,13 @@ public class UnsafeUtil {
         UNSAFE.putByte(bs, (long)(UNSAFE.ARRAY_BYTE_BASE_OFFSET + offset), b);
     }
 
+    /**
+     * 按本机字节序读取字节数组中从offset开始的8个字节，调用方需保证offset+8不超过数组的长度
+     */
+    public static long getLong(byte[] bs, int offset) {
+        return UNSAFE.getLong(bs, (long)(UNSAFE.ARRAY_BYTE_BASE_OFFSET + offset));
+    }
+
     public static void getAndSetObject(Object obj, long offset, Object newValue) {
         UNSAFE.getAndSetObject(obj, offset, newValue);
     }
@@ -1,103 +1,382 @@
 package io.edap.container;
 
+import io.edap.container.exc.ShardMigratingException;
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * 多节点分片路由器。封装 ShardRegistry（本地分片）+ RpcClient（远端 RPC）+ 集群拓扑，
+ * 多节点分片路由器。封装 ShardRegistry（本地分片）+ RpcClient（远端 RPC）+ 集群拓扑（{@link ShardRing}），
  * 给 Handler 生成器（§3.5.7）一个统一的"分片路由"入口。
  *
  * 路由决策模型：
- *   假设集群有 N 个节点，每个节点的每个 stateful bean 有 localShardCount 个分片实例，
- *   则全集群总共 N × localShardCount 个分片。给定 shardKey：
+ *   全集群固定 shardCount 个分片，节点以虚拟节点分布在一致性哈希环上（见 {@link ShardRing}）。给定 shardKey：
  *
- *     globalIdx   = Math.abs(shardKey.hashCode()) % (N × localShardCount)
- *     owningNode  = globalIdx / localShardCount   // 0..N-1
- *     localIdx    = globalIdx % localShardCount   // 0..localShardCount-1
+ *     shard       = ring.shardOf(shardKey)    // 64 位哈希，拓扑变化时不变
+ *     owningNode  = owners[shard]             // 预先计算的分片表，一次数组访问
  *
- *   如果 owningNode == currentNodeIdx → 本节点直接 invokevirtual shard[localIdx].method(...)
- *   否则 → 通过 RpcClient 跨节点调用，RPC server 端按同样的 hash 找到目标分片实例执行
+ *   如果 owningNode == currentNodeIdx → 本节点直接 invokevirtual registry.routeByIndex(beanName, shard).method(...)
+ *   否则 → 通过 RpcClient 跨节点调用，RPC server 端按同样的 shard 找到目标分片实例执行
  *
  * 与 ShardRegistry 的关系：
  *   ShardRegistry 仅承担"本节点分片存储 + 查找"，不知道集群拓扑
- *   ClusterShardRouter 是集群感知的层，包 ShardRegistry 提供本地查找
+ *   ClusterShardRouter 是集群感知的层，包 ShardRegistry 提供本地查找，并在拓扑变化时迁移分片实例
  *
  * 协作契约（Handler 生成器 §3.5.7）：
  *   生成 Handler.handle(req, resp) 字节码中（entry.shard() == true 时）：
  *     1. 从 req 提参 → 提取 shardKey
- *     2. router.targetNode(shardKey) → 拿到 owningNode
- *     3. if (owningNode == router.currentNodeIdx()) {
- *            Object inst = router.localInstance(beanName, shardKey);
- *            Object result = inst.method(args);   // invokevirtual
+ *     2. int shard = router.shardOf(shardKey)   // 哈希只算一次
+ *     3. if (router.isLocal(shard)) {
+ *            Object inst = router.localInstance(beanName, shard);
+ *            try {
+ *                Object result = inst.method(args);   // invokevirtual
+ *            } finally {
+ *                router.releaseLocal(shard);        // 与 localInstance 成对调用
+ *            }
  *        } else {
- *            Object result = router.invokeRemote(beanName, shardKey, method, args);
+ *            Object result = router.invokeRemote(beanName, shard, shardKey, method, args);
  *        }
  *     4. 写 resp
+ *
+ * 迁移协议（{@link #rebalance}，每个节点都用同一个新环调用）：
+ *   - 迁入分片：在目标节点接管前仍路由到原节点；原节点经 {@link ShardTransport#handoff} 交来实例后，
+ *     {@link #acceptShard} 注册实例并把该分片切到本节点
+ *   - 迁出分片：先从 ShardRegistry 摘下实例（之后本节点对该分片的调用抛 {@link ShardMigratingException}），
+ *     再等待已经通过 localInstance 拿到实例、还没有 releaseLocal 的调用结束，之后才把实例交给 ShardTransport，
+ *     保证同一分片的状态不会同时在两个节点上被修改；handoff 返回后把该分片切到目标节点。
+ *     等待超时或 handoff 失败则把实例放回、分片仍归本节点，其它分片继续交接，失败的分片由 {@link #retryHandoffs} 重试
+ *   - handoff 在路由器的锁外执行，两个节点互相迁移分片时不会因为对端 acceptShard 等锁而死锁
+ *   - 不迁移的分片不受影响，扩容时只有约 1/(N+1) 的分片换节点
  */
 public class ClusterShardRouter {
 
-    private final ShardRegistry local;
-    private final RpcClient     rpc;
-    private final int           localShardCount;
-    private final int           clusterSize;
-    private final int           currentNodeIdx;
+    static Logger LOG = LoggerManager.getLogger(ClusterShardRouter.class);
+
+    /** 迁出分片时等待进行中的本地调用结束的默认毫秒数 */
+    public static final long DEFAULT_QUIESCE_TIMEOUT_MILLIS = 5000;
+
+    private final ShardRegistry  local;
+    private final RpcClient      rpc;
+    private final ShardTransport transport;
+    private final int            currentNodeIdx;
+
+    private volatile ShardRing ring;
+    /**
+     * shard → 当前实际路由到的节点。与 ring.shardTable 的区别只在迁移中：迁入分片在接管前仍指向原节点，
+     * 迁出分片在交接完成前仍指向本节点。写时复制，路由热路径只读 volatile 数组。
+     */
+    private volatile int[] owners;
+    /**
+     * 串行化 rebalance 与 retryHandoffs，handoff 期间只持有该锁，不持有路由器本身的锁
+     */
+    private final Object rebalanceLock = new Object();
+    /**
+     * shard → 已经通过 localInstance 拿到实例、还没有 releaseLocal 的调用数。分片数在 rebalance 时不变，按分片 id 索引
+     */
+    private final AtomicIntegerArray inFlight;
+    private volatile long quiesceTimeoutMillis = DEFAULT_QUIESCE_TIMEOUT_MILLIS;
 
+    /**
+     * 兼容旧的拓扑参数：clusterSize 个节点（0..clusterSize-1），全集群 localShardCount × clusterSize 个分片。
+     */
     public ClusterShardRouter(ShardRegistry local, RpcClient rpc,
                               int localShardCount, int clusterSize, int currentNodeIdx) {
+        this(local, rpc, null, ringOf(localShardCount, clusterSize), currentNodeIdx);
+        if (currentNodeIdx >= clusterSize) {
+            throw new IllegalArgumentException("currentNodeIdx out of range");
+        }
+    }
+
+    /**
+     * @param ring           当前集群拓扑；新节点加入时传加入前的环，再用加入后的环调用 {@link #rebalance}
+     * @param transport      分片迁移的传输，不需要在线迁移时可以为 null
+     * @param currentNodeIdx 本节点 idx
+     */
+    public ClusterShardRouter(ShardRegistry local, RpcClient rpc, ShardTransport transport,
+                              ShardRing ring, int currentNodeIdx) {
+        if (ring == null)       throw new IllegalArgumentException("ring must not be null");
+        if (currentNodeIdx < 0) throw new IllegalArgumentException("currentNodeIdx out of range");
+        this.local          = local;
+        this.rpc            = rpc;
+        this.transport      = transport;
+        this.ring           = ring;
+        this.owners         = ring.shardTable();
+        this.currentNodeIdx = currentNodeIdx;
+        this.inFlight       = new AtomicIntegerArray(ring.shardCount());
+    }
+
+    private static ShardRing ringOf(int localShardCount, int clusterSize) {
         if (localShardCount < 1) throw new IllegalArgumentException("localShardCount must be >= 1");
         if (clusterSize < 1)     throw new IllegalArgumentException("clusterSize must be >= 1");
-        if (currentNodeIdx < 0 || currentNodeIdx >= clusterSize) {
-            throw new IllegalArgumentException("currentNodeIdx out of range");
+        int[] nodes = new int[clusterSize];
+        for (int i = 0; i < clusterSize; i++) {
+            nodes[i] = i;
         }
-        this.local           = local;
-        this.rpc             = rpc;
-        this.localShardCount = localShardCount;
-        this.clusterSize     = clusterSize;
-        this.currentNodeIdx  = currentNodeIdx;
+        return new ShardRing(localShardCount * clusterSize, nodes);
     }
 
-    public int localShardCount() { return localShardCount; }
-    public int clusterSize()     { return clusterSize; }
+    /** 本节点当前持有的分片数。 */
+    public int localShardCount() { return localShards().length; }
+    public int clusterSize()     { return ring.nodeCount(); }
     public int currentNodeIdx()  { return currentNodeIdx; }
+    public ShardRing ring()      { return ring; }
     public ShardRegistry localShardRegistry() { return local; }
 
+    /** 迁出分片时最多等待进行中的本地调用结束的毫秒数，超时则该分片本次交接失败。 */
+    public void setQuiesceTimeoutMillis(long quiesceTimeoutMillis) {
+        this.quiesceTimeoutMillis = quiesceTimeoutMillis;
+    }
+
+    /** shardKey 所属的分片，生成的 Handler 每次请求只算一次。 */
+    public int shardOf(String shardKey) {
+        return ring.shardOf(shardKey);
+    }
+
+    /** 分片当前路由到的节点。 */
+    public int targetNode(int shard) {
+        return owners[shard];
+    }
+
     /** 计算 shardKey 应路由到哪个节点。 */
     public int targetNode(String shardKey) {
-        int totalShards = localShardCount * clusterSize;
-        int globalIdx   = Math.abs(shardKey.hashCode()) % totalShards;
-        return globalIdx / localShardCount;
+        return owners[shardOf(shardKey)];
+    }
+
+    /** 当前节点是否拥有该分片。 */
+    public boolean isLocal(int shard) {
+        return owners[shard] == currentNodeIdx;
     }
 
     /** 当前节点是否拥有该 shardKey 对应的分片。 */
     public boolean isLocal(String shardKey) {
-        return targetNode(shardKey) == currentNodeIdx;
+        return isLocal(shardOf(shardKey));
+    }
+
+    /** 本节点当前持有的分片，升序。 */
+    public int[] localShards() {
+        int[] table = owners;
+        int count = 0;
+        for (int owner : table) {
+            if (owner == currentNodeIdx) count++;
+        }
+        int[] shards = new int[count];
+        int idx = 0;
+        for (int shard = 0; shard < table.length; shard++) {
+            if (table[shard] == currentNodeIdx) shards[idx++] = shard;
+        }
+        return shards;
+    }
+
+    /** 按本节点持有的分片把 @Sharded bean 模板扩展为分片实例。 */
+    public void registerSharded(String beanName, Object template) {
+        local.registerSharded(beanName, template, localShards());
     }
 
     /**
-     * 取本节点分片实例。前提：isLocal(shardKey) == true；否则抛 IllegalStateException
+     * 取本节点分片实例。前提：isLocal(shard) == true；否则抛 IllegalStateException
      * （调用方应先 isLocal 判断，再决定走 localInstance 还是 invokeRemote）。
+     * 成功返回后调用方使用完实例必须调用 {@link #releaseLocal}，迁出该分片时会等待这些调用结束。
+     *
+     * @throws ShardMigratingException 分片正在迁出，实例已摘下
      */
-    public Object localInstance(String beanName, String shardKey) {
-        if (!isLocal(shardKey)) {
+    public Object localInstance(String beanName, int shard) {
+        int owner = owners[shard];
+        if (owner != currentNodeIdx) {
             throw new IllegalStateException(
-                "Shard not local: beanName=" + beanName + ", shardKey=" + shardKey
-                + ", owningNode=" + targetNode(shardKey) + ", currentNode=" + currentNodeIdx);
+                "Shard not local: beanName=" + beanName + ", shard=" + shard
+                + ", owningNode=" + owner + ", currentNode=" + currentNodeIdx);
         }
-        int totalShards = localShardCount * clusterSize;
-        int globalIdx   = Math.abs(shardKey.hashCode()) % totalShards;
-        int localIdx    = globalIdx % localShardCount;
-        return local.routeByIndex(beanName, localIdx);
+        // 先登记再查实例：handoff 先摘实例再检查计数，两者至少有一方能看到对方
+        inFlight.incrementAndGet(shard);
+        Object instance;
+        try {
+            instance = local.routeByIndex(beanName, shard);
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet(shard);
+            throw e;
+        }
+        if (instance == null) {
+            inFlight.decrementAndGet(shard);
+            throw new ShardMigratingException(beanName, shard);
+        }
+        return instance;
+    }
+
+    public Object localInstance(String beanName, String shardKey) {
+        return localInstance(beanName, shardOf(shardKey));
+    }
+
+    /** 结束一次通过 {@link #localInstance} 开始的本地调用。 */
+    public void releaseLocal(int shard) {
+        inFlight.decrementAndGet(shard);
     }
 
     /**
-     * 跨节点 RPC 调用目标分片。前提：isLocal(shardKey) == false；否则抛 IllegalStateException
+     * 跨节点 RPC 调用目标分片。前提：isLocal(shard) == false；否则抛 IllegalStateException
      * （避免"是本节点却走了 RPC"的浪费）。
      */
-    public Object invokeRemote(String beanName, String shardKey, Method method, Object[] args) {
-        if (isLocal(shardKey)) {
+    public Object invokeRemote(String beanName, int shard, String shardKey, Method method, Object[] args) {
+        int target = owners[shard];
+        if (target == currentNodeIdx) {
             throw new IllegalStateException(
                 "Shard is local, use localInstance: beanName=" + beanName + ", shardKey=" + shardKey);
         }
-        int target = targetNode(shardKey);
         return rpc.invoke(beanName, target, shardKey, method, args);
     }
-}
\ No newline at end of file
+
+    public Object invokeRemote(String beanName, String shardKey, Method method, Object[] args) {
+        return invokeRemote(beanName, shardOf(shardKey), shardKey, method, args);
+    }
+
+    /**
+     * 切换到新的集群拓扑，迁出本节点不再持有的分片。新环的分片数必须与当前环一致（key → shard 不变）。
+     * 集群中每个节点都应以同一个新环调用；迁入的分片由原节点 handoff 后经 {@link #acceptShard} 接管。
+     *
+     * 路由表在锁内计算并切换，handoff 在锁外逐个分片执行：对端的 acceptShard 需要获取对端路由器的锁，
+     * 两个节点同时向对方迁移分片时持锁 handoff 会互相等待。单个分片交接失败不影响其它分片，
+     * 失败的分片仍由本节点持有，可以通过 {@link #retryHandoffs} 重试。
+     *
+     * @return 交接失败、仍由本节点持有的分片，全部成功时为空数组
+     * @throws IllegalArgumentException 分片数不一致
+     * @throws IllegalStateException    有分片需要迁出但没有配置 ShardTransport
+     */
+    public int[] rebalance(ShardRing newRing) {
+        synchronized (rebalanceLock) {
+            synchronized (this) {
+                ShardRing oldRing = ring;
+                if (newRing.shardCount() != oldRing.shardCount()) {
+                    throw new IllegalArgumentException("shardCount mismatch: " + oldRing.shardCount()
+                            + " -> " + newRing.shardCount());
+                }
+                int[] table = newRing.shardTable();
+                int[] cur   = owners;
+                int[] next  = cur.clone();
+                boolean moveOut = false;
+                for (int shard = 0; shard < table.length; shard++) {
+                    // 迁入分片等原节点交接后再切换，其它节点之间的迁移直接按新环路由
+                    if (table[shard] != currentNodeIdx && cur[shard] != currentNodeIdx) {
+                        next[shard] = table[shard];
+                    } else if (table[shard] != currentNodeIdx) {
+                        moveOut = true;
+                    }
+                }
+                if (moveOut && transport == null) {
+                    throw new IllegalStateException("ShardTransport not configured, cannot move shards out");
+                }
+                owners = next;
+                ring   = newRing;
+            }
+            return handoffAll();
+        }
+    }
+
+    /**
+     * 重试之前交接失败的分片：本节点仍持有、但当前环已经分给其它节点的分片。
+     *
+     * @return 仍然交接失败的分片
+     */
+    public int[] retryHandoffs() {
+        synchronized (rebalanceLock) {
+            return handoffAll();
+        }
+    }
+
+    private int[] handoffAll() {
+        int[] table = ring.shardTable();
+        int[] cur   = owners;
+        int[] failed = new int[table.length];
+        int moved = 0;
+        int failedCount = 0;
+        for (int shard = 0; shard < table.length; shard++) {
+            int target = table[shard];
+            if (cur[shard] != currentNodeIdx || target == currentNodeIdx) {
+                continue;
+            }
+            if (handoff(shard, target)) {
+                moved++;
+            } else {
+                failed[failedCount++] = shard;
+            }
+        }
+        int movedOut = moved;
+        int[] failedShards = Arrays.copyOf(failed, failedCount);
+        if (failedCount > 0) {
+            LOG.warn("rebalance node {} moved out {} of {} shards, handoff failed shards {}",
+                    l -> l.arg(currentNodeIdx).arg(movedOut).arg(table.length).arg(Arrays.toString(failedShards)));
+        } else {
+            LOG.info("rebalance node {} moved out {} of {} shards",
+                    l -> l.arg(currentNodeIdx).arg(movedOut).arg(table.length));
+        }
+        return failedShards;
+    }
+
+    /**
+     * 交接一个分片：摘下实例后等待进行中的本地调用结束再交给对端，超时或失败时把实例放回，分片仍归本节点
+     *
+     * @return 是否交接成功
+     */
+    private boolean handoff(int shard, int target) {
+        Map<String, Object> instances = local.removeShard(shard);
+        if (!quiesce(shard)) {
+            restore(shard, instances);
+            LOG.warn("handoff shard {} to node {} failed, {} local calls still running",
+                    l -> l.arg(shard).arg(target).arg(inFlight.get(shard)));
+            return false;
+        }
+        try {
+            transport.handoff(shard, target, instances);
+        } catch (RuntimeException e) {
+            restore(shard, instances);
+            LOG.warn("handoff shard {} to node {} failed", l -> l.arg(shard).arg(target).threw(e));
+            return false;
+        }
+        setOwner(shard, target);
+        return true;
+    }
+
+    /**
+     * 等待分片上进行中的本地调用结束，实例已经摘下，不会有新的调用拿到实例
+     *
+     * @return 超时前调用全部结束时返回 true
+     */
+    private boolean quiesce(int shard) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(quiesceTimeoutMillis);
+        while (inFlight.get(shard) > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    private void restore(int shard, Map<String, Object> instances) {
+        for (Map.Entry<String, Object> entry : instances.entrySet()) {
+            local.registerShard(entry.getKey(), shard, entry.getValue());
+        }
+    }
+
+    /**
+     * 目标节点接管迁入的分片，由 ShardTransport 的接收端调用。注册实例后该分片切到本节点。
+     *
+     * @param instances beanName → 该分片的实例
+     */
+    public void acceptShard(int shard, Map<String, Object> instances) {
+        for (Map.Entry<String, Object> entry : instances.entrySet()) {
+            local.registerShard(entry.getKey(), shard, entry.getValue());
+        }
+        setOwner(shard, currentNodeIdx);
+    }
+
+    private synchronized void setOwner(int shard, int node) {
+        int[] next = owners.clone();
+        next[shard] = node;
+        owners = next;
+    }
+}
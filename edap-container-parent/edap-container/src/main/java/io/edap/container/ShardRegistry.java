@@ -5,6 +5,7 @@ import io.edap.container.exc.ShardCloneFailedException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 分片实例注册表。@Sharded 标注方法的 bean 模板实例会被扩展为 N 个分片实例，
@@ -20,7 +21,8 @@ import java.util.Map;
  *
  * 路由语义：
  *   - route(beanName, shardKey)：本节点内分片查找，按 hash(shardKey) % localShardCount 选 idx
- *   - routeByIndex(beanName, localIdx)：直接按 idx 查（ClusterShardRouter 计算好 idx 后调用，避开了按 localShardCount hash 导致错位的问题）
+ *   - routeByIndex(beanName, shard)：直接按分片 id 查（ClusterShardRouter 按 {@link ShardRing} 算好分片 id 后调用，
+ *     集群模式下 key 是 {@link ShardRing} 的全局分片 id，本节点只持有归属自己的那部分）
  *
  * 与 ClusterShardRouter 的关系：
  *   ShardRegistry 仅承担"本节点分片存储 + 查找"，不知道集群拓扑
@@ -31,32 +33,65 @@ import java.util.Map;
  *   - 模板克隆：默认走 prototype 路径（无参构造器）；应用可定制 clonePrototype hook
  *   - 生命周期：registerSharded 由 ClusterShardRouter 在运行时调（启动初始化 + 拓扑变化时重建）；
  *     clear() 由 BeanContainer.destroyAllSingletons 在 AppContext.stop 期间调用，释放分片实例链
- *   - 并发：注册期单线程（持有 lifecycleLock）；运行时 route() 多线程读 Map<Integer,Object>，
- *     由于 registerSharded 一次性 put 后不再修改，HashMap 无并发写风险，无需 CHM
+ *   - 迁移：拓扑变化时 ClusterShardRouter 用 {@link #removeShard} 摘下迁出分片的实例交给新节点，
+ *     新节点用 {@link #registerShard} 接管——按分片整体交接，其它分片的实例不受影响
+ *   - 并发：迁移与 route() 并发发生，外层和每个 bean 的分片表都用 ConcurrentHashMap
  */
 public class ShardRegistry {
 
     /** beanName → { shardIdx : instance } */
-    private final Map<String, Map<Integer, Object>> shards = new HashMap<>();
+    private final Map<String, Map<Integer, Object>> shards = new ConcurrentHashMap<>();
 
     /**
      * 把 @Sharded 方法所属 bean 的 template 实例扩展为 shardCount 个分片实例。
-     * shardCount 由 ClusterShardRouter 在运行时计算后传入。
+     * shardCount 由 ClusterShardRouter 在运行时计算后传入。已经存在的分片实例保留不变。
      */
     public void registerSharded(String beanName, Object template, int shardCount) {
         int n = Math.max(1, shardCount);
-        Map<Integer, Object> map = new HashMap<>(n);
+        Map<Integer, Object> map = shards.computeIfAbsent(beanName, k -> new ConcurrentHashMap<>(n));
         for (int i = 0; i < n; i++) {
-            map.put(i, clonePrototype(template, i));   // 每个分片独立实例
+            map.computeIfAbsent(i, idx -> clonePrototype(template, idx));   // 每个分片独立实例
         }
-        shards.put(beanName, map);
+    }
+
+    /**
+     * 集群模式：只为本节点持有的分片（{@link ShardRing#shardsOf} 的结果）创建实例，key 为全局分片 id。
+     * 已经存在的分片实例（例如 {@link #registerShard} 接管的迁入分片）保留不变，只为缺少实例的分片创建实例。
+     */
+    public void registerSharded(String beanName, Object template, int[] shardIds) {
+        Map<Integer, Object> map = shards.computeIfAbsent(beanName,
+                k -> new ConcurrentHashMap<>(Math.max(1, shardIds.length)));
+        for (int shard : shardIds) {
+            map.computeIfAbsent(shard, idx -> clonePrototype(template, idx));
+        }
+    }
+
+    /** 接管从其它节点迁入的分片实例。 */
+    public void registerShard(String beanName, int shard, Object instance) {
+        shards.computeIfAbsent(beanName, k -> new ConcurrentHashMap<>()).put(shard, instance);
+    }
+
+    /**
+     * 摘下一个分片上所有 bean 的实例（迁出前调用），摘下后本节点不再能路由到该分片。
+     *
+     * @return beanName → 实例；本节点没有该分片的实例时返回空 Map
+     */
+    public Map<String, Object> removeShard(int shard) {
+        Map<String, Object> removed = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Object>> entry : shards.entrySet()) {
+            Object instance = entry.getValue().remove(shard);
+            if (instance != null) {
+                removed.put(entry.getKey(), instance);
+            }
+        }
+        return removed;
     }
 
     /**
      * 按 shardKey hash 到本节点内分片 idx 查实例。
      *
      * 注意：本方法只用于"shardCount 就是本节点分片数"的场景（即单节点部署，shardCount 全部在本节点）。
-     * 多节点集群下应使用 {@link #routeByIndex(String, int)}，由 ClusterShardRouter 计算好 localIdx 后
+     * 多节点集群下应使用 {@link #routeByIndex(String, int)}，由 ClusterShardRouter 计算好分片 id 后
      * 调用——避免本方法 hash 出错的 idx（hash 按 localShardCount 而非 totalShardCount）。
      *
      * @throws NoSuchBeanException beanName 未注册
@@ -65,24 +100,25 @@ public class ShardRegistry {
         Map<Integer, Object> map = shards.get(beanName);
         if (map == null) throw new NoSuchBeanException(beanName);
         int shardCount = map.size();
-        int idx = Math.abs(shardKey.hashCode()) % shardCount;
+        int idx = Math.floorMod(shardKey.hashCode(), shardCount);
         return map.get(idx);
     }
 
     /**
-     * 按本地分片 idx 直接查实例（不做 hash 计算）。
+     * 按分片 id 直接查实例（不做 hash 计算）。
      *
-     * 用法：ClusterShardRouter 计算出 globalIdx 后映射到 localIdx（globalIdx % localShardCount），
-     * 再调本方法取实例。多节点集群下使用，避免 route() 按 localShardCount hash 导致的分片错位。
+     * 用法：ClusterShardRouter 按 {@link ShardRing#shardOf} 算出全局分片 id 后调本方法取实例。
+     * 多节点集群下使用，避免 route() 按 localShardCount hash 导致的分片错位。
      *
      * @param beanName bean 名
-     * @param localIdx 本节点内分片 idx（0..localShardCount-1）
+     * @param shard    分片 id
+     * @return 实例；本节点不持有该分片（未归属或正在迁移）时返回 null
      * @throws NoSuchBeanException beanName 未注册
      */
-    public Object routeByIndex(String beanName, int localIdx) {
+    public Object routeByIndex(String beanName, int shard) {
         Map<Integer, Object> map = shards.get(beanName);
         if (map == null) throw new NoSuchBeanException(beanName);
-        return map.get(localIdx);
+        return map.get(shard);
     }
 
     /** 销毁（AppContext.stop 期间）：清空所有分片引用。 */
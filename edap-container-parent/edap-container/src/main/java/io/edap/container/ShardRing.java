@@ -0,0 +1,162 @@
+package io.edap.container;
+
+import java.util.Arrays;
+
+/**
+ * 分片一致性哈希环（不可变）。全集群固定 shardCount 个分片，节点以虚拟节点的形式分布在 64 位哈希环上，
+ * 每个分片归属于环上顺时针方向的第一个虚拟节点所在的节点。
+ *
+ * 路由模型（两级映射）：
+ *   shardKey → shard：hash64(shardKey) 的高 32 位按 shardCount 做乘法取范围（无取模、无 Math.abs），
+ *                     与集群拓扑无关，拓扑变化时 key 所属分片不变
+ *   shard → node    ：构造时预先计算好的 shardTable[shard]，运行时一次数组下标访问
+ *
+ * 为什么两级：
+ *   - 拓扑变化只改变 shard → node，key → shard 不变，迁移以分片为单位（{@link ShardRegistry} 中的实例）
+ *   - 增加一个节点时，只有新节点的虚拟节点"截走"的分片换了归属，约 1/(N+1) 的分片迁移到新节点，
+ *     其它分片的归属不变；旧实现 {@code hash % (N × localShardCount)} 扩容时几乎所有 key 都会换节点
+ *
+ * 哈希：FNV-1a（按 char 逐个计算，不需要 String.getBytes 的分配）+ murmur3 fmix64 打散，
+ * 虚拟节点位置由 (node, i) 直接 fmix64 得到，分片在环上等间距分布。
+ */
+public final class ShardRing {
+
+    /** 每个节点默认的虚拟节点数 */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME  = 0x100000001b3L;
+
+    private final int   shardCount;
+    private final int   virtualNodes;
+    /** 环上的节点，升序、去重 */
+    private final int[] nodes;
+    /** shard → node，预先计算 */
+    private final int[] shardTable;
+
+    public ShardRing(int shardCount, int... nodes) {
+        this(shardCount, DEFAULT_VIRTUAL_NODES, nodes);
+    }
+
+    public ShardRing(int shardCount, int virtualNodes, int[] nodes) {
+        if (shardCount < 1)   throw new IllegalArgumentException("shardCount must be >= 1");
+        if (virtualNodes < 1) throw new IllegalArgumentException("virtualNodes must be >= 1");
+        if (nodes == null || nodes.length == 0) {
+            throw new IllegalArgumentException("ShardRing needs at least one node");
+        }
+        int[] sorted = Arrays.stream(nodes).distinct().sorted().toArray();
+        for (int node : sorted) {
+            if (node < 0) throw new IllegalArgumentException("node must be >= 0: " + node);
+        }
+        this.shardCount   = shardCount;
+        this.virtualNodes = virtualNodes;
+        this.nodes        = sorted;
+        this.shardTable   = buildShardTable(shardCount, virtualNodes, sorted);
+    }
+
+    private static int[] buildShardTable(int shardCount, int virtualNodes, int[] nodes) {
+        int     total  = nodes.length * virtualNodes;
+        long[]  vnodes = new long[total];
+        int idx = 0;
+        for (int n = 0; n < nodes.length; n++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // token 高 32 位存位置，低 32 位存节点在 nodes 中的下标，排序后可直接取回归属节点
+                long pos = fmix64(((long) nodes[n] << 32) | i) & 0xFFFFFFFF00000000L;
+                vnodes[idx++] = pos | n;
+            }
+        }
+        Arrays.sort(vnodes);
+
+        int[] table = new int[shardCount];
+        long  step  = Long.divideUnsigned(-1L, shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            long point = (Long.MIN_VALUE + shard * step + (step >>> 1)) & 0xFFFFFFFF00000000L;
+            int  pos   = Arrays.binarySearch(vnodes, point);
+            if (pos < 0) {
+                pos = -pos - 1;
+            }
+            if (pos == total) {
+                pos = 0;                                      // 超过最后一个虚拟节点，回绕到环首
+            }
+            table[shard] = nodes[(int) (vnodes[pos] & 0xFFFFFFFFL)];
+        }
+        return table;
+    }
+
+    /** shardKey 所属的分片，拓扑变化时不变。 */
+    public int shardOf(String shardKey) {
+        return (int) (((hash64(shardKey) >>> 32) * shardCount) >>> 32);
+    }
+
+    /** 分片当前归属的节点。 */
+    public int nodeOf(int shard) {
+        return shardTable[shard];
+    }
+
+    /** shardKey 归属的节点。 */
+    public int nodeOf(String shardKey) {
+        return shardTable[shardOf(shardKey)];
+    }
+
+    /** 指定节点拥有的分片，升序。 */
+    public int[] shardsOf(int node) {
+        int count = 0;
+        for (int owner : shardTable) {
+            if (owner == node) count++;
+        }
+        int[] shards = new int[count];
+        int idx = 0;
+        for (int shard = 0; shard < shardTable.length; shard++) {
+            if (shardTable[shard] == node) shards[idx++] = shard;
+        }
+        return shards;
+    }
+
+    /** 加入节点后的新环，分片数和虚拟节点数不变。 */
+    public ShardRing addNode(int node) {
+        int[] newNodes = Arrays.copyOf(nodes, nodes.length + 1);
+        newNodes[nodes.length] = node;
+        return new ShardRing(shardCount, virtualNodes, newNodes);
+    }
+
+    /** 移除节点后的新环，分片数和虚拟节点数不变。 */
+    public ShardRing removeNode(int node) {
+        return new ShardRing(shardCount, virtualNodes,
+                Arrays.stream(nodes).filter(n -> n != node).toArray());
+    }
+
+    public boolean contains(int node) {
+        return Arrays.binarySearch(nodes, node) >= 0;
+    }
+
+    public int shardCount()   { return shardCount; }
+    public int virtualNodes() { return virtualNodes; }
+    public int nodeCount()    { return nodes.length; }
+    public int[] nodes()      { return nodes.clone(); }
+    public int[] shardTable() { return shardTable.clone(); }
+
+    /**
+     * 64 位字符串哈希：FNV-1a 按 UTF-16 char 计算后用 fmix64 打散低熵的高位。
+     */
+    public static long hash64(CharSequence key) {
+        long h = FNV_OFFSET;
+        for (int i = 0, len = key.length(); i < len; i++) {
+            char c = key.charAt(i);
+            h ^= c & 0xFF;
+            h *= FNV_PRIME;
+            h ^= c >>> 8;
+            h *= FNV_PRIME;
+        }
+        return fmix64(h);
+    }
+
+    /** murmur3 的 64 位 finalizer。 */
+    static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
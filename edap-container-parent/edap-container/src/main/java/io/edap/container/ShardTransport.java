@@ -0,0 +1,25 @@
+package io.edap.container;
+
+import java.util.Map;
+
+/**
+ * 分片迁移的传输抽象。ClusterShardRouter 在拓扑变化（{@link ClusterShardRouter#rebalance}）时
+ * 把迁出分片的实例通过本接口交给新的归属节点。
+ *
+ * 协议无关：实现负责把分片实例（@Sharded bean 的 per-shard 状态）序列化发到目标节点，
+ * 目标节点反序列化后调用其 {@link ClusterShardRouter#acceptShard} 接管分片。
+ *
+ * 契约：{@link #handoff} 正常返回即表示目标节点已经接管该分片（acceptShard 已完成）；
+ * 抛异常表示交接失败，源节点回滚，分片仍由源节点持有。
+ */
+public interface ShardTransport {
+
+    /**
+     * 把一个分片上所有 bean 的实例交给目标节点。
+     *
+     * @param shard      分片 id（0..shardCount-1）
+     * @param targetNode 目标节点 idx
+     * @param instances  beanName → 该分片的实例
+     */
+    void handoff(int shard, int targetNode, Map<String, Object> instances);
+}
@@ -0,0 +1,11 @@
+package io.edap.container.exc;
+
+/**
+ * 分片正在迁移（实例已从源节点摘下、目标节点尚未接管），调用方可稍后重试。
+ */
+public class ShardMigratingException extends RuntimeException {
+
+    public ShardMigratingException(String beanName, int shard) {
+        super("Shard #" + shard + " of " + beanName + " is migrating");
+    }
+}
@@ -0,0 +1,258 @@
+package io.edap.container.test;
+
+import io.edap.container.ClusterShardRouter;
+import io.edap.container.ShardRegistry;
+import io.edap.container.ShardRing;
+import io.edap.container.ShardTransport;
+import io.edap.container.exc.ShardMigratingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterShardRouterTest {
+
+    @Test
+    public void testEvenDistribution() {
+        ShardRing ring = new ShardRing(1024, 0, 1, 2, 3);
+        int[] counts = new int[4];
+        for (int shard = 0; shard < ring.shardCount(); shard++) {
+            counts[ring.nodeOf(shard)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 256 * 0.75 && count < 256 * 1.25, "unbalanced shards: " + count);
+        }
+
+        int[] keys = new int[ring.shardCount()];
+        for (int i = 0; i < 100000; i++) {
+            keys[ring.shardOf("user-" + i)]++;
+        }
+        for (int count : keys) {
+            assertTrue(count > 0, "empty shard");
+        }
+    }
+
+    @Test
+    public void testAddNodeMovesOnlyToNewNode() {
+        ShardRing oldRing = new ShardRing(1024, 0, 1, 2, 3);
+        ShardRing newRing = oldRing.addNode(4);
+        int moved = 0;
+        for (int shard = 0; shard < oldRing.shardCount(); shard++) {
+            if (oldRing.nodeOf(shard) != newRing.nodeOf(shard)) {
+                assertEquals(4, newRing.nodeOf(shard));
+                moved++;
+            }
+        }
+        // 理想值 1024 / 5
+        assertTrue(moved > 150 && moved < 260, "moved shards: " + moved);
+        assertEquals(oldRing.shardOf("order-42"), newRing.shardOf("order-42"));
+    }
+
+    @Test
+    public void testRebalanceHandoff() {
+        ShardRing oldRing = new ShardRing(64, 0);
+        ShardRing newRing = oldRing.addNode(1);
+        ClusterShardRouter[] routers = new ClusterShardRouter[2];
+        ShardTransport transport = (shard, target, instances) -> routers[target].acceptShard(shard, instances);
+        routers[0] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 0);
+        routers[1] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 1);
+        routers[0].registerSharded("counter", new Counter());
+        assertEquals(64, routers[0].localShardCount());
+        assertEquals(0, routers[1].localShardCount());
+
+        String key = null;
+        for (int i = 0; key == null; i++) {
+            if (newRing.nodeOf("k" + i) == 1) key = "k" + i;
+        }
+        int shard = routers[0].shardOf(key);
+        Counter before = (Counter) routers[0].localInstance("counter", shard);
+        before.value = 7;
+        routers[0].releaseLocal(shard);
+
+        routers[1].rebalance(newRing);
+        // 原节点交接前，迁入的分片仍路由到原节点
+        assertFalse(routers[1].isLocal(shard));
+        assertEquals(0, routers[1].targetNode(shard));
+
+        routers[0].rebalance(newRing);
+        assertFalse(routers[0].isLocal(shard));
+        assertTrue(routers[1].isLocal(shard));
+        Counter after = (Counter) routers[1].localInstance("counter", shard);
+        assertSame(before, after);
+        assertEquals(7, after.value);
+        assertEquals(newRing.shardsOf(1).length, routers[1].localShardCount());
+        assertEquals(newRing.shardsOf(0).length, routers[0].localShardCount());
+        assertNull(routers[0].localShardRegistry().routeByIndex("counter", shard));
+    }
+
+    @Test
+    public void testHandoffFailedRollback() {
+        ShardRing oldRing = new ShardRing(16, 0);
+        ShardRing newRing = oldRing.addNode(1);
+        ClusterShardRouter[] target = new ClusterShardRouter[1];
+        AtomicInteger failures = new AtomicInteger(3);
+        ShardTransport transport = (shard, node, instances) -> {
+            // 前几次交接失败，失败不能中断其它分片的交接
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("node " + node + " unreachable");
+            }
+            target[0].acceptShard(shard, instances);
+        };
+        ClusterShardRouter router = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 0);
+        target[0] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 1);
+        router.registerSharded("counter", new Counter());
+        target[0].rebalance(newRing);
+        int moving = newRing.shardsOf(1).length;
+        assertTrue(moving > 3, "moving shards: " + moving);
+
+        int[] failed = router.rebalance(newRing);
+        assertEquals(3, failed.length);
+        assertEquals(newRing.shardsOf(0).length + 3, router.localShardCount());
+        for (int shard : failed) {
+            assertTrue(router.isLocal(shard));
+            assertNotNull(router.localInstance("counter", shard));
+            router.releaseLocal(shard);
+        }
+        assertEquals(moving - 3, target[0].localShardCount());
+
+        assertEquals(0, router.retryHandoffs().length);
+        assertEquals(newRing.shardsOf(0).length, router.localShardCount());
+        assertEquals(moving, target[0].localShardCount());
+    }
+
+    @Test
+    public void testHandoffWaitsInFlight() throws InterruptedException {
+        ShardRing oldRing = new ShardRing(16, 0);
+        ShardRing newRing = oldRing.addNode(1);
+        ClusterShardRouter[] target = new ClusterShardRouter[1];
+        ShardTransport transport = (shard, node, instances) -> target[0].acceptShard(shard, instances);
+        ClusterShardRouter router = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 0);
+        target[0] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 1);
+        router.registerSharded("counter", new Counter());
+        target[0].rebalance(newRing);
+        int shard = newRing.shardsOf(1)[0];
+
+        Counter inst = (Counter) router.localInstance("counter", shard);
+        int[][] failed = new int[1][];
+        Thread rebalance = new Thread(() -> failed[0] = router.rebalance(newRing));
+        rebalance.start();
+        // 实例摘下后交接要等进行中的调用结束，新的调用拿不到实例
+        while (router.localShardRegistry().routeByIndex("counter", shard) != null) {
+            Thread.sleep(1);
+        }
+        assertThrows(ShardMigratingException.class, () -> router.localInstance("counter", shard));
+        assertFalse(target[0].isLocal(shard));
+        inst.value = 9;
+        router.releaseLocal(shard);
+
+        rebalance.join(10000);
+        assertFalse(rebalance.isAlive());
+        assertEquals(0, failed[0].length);
+        Counter moved = (Counter) target[0].localInstance("counter", shard);
+        assertSame(inst, moved);
+        assertEquals(9, moved.value);
+    }
+
+    @Test
+    public void testHandoffQuiesceTimeout() {
+        ShardRing oldRing = new ShardRing(16, 0);
+        ShardRing newRing = oldRing.addNode(1);
+        ClusterShardRouter[] target = new ClusterShardRouter[1];
+        ShardTransport transport = (shard, node, instances) -> target[0].acceptShard(shard, instances);
+        ClusterShardRouter router = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 0);
+        target[0] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, 1);
+        router.setQuiesceTimeoutMillis(50);
+        router.registerSharded("counter", new Counter());
+        target[0].rebalance(newRing);
+        int shard = newRing.shardsOf(1)[0];
+
+        Object inst = router.localInstance("counter", shard);
+        assertArrayEquals(new int[]{shard}, router.rebalance(newRing));
+        assertTrue(router.isLocal(shard));
+        assertSame(inst, router.localShardRegistry().routeByIndex("counter", shard));
+
+        router.releaseLocal(shard);
+        assertEquals(0, router.retryHandoffs().length);
+        assertSame(inst, target[0].localInstance("counter", shard));
+    }
+
+    @Test
+    public void testRebalanceBothDirections() throws InterruptedException {
+        ShardRing oldRing = new ShardRing(256, 160, new int[]{0, 1});
+        ShardRing newRing = new ShardRing(256, 7, new int[]{0, 1});
+        ClusterShardRouter[] routers = new ClusterShardRouter[2];
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ShardTransport transport = (shard, target, instances) -> {
+            // 两个节点都开始交接后再调用对端，持锁交接时这里会互相等待
+            bothStarted.countDown();
+            try {
+                bothStarted.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            routers[target].acceptShard(shard, instances);
+        };
+        int[] moved = new int[2];
+        for (int node = 0; node < 2; node++) {
+            routers[node] = new ClusterShardRouter(new ShardRegistry(), null, transport, oldRing, node);
+            routers[node].registerSharded("counter", new Counter());
+            for (int shard : oldRing.shardsOf(node)) {
+                if (newRing.nodeOf(shard) != node) moved[node]++;
+            }
+        }
+        assertTrue(moved[0] > 0 && moved[1] > 0, "shards must move both ways");
+
+        Thread[] threads = new Thread[2];
+        int[][] failed = new int[2][];
+        for (int node = 0; node < 2; node++) {
+            int n = node;
+            threads[node] = new Thread(() -> failed[n] = routers[n].rebalance(newRing));
+            threads[node].start();
+        }
+        for (Thread t : threads) {
+            t.join(10000);
+            assertFalse(t.isAlive(), "rebalance deadlocked");
+        }
+        for (int node = 0; node < 2; node++) {
+            assertEquals(0, failed[node].length);
+            assertArrayEquals(newRing.shardsOf(node), routers[node].localShards());
+        }
+    }
+
+    @Test
+    public void testRegisterShardedKeepsAccepted() {
+        ShardRing ring = new ShardRing(4, 0);
+        ClusterShardRouter router = new ClusterShardRouter(new ShardRegistry(), null, null, ring, 0);
+        Counter accepted = new Counter();
+        Map<String, Object> instances = new HashMap<>();
+        instances.put("counter", accepted);
+        router.acceptShard(1, instances);
+        // 迁入的实例已经注册，之后注册模板时不能覆盖
+        router.registerSharded("counter", new Counter());
+        assertSame(accepted, router.localInstance("counter", 1));
+        assertNotNull(router.localInstance("counter", 0));
+    }
+
+    @Test
+    public void testMigratingShard() {
+        ShardRing ring = new ShardRing(4, 0);
+        ClusterShardRouter router = new ClusterShardRouter(new ShardRegistry(), null, null, ring, 0);
+        router.registerSharded("counter", new Counter());
+        Map<String, Object> removed = router.localShardRegistry().removeShard(2);
+        assertEquals(1, removed.size());
+        assertThrows(ShardMigratingException.class, () -> router.localInstance("counter", 2));
+
+        Map<String, Object> instances = new HashMap<>(removed);
+        router.acceptShard(2, instances);
+        assertSame(removed.get("counter"), router.localInstance("counter", 2));
+    }
+
+    public static class Counter {
+        public int value;
+    }
+}
@@ -1,4 +1,26 @@
 package io.edap.rpc;
 
+import java.io.IOException;
+
+/**
+ * eRPC服务方法的处理器，每个处理器对应服务节点上一个服务的一个方法，由serviceId和methodId唯一确定
+ */
 public interface ErpcHandler {
+
+    /**
+     * 服务在服务节点的唯一标识
+     */
+    int getServiceId();
+
+    /**
+     * 方法在服务内的唯一标识
+     */
+    int getMethodId();
+
+    /**
+     * 处理rpc请求，将调用结果写入response的response字段
+     * @param request rpc的请求
+     * @param response rpc的返回，服务和请求的标识已经由框架填充
+     */
+    void handle(RpcRequest request, RpcResponse response) throws IOException;
 }
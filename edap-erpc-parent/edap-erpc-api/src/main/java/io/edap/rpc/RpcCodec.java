@@ -1,8 +1,42 @@
 package io.edap.rpc;
 
+import java.io.IOException;
+
 /**
  * edap的PRC数据的编解码器，负责rpc交互时序列化和反序列化
  */
 public interface RpcCodec {
 
+    /**
+     * 编解码算法的类型，对应RpcMessage的codec
+     */
+    int getCodec();
+
+    /**
+     * 将RpcRequest或者RpcResponse序列化为字节数组
+     * @param message 需要序列化的对象
+     * @return 序列化后的数据
+     * @throws IOException 序列化失败时抛出
+     */
+    byte[] encode(Object message) throws IOException;
+
+    /**
+     * 将字节数组反序列化为指定类型的对象
+     * @param data 数据所在的数组
+     * @param offset 数据开始的下标
+     * @param len 数据的长度
+     * @param cls 反序列化的类型
+     * @return 反序列化后的对象
+     * @throws IOException 数据不合法时抛出
+     */
+    <T> T decode(byte[] data, int offset, int len, Class<T> cls) throws IOException;
+
+    /**
+     * 为一个连接获取编解码器，编解码器有和连接相关的状态(如和对端协商的结果)时返回新的实例，无状态的编解码器
+     * 所有连接共享同一个实例
+     * @return 连接使用的编解码器
+     */
+    default RpcCodec newSession() {
+        return this;
+    }
 }
@@ -16,6 +16,8 @@
 
 package io.edap.rpc;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * RPC框架的执行器，将原有调用转换为RpcRequest并发起调用后获取RpcResponse的对象
  */
@@ -27,4 +29,27 @@ public interface RpcInvoker {
      * @return
      */
     RpcResponse invoke(RpcRequest request);
+
+    /**
+     * 异步的远程执行，默认同步执行后返回已完成的Future
+     * @param request rpc的请求
+     * @return 返回结果的Future
+     */
+    default CompletableFuture<RpcResponse> invokeAsync(RpcRequest request) {
+        return CompletableFuture.completedFuture(invoke(request));
+    }
+
+    /**
+     * 执行器的权重，负载均衡器按权重分配请求
+     */
+    default int getWeight() {
+        return 100;
+    }
+
+    /**
+     * 正在执行还没有返回的请求数
+     */
+    default int getActiveCount() {
+        return 0;
+    }
 }
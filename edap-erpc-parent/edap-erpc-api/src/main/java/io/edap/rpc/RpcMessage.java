@@ -16,10 +16,47 @@
 
 package io.edap.rpc;
 
+import java.nio.ByteBuffer;
+
 /**
- * RPC消息的数据类型定义
+ * RPC消息的数据类型定义，网络上传输时由固定长度的消息头和消息体组成，消息头依次为版本、压缩算法、编解码算法、
+ * 数据类型各1个字节以及4个字节大端序的消息体长度
  */
 public class RpcMessage {
+
+    /**
+     * 消息头的长度
+     */
+    public static final int HEADER_SIZE        = 8;
+    /**
+     * 当前的协议版本
+     */
+    public static final int CURRENT_VERSION    = 1;
+    /**
+     * 不压缩
+     */
+    public static final int COMPRESS_NONE      = 0;
+    /**
+     * eproto编解码
+     */
+    public static final int CODEC_EPROTO       = 0;
+    /**
+     * protobuf编解码
+     */
+    public static final int CODEC_PROTOBUF     = 1;
+    /**
+     * rpc请求
+     */
+    public static final int DATA_TYPE_REQUEST  = 1;
+    /**
+     * rpc的返回
+     */
+    public static final int DATA_TYPE_RESPONSE = 2;
+    /**
+     * 消息体的最大长度，超过该长度认为数据不合法
+     */
+    public static final int MAX_DATA_LEN       = 16 * 1024 * 1024;
+
     /**
      * 协议版本
      */
@@ -44,4 +81,112 @@ public class RpcMessage {
      * 压缩后消息体数据
      */
     private byte[] data;
+
+    /**
+     * 协议版本
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * 压缩算法0为不压缩
+     */
+    public int getCompress() {
+        return compress;
+    }
+
+    public void setCompress(int compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * 编解码算法0为eproto，1为protobuf
+     */
+    public int getCodec() {
+        return codec;
+    }
+
+    public void setCodec(int codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 数据类型1为rpc请求，2为rpc的返回
+     */
+    public int getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(int dataType) {
+        this.dataType = dataType;
+    }
+
+    /**
+     * 压缩后数据的长度
+     */
+    public int getLen() {
+        return len;
+    }
+
+    public void setLen(int len) {
+        this.len = len;
+    }
+
+    /**
+     * 压缩后消息体数据
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * 写入消息头
+     * @param buf 写入的缓冲区
+     * @param codec 编解码算法
+     * @param dataType 数据类型
+     * @param len 消息体长度
+     */
+    public static void writeHeader(ByteBuffer buf, int codec, int dataType, int len) {
+        buf.put((byte)CURRENT_VERSION);
+        buf.put((byte)COMPRESS_NONE);
+        buf.put((byte)codec);
+        buf.put((byte)dataType);
+        buf.putInt(len);
+    }
+
+    /**
+     * 将缓冲区当前位置开始的一个完整消息的消息头读到message，消息体不足时不移动缓冲区的位置
+     * @param buf 读模式的缓冲区
+     * @param message 消息头写入的对象
+     * @return 缓冲区中有完整的消息时返回true，并且缓冲区的位置移动到消息体的开始
+     */
+    public static boolean readHeader(ByteBuffer buf, RpcMessage message) {
+        if (buf.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        int pos = buf.position();
+        int len = buf.getInt(pos + 4);
+        message.setVersion(buf.get(pos));
+        message.setCompress(buf.get(pos + 1));
+        message.setCodec(buf.get(pos + 2));
+        message.setDataType(buf.get(pos + 3));
+        message.setLen(len);
+        if (len < 0 || len > MAX_DATA_LEN) {
+            throw new IllegalArgumentException("rpc message length " + len + " is invalid");
+        }
+        if (buf.remaining() < HEADER_SIZE + len) {
+            return false;
+        }
+        buf.position(pos + HEADER_SIZE);
+        return true;
+    }
 }
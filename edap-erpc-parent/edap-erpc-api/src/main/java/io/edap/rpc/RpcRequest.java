@@ -63,4 +63,92 @@ public class RpcRequest {
      */
     @ProtoField(tag = 8, type = Field.Type.FIXED64)
     private long requestId;
+
+    /**
+     * rpc请求的类型用来区分是普通的调用，还是系统命令的调用
+     */
+    public RpcDataType getReqType() {
+        return reqType;
+    }
+
+    public void setReqType(RpcDataType reqType) {
+        this.reqType = reqType;
+    }
+
+    /**
+     * 服务在服务节点的唯一标识
+     */
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * 方法在服务内的唯一标识
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+    /**
+     * RPC调用的请求参数
+     */
+    public byte[] getRequest() {
+        return request;
+    }
+
+    public void setRequest(byte[] request) {
+        this.request = request;
+    }
+
+    /**
+     * RPC请求的traceId
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public void setTraceId(long traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * 请求处理经过的节点ID的列表
+     */
+    public List<Integer> getWorkId() {
+        return workId;
+    }
+
+    public void setWorkId(List<Integer> workId) {
+        this.workId = workId;
+    }
+
+    /**
+     * 请求发起时间戳
+     */
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    public void setRequestTime(long requestTime) {
+        this.requestTime = requestTime;
+    }
+
+    /**
+     * 异步请求时请求的唯一标识
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
 }
@@ -74,5 +74,113 @@ public class RpcResponse {
     @ProtoField(tag = 10, type = Field.Type.MESSAGE)
     private RpcException exception;
 
+    /**
+     * rpc请求的类型用来区分是普通的调用响应，还是系统命令的调用响应
+     */
+    public RpcDataType getRespType() {
+        return respType;
+    }
+
+    public void setRespType(RpcDataType respType) {
+        this.respType = respType;
+    }
+
+    /**
+     * 服务在服务节点的唯一标识
+     */
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * 方法在服务内的唯一标识
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+    /**
+     * 远程调用的返回对象protobuf序列化后的二进制数据
+     */
+    public byte[] getResponse() {
+        return response;
+    }
+
+    public void setResponse(byte[] response) {
+        this.response = response;
+    }
+
+    /**
+     * 处理响应时间戳
+     */
+    public long getRespTime() {
+        return respTime;
+    }
+
+    public void setRespTime(long respTime) {
+        this.respTime = respTime;
+    }
+
+    /**
+     * traceId
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public void setTraceId(long traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * 异步请求时请求的唯一标识
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * 请求处理经过的节点ID的列表
+     */
+    public List<Integer> getWorkId() {
+        return workId;
+    }
+
+    public void setWorkId(List<Integer> workId) {
+        this.workId = workId;
+    }
+
+    /**
+     * 调用是否正常
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * 调用产生的异常信息
+     */
+    public RpcException getException() {
+        return exception;
+    }
 
+    public void setException(RpcException exception) {
+        this.exception = exception;
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.rpc.codec;
+
+import io.edap.eproto.Eproto;
+import io.edap.eproto.EprotoLayout;
+import io.edap.eproto.EprotoWriter;
+import io.edap.eproto.reader.ByteArrayReader;
+import io.edap.io.BufOut;
+import io.edap.protobuf.EncodeException;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoException;
+import io.edap.rpc.RpcCodec;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static io.edap.rpc.RpcMessage.CODEC_EPROTO;
+
+/**
+ * 使用eproto编解码rpc的请求和返回，连接的两端对消息类的结构指纹协商一致后使用不带tag的位置编码，否则使用带tag
+ * 的protobuf编码。消息体的格式为1个字节的标志位、8个字节小端序的消息类指纹、标志位有{@link #FLAG_ACK}时再跟
+ * 8个字节确认的指纹，之后是编码后的消息。
+ *
+ * <p>协商过程：发送方先用带tag的编码发送消息类的指纹，接收方本地同一个类的指纹相同时记录该类协商成功，并在下一条
+ * 发出的消息中确认该指纹，发送方收到确认后该类的消息都使用位置编码。指纹不同时双方一直使用带tag的编码，由protobuf
+ * 处理字段的增减。协商结果和连接相关，通过{@link #newSession()}为每个连接创建实例。</p>
+ */
+public class EprotoRpcCodec implements RpcCodec {
+
+    /**
+     * 消息使用位置编码
+     */
+    public static final int FLAG_POSITIONAL = 1;
+    /**
+     * 消息中带有确认对端消息类指纹的字段
+     */
+    public static final int FLAG_ACK        = 2;
+
+    private static final int FINGERPRINT_SIZE = 8;
+
+    /**
+     * 已和对端协商一致，可以使用位置编码的消息类
+     */
+    private final Set<Class<?>> agreed;
+    /**
+     * 以带tag的编码发出、等待对端确认的消息类，按指纹索引
+     */
+    private final Map<Long, Class<?>> proposed;
+    /**
+     * 等待随下一条消息发给对端的确认
+     */
+    private final Queue<Long> pendingAcks;
+
+    public EprotoRpcCodec() {
+        this.agreed      = ConcurrentHashMap.newKeySet();
+        this.proposed    = new ConcurrentHashMap<>();
+        this.pendingAcks = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public int getCodec() {
+        return CODEC_EPROTO;
+    }
+
+    @Override
+    public RpcCodec newSession() {
+        return new EprotoRpcCodec();
+    }
+
+    /**
+     * 给定的消息类是否已经和对端协商一致
+     */
+    public boolean isAgreed(Class<?> cls) {
+        return agreed.contains(cls);
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        Class<?> cls = message.getClass();
+        EprotoLayout layout = EprotoLayout.of(cls);
+        Long ack = pendingAcks.poll();
+        int flags = ack == null ? 0 : FLAG_ACK;
+        int headerLen = ack == null ? 1 + FINGERPRINT_SIZE : 1 + FINGERPRINT_SIZE * 2;
+        byte[] payload;
+        int payloadLen;
+        if (agreed.contains(cls)) {
+            flags |= FLAG_POSITIONAL;
+            EprotoWriter writer = Eproto.THREAD_WRITER.get();
+            writer.reset();
+            BufOut out = writer.getBufOut();
+            out.reset();
+            try {
+                layout.encode(writer, message);
+            } catch (EncodeException e) {
+                throw new IOException("encode " + cls.getName() + " error", e);
+            }
+            payload    = out.getWriteBuf().bs;
+            payloadLen = writer.size();
+        } else {
+            if (layout.isPositional()) {
+                proposed.putIfAbsent(layout.fingerprint(), cls);
+            }
+            payload = ProtoBuf.toByteArray(message);
+            if (payload == null) {
+                throw new IOException("encode " + cls.getName() + " error");
+            }
+            payloadLen = payload.length;
+        }
+        byte[] data = new byte[headerLen + payloadLen];
+        data[0] = (byte) flags;
+        putLong(data, 1, layout.fingerprint());
+        if (ack != null) {
+            putLong(data, 1 + FINGERPRINT_SIZE, ack);
+        }
+        System.arraycopy(payload, 0, data, headerLen, payloadLen);
+        return data;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] data, int offset, int len, Class<T> cls) throws IOException {
+        if (len < 1 + FINGERPRINT_SIZE) {
+            throw new IOException("eproto message too short " + len);
+        }
+        int end   = offset + len;
+        int flags = data[offset];
+        long fingerprint = getLong(data, offset + 1);
+        int pos = offset + 1 + FINGERPRINT_SIZE;
+        if ((flags & FLAG_ACK) != 0) {
+            if (end - pos < FINGERPRINT_SIZE) {
+                throw new IOException("eproto message too short " + len);
+            }
+            Class<?> acked = proposed.remove(getLong(data, pos));
+            if (acked != null) {
+                agreed.add(acked);
+            }
+            pos += FINGERPRINT_SIZE;
+        }
+        EprotoLayout<T> layout = EprotoLayout.of(cls);
+        try {
+            if ((flags & FLAG_POSITIONAL) != 0) {
+                if (fingerprint != layout.fingerprint()) {
+                    throw new IOException("schema fingerprint of " + cls.getName() + " mismatch");
+                }
+                return layout.decode(new ByteArrayReader(data, pos, end - pos));
+            }
+            if (fingerprint == layout.fingerprint() && layout.isPositional() && agreed.add(cls)) {
+                pendingAcks.add(fingerprint);
+            }
+            return ProtoBuf.toObject(data, pos, end - pos, cls);
+        } catch (ProtoException e) {
+            throw new IOException("decode " + cls.getName() + " error", e);
+        }
+    }
+
+    private static void putLong(byte[] bs, int pos, long v) {
+        for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+            bs[pos + i] = (byte) (v >>> (i << 3));
+        }
+    }
+
+    private static long getLong(byte[] bs, int pos) {
+        long v = 0;
+        for (int i = FINGERPRINT_SIZE - 1; i >= 0; i--) {
+            v = (v << 8) | (bs[pos + i] & 0xFF);
+        }
+        return v;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.rpc.codec;
+
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoException;
+import io.edap.rpc.RpcCodec;
+
+import java.io.IOException;
+
+import static io.edap.rpc.RpcMessage.CODEC_PROTOBUF;
+
+/**
+ * 使用protobuf编解码rpc的请求和返回
+ */
+public class ProtoBufRpcCodec implements RpcCodec {
+
+    @Override
+    public int getCodec() {
+        return CODEC_PROTOBUF;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        byte[] data = ProtoBuf.toByteArray(message);
+        if (data == null) {
+            throw new IOException("encode " + message.getClass().getName() + " error");
+        }
+        return data;
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int len, Class<T> cls) throws IOException {
+        try {
+            return ProtoBuf.toObject(data, offset, len, cls);
+        } catch (ProtoException e) {
+            throw new IOException("decode " + cls.getName() + " error", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.rpc.client;
+
+import io.edap.nio.client.NioClient;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcException;
+import io.edap.rpc.RpcInvoker;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import io.edap.rpc.codec.ProtoBufRpcCodec;
+import io.edap.rpc.enums.RpcDataType;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 连接一个服务节点的rpc执行器，持有固定数量的长连接，每次请求选择未返回请求最少的连接发送，每个连接上可以同时有
+ * 多个未返回的请求，避免每次调用建立一个TCP连接。连接在第一次使用或者断开后的下一次使用时建立。
+ */
+public class PooledRpcInvoker implements RpcInvoker {
+
+    public static final int DEFAULT_POOL_SIZE       = 2;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+    public static final long DEFAULT_REQUEST_TIMEOUT = 5000;
+
+    private final NioClient                           nioClient;
+    private final InetSocketAddress                   address;
+    private final AtomicReferenceArray<RpcConnection> connections;
+    private final AtomicInteger                       next;
+    private final int                                 weight;
+
+    private RpcCodec codec          = new ProtoBufRpcCodec();
+    private int      connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private long     requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    public PooledRpcInvoker(NioClient nioClient, InetSocketAddress address) {
+        this(nioClient, address, DEFAULT_POOL_SIZE, 100);
+    }
+
+    public PooledRpcInvoker(NioClient nioClient, InetSocketAddress address, int poolSize, int weight) {
+        this.nioClient   = nioClient;
+        this.address     = address;
+        this.connections = new AtomicReferenceArray<>(Math.max(1, poolSize));
+        this.next        = new AtomicInteger();
+        this.weight      = weight;
+    }
+
+    @Override
+    public RpcResponse invoke(RpcRequest request) {
+        try {
+            return invokeAsync(request).get();
+        } catch (ExecutionException e) {
+            return failedResponse(request, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failedResponse(request, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> invokeAsync(RpcRequest request) {
+        RpcConnection conn;
+        try {
+            conn = connection();
+        } catch (IOException e) {
+            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        CompletableFuture<RpcResponse> future = conn.send(request);
+        if (requestTimeout <= 0 || future.isDone()) {
+            return future;
+        }
+        long requestId = request.getRequestId();
+        return future.orTimeout(requestTimeout, TimeUnit.MILLISECONDS).whenComplete((r, t) -> {
+            if (t instanceof TimeoutException) {
+                conn.cancel(requestId);
+            }
+        });
+    }
+
+    /**
+     * 从连接池中选择未返回请求最少的连接，连接不可用时重新建立连接
+     */
+    RpcConnection connection() throws IOException {
+        int size  = connections.length();
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        RpcConnection selected = null;
+        for (int i=0;i<size;i++) {
+            int index = (start + i) % size;
+            RpcConnection conn = connections.get(index);
+            if (conn == null || conn.isClosed()) {
+                return reconnect(index);
+            }
+            if (selected == null || conn.getActiveCount() < selected.getActiveCount()) {
+                selected = conn;
+            }
+        }
+        return selected;
+    }
+
+    private RpcConnection reconnect(int index) throws IOException {
+        synchronized (connections) {
+            RpcConnection conn = connections.get(index);
+            if (conn != null && !conn.isClosed()) {
+                return conn;
+            }
+            conn = nioClient.connect(address, new RpcConnection(codec), connectTimeout);
+            connections.set(index, conn);
+            return conn;
+        }
+    }
+
+    /**
+     * 关闭所有的连接，未返回的请求以异常结束
+     */
+    public void close() {
+        for (int i=0;i<connections.length();i++) {
+            RpcConnection conn = connections.getAndSet(i, null);
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
+    @Override
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public int getActiveCount() {
+        int count = 0;
+        for (int i=0;i<connections.length();i++) {
+            RpcConnection conn = connections.get(i);
+            if (conn != null) {
+                count += conn.getActiveCount();
+            }
+        }
+        return count;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public RpcCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(RpcCodec codec) {
+        this.codec = codec;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * 设置请求的超时毫秒数，小于等于0时不超时
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * 将调用失败的原因转换为RpcResponse返回给同步调用方
+     */
+    static RpcResponse failedResponse(RpcRequest request, Throwable cause) {
+        RpcResponse response = new RpcResponse();
+        response.setRespType(RpcDataType.INVOKE_RESP);
+        response.setServiceId(request.getServiceId());
+        response.setMethodId(request.getMethodId());
+        response.setTraceId(request.getTraceId());
+        response.setRequestId(request.getRequestId());
+        response.setSuccess(false);
+        RpcException exception = new RpcException();
+        exception.setClazzName(cause.getClass().getName());
+        exception.setMessage(cause.getMessage());
+        response.setException(exception);
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.rpc.client;
+
+import io.edap.nio.client.NioClientSession;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcMessage;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.edap.rpc.RpcMessage.*;
+
+/**
+ * rpc客户端的一个连接，一个连接上可以同时有多个未返回的请求，请求按requestId和返回对应。请求编码后由调用线程
+ * 直接写入连接，多个线程的请求合并后写入，返回由IO线程解码后完成对应请求的Future。
+ */
+public class RpcConnection extends NioClientSession {
+
+    private final RpcCodec codec;
+    /**
+     * 已发送还没有返回的请求
+     */
+    private final Map<Long, CompletableFuture<RpcResponse>> inFlight;
+    private final AtomicLong requestIdSeq;
+    /**
+     * 解码消息头时复用的对象，只在IO线程中使用
+     */
+    private final RpcMessage header;
+
+    public RpcConnection(RpcCodec codec) {
+        this.codec        = codec.newSession();
+        this.inFlight     = new ConcurrentHashMap<>();
+        this.requestIdSeq = new AtomicLong();
+        this.header       = new RpcMessage();
+    }
+
+    /**
+     * 发送rpc请求，请求的requestId由连接分配
+     * @param request rpc的请求
+     * @return 返回结果的Future，返回由IO线程完成，Future的回调不能有阻塞的操作
+     */
+    public CompletableFuture<RpcResponse> send(RpcRequest request) {
+        long requestId = requestIdSeq.incrementAndGet();
+        request.setRequestId(requestId);
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        inFlight.put(requestId, future);
+        try {
+            byte[] data = codec.encode(request);
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + data.length);
+            RpcMessage.writeHeader(buf, codec.getCodec(), DATA_TYPE_REQUEST, data.length);
+            buf.put(data);
+            buf.flip();
+            write(buf);
+        } catch (IOException e) {
+            inFlight.remove(requestId);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 放弃等待请求的返回，如超时
+     * @param requestId 请求的唯一标识
+     */
+    public void cancel(long requestId) {
+        inFlight.remove(requestId);
+    }
+
+    /**
+     * 已发送还没有返回的请求数
+     */
+    public int getActiveCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    protected void decode(ByteBuffer buf) throws IOException {
+        while (RpcMessage.readHeader(buf, header)) {
+            int len = header.getLen();
+            byte[] data = new byte[len];
+            buf.get(data);
+            if (header.getDataType() != DATA_TYPE_RESPONSE) {
+                continue;
+            }
+            if (header.getCodec() != codec.getCodec()) {
+                throw new IOException("unsupported rpc codec " + header.getCodec());
+            }
+            RpcResponse response = codec.decode(data, 0, len, RpcResponse.class);
+            CompletableFuture<RpcResponse> future = inFlight.remove(response.getRequestId());
+            if (future != null) {
+                future.complete(response);
+            }
+        }
+        if (buf.remaining() >= HEADER_SIZE) {
+            ensureReadCapacity(HEADER_SIZE + buf.getInt(buf.position() + 4));
+        }
+    }
+
+    @Override
+    protected void onClose(Throwable cause) {
+        IOException e = new IOException("rpc connection closed", cause);
+        Iterator<CompletableFuture<RpcResponse>> futures = inFlight.values().iterator();
+        while (futures.hasNext()) {
+            CompletableFuture<RpcResponse> future = futures.next();
+            futures.remove();
+            future.completeExceptionally(e);
+        }
+    }
+}
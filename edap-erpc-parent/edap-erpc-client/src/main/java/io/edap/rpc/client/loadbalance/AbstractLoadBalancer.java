@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.client.loadbalance;
+
+import io.edap.rpc.LoadBalancer;
+import io.edap.rpc.RpcInvoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 负载均衡器的基类，持有可选的执行器列表，执行器列表变化时整体替换，选择时使用替换前的快照
+ */
+public abstract class AbstractLoadBalancer<T> implements LoadBalancer<T> {
+
+    private volatile List<RpcInvoker> invokers = Collections.emptyList();
+
+    @Override
+    public RpcInvoker select(T req) {
+        List<RpcInvoker> list = invokers;
+        int size = list.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return list.get(0);
+        }
+        return doSelect(list, req);
+    }
+
+    /**
+     * 从多个执行器中选择一个执行器
+     * @param invokers 执行器列表的快照，至少有2个执行器
+     * @param req 函数的入参
+     * @return 选中的执行器
+     */
+    protected abstract RpcInvoker doSelect(List<RpcInvoker> invokers, T req);
+
+    /**
+     * 执行器列表变化后的回调，需要根据执行器预先计算的负载均衡器可以覆盖该方法
+     * @param invokers 新的执行器列表
+     */
+    protected void onInvokersChanged(List<RpcInvoker> invokers) {
+
+    }
+
+    public void setInvokers(List<? extends RpcInvoker> invokers) {
+        List<RpcInvoker> list = invokers == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(invokers));
+        onInvokersChanged(list);
+        this.invokers = list;
+    }
+
+    public List<RpcInvoker> getInvokers() {
+        return invokers;
+    }
+}
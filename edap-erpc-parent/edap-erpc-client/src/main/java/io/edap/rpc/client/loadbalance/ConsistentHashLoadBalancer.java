@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.client.loadbalance;
+
+import io.edap.rpc.RpcInvoker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 一致性hash的负载均衡器，相同key的请求总是分配到同一个执行器，执行器增减时只有少量key的归属发生变化，
+ * 适用于有状态服务按分片key路由的场景。每个执行器在hash环上有virtualNodes个虚拟节点，虚拟节点按执行器的
+ * toString计算hash，所以执行器的toString需要能稳定的标识一个服务节点。
+ */
+public class ConsistentHashLoadBalancer<T> extends AbstractLoadBalancer<T> {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final long FNV_64_INIT  = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
+    private final int              virtualNodes;
+    private final Function<T, ?>   keyFunction;
+    private volatile TreeMap<Long, RpcInvoker> ring = new TreeMap<>();
+
+    public ConsistentHashLoadBalancer() {
+        this(DEFAULT_VIRTUAL_NODES, req -> req);
+    }
+
+    /**
+     * @param virtualNodes 每个执行器的虚拟节点数
+     * @param keyFunction 从函数入参中取出用来计算hash的key
+     */
+    public ConsistentHashLoadBalancer(int virtualNodes, Function<T, ?> keyFunction) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+        this.keyFunction  = keyFunction;
+    }
+
+    @Override
+    protected RpcInvoker doSelect(List<RpcInvoker> invokers, T req) {
+        Object key = keyFunction.apply(req);
+        return locate(ring, hash(String.valueOf(key)));
+    }
+
+    private static RpcInvoker locate(TreeMap<Long, RpcInvoker> ring, long hash) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, RpcInvoker> entry = ring.ceilingEntry(hash);
+        if (entry == null) {
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    @Override
+    protected void onInvokersChanged(List<RpcInvoker> invokers) {
+        TreeMap<Long, RpcInvoker> newRing = new TreeMap<>();
+        for (RpcInvoker invoker : invokers) {
+            String id = invoker.toString();
+            for (int i=0;i<virtualNodes;i++) {
+                newRing.put(hash(id + "#" + i), invoker);
+            }
+        }
+        this.ring = newRing;
+    }
+
+    /**
+     * 64位的FNV-1a hash，再经过murmur3的fmix64混淆让相近的key在hash环上分散
+     */
+    static long hash(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long h = FNV_64_INIT;
+        for (byte b : bytes) {
+            h ^= (b & 0xff);
+            h *= FNV_64_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.client.loadbalance;
+
+import io.edap.rpc.RpcInvoker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 选择未返回请求最少的执行器的负载均衡器，处理慢的节点积压的请求多从而分配到更少的请求，
+ * 有多个未返回请求数相同的执行器时按权重随机选择。
+ */
+public class LeastActiveLoadBalancer extends AbstractLoadBalancer<Object> {
+
+    private static final ThreadLocal<List<RpcInvoker>> LOCAL_CANDIDATES =
+            ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    protected RpcInvoker doSelect(List<RpcInvoker> invokers, Object req) {
+        List<RpcInvoker> candidates = LOCAL_CANDIDATES.get();
+        candidates.clear();
+        int leastActive = Integer.MAX_VALUE;
+        int size = invokers.size();
+        for (int i=0;i<size;i++) {
+            RpcInvoker invoker = invokers.get(i);
+            int active = invoker.getActiveCount();
+            if (active < leastActive) {
+                leastActive = active;
+                candidates.clear();
+                candidates.add(invoker);
+            } else if (active == leastActive) {
+                candidates.add(invoker);
+            }
+        }
+        try {
+            if (candidates.size() == 1) {
+                return candidates.get(0);
+            }
+            return WeightedRandomLoadBalancer.selectByWeight(candidates, candidates.size());
+        } finally {
+            candidates.clear();
+        }
+    }
+}
@@ -13,20 +13,21 @@
  * License for the specific language governing permissions and limitations
  * under the License.
  */
-
 package io.edap.rpc.client.loadbalance;
 
-import io.edap.rpc.LoadBalancer;
 import io.edap.rpc.RpcInvoker;
 
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * 随机选取的负载均衡器，主要应用场景为无状态服务的负载均衡场景，该均衡器选择不关心函数的入参，
  * 只需关心服务匹配即可。
  */
-public class RandomLoadBalancer implements LoadBalancer<Object> {
+public class RandomLoadBalancer extends AbstractLoadBalancer<Object> {
 
     @Override
-    public RpcInvoker select(Object req) {
-        return null;
+    protected RpcInvoker doSelect(List<RpcInvoker> invokers, Object req) {
+        return invokers.get(ThreadLocalRandom.current().nextInt(invokers.size()));
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.client.loadbalance;
+
+import io.edap.rpc.RpcInvoker;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按权重随机选取的负载均衡器，执行器被选中的概率和权重成正比，权重小于等于0的执行器不会被选中，
+ * 所有执行器权重相同时退化为随机选取。
+ */
+public class WeightedRandomLoadBalancer extends AbstractLoadBalancer<Object> {
+
+    @Override
+    protected RpcInvoker doSelect(List<RpcInvoker> invokers, Object req) {
+        return selectByWeight(invokers, invokers.size());
+    }
+
+    /**
+     * 在执行器列表的前count个执行器中按权重随机选择
+     */
+    static RpcInvoker selectByWeight(List<RpcInvoker> invokers, int count) {
+        int total = 0;
+        boolean sameWeight = true;
+        int firstWeight = Math.max(0, invokers.get(0).getWeight());
+        for (int i=0;i<count;i++) {
+            int weight = Math.max(0, invokers.get(i).getWeight());
+            total += weight;
+            if (weight != firstWeight) {
+                sameWeight = false;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (sameWeight || total <= 0) {
+            return invokers.get(random.nextInt(count));
+        }
+        int offset = random.nextInt(total);
+        for (int i=0;i<count;i++) {
+            offset -= Math.max(0, invokers.get(i).getWeight());
+            if (offset < 0) {
+                return invokers.get(i);
+            }
+        }
+        return invokers.get(count - 1);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.test;
+
+import io.edap.rpc.RpcInvoker;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import io.edap.rpc.client.loadbalance.ConsistentHashLoadBalancer;
+import io.edap.rpc.client.loadbalance.LeastActiveLoadBalancer;
+import io.edap.rpc.client.loadbalance.RandomLoadBalancer;
+import io.edap.rpc.client.loadbalance.WeightedRandomLoadBalancer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLoadBalancer {
+
+    @Test
+    public void testEmpty() {
+        assertNull(new RandomLoadBalancer().select(null));
+        assertNull(new ConsistentHashLoadBalancer<String>().select("a"));
+    }
+
+    @Test
+    public void testRandom() {
+        RandomLoadBalancer lb = new RandomLoadBalancer();
+        List<FakeInvoker> invokers = createInvokers(100, 100, 100);
+        lb.setInvokers(invokers);
+        Map<RpcInvoker, Integer> counts = count(lb, 3000);
+        assertEquals(3, counts.size());
+    }
+
+    @Test
+    public void testWeightedRandom() {
+        WeightedRandomLoadBalancer lb = new WeightedRandomLoadBalancer();
+        List<FakeInvoker> invokers = createInvokers(100, 300, 0);
+        lb.setInvokers(invokers);
+        Map<RpcInvoker, Integer> counts = count(lb, 40000);
+        assertNull(counts.get(invokers.get(2)));
+        double ratio = counts.get(invokers.get(1)) / (double)counts.get(invokers.get(0));
+        assertTrue(ratio > 2.5 && ratio < 3.5, "ratio=" + ratio);
+    }
+
+    @Test
+    public void testLeastActive() {
+        LeastActiveLoadBalancer lb = new LeastActiveLoadBalancer();
+        List<FakeInvoker> invokers = createInvokers(100, 100, 100);
+        invokers.get(0).active = 5;
+        invokers.get(1).active = 1;
+        invokers.get(2).active = 3;
+        lb.setInvokers(invokers);
+        for (int i=0;i<100;i++) {
+            assertSame(invokers.get(1), lb.select(null));
+        }
+        invokers.get(2).active = 1;
+        Map<RpcInvoker, Integer> counts = count(lb, 1000);
+        assertNull(counts.get(invokers.get(0)));
+        assertEquals(2, counts.size());
+    }
+
+    @Test
+    public void testConsistentHash() {
+        ConsistentHashLoadBalancer<String> lb = new ConsistentHashLoadBalancer<>();
+        List<FakeInvoker> invokers = createInvokers(100, 100, 100, 100);
+        lb.setInvokers(invokers);
+        Map<String, RpcInvoker> owners = new HashMap<>();
+        for (int i=0;i<10000;i++) {
+            String key = "user-" + i;
+            RpcInvoker invoker = lb.select(key);
+            assertSame(invoker, lb.select(key));
+            owners.put(key, invoker);
+        }
+        Map<RpcInvoker, Integer> load = new HashMap<>();
+        owners.values().forEach(inv -> load.merge(inv, 1, Integer::sum));
+        for (int c : load.values()) {
+            assertTrue(c > 1500 && c < 3500, "load=" + c);
+        }
+
+        // 移除一个节点后只有该节点上的key迁移
+        List<FakeInvoker> remain = new ArrayList<>(invokers.subList(0, 3));
+        lb.setInvokers(remain);
+        int moved = 0;
+        for (Map.Entry<String, RpcInvoker> e : owners.entrySet()) {
+            RpcInvoker now = lb.select(e.getKey());
+            if (now != e.getValue()) {
+                assertSame(invokers.get(3), e.getValue());
+                moved++;
+            }
+        }
+        assertEquals((int)load.get(invokers.get(3)), moved);
+    }
+
+    private static Map<RpcInvoker, Integer> count(io.edap.rpc.LoadBalancer<Object> lb, int times) {
+        Map<RpcInvoker, Integer> counts = new HashMap<>();
+        for (int i=0;i<times;i++) {
+            counts.merge(lb.select(null), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static List<FakeInvoker> createInvokers(int... weights) {
+        List<FakeInvoker> invokers = new ArrayList<>();
+        for (int i=0;i<weights.length;i++) {
+            invokers.add(new FakeInvoker("node-" + i, weights[i]));
+        }
+        return invokers;
+    }
+
+    static class FakeInvoker implements RpcInvoker {
+        final String name;
+        final int    weight;
+        int          active;
+
+        FakeInvoker(String name, int weight) {
+            this.name   = name;
+            this.weight = weight;
+        }
+
+        @Override
+        public RpcResponse invoke(RpcRequest request) {
+            return null;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+
+        @Override
+        public int getActiveCount() {
+            return active;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.edap.rpc.test;
+
+import io.edap.nio.client.NioClient;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.rpc.RpcMessage;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import io.edap.rpc.client.PooledRpcInvoker;
+import io.edap.rpc.enums.RpcDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPooledRpcInvoker {
+
+    private ServerSocket serverSocket;
+    private Thread       serverThread;
+    private NioClient    nioClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverThread = new Thread(this::serve);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        nioClient = new NioClient();
+        nioClient.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        nioClient.stop();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testPipelined() throws Exception {
+        PooledRpcInvoker invoker = new PooledRpcInvoker(nioClient, address(), 1, 100);
+        List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+        for (int i=0;i<200;i++) {
+            futures.add(invoker.invokeAsync(createRequest(i)));
+        }
+        for (int i=0;i<200;i++) {
+            RpcResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertTrue(response.isSuccess());
+            assertEquals(i, response.getMethodId());
+            assertEquals("req-" + i, new String(response.getResponse(), StandardCharsets.UTF_8));
+        }
+        assertEquals(0, invoker.getActiveCount());
+        invoker.close();
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        PooledRpcInvoker invoker = new PooledRpcInvoker(nioClient, address(), 2, 100);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t=0;t<4;t++) {
+            int base = t * 1000;
+            Thread thread = new Thread(() -> {
+                List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+                for (int i=0;i<100;i++) {
+                    futures.add(invoker.invokeAsync(createRequest(base + i)));
+                }
+                try {
+                    for (int i=0;i<100;i++) {
+                        assertEquals(base + i, futures.get(i).get(5, TimeUnit.SECONDS).getMethodId());
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+        invoker.close();
+    }
+
+    @Test
+    public void testTimeout() {
+        PooledRpcInvoker invoker = new PooledRpcInvoker(nioClient, address(), 1, 100);
+        invoker.setRequestTimeout(200);
+        // 测试服务端两个请求一组返回，单个请求不会返回
+        RpcResponse response = invoker.invoke(createRequest(1));
+        assertFalse(response.isSuccess());
+        assertEquals(TimeoutException.class.getName(), response.getException().getClazzName());
+        assertEquals(0, invoker.getActiveCount());
+        invoker.close();
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort());
+    }
+
+    private static RpcRequest createRequest(int i) {
+        RpcRequest request = new RpcRequest();
+        request.setReqType(RpcDataType.INVOKE_REQ);
+        request.setServiceId(1);
+        request.setMethodId(i);
+        request.setRequest(("req-" + i).getBytes(StandardCharsets.UTF_8));
+        request.setRequestTime(System.currentTimeMillis());
+        return request;
+    }
+
+    /**
+     * 测试用的服务端，每个连接每收到两个请求后按相反的顺序返回，验证请求按requestId和返回对应
+     */
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket));
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            List<RpcRequest> requests = new ArrayList<>();
+            byte[] header = new byte[RpcMessage.HEADER_SIZE];
+            while (true) {
+                in.readFully(header);
+                int len = ByteBuffer.wrap(header).getInt(4);
+                byte[] data = new byte[len];
+                in.readFully(data);
+                requests.add(ProtoBuf.toObject(data, RpcRequest.class));
+                if (requests.size() < 2) {
+                    continue;
+                }
+                for (int i=requests.size()-1;i>=0;i--) {
+                    RpcRequest req = requests.get(i);
+                    RpcResponse resp = new RpcResponse();
+                    resp.setRespType(RpcDataType.INVOKE_RESP);
+                    resp.setServiceId(req.getServiceId());
+                    resp.setMethodId(req.getMethodId());
+                    resp.setRequestId(req.getRequestId());
+                    resp.setResponse(req.getRequest());
+                    resp.setSuccess(true);
+                    byte[] bs = ProtoBuf.toByteArray(resp);
+                    ByteBuffer buf = ByteBuffer.allocate(RpcMessage.HEADER_SIZE + bs.length);
+                    RpcMessage.writeHeader(buf, RpcMessage.CODEC_PROTOBUF, RpcMessage.DATA_TYPE_RESPONSE,
+                            bs.length);
+                    buf.put(bs);
+                    out.write(buf.array());
+                }
+                out.flush();
+                requests.clear();
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        }
+    }
+}
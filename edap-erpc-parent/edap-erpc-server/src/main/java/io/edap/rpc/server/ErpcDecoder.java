@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server;
+
+import io.edap.Decoder;
+import io.edap.buffer.FastBuf;
+import io.edap.nio.ParseResult;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcRequest;
+
+import java.io.IOException;
+
+import static io.edap.rpc.RpcMessage.*;
+
+/**
+ * eRPC请求的解码器，消息头直接从读缓冲的内存中解析，不复制数据。读缓冲中有完整的消息时消息体只复制一次到会话
+ * 复用的数组后解码，消息不完整时将已读取的部分保存到会话中，下次读取到数据后继续拼接。
+ */
+public class ErpcDecoder implements Decoder<RpcRequest, ErpcNioSession> {
+
+    private final ErpcServer server;
+
+    public ErpcDecoder(ErpcServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public ParseResult<RpcRequest> decode(FastBuf buf, ErpcNioSession nioSession) {
+        ParseResult<RpcRequest> result = nioSession.getParseResult();
+        result.setFinished(false);
+        result.setMessage(null);
+        if (nioSession.getPendingLen() > 0) {
+            return decodePending(buf, nioSession, result);
+        }
+        int  remain = buf.remain();
+        long pos    = buf.rpos();
+        if (remain < HEADER_SIZE) {
+            nioSession.appendPending(buf, remain);
+            return result;
+        }
+        int len = getInt(buf, pos + 4);
+        RpcCodec codec = checkHeader(buf.get(pos), buf.get(pos + 1), buf.get(pos + 2), buf.get(pos + 3),
+                len, result);
+        if (codec == null) {
+            return result;
+        }
+        if (remain < HEADER_SIZE + len) {
+            nioSession.appendPending(buf, remain);
+            return result;
+        }
+        byte[] data = nioSession.payloadBuf(len);
+        buf.get(pos + HEADER_SIZE, data, 0, len);
+        buf.rpos(pos + HEADER_SIZE + len);
+        decodeBody(codec, data, 0, len, nioSession, result);
+        return result;
+    }
+
+    /**
+     * 上次读取到不完整的消息时，从本次读取的数据中补齐消息后解码
+     */
+    private ParseResult<RpcRequest> decodePending(FastBuf buf, ErpcNioSession nioSession,
+                                                  ParseResult<RpcRequest> result) {
+        int pendingLen = nioSession.getPendingLen();
+        if (pendingLen < HEADER_SIZE) {
+            pendingLen += nioSession.appendPending(buf, HEADER_SIZE - pendingLen);
+            if (pendingLen < HEADER_SIZE) {
+                return result;
+            }
+        }
+        byte[] pending = nioSession.getPending();
+        int len = getInt(pending, 4);
+        RpcCodec codec = checkHeader(pending[0], pending[1], pending[2], pending[3], len, result);
+        if (codec == null) {
+            return result;
+        }
+        int frameLen = HEADER_SIZE + len;
+        pendingLen += nioSession.appendPending(buf, frameLen - pendingLen);
+        if (pendingLen < frameLen) {
+            return result;
+        }
+        nioSession.clearPending();
+        decodeBody(codec, nioSession.getPending(), HEADER_SIZE, len, nioSession, result);
+        return result;
+    }
+
+    /**
+     * 校验消息头，不合法时设置result的错误信息
+     * @return 消息头合法时返回消息体的编解码器，否则返回null
+     */
+    private RpcCodec checkHeader(byte version, byte compress, byte codec, byte dataType, int len,
+                                 ParseResult<RpcRequest> result) {
+        if (version != CURRENT_VERSION) {
+            result.setError("unsupported rpc version " + version);
+            return null;
+        }
+        if (compress != COMPRESS_NONE) {
+            result.setError("unsupported rpc compress " + compress);
+            return null;
+        }
+        if (dataType != DATA_TYPE_REQUEST) {
+            result.setError("unexpected rpc data type " + dataType);
+            return null;
+        }
+        if (len < 0 || len > MAX_DATA_LEN) {
+            result.setError("rpc message length " + len + " is invalid");
+            return null;
+        }
+        RpcCodec rpcCodec = server.getCodec(codec);
+        if (rpcCodec == null) {
+            result.setError("unsupported rpc codec " + codec);
+        }
+        return rpcCodec;
+    }
+
+    private void decodeBody(RpcCodec codec, byte[] data, int offset, int len, ErpcNioSession nioSession,
+                            ParseResult<RpcRequest> result) {
+        try {
+            RpcRequest request = nioSession.sessionCodec(codec).decode(data, offset, len, RpcRequest.class);
+            result.setMessage(request);
+            result.setFinished(true);
+        } catch (IOException e) {
+            result.setError(e.getMessage());
+        }
+    }
+
+    /**
+     * 按大端序读取int，FastBuf.getInt按本机字节序读取
+     */
+    static int getInt(FastBuf buf, long pos) {
+        return (buf.get(pos) & 0xFF) << 24 | (buf.get(pos + 1) & 0xFF) << 16
+                | (buf.get(pos + 2) & 0xFF) << 8 | (buf.get(pos + 3) & 0xFF);
+    }
+
+    static int getInt(byte[] bs, int pos) {
+        return (bs[pos] & 0xFF) << 24 | (bs[pos + 1] & 0xFF) << 16
+                | (bs[pos + 2] & 0xFF) << 8 | (bs[pos + 3] & 0xFF);
+    }
+
+    @Override
+    public void reset() {
+
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server;
+
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+
+import java.io.IOException;
+
+/**
+ * 按请求的serviceId和methodId将rpc请求分发给对应的ErpcHandler，实现类由ErpcDispatcherGenerator根据注册的
+ * ErpcHandler生成，serviceId和methodId的查找编译为switch指令，每个ErpcHandler的调用点是单态的
+ */
+public interface ErpcDispatcher {
+
+    /**
+     * 分发rpc请求
+     * @param request rpc的请求
+     * @param response rpc的返回
+     * @return 找到对应的ErpcHandler并处理返回true，没有对应的ErpcHandler返回false
+     * @throws IOException ErpcHandler处理请求失败时抛出
+     */
+    boolean dispatch(RpcRequest request, RpcResponse response) throws IOException;
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server;
+
+import io.edap.rpc.ErpcHandler;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.edap.util.AsmUtil.toInternalName;
+import static io.edap.util.AsmUtil.toLangName;
+import static io.edap.util.AsmUtil.visitIntInsn;
+import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
+import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 根据ErpcHandler的列表生成ErpcDispatcher的实现类，生成的dispatch方法先按serviceId再按methodId做两级switch，
+ * serviceId或methodId连续时使用tableswitch，稀疏时使用lookupswitch。每个ErpcHandler保存在单独的final字段中，
+ * 各自有独立的invokeinterface调用点，JIT可以按单态调用内联，避免Map查找以及多态调用的开销。
+ */
+public class ErpcDispatcherGenerator {
+
+    private static final String IFACE_NAME    = toInternalName(ErpcDispatcher.class.getName());
+    private static final String HANDLER_NAME  = toInternalName(ErpcHandler.class.getName());
+    private static final String REQUEST_NAME  = toInternalName(RpcRequest.class.getName());
+    private static final String RESPONSE_NAME = toInternalName(RpcResponse.class.getName());
+    private static final String HANDLER_DESC  = "L" + HANDLER_NAME + ";";
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private final ErpcHandler[] handlers;
+    /**
+     * serviceId -> (methodId -> handler在handlers中的下标)，按id升序便于生成switch
+     */
+    private final TreeMap<Integer, TreeMap<Integer, Integer>> table;
+    private final String dispatcherName;
+
+    public ErpcDispatcherGenerator(List<? extends ErpcHandler> handlers) {
+        this.handlers = handlers.toArray(new ErpcHandler[0]);
+        this.table    = new TreeMap<>();
+        for (int i=0;i<this.handlers.length;i++) {
+            ErpcHandler handler = this.handlers[i];
+            Integer old = table.computeIfAbsent(handler.getServiceId(), k -> new TreeMap<>())
+                    .put(handler.getMethodId(), i);
+            if (old != null) {
+                throw new IllegalArgumentException("duplicate ErpcHandler serviceId=" + handler.getServiceId()
+                        + " methodId=" + handler.getMethodId());
+            }
+        }
+        this.dispatcherName = IFACE_NAME + "$Generated" + SEQ.incrementAndGet();
+    }
+
+    /**
+     * 生成ErpcDispatcher并实例化，每次生成使用新的ClassLoader，替换后旧的实现类可以被回收
+     * @param handlers 服务节点上所有的ErpcHandler
+     * @return ErpcDispatcher的实例
+     */
+    public static ErpcDispatcher generate(List<? extends ErpcHandler> handlers) {
+        ErpcDispatcherGenerator generator = new ErpcDispatcherGenerator(handlers);
+        byte[] bs = generator.getClassBytes();
+        DispatcherLoader loader = new DispatcherLoader(ErpcDispatcher.class.getClassLoader());
+        try {
+            Class<?> cls = loader.define(toLangName(generator.dispatcherName), bs);
+            return (ErpcDispatcher) cls.getConstructor(ErpcHandler[].class)
+                    .newInstance((Object) generator.handlers);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("generate ErpcDispatcher error", e);
+        }
+    }
+
+    public byte[] getClassBytes() {
+        ClassWriter cw = new ClassWriter(COMPUTE_MAXS | COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, dispatcherName, null, "java/lang/Object",
+                new String[]{IFACE_NAME});
+        for (int i=0;i<handlers.length;i++) {
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, fieldName(i), HANDLER_DESC, null, null).visitEnd();
+        }
+        visitInit(cw);
+        visitDispatch(cw);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void visitInit(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([" + HANDLER_DESC + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        for (int i=0;i<handlers.length;i++) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            visitIntInsn(i, mv);
+            mv.visitInsn(AALOAD);
+            mv.visitFieldInsn(PUTFIELD, dispatcherName, fieldName(i), HANDLER_DESC);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void visitDispatch(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "dispatch",
+                "(L" + REQUEST_NAME + ";L" + RESPONSE_NAME + ";)Z", null, new String[]{"java/io/IOException"});
+        mv.visitCode();
+        Label lbNotFound = new Label();
+        if (!table.isEmpty()) {
+            int[]   serviceIds    = new int[table.size()];
+            Label[] serviceLabels = new Label[table.size()];
+            int index = 0;
+            for (Integer serviceId : table.keySet()) {
+                serviceIds[index]    = serviceId;
+                serviceLabels[index] = new Label();
+                index++;
+            }
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, REQUEST_NAME, "getServiceId", "()I", false);
+            visitSwitch(mv, serviceIds, serviceLabels, lbNotFound);
+
+            index = 0;
+            for (Map.Entry<Integer, TreeMap<Integer, Integer>> service : table.entrySet()) {
+                mv.visitLabel(serviceLabels[index++]);
+                TreeMap<Integer, Integer> methods = service.getValue();
+                int[]   methodIds    = new int[methods.size()];
+                Label[] methodLabels = new Label[methods.size()];
+                int m = 0;
+                for (Integer methodId : methods.keySet()) {
+                    methodIds[m]    = methodId;
+                    methodLabels[m] = new Label();
+                    m++;
+                }
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, REQUEST_NAME, "getMethodId", "()I", false);
+                visitSwitch(mv, methodIds, methodLabels, lbNotFound);
+
+                m = 0;
+                for (Integer handlerIndex : methods.values()) {
+                    mv.visitLabel(methodLabels[m++]);
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, dispatcherName, fieldName(handlerIndex), HANDLER_DESC);
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitVarInsn(ALOAD, 2);
+                    mv.visitMethodInsn(INVOKEINTERFACE, HANDLER_NAME, "handle",
+                            "(L" + REQUEST_NAME + ";L" + RESPONSE_NAME + ";)V", true);
+                    mv.visitInsn(ICONST_1);
+                    mv.visitInsn(IRETURN);
+                }
+            }
+        }
+        mv.visitLabel(lbNotFound);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 和javac的规则一致，id分布密集时tableswitch按下标跳转，稀疏时lookupswitch二分查找
+     * @param keys 升序排列的case值
+     */
+    private static void visitSwitch(MethodVisitor mv, int[] keys, Label[] labels, Label dflt) {
+        int  lo         = keys[0];
+        int  hi         = keys[keys.length - 1];
+        long tableSpace = 4 + ((long) hi - lo + 1);
+        long tableTime  = 3;
+        long lookupSpace = 3 + 2 * (long) keys.length;
+        long lookupTime  = keys.length;
+        if (tableSpace + 3 * tableTime <= lookupSpace + 3 * lookupTime) {
+            Label[] table = new Label[hi - lo + 1];
+            Arrays.fill(table, dflt);
+            for (int i=0;i<keys.length;i++) {
+                table[keys[i] - lo] = labels[i];
+            }
+            mv.visitTableSwitchInsn(lo, hi, dflt, table);
+        } else {
+            mv.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+    }
+
+    private static String fieldName(int index) {
+        return "handler" + index;
+    }
+
+    static class DispatcherLoader extends ClassLoader {
+
+        DispatcherLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] bs) {
+            return defineClass(className, bs, 0, bs.length);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server;
+
+import io.edap.NioServerSession;
+import io.edap.buffer.FastBuf;
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+import io.edap.nio.ParseResult;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcException;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import io.edap.rpc.enums.RpcDataType;
+import io.edap.util.EdapTime;
+
+import java.io.IOException;
+
+import static io.edap.rpc.RpcMessage.*;
+
+/**
+ * eRPC服务端连接的会话，保存解码的中间状态。请求在IO线程中处理，返回追加到IO线程的写缓冲，由读事件的分发器
+ * 在本次读取的数据全部处理完成后一次写出，pipeline的多个请求只需要一次系统调用。
+ */
+public class ErpcNioSession extends NioServerSession<RpcRequest> {
+
+    static Logger LOG = LoggerManager.getLogger(ErpcNioSession.class);
+
+    private static final EdapTime EDAP_TIME = EdapTime.instance();
+
+    private final ParseResult<RpcRequest> parseResult = new ParseResult<>();
+    /**
+     * 当前请求使用的编解码器，返回使用相同的编解码器
+     */
+    private RpcCodec codec;
+    /**
+     * 不完整消息已读取的数据，包含消息头
+     */
+    private byte[]   pending;
+    private int      pendingLen;
+    /**
+     * 完整消息的消息体复制到该数组后解码，多个请求复用
+     */
+    private byte[]   payload;
+
+    @Override
+    public boolean decode(FastBuf fastBuf, boolean threadSwitch) throws IOException {
+        ErpcDecoder _decoder = (ErpcDecoder) decoder;
+        boolean hasMsg = false;
+        while (fastBuf.remain() > 0) {
+            ParseResult<RpcRequest> pr = _decoder.decode(fastBuf, this);
+            if (!pr.isFinished()) {
+                if (pr.getError() != null) {
+                    throw new IOException(pr.getError());
+                }
+                break;
+            }
+            hasMsg = true;
+            handle(pr.getMessage());
+        }
+        return hasMsg;
+    }
+
+    @Override
+    public void handle(RpcRequest request) throws IOException {
+        RpcResponse response = new RpcResponse();
+        response.setRespType(RpcDataType.INVOKE_RESP);
+        response.setServiceId(request.getServiceId());
+        response.setMethodId(request.getMethodId());
+        response.setTraceId(request.getTraceId());
+        response.setRequestId(request.getRequestId());
+        response.setWorkId(request.getWorkId());
+        response.setSuccess(true);
+        try {
+            ErpcDispatcher dispatcher = ((ErpcServer) getServer()).getDispatcher();
+            if (!dispatcher.dispatch(request, response)) {
+                setFailed(response, "io.edap.rpc.ServiceNotFound", "service " + request.getServiceId()
+                        + " method " + request.getMethodId() + " not found");
+            }
+        } catch (Throwable t) {
+            LOG.warn("handle rpc request service {} method {} error", l -> l.arg(request.getServiceId())
+                    .arg(request.getMethodId()).threw(t));
+            setFailed(response, t.getClass().getName(), t.getMessage());
+        }
+        response.setRespTime(EDAP_TIME.currentTimeMillis());
+        writeResponse(response);
+    }
+
+    /**
+     * 将返回编码后追加到IO线程的写缓冲，写缓冲空间不足时将其放入会话的待发送链表后从IO线程的写缓冲池换用新的写缓冲，
+     * 保证返回的发送顺序
+     */
+    private void writeResponse(RpcResponse response) throws IOException {
+        RpcCodec _codec = codec;
+        byte[] data = _codec.encode(response);
+        int size = HEADER_SIZE + data.length;
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        if (wbuf.writeRemain() < size) {
+            if (wbuf.remain() > 0) {
+                putToWriteQueue(wbuf);
+            }
+            wbuf = borrowWriteBuf(size);
+            THREAD_WRITE_BUF.set(wbuf);
+        }
+        writeHeader(wbuf, _codec.getCodec(), DATA_TYPE_RESPONSE, data.length);
+        wbuf.write(data, 0, data.length);
+    }
+
+    static void writeHeader(FastBuf buf, int codec, int dataType, int len) {
+        buf.write((byte) CURRENT_VERSION);
+        buf.write((byte) COMPRESS_NONE);
+        buf.write((byte) codec);
+        buf.write((byte) dataType);
+        buf.write((byte) (len >>> 24));
+        buf.write((byte) (len >>> 16));
+        buf.write((byte) (len >>> 8));
+        buf.write((byte) len);
+    }
+
+    private static void setFailed(RpcResponse response, String clazzName, String message) {
+        response.setSuccess(false);
+        RpcException exception = new RpcException();
+        exception.setClazzName(clazzName);
+        exception.setMessage(message);
+        response.setException(exception);
+    }
+
+    /**
+     * 从buf中读取最多len个字节追加到不完整消息的数据中
+     * @return 实际追加的字节数
+     */
+    int appendPending(FastBuf buf, int len) {
+        int n = Math.min(len, buf.remain());
+        if (n <= 0) {
+            return 0;
+        }
+        int capacity = pendingLen + n;
+        if (pending == null || pending.length < capacity) {
+            int size = pending == null ? 4096 : pending.length << 1;
+            byte[] bs = new byte[Math.max(capacity, size)];
+            if (pendingLen > 0) {
+                System.arraycopy(pending, 0, bs, 0, pendingLen);
+            }
+            pending = bs;
+        }
+        buf.get(pending, pendingLen, n);
+        pendingLen += n;
+        return n;
+    }
+
+    void clearPending() {
+        pendingLen = 0;
+    }
+
+    byte[] getPending() {
+        return pending;
+    }
+
+    int getPendingLen() {
+        return pendingLen;
+    }
+
+    /**
+     * 获取至少len字节的消息体数组
+     */
+    byte[] payloadBuf(int len) {
+        byte[] bs = payload;
+        if (bs == null || bs.length < len) {
+            bs = new byte[Math.max(len, 256)];
+            payload = bs;
+        }
+        return bs;
+    }
+
+    ParseResult<RpcRequest> getParseResult() {
+        return parseResult;
+    }
+
+    /**
+     * 获取请求的编解码器在该会话中使用的实例，编解码器变化时由{@link RpcCodec#newSession()}创建
+     */
+    RpcCodec sessionCodec(RpcCodec codec) {
+        RpcCodec _codec = this.codec;
+        if (_codec == null || _codec.getCodec() != codec.getCodec()) {
+            _codec = codec.newSession();
+            this.codec = _codec;
+        }
+        return _codec;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        pending    = null;
+        pendingLen = 0;
+        payload    = null;
+    }
+}
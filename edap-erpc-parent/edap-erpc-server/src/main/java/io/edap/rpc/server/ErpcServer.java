@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server;
+
+import io.edap.NioServerSession;
+import io.edap.Server;
+import io.edap.rpc.ErpcHandler;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.codec.EprotoRpcCodec;
+import io.edap.rpc.codec.ProtoBufRpcCodec;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * eRPC的服务端，接收RpcMessage格式的请求，按serviceId和methodId分发到注册的ErpcHandler处理，请求在IO线程中
+ * 解码和处理，同一次读取中所有请求的返回写入IO线程的写缓冲后一次发送。
+ */
+public class ErpcServer extends Server<RpcRequest, ErpcNioSession> {
+
+    /**
+     * 按RpcMessage的codec字段索引的编解码器
+     */
+    private final RpcCodec[] codecs = new RpcCodec[256];
+
+    /**
+     * serviceId和methodId到ErpcHandler的分发器，由{@link #setHandlers}整体替换，IO线程只读
+     */
+    private volatile ErpcDispatcher dispatcher;
+
+    /**
+     * 所有会话共享的解码器，解码的中间状态保存在会话中
+     */
+    private final ErpcDecoder requestDecoder;
+
+    public ErpcServer() {
+        this.requestDecoder = new ErpcDecoder(this);
+        this.dispatcher     = ErpcDispatcherGenerator.generate(Collections.emptyList());
+        registerCodec(new ProtoBufRpcCodec());
+        registerCodec(new EprotoRpcCodec());
+        setDecoder(requestDecoder);
+    }
+
+    /**
+     * 使用给定的ErpcHandler列表重新生成分发器并整体替换，正在处理的请求继续使用旧的分发器
+     * @param handlers 服务节点上所有的ErpcHandler
+     */
+    public void setHandlers(List<? extends ErpcHandler> handlers) {
+        this.dispatcher = ErpcDispatcherGenerator.generate(
+                handlers == null ? Collections.emptyList() : handlers);
+    }
+
+    /**
+     * serviceId和methodId到ErpcHandler的分发器
+     */
+    public ErpcDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * 注册编解码器，相同codec的编解码器会被替换
+     * @param codec 编解码器
+     */
+    public void registerCodec(RpcCodec codec) {
+        codecs[codec.getCodec() & 0xFF] = codec;
+    }
+
+    /**
+     * 获取RpcMessage的codec字段对应的编解码器
+     * @param codec RpcMessage的codec字段
+     * @return 没有注册时返回null
+     */
+    public RpcCodec getCodec(int codec) {
+        return codecs[codec & 0xFF];
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        setDecoder(requestDecoder);
+    }
+
+    @Override
+    public NioServerSession createNioSession() {
+        ErpcNioSession nioSession = new ErpcNioSession();
+        nioSession.setServer(this);
+        nioSession.setDecoder(requestDecoder);
+        nioSession.setBufPool(getBufPool());
+        return nioSession;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.rpc.server.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.pool.Pool;
+import io.edap.protobuf.annotation.ProtoField;
+import io.edap.protobuf.wire.Field;
+import io.edap.rpc.ErpcHandler;
+import io.edap.rpc.RpcCodec;
+import io.edap.rpc.RpcMessage;
+import io.edap.rpc.RpcRequest;
+import io.edap.rpc.RpcResponse;
+import io.edap.rpc.codec.EprotoRpcCodec;
+import io.edap.rpc.codec.ProtoBufRpcCodec;
+import io.edap.rpc.enums.RpcDataType;
+import io.edap.rpc.server.ErpcDispatcher;
+import io.edap.rpc.server.ErpcDispatcherGenerator;
+import io.edap.rpc.server.ErpcNioSession;
+import io.edap.rpc.server.ErpcServer;
+import io.edap.util.ByteArrayBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.edap.NioServerSession.THREAD_WRITE_BUF_POOL;
+import static io.edap.nio.NioSession.THREAD_WRITE_BUF;
+import static io.edap.rpc.RpcMessage.*;
+import static io.edap.rpc.codec.EprotoRpcCodec.FLAG_ACK;
+import static io.edap.rpc.codec.EprotoRpcCodec.FLAG_POSITIONAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestErpcServer {
+
+    private static final ProtoBufRpcCodec CODEC = new ProtoBufRpcCodec();
+
+    @BeforeEach
+    public void clearWriteBuf() {
+        THREAD_WRITE_BUF.get().clear();
+    }
+
+    @Test
+    public void testDispatcher() throws IOException {
+        List<ErpcHandler> handlers = new ArrayList<>();
+        // serviceId稀疏生成lookupswitch，methodId连续生成tableswitch
+        for (int serviceId : new int[]{-5, 1, 1000, 70000}) {
+            for (int methodId=1;methodId<=3;methodId++) {
+                handlers.add(new NameHandler(serviceId, methodId));
+            }
+        }
+        handlers.add(new NameHandler(1, 100));
+        ErpcDispatcher dispatcher = ErpcDispatcherGenerator.generate(handlers);
+        for (ErpcHandler handler : handlers) {
+            RpcRequest request = request(handler.getServiceId(), handler.getMethodId(), 1, null);
+            RpcResponse response = new RpcResponse();
+            assertTrue(dispatcher.dispatch(request, response));
+            assertEquals(handler.getServiceId() + "." + handler.getMethodId(),
+                    new String(response.getResponse(), StandardCharsets.UTF_8));
+        }
+        assertFalse(dispatcher.dispatch(request(2, 1, 1, null), new RpcResponse()));
+        assertFalse(dispatcher.dispatch(request(1, 4, 1, null), new RpcResponse()));
+        assertFalse(dispatcher.dispatch(request(1, 99, 1, null), new RpcResponse()));
+
+        ErpcDispatcher empty = ErpcDispatcherGenerator.generate(new ArrayList<>());
+        assertFalse(empty.dispatch(request(1, 1, 1, null), new RpcResponse()));
+
+        assertThrows(IllegalArgumentException.class, () -> ErpcDispatcherGenerator.generate(
+                Arrays.asList(new NameHandler(1, 1), new NameHandler(1, 1))));
+    }
+
+    @Test
+    public void testPipelinedRequests() throws IOException {
+        ErpcNioSession session = createSession();
+        FastBuf buf = new FastBuf(4096);
+        for (int i=1;i<=10;i++) {
+            buf.write(frame(request(1, 1, i, ("hello" + i).getBytes(StandardCharsets.UTF_8))));
+        }
+        assertTrue(session.decode(buf, false));
+        List<RpcResponse> responses = readResponses();
+        assertEquals(10, responses.size());
+        for (int i=1;i<=10;i++) {
+            RpcResponse response = responses.get(i - 1);
+            assertEquals(i, response.getRequestId());
+            assertTrue(response.isSuccess());
+            assertEquals("hello" + i, new String(response.getResponse(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testPooledWriteBuf() throws IOException {
+        ErpcNioSession session = createSession();
+        Pool<FastBuf> pool = THREAD_WRITE_BUF_POOL.get();
+        while (pool.borrow() != null) {
+        }
+        FastBuf pooled = new FastBuf(32768);
+        pool.requite(pooled);
+        // 写缓冲空间不足时从IO线程的写缓冲池获取新的写缓冲
+        THREAD_WRITE_BUF.set(new FastBuf(64));
+        FastBuf buf = new FastBuf(4096);
+        buf.write(frame(request(1, 1, 1, new byte[100])));
+        assertTrue(session.decode(buf, false));
+        assertSame(pooled, THREAD_WRITE_BUF.get());
+        assertEquals(1, readResponses().size());
+
+        // 超过池中写缓冲大小的返回才新建写缓冲
+        pool.requite(new FastBuf(32768));
+        THREAD_WRITE_BUF.set(new FastBuf(64));
+        byte[] large = new byte[40000];
+        buf = new FastBuf(65536);
+        buf.write(frame(request(1, 1, 2, large)));
+        assertTrue(session.decode(buf, false));
+        assertTrue(THREAD_WRITE_BUF.get().writeRemain() + THREAD_WRITE_BUF.get().remain() > 40000);
+        assertNotNull(pool.borrow());
+        List<RpcResponse> responses = readResponses();
+        assertEquals(1, responses.size());
+        assertArrayEquals(large, responses.get(0).getResponse());
+    }
+
+    @Test
+    public void testSplitFrames() throws IOException {
+        ErpcNioSession session = createSession();
+        ByteArrayBuilder data = new ByteArrayBuilder();
+        byte[] large = new byte[20000];
+        Arrays.fill(large, (byte)'a');
+        data.append(frame(request(1, 1, 1, "small".getBytes(StandardCharsets.UTF_8))));
+        data.append(frame(request(1, 1, 2, large)));
+        data.append(frame(request(1, 1, 3, "tail".getBytes(StandardCharsets.UTF_8))));
+        byte[] bs = data.toByteArray();
+
+        FastBuf buf = new FastBuf(4096);
+        for (int step : new int[]{3, 5, 4000}) {
+            THREAD_WRITE_BUF.get().clear();
+            for (int pos=0;pos<bs.length;pos+=step) {
+                buf.reset();
+                buf.write(bs, pos, Math.min(step, bs.length - pos));
+                session.decode(buf, false);
+            }
+            List<RpcResponse> responses = readResponses();
+            assertEquals(3, responses.size());
+            assertEquals("small", new String(responses.get(0).getResponse(), StandardCharsets.UTF_8));
+            assertArrayEquals(large, responses.get(1).getResponse());
+            assertEquals("tail", new String(responses.get(2).getResponse(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testNotFoundAndError() throws IOException {
+        ErpcNioSession session = createSession();
+        FastBuf buf = new FastBuf(4096);
+        buf.write(frame(request(9, 9, 1, null)));
+        buf.write(frame(request(1, 2, 2, null)));
+        session.decode(buf, false);
+        List<RpcResponse> responses = readResponses();
+        assertEquals(2, responses.size());
+        assertFalse(responses.get(0).isSuccess());
+        assertEquals("io.edap.rpc.ServiceNotFound", responses.get(0).getException().getClazzName());
+        assertFalse(responses.get(1).isSuccess());
+        assertEquals(IllegalStateException.class.getName(), responses.get(1).getException().getClazzName());
+        assertEquals("error method", responses.get(1).getException().getMessage());
+    }
+
+    @Test
+    public void testInvalidHeader() throws IOException {
+        ErpcNioSession session = createSession();
+        FastBuf buf = new FastBuf(4096);
+        byte[] bs = frame(request(1, 1, 1, null));
+        bs[0] = 9;
+        buf.write(bs);
+        IOException e = assertThrows(IOException.class, () -> session.decode(buf, false));
+        assertTrue(e.getMessage().contains("version"));
+
+        ErpcNioSession session2 = createSession();
+        buf.reset();
+        bs = frame(request(1, 1, 1, null));
+        bs[2] = (byte)9;
+        buf.write(bs);
+        e = assertThrows(IOException.class, () -> session2.decode(buf, false));
+        assertTrue(e.getMessage().contains("codec"));
+    }
+
+    @Test
+    public void testEprotoNegotiation() throws IOException {
+        ErpcNioSession session = createSession();
+        RpcCodec client = new EprotoRpcCodec().newSession();
+        FastBuf buf = new FastBuf(4096);
+        // 第一次请求带tag编码并发送指纹，返回确认请求的指纹，第二次请求开始使用位置编码并确认返回的指纹
+        int[] requestFlags  = {0, FLAG_POSITIONAL | FLAG_ACK, FLAG_POSITIONAL};
+        int[] responseFlags = {FLAG_ACK, FLAG_POSITIONAL, FLAG_POSITIONAL};
+        int[] sizes = new int[3];
+        for (int i=0;i<3;i++) {
+            THREAD_WRITE_BUF.get().clear();
+            byte[] bs = frame(client, request(1, 1, i + 1, ("hello" + i).getBytes(StandardCharsets.UTF_8)));
+            assertEquals(requestFlags[i], bs[HEADER_SIZE]);
+            sizes[i] = bs.length;
+            buf.reset();
+            buf.write(bs);
+            assertTrue(session.decode(buf, false));
+
+            List<byte[]> bodies = readBodies(CODEC_EPROTO);
+            assertEquals(1, bodies.size());
+            byte[] body = bodies.get(0);
+            assertEquals(responseFlags[i], body[0]);
+            RpcResponse response = client.decode(body, 0, body.length, RpcResponse.class);
+            assertEquals(i + 1, response.getRequestId());
+            assertTrue(response.isSuccess());
+            assertEquals("hello" + i, new String(response.getResponse(), StandardCharsets.UTF_8));
+        }
+        assertTrue(sizes[2] < sizes[0]);
+    }
+
+    @Test
+    public void testEprotoFallback() throws IOException {
+        EprotoRpcCodec client = new EprotoRpcCodec();
+        EprotoRpcCodec server = new EprotoRpcCodec();
+        RpcRequest request = request(1, 3, 7, "hello".getBytes(StandardCharsets.UTF_8));
+        request.setReqType(RpcDataType.INVOKE_REQ);
+
+        // 服务端的请求类多了一个字段，指纹不同，一直使用带tag的编码
+        byte[] data = client.encode(request);
+        RpcRequestV2 v2 = server.decode(data, 0, data.length, RpcRequestV2.class);
+        assertEquals(3, v2.methodId);
+        assertEquals(7, v2.requestId);
+        assertEquals("hello", new String(v2.request, StandardCharsets.UTF_8));
+        assertFalse(server.isAgreed(RpcRequestV2.class));
+
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(7);
+        data = server.encode(response);
+        assertEquals(0, data[0]);
+        assertEquals(7, client.decode(data, 0, data.length, RpcResponse.class).getRequestId());
+        assertTrue(client.isAgreed(RpcResponse.class));
+        assertFalse(client.isAgreed(RpcRequest.class));
+
+        data = client.encode(request);
+        assertEquals(FLAG_ACK, data[0]);
+        assertEquals(7, server.decode(data, 0, data.length, RpcRequestV2.class).requestId);
+        assertTrue(server.isAgreed(RpcResponse.class));
+        data = server.encode(response);
+        assertEquals(FLAG_POSITIONAL, data[0]);
+        assertEquals(7, client.decode(data, 0, data.length, RpcResponse.class).getRequestId());
+
+        // 位置编码的消息和本地的指纹不一致时不能解码
+        byte[] positional = data;
+        assertThrows(IOException.class, () -> client.decode(positional, 0, positional.length, RpcRequest.class));
+    }
+
+    private static ErpcNioSession createSession() {
+        ErpcServer server = new ErpcServer();
+        List<ErpcHandler> handlers = new ArrayList<>();
+        handlers.add(new EchoHandler());
+        handlers.add(new ErrorHandler());
+        server.setHandlers(handlers);
+        return (ErpcNioSession) server.createNioSession();
+    }
+
+    private static RpcRequest request(int serviceId, int methodId, long requestId, byte[] data) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceId(serviceId);
+        request.setMethodId(methodId);
+        request.setRequestId(requestId);
+        request.setRequest(data);
+        return request;
+    }
+
+    private static byte[] frame(RpcRequest request) throws IOException {
+        return frame(CODEC, request);
+    }
+
+    private static byte[] frame(RpcCodec codec, RpcRequest request) throws IOException {
+        byte[] data = codec.encode(request);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + data.length);
+        RpcMessage.writeHeader(buf, codec.getCodec(), DATA_TYPE_REQUEST, data.length);
+        buf.put(data);
+        return buf.array();
+    }
+
+    private static List<RpcResponse> readResponses() throws IOException {
+        List<RpcResponse> responses = new ArrayList<>();
+        for (byte[] body : readBodies(CODEC_PROTOBUF)) {
+            responses.add(CODEC.decode(body, 0, body.length, RpcResponse.class));
+        }
+        return responses;
+    }
+
+    private static List<byte[]> readBodies(int codec) {
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        byte[] bs = new byte[wbuf.remain()];
+        wbuf.get(bs);
+        ByteBuffer buf = ByteBuffer.wrap(bs);
+        RpcMessage header = new RpcMessage();
+        List<byte[]> bodies = new ArrayList<>();
+        while (RpcMessage.readHeader(buf, header)) {
+            assertEquals(DATA_TYPE_RESPONSE, header.getDataType());
+            assertEquals(codec, header.getCodec());
+            bodies.add(Arrays.copyOfRange(bs, buf.position(), buf.position() + header.getLen()));
+            buf.position(buf.position() + header.getLen());
+        }
+        assertEquals(0, buf.remaining());
+        return bodies;
+    }
+
+    static class NameHandler implements ErpcHandler {
+
+        final int serviceId;
+        final int methodId;
+
+        NameHandler(int serviceId, int methodId) {
+            this.serviceId = serviceId;
+            this.methodId  = methodId;
+        }
+
+        @Override
+        public int getServiceId() {
+            return serviceId;
+        }
+
+        @Override
+        public int getMethodId() {
+            return methodId;
+        }
+
+        @Override
+        public void handle(RpcRequest request, RpcResponse response) {
+            response.setResponse((serviceId + "." + methodId).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 比RpcRequest多一个字段的请求，模拟两端版本不一致
+     */
+    public static class RpcRequestV2 {
+        @ProtoField(tag = 1, type = Field.Type.ENUM)
+        public RpcDataType reqType;
+        @ProtoField(tag = 2, type = Field.Type.INT32)
+        public int serviceId;
+        @ProtoField(tag = 3, type = Field.Type.INT32)
+        public int methodId;
+        @ProtoField(tag = 4, type = Field.Type.BYTES)
+        public byte[] request;
+        @ProtoField(tag = 5, type = Field.Type.FIXED64)
+        public long traceId;
+        @ProtoField(tag = 6, type = Field.Type.INT32, cardinality = Field.Cardinality.REPEATED)
+        public List<Integer> workId;
+        @ProtoField(tag = 7, type = Field.Type.INT64)
+        public long requestTime;
+        @ProtoField(tag = 8, type = Field.Type.FIXED64)
+        public long requestId;
+        @ProtoField(tag = 9, type = Field.Type.STRING)
+        public String caller;
+    }
+
+    static class EchoHandler extends NameHandler {
+
+        EchoHandler() {
+            super(1, 1);
+        }
+
+        @Override
+        public void handle(RpcRequest request, RpcResponse response) {
+            response.setResponse(request.getRequest());
+        }
+    }
+
+    static class ErrorHandler extends NameHandler {
+
+        ErrorHandler() {
+            super(1, 2);
+        }
+
+        @Override
+        public void handle(RpcRequest request, RpcResponse response) {
+            throw new IllegalStateException("error method");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.http;
+
+import io.edap.io.BufWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import static io.edap.http.HttpConsts.DEFAULT_CHARSET;
+
+/**
+ * Transfer-Encoding: chunked方式的body输出，由{@link HttpResponse#chunked()}创建。每次write输出一个chunk，
+ * chunk写入响应的写缓冲，写缓冲满时即发送给客户端，连接不可写时写缓冲转入会话的暂存链表，不会阻塞IO线程。
+ * body输出完成后必须调用close输出结束的chunk
+ */
+public class ChunkedWriter implements Closeable {
+
+    private static final byte[] HEX        = "0123456789abcdef".getBytes();
+    private static final byte[] CRLF       = new byte[]{'\r', '\n'};
+    private static final byte[] LAST_CHUNK = new byte[]{'0', '\r', '\n', '\r', '\n'};
+
+    private final HttpResponse response;
+    /**
+     * chunk-size行的缓存，int最多8位16进制数加CRLF
+     */
+    private final byte[]       sizeLine;
+    private       boolean      closed;
+
+    ChunkedWriter(HttpResponse response) {
+        this.response = response;
+        this.sizeLine = new byte[10];
+    }
+
+    public ChunkedWriter write(String data) throws IOException {
+        return write(data.getBytes(DEFAULT_CHARSET));
+    }
+
+    public ChunkedWriter write(byte[] data) throws IOException {
+        return write(data, 0, data.length);
+    }
+
+    public ChunkedWriter write(byte[] data, int offset, int len) throws IOException {
+        checkOpen();
+        // 长度为0的chunk表示body结束，空数据不输出
+        if (len == 0) {
+            return this;
+        }
+        writeChunkSize(len);
+        response.write0(data, offset, len);
+        response.write0(CRLF);
+        return this;
+    }
+
+    public ChunkedWriter write(BufWriter writer) throws IOException {
+        checkOpen();
+        int len = writer.size();
+        if (len == 0) {
+            return this;
+        }
+        writeChunkSize(len);
+        response.write0(writer);
+        response.write0(CRLF);
+        return this;
+    }
+
+    /**
+     * 将已经写入的chunk立即发送给客户端，不等待写缓冲写满
+     */
+    public void flush() throws IOException {
+        checkOpen();
+        response.flush();
+    }
+
+    /**
+     * 输出结束的chunk，多次调用只输出一次
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        response.write0(LAST_CHUNK);
+    }
+
+    private void writeChunkSize(int len) throws IOException {
+        byte[] bs = sizeLine;
+        int pos = bs.length;
+        bs[--pos] = '\n';
+        bs[--pos] = '\r';
+        do {
+            bs[--pos] = HEX[len & 0xf];
+            len >>>= 4;
+        } while (len != 0);
+        response.write0(bs, pos, bs.length - pos);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("chunked body already closed");
+        }
+    }
+}
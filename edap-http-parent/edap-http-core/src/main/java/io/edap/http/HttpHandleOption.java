@@ -11,6 +11,21 @@ public class HttpHandleOption {
 
     private boolean enablePipelining;
 
+	/**
+	 * 请求body在内存中聚合的最大字节数，超过后写入临时文件，请求通过{@link HttpRequest#getBodyFile()}获取
+	 */
+	private int maxInMemoryBody = 1024 * 1024;
+
+	/**
+	 * 请求body的最大字节数，超过后返回413并关闭连接，小于0时不限制
+	 */
+	private long maxBodySize = -1;
+
+	/**
+	 * body写入临时文件时使用的目录，为null时使用系统的临时目录
+	 */
+	private String bodyTempDir;
+
 	/**
 	 * 延迟解析header，加快http协议解码的效率
 	 */
@@ -33,4 +48,37 @@ public class HttpHandleOption {
     public void setEnablePipelining(boolean enablePipelining) {
         this.enablePipelining = enablePipelining;
     }
+
+	/**
+	 * 请求body在内存中聚合的最大字节数，超过后写入临时文件，请求通过{@link HttpRequest#getBodyFile()}获取
+	 */
+	public int getMaxInMemoryBody() {
+		return maxInMemoryBody;
+	}
+
+	public void setMaxInMemoryBody(int maxInMemoryBody) {
+		this.maxInMemoryBody = maxInMemoryBody;
+	}
+
+	/**
+	 * 请求body的最大字节数，超过后返回413并关闭连接，小于0时不限制
+	 */
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public void setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * body写入临时文件时使用的目录，为null时使用系统的临时目录
+	 */
+	public String getBodyTempDir() {
+		return bodyTempDir;
+	}
+
+	public void setBodyTempDir(String bodyTempDir) {
+		this.bodyTempDir = bodyTempDir;
+	}
 }
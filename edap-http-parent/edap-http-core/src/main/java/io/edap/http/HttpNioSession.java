@@ -21,6 +21,7 @@ import io.edap.buffer.FastBuf;
 import io.edap.nio.ParseResult;
 import io.edap.nio.codec.BytesDataRange;
 import io.edap.http.codec.HttpFastBufDataRange;
+import io.edap.http.rangedecoder.BodyDecodeState;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
 import io.edap.util.ByteData;
@@ -43,6 +44,10 @@ public abstract class HttpNioSession extends NioServerSession<HttpRequest> {
     private HttpFastBufDataRange     dataRange;
     private BytesDataRange           bytesDataRange;
     private ByteData                 tmpData;
+    /**
+     * 正在接收的请求body的解码状态
+     */
+    private BodyDecodeState          bodyDecodeState;
 
     public HttpNioSession() {
 
@@ -97,6 +102,28 @@ public abstract class HttpNioSession extends NioServerSession<HttpRequest> {
         this.parseResult = parseResult;
     }
 
+    public BodyDecodeState getBodyDecodeState() {
+        return bodyDecodeState;
+    }
+
+    public void setBodyDecodeState(BodyDecodeState bodyDecodeState) {
+        this.bodyDecodeState = bodyDecodeState;
+    }
+
+    /**
+     * 连接关闭时放弃正在接收的body，删除已经写入的临时文件
+     */
+    @Override
+    public void channelClosed() {
+        super.channelClosed();
+        BodyDecodeState state = bodyDecodeState;
+        if (state != null && state.isActive()) {
+            state.discard();
+        }
+        setRequest(null);
+        setDecodeState(null);
+    }
+
     public BytesDataRange getBytesDataRange() {
         return bytesDataRange;
     }
@@ -18,6 +18,8 @@ package io.edap.http;
 
 import io.edap.util.ByteData;
 
+import java.nio.file.Path;
+
 /**
  */
 public interface HttpRequest {
@@ -40,6 +42,14 @@ public interface HttpRequest {
 
     void setBody(ByteData data);
 
+    /**
+     * body超过{@link HttpHandleOption#getMaxInMemoryBody()}时写入的临时文件，此时getBody返回null。
+     * 临时文件在handler返回后删除，需要保留时handler应在处理过程中移走该文件
+     */
+    Path getBodyFile();
+
+    void setBodyFile(Path bodyFile);
+
     void reset();
 
     HttpVersion getVersion();
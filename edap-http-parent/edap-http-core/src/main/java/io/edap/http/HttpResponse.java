@@ -24,21 +24,28 @@ import io.edap.io.BufOut;
 import io.edap.io.BufWriter;
 import io.edap.json.Eson;
 import io.edap.json.JsonWriter;
+import io.edap.json.writer.FastBufJsonWriter;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
+import io.edap.nio.FileRegion;
 import io.edap.protobuf.EncodeException;
 import io.edap.protobuf.ProtoBufEncoder;
 import io.edap.protobuf.ProtoBufWriter;
+import io.edap.protobuf.writer.FastBufProtoBufWriter;
 import io.edap.util.ByteData;
 import io.edap.util.CollectionUtils;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
 import static io.edap.http.HttpConsts.BUILDIN_HEADERS;
 import static io.edap.http.HttpConsts.DEFAULT_CHARSET;
+import static io.edap.nio.NioSession.THREAD_WRITE_BUF;
 import static io.edap.protobuf.ProtoBuf.THREAD_WRITER;
 import static io.edap.protobuf.ProtoBufCodecRegister.INSTANCE;
 
@@ -56,6 +63,13 @@ public class HttpResponse {
     private static DateHeader HEADER_DATE   = (DateHeader)BUILDIN_HEADERS.get("Date");
     private static byte[] LINE = new byte[]{'\r', '\n'};
     private HttpNioSession nioSession;
+    /**
+     * 直接序列化到写缓冲的writer，每个IO线程一个
+     */
+    private static final ThreadLocal<FastBufJsonWriter> DIRECT_JSON_WRITER =
+            ThreadLocal.withInitial(FastBufJsonWriter::new);
+    private static final ThreadLocal<FastBufProtoBufWriter> DIRECT_PROTO_WRITER =
+            ThreadLocal.withInitial(FastBufProtoBufWriter::new);
 
 
     public HttpResponse() {
@@ -63,24 +77,23 @@ public class HttpResponse {
     }
 
     public void setSimpleResponse(int code, Map<String, String> headers, Header... header) throws IOException {
-        FastBuf _buf = buf;
         try {
-            write0(_buf, version.bytes());
-            write0(_buf, ResponseStatusCode.get(code));
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(code));
             for (Header h : header) {
-                write0(_buf, h.getBytes());
+                write0(h.getBytes());
             }
             if (!CollectionUtils.isEmpty(headers)) {
                 for (Map.Entry<String, String> entry : headers.entrySet()) {
-                    write0(_buf, entry.getKey().getBytes(StandardCharsets.UTF_8));
-                    write0(_buf, new byte[]{':', ' '});
-                    write0(_buf, entry.getValue().getBytes(StandardCharsets.UTF_8));
-                    write0(_buf, LINE);
+                    write0(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    write0(new byte[]{':', ' '});
+                    write0(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                    write0(LINE);
                 }
             }
-            write0(_buf, HEADER_DATE.getBytes());
-            write0(_buf, HEADER_SERVER.getBytes());
-            write0(_buf, LINE);
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
         } catch (IOException ioe) {
             LOG.error("write error: ", ioe);
             throw ioe;
@@ -93,6 +106,11 @@ public class HttpResponse {
         return this;
     }
 
+    public HttpResponse setVersion(HttpVersion version) {
+        this.version = version;
+        return this;
+    }
+
     public HttpResponse setNioSession(HttpNioSession nioSession) {
         this.nioSession = nioSession;
         return this;
@@ -106,16 +124,15 @@ public class HttpResponse {
     public HttpResponse write(String body) throws IOException {
         byte[] data = body.getBytes(DEFAULT_CHARSET);
         int bodyLen = data.length;
-        FastBuf _buf = buf;
         try {
-            write0(_buf, version.bytes());
-            write0(_buf, ResponseStatusCode.get(200));
-            write0(_buf, contentType.getBytes());
-            write0(_buf, ContentLength.getByteData(bodyLen));
-            write0(_buf, HEADER_DATE.getBytes());
-            write0(_buf, HEADER_SERVER.getBytes());
-            write0(_buf, LINE);
-            write0(_buf, data);
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(200));
+            write0(contentType.getBytes());
+            write0(ContentLength.getByteData(bodyLen));
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+            write0(data);
         } catch (IOException ioe) {
             LOG.error("write error: ", ioe);
             throw ioe;
@@ -125,16 +142,15 @@ public class HttpResponse {
 
     public HttpResponse write(byte[] data) throws IOException {
         int bodyLen = data.length;
-        FastBuf _buf = buf;
         try {
-            write0(_buf, version.bytes());
-            write0(_buf, ResponseStatusCode.get(200));
-            write0(_buf, contentType.getBytes());
-            write0(_buf, ContentLength.getByteData(bodyLen));
-            write0(_buf, HEADER_DATE.getBytes());
-            write0(_buf, HEADER_SERVER.getBytes());
-            write0(_buf, LINE);
-            write0(_buf, data);
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(200));
+            write0(contentType.getBytes());
+            write0(ContentLength.getByteData(bodyLen));
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+            write0(data);
         } catch (IOException ioe) {
             LOG.error("write error: ", ioe);
             throw ioe;
@@ -144,16 +160,15 @@ public class HttpResponse {
 
     public HttpResponse write(int code, byte[] data) throws IOException {
         int bodyLen = data.length;
-        FastBuf _buf = buf;
         try {
-            write0(_buf, version.bytes());
-            write0(_buf, ResponseStatusCode.get(code));
-            write0(_buf, contentType.getBytes());
-            write0(_buf, ContentLength.getByteData(bodyLen));
-            write0(_buf, HEADER_DATE.getBytes());
-            write0(_buf, HEADER_SERVER.getBytes());
-            write0(_buf, LINE);
-            write0(_buf, data);
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(code));
+            write0(contentType.getBytes());
+            write0(ContentLength.getByteData(bodyLen));
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+            write0(data);
         } catch (IOException ioe) {
             LOG.error("write error: ", ioe);
             throw ioe;
@@ -163,16 +178,15 @@ public class HttpResponse {
 
     public HttpResponse write(BufWriter writer) throws IOException {
         int bodyLen = writer.size();
-        FastBuf _buf = buf;
         try {
-            write0(_buf, version.bytes());
-            write0(_buf, ResponseStatusCode.get(200));
-            write0(_buf, contentType.getBytes());
-            write0(_buf, ContentLength.getByteData(bodyLen));
-            write0(_buf, HEADER_DATE.getBytes());
-            write0(_buf, HEADER_SERVER.getBytes());
-            write0(_buf, LINE);
-            write0(_buf, writer);
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(200));
+            write0(contentType.getBytes());
+            write0(ContentLength.getByteData(bodyLen));
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+            write0(writer);
         } catch (IOException ioe) {
             LOG.error("write error: ", ioe);
             throw ioe;
@@ -184,32 +198,35 @@ public class HttpResponse {
         if (contentType == null) {
             contentType = ContentTypeHeader.from("application/json; charset=UTF-8");
         }
-        FastBuf _buf;
         switch (contentType.getContentType()) {
             case "application/json":
-                _buf = buf;
-                _buf.wpos(_buf.address());
+                buf.wpos(buf.address());
+                if (writeDirect(obj, true)) {
+                    break;
+                }
                 JsonWriter writer = Eson.THREAD_WRITER.get();
                 try {
                     writer.reset();
                     Eson.serialize(obj, writer);
                     int len = writer.size();
-                    write0(_buf, version.bytes());
-                    write0(_buf, ResponseStatusCode.get(200));
-                    write0(_buf, contentType.getBytes());
-                    write0(_buf, ContentLength.getByteData(len));
-                    write0(_buf, HEADER_DATE.getBytes());
-                    write0(_buf, HEADER_SERVER.getBytes());
-                    write0(_buf, LINE);
-                    write0(_buf, writer);
+                    write0(version.bytes());
+                    write0(ResponseStatusCode.get(200));
+                    write0(contentType.getBytes());
+                    write0(ContentLength.getByteData(len));
+                    write0(HEADER_DATE.getBytes());
+                    write0(HEADER_SERVER.getBytes());
+                    write0(LINE);
+                    write0(writer);
                 } catch (IOException ioe) {
                     LOG.error("write error: ", ioe);
                     throw ioe;
                 }
                 break;
             case "application/x-protobuf":
-                _buf = buf;
-                _buf.wpos(_buf.address());
+                buf.wpos(buf.address());
+                if (writeDirect(obj, false)) {
+                    break;
+                }
                 ProtoBufEncoder codec = INSTANCE.getEncoder(obj.getClass());
                 ProtoBufWriter protoWriter = THREAD_WRITER.get();
                 protoWriter.reset();
@@ -219,14 +236,14 @@ public class HttpResponse {
                 try {
                     codec.encode(protoWriter, obj);
                     int len = protoWriter.size();
-                    write0(_buf, version.bytes());
-                    write0(_buf, ResponseStatusCode.get(200));
-                    write0(_buf, contentType.getBytes());
-                    write0(_buf, ContentLength.getByteData(len));
-                    write0(_buf, HEADER_DATE.getBytes());
-                    write0(_buf, HEADER_SERVER.getBytes());
-                    write0(_buf, LINE);
-                    write0(_buf, protoWriter);
+                    write0(version.bytes());
+                    write0(ResponseStatusCode.get(200));
+                    write0(contentType.getBytes());
+                    write0(ContentLength.getByteData(len));
+                    write0(HEADER_DATE.getBytes());
+                    write0(HEADER_SERVER.getBytes());
+                    write0(LINE);
+                    write0(protoWriter);
                 } catch (EncodeException e) {
                     LOG.error("write EncodeException error: ", e);
                     throw new IOException("EncodeException", e);
@@ -243,53 +260,158 @@ public class HttpResponse {
         return this;
     }
 
-    private boolean write0(FastBuf buf, byte[] data) throws IOException {
-        int len = data.length;
-        int wlen = buf.write(data, 0, len);
-        if (wlen >= len) {
-            return true;
+    /**
+     * 将响应头和body直接写入写缓冲，body由FastBuf的writer序列化，不再经过堆内writer的复制。Content-Length先写入
+     * 预留的空格，序列化完成后回填实际的长度。写缓冲剩余的空间放不下整个响应时还原写缓冲并返回false，由调用方
+     * 使用堆内的writer重新序列化后分段写入
+     */
+    private boolean writeDirect(Object obj, boolean json) throws IOException {
+        FastBuf fb = buf;
+        long start = fb.wpos();
+        long lenPos;
+        if (!put(fb, version.bytes()) || !put(fb, ResponseStatusCode.get(200)) || !put(fb, contentType.getBytes())) {
+            fb.wpos(start);
+            return false;
         }
-        // 如果buf剩余容量不足则先把buf的数据写出后再填充新的数据
-        while (wlen < len) {
-            writeToChannel(buf);
-            buf.wpos(buf.address());
-            wlen += buf.write(data, wlen, len - wlen);
+        lenPos = fb.wpos();
+        if (!put(fb, ContentLength.PLACEHOLDER_BYTES) || !put(fb, HEADER_DATE.getBytes())
+                || !put(fb, HEADER_SERVER.getBytes()) || !put(fb, LINE)) {
+            fb.wpos(start);
+            return false;
         }
+        int len;
+        try {
+            if (json) {
+                FastBufJsonWriter writer = DIRECT_JSON_WRITER.get().wrap(fb);
+                Eson.serialize(obj, writer);
+                len = writer.finish();
+            } else {
+                FastBufProtoBufWriter writer = DIRECT_PROTO_WRITER.get().wrap(fb);
+                INSTANCE.getEncoder(obj.getClass()).encode(writer, obj);
+                len = writer.finish();
+            }
+        } catch (BufferOverflowException e) {
+            fb.wpos(start);
+            return false;
+        } catch (EncodeException e) {
+            fb.wpos(start);
+            if (FastBufProtoBufWriter.isOverflow(e)) {
+                return false;
+            }
+            LOG.error("write EncodeException error: ", e);
+            throw new IOException("EncodeException", e);
+        }
+        ContentLength.fillPlaceholder(lenPos, len);
         return true;
     }
 
-    private boolean write0(FastBuf buf, BufWriter writer) throws IOException {
-        int len = writer.size();
-        int wlen = writer.toFastBuf(buf);
-        if (wlen >= len) {
-            return true;
+    private static boolean put(FastBuf fb, byte[] data) {
+        return fb.write(data, 0, data.length) == data.length;
+    }
+
+    /**
+     * 以Transfer-Encoding: chunked的方式输出body，handler将body分块写入返回的ChunkedWriter，写缓冲满时即发送给客户端，
+     * 不需要预先知道body的长度，也不需要和body一样大的缓冲。只能在处理请求的IO线程中使用，只支持HTTP/1.1
+     */
+    public ChunkedWriter chunked() throws IOException {
+        return chunked(200);
+    }
+
+    public ChunkedWriter chunked(int code) throws IOException {
+        if (version != HttpVersion.HTTP_1_1) {
+            throw new IllegalStateException("chunked transfer encoding requires HTTP/1.1, but request is " + version);
+        }
+        try {
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(code));
+            if (contentType != null) {
+                write0(contentType.getBytes());
+            }
+            write0(TransferEncodingHeader.CHUNKED.getBytes());
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+        } catch (IOException ioe) {
+            LOG.error("write error: ", ioe);
+            throw ioe;
         }
+        return new ChunkedWriter(this);
+    }
+
+    /**
+     * 将整个文件作为body输出，文件通过sendfile直接写到连接，不复制到java堆，发送完成后关闭文件
+     */
+    public HttpResponse sendFile(Path path) throws IOException {
+        return write(FileRegion.of(path));
+    }
+
+    /**
+     * 将文件的一个区域作为body输出，channel由调用方负责关闭，并且要在发送完成前保持打开
+     */
+    public HttpResponse write(FileChannel channel, long position, long count) throws IOException {
+        return write(new FileRegion(channel, position, count, false));
+    }
+
+    /**
+     * 输出文件区域，先输出响应头，再通过FileChannel.transferTo将文件写到连接。连接不可写时文件区域暂存在会话中，
+     * 由IO线程在连接可写时继续发送，所以返回时文件不一定已经发送完成
+     */
+    public HttpResponse write(FileRegion region) throws IOException {
+        try {
+            write0(version.bytes());
+            write0(ResponseStatusCode.get(200));
+            write0(contentType != null ? contentType.getBytes() : ContentTypeHeader.OCTET_STREAM.getBytes());
+            write0(ContentLength.getByteData(region.remain()));
+            write0(HEADER_DATE.getBytes());
+            write0(HEADER_SERVER.getBytes());
+            write0(LINE);
+            nioSession.transferFile(region);
+        } catch (IOException ioe) {
+            LOG.error("write error: ", ioe);
+            region.close();
+            throw ioe;
+        } finally {
+            // 发送文件前写缓冲可能已经转入会话的暂存链表
+            buf = THREAD_WRITE_BUF.get();
+        }
+        return this;
+    }
+
+    void write0(byte[] data) throws IOException {
+        write0(data, 0, data.length);
+    }
+
+    void write0(byte[] data, int offset, int len) throws IOException {
+        int wlen = buf.write(data, offset, len);
         // 如果buf剩余容量不足则先把buf的数据写出后再填充新的数据
         while (wlen < len) {
-            writeToChannel(buf);
-            buf.wpos(buf.address());
-            wlen += writer.toFastBuf(buf);
+            flush();
+            wlen += buf.write(data, offset + wlen, len - wlen);
         }
-        return true;
     }
 
-    private boolean write0(FastBuf buf, ByteData byteData) throws IOException {
-        int len = byteData.getLength();
-        int wlen = buf.write(byteData);
-        if (wlen >= len) {
-            return true;
-        }
+    void write0(BufWriter writer) throws IOException {
+        int len = writer.size();
+        int wlen = writer.toFastBuf(buf);
         // 如果buf剩余容量不足则先把buf的数据写出后再填充新的数据
         while (wlen < len) {
-            writeToChannel(buf);
-            buf.wpos(buf.address());
-            wlen += buf.write(byteData);
+            flush();
+            wlen += writer.toFastBuf(buf);
         }
-        return true;
     }
 
-    private void writeToChannel(FastBuf buf) throws IOException {
-        nioSession.writeToChannel(buf);
+    private void write0(ByteData byteData) throws IOException {
+        write0(byteData.getBytes(), byteData.getOffset(), byteData.getLength());
+    }
+
+    /**
+     * 将写缓冲中的数据发送给客户端，连接不可写时写缓冲转入会话的暂存链表并换一个新的写缓冲，不会阻塞IO线程
+     */
+    void flush() throws IOException {
+        if (buf.remain() == 0) {
+            return;
+        }
+        buf = nioSession.flushThreadWriteBuf();
     }
 
     public HttpResponse write(ByteData data) {
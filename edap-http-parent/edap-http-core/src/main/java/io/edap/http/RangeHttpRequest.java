@@ -19,6 +19,8 @@ package io.edap.http;
 import io.edap.http.codec.HttpFastBufDataRange;
 import io.edap.util.ByteData;
 
+import java.nio.file.Path;
+
 /**
  */
 public class RangeHttpRequest implements HttpRequest {
@@ -101,6 +103,16 @@ public class RangeHttpRequest implements HttpRequest {
 
     }
 
+    @Override
+    public Path getBodyFile() {
+        return null;
+    }
+
+    @Override
+    public void setBodyFile(Path bodyFile) {
+
+    }
+
     @Override
     public void reset() {
         queryStringRange.reset();
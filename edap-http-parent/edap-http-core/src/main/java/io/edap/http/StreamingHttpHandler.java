@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.http;
+
+import io.edap.nio.codec.FastBufDataRange;
+
+import java.io.IOException;
+
+/**
+ * 流式接收请求body的HTTP处理器，body（包括chunked编码的body）每收到一段就调用一次onBody，不在内存中聚合，
+ * body接收完成后调用handle输出响应，此时请求的getBody和getBodyFile都为null。onBody和handle在同一个IO线程中调用
+ */
+public interface StreamingHttpHandler extends HttpHandler {
+
+    /**
+     * 收到一段请求body
+     * @param req HTTP请求
+     * @param slice body的数据块，chunked编码时已经去掉了chunk的长度行。数据块指向连接的读缓冲，只在本次调用中有效，
+     *              需要保留的数据要在返回前复制或者写出
+     */
+    void onBody(HttpRequest req, FastBufDataRange slice) throws IOException;
+}
@@ -7,6 +7,7 @@ import io.edap.util.CollectionUtils;
 import io.edap.util.StringUtil;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,8 @@ public class ValueHttpRequest implements HttpRequest {
 
     private ByteData body;
 
+    private Path bodyFile;
+
     private int headerSize;
 
     /**
@@ -191,9 +194,21 @@ public class ValueHttpRequest implements HttpRequest {
         this.body = body;
     }
 
+    @Override
+    public Path getBodyFile() {
+        return bodyFile;
+    }
+
+    @Override
+    public void setBodyFile(Path bodyFile) {
+        this.bodyFile = bodyFile;
+    }
+
     @Override
     public void reset() {
         contentLength = -2;
+        body          = null;
+        bodyFile      = null;
         headers.clear();
         parameters.clear();
     }
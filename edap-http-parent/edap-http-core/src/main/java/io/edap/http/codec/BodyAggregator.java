@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.http.codec;
+
+import io.edap.buffer.FastBuf;
+import io.edap.util.ByteData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 请求body的聚合器，body在maxInMemory以内时聚合到byte数组，超过后把已经聚合的数据和后续的数据写入临时文件，
+ * 写文件时直接从读缓冲的DirectByteBuffer写出，不经过java堆。大的上传因此只占用有限的内存
+ */
+public class BodyAggregator {
+
+    private final int     maxInMemory;
+    private final String  tempDir;
+    /**
+     * 预期长度已经超过maxInMemory时直接写入临时文件，不在内存中聚合
+     */
+    private final boolean spillFirst;
+
+    private byte[]      data;
+    private int         size;
+    private long        length;
+    private Path        file;
+    private FileChannel channel;
+
+    /**
+     * @param maxInMemory 内存中聚合的最大字节数
+     * @param tempDir 临时文件的目录，为null时使用系统的临时目录
+     * @param expectLength 预期的body长度，未知时为-1
+     */
+    public BodyAggregator(int maxInMemory, String tempDir, long expectLength) {
+        this.maxInMemory = Math.max(0, maxInMemory);
+        this.tempDir     = tempDir;
+        this.spillFirst  = expectLength > this.maxInMemory;
+        if (spillFirst) {
+            this.data = new byte[0];
+        } else {
+            this.data = new byte[expectLength >= 0 ? (int) expectLength : Math.min(4096, this.maxInMemory)];
+        }
+    }
+
+    /**
+     * 追加读缓冲中的一段数据
+     */
+    public void append(FastBuf buf, long start, int len) throws IOException {
+        length += len;
+        if (channel == null && !spillFirst && size + len <= maxInMemory) {
+            if (size + len > data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(maxInMemory, Math.max(size + len, (long) data.length << 1)));
+            }
+            buf.get(start, data, size, len);
+            size += len;
+            return;
+        }
+        if (channel == null) {
+            spill();
+        }
+        ByteBuffer bb = buf.byteBuffer().duplicate();
+        int pos = (int) (start - buf.address());
+        bb.limit(pos + len).position(pos);
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    private void spill() throws IOException {
+        Path dir = tempDir == null ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(tempDir);
+        file    = Files.createTempFile(dir, "edap-body-", ".tmp");
+        channel = FileChannel.open(file, WRITE);
+        ByteBuffer bb = ByteBuffer.wrap(data, 0, size);
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+        data = null;
+        size = 0;
+    }
+
+    /**
+     * 是否已经写入临时文件
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * 已经接收的body字节数
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * 接收完成，内存中聚合时返回body的数据，写入临时文件时关闭文件并返回null
+     */
+    public ByteData finish() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            return null;
+        }
+        if (file != null) {
+            return null;
+        }
+        ByteData body = new ByteData();
+        body.setBytes(data);
+        body.setOffset(0);
+        body.setLength(size);
+        return body;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 放弃接收，删除临时文件
+     */
+    public void discard() {
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // 临时目录中的文件由系统清理
+        }
+        data = null;
+    }
+}
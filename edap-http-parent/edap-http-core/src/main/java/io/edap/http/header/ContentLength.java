@@ -19,6 +19,8 @@ package io.edap.http.header;
 import io.edap.util.ByteData;
 
 import static io.edap.util.FastNum.uncheckWriteInt;
+import static io.edap.util.FastNum.uncheckWriteLong;
+import static io.edap.util.UnsafeUtil.writeByte;
 
 public class ContentLength extends Header {
 
@@ -28,11 +30,17 @@ public class ContentLength extends Header {
 
     public static String NAME_LOWER_CASE = "content-length";
 
+    /**
+     * 预留长度位置的Content-Length头，长度的位置先填充空格，body直接序列化到写缓冲后再调用
+     * {@link #fillPlaceholder(long, int)}回填，数字靠右对齐，前面多出的空格为协议允许的可选空白
+     */
+    public static final byte[] PLACEHOLDER_BYTES = "Content-Length:           \r\n".getBytes();
+
     private static final ThreadLocal<ByteData> BYTE_CACHE_LOCAL = new ThreadLocal<ByteData>() {
         @Override
         protected ByteData initialValue() {
             ByteData data = new ByteData();
-            byte[]   bs   = new byte[32];
+            byte[]   bs   = new byte[40];
             System.arraycopy(keyBytes, 0, bs, 0, keyBytes.length);
             data.setBytes(bs);
             data.setOffset(keyBytes.length);
@@ -55,4 +63,30 @@ public class ContentLength extends Header {
         data.setOffset(0);
         return data;
     }
+
+    /**
+     * 超过2G的文件等长度大于int范围的body使用
+     */
+    public static ByteData getByteData(long length) {
+        ByteData data = BYTE_CACHE_LOCAL.get();
+        int pos = uncheckWriteLong(data.getBytes(), keyBytes.length, length);
+        data.getBytes()[pos]   = '\r';
+        data.getBytes()[pos+1] = '\n';
+        data.setLength(pos+2);
+        data.setOffset(0);
+        return data;
+    }
+
+    /**
+     * 将body的长度回填到写入堆外内存的{@link #PLACEHOLDER_BYTES}中
+     * @param address PLACEHOLDER_BYTES在内存中的开始地址
+     * @param length body的长度
+     */
+    public static void fillPlaceholder(long address, int length) {
+        long pos = address + PLACEHOLDER_BYTES.length - 3;
+        do {
+            writeByte(pos--, (byte)('0' + length % 10));
+            length /= 10;
+        } while (length > 0);
+    }
 }
@@ -43,6 +43,7 @@ public class ContentTypeHeader extends Header {
     public static ContentTypeHeader JSON            = from("application/json; charset=UTF-8");
     public static ContentTypeHeader PROTOBUF        = from("application/x-protobuf");
     public static ContentTypeHeader FORM_URLENCODED = from("application/x-www-form-urlencoded");
+    public static ContentTypeHeader OCTET_STREAM    = from("application/octet-stream");
 
     public static ContentTypeHeader from(String value) {
         value = value.trim();
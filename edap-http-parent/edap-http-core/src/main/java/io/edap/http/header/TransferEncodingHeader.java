@@ -0,0 +1,12 @@
+package io.edap.http.header;
+
+public class TransferEncodingHeader extends Header {
+
+    public static String NAME = "Transfer-Encoding";
+
+    public static TransferEncodingHeader CHUNKED = new TransferEncodingHeader(NAME, "chunked");
+
+    private TransferEncodingHeader(String name, String value) {
+        super(name, value);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.http.rangedecoder;
+
+import io.edap.http.HttpHandleOption;
+import io.edap.http.HttpHandler;
+import io.edap.http.HttpRequest;
+import io.edap.http.PathInfo;
+import io.edap.http.StreamingHttpHandler;
+import io.edap.http.codec.BodyAggregator;
+import io.edap.nio.codec.FastBufDataRange;
+
+/**
+ * 连接上正在接收的请求body的解码状态，body跨多次读取时保存在HttpNioSession中
+ */
+public class BodyDecodeState {
+
+    /**
+     * 是否有正在接收的body
+     */
+    boolean          active;
+    /**
+     * 是否为chunked编码
+     */
+    boolean          chunked;
+    /**
+     * chunked编码的解析状态
+     */
+    int              chunkState;
+    /**
+     * 当前chunk的长度，解析长度行时累加
+     */
+    long             chunkSize;
+    /**
+     * 长度行已经解析的16进制位数
+     */
+    int              sizeDigits;
+    /**
+     * 固定长度的body或者当前chunk还未接收的字节数
+     */
+    long             remain;
+    /**
+     * 已经接收的body字节数
+     */
+    long             received;
+    long             maxBodySize;
+    /**
+     * 流式接收body的处理器，为null时聚合body
+     */
+    StreamingHttpHandler handler;
+    /**
+     * 聚合body的聚合器，handler和aggregator都为null时丢弃body
+     */
+    BodyAggregator   aggregator;
+    /**
+     * 传给流式处理器的数据块，每个连接复用一个
+     */
+    FastBufDataRange slice;
+
+    void start(HttpRequest request, boolean chunked, long contentLength) {
+        PathInfo pathInfo = request.getPathInfo();
+        HttpHandleOption option = pathInfo == null ? null : pathInfo.getHandlerOption();
+        if (option == null) {
+            option = HttpHandleOption.defaultHttpHandleOption();
+        }
+        this.active      = true;
+        this.chunked     = chunked;
+        this.chunkState  = BodyDecoder.CHUNK_SIZE;
+        this.chunkSize   = 0;
+        this.sizeDigits  = 0;
+        this.remain      = chunked ? 0 : contentLength;
+        this.received    = 0;
+        this.maxBodySize = option.getMaxBodySize();
+        this.handler     = null;
+        this.aggregator  = null;
+        if (pathInfo == null || !pathInfo.isFound()) {
+            return;
+        }
+        HttpHandler[] handlers = pathInfo.getHttpHandlers();
+        if (handlers != null && handlers.length > 0 && handlers[0] instanceof StreamingHttpHandler) {
+            handler = (StreamingHttpHandler) handlers[0];
+            if (slice == null) {
+                slice = new FastBufDataRange();
+            }
+        } else {
+            aggregator = new BodyAggregator(option.getMaxInMemoryBody(), option.getBodyTempDir(),
+                    chunked ? -1 : contentLength);
+        }
+    }
+
+    /**
+     * 放弃正在接收的body，删除已经写入的临时文件
+     */
+    public void discard() {
+        if (aggregator != null) {
+            aggregator.discard();
+            aggregator = null;
+        }
+        handler = null;
+        active  = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
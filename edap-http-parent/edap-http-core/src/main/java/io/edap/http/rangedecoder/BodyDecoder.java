@@ -18,73 +18,264 @@ package io.edap.http.rangedecoder;
 
 
 import io.edap.buffer.FastBuf;
-import io.edap.http.AbstractHttpDecoder;
+import io.edap.http.HttpDecoder;
 import io.edap.http.codec.HttpFastBufDataRange;
-import io.edap.http.header.ContentTypeHeader;
 import io.edap.http.HeaderValue;
 import io.edap.http.HttpNioSession;
 import io.edap.http.HttpRequest;
-import io.edap.http.headervalue.ContentTypeValue;
+import io.edap.http.header.TransferEncodingHeader;
 import io.edap.nio.ParseResult;
+import io.edap.nio.codec.FastBufDataRange;
 import io.edap.util.ByteData;
 
+import java.io.IOException;
+
+import static io.edap.http.HttpConsts.BYTE_VALUES;
+
+/**
+ * 请求body的解码器，支持Content-Length和chunked编码的body。body每收到一段就交给流式处理器或者聚合器，
+ * 读缓冲中的数据全部消费，未接收完成的状态保存在{@link BodyDecodeState}中，下次读取后继续
+ */
 public class BodyDecoder {
 
+    static final int CHUNK_SIZE    = 0; // chunk的16进制长度
+    static final int CHUNK_EXT     = 1; // 长度后的chunk-ext，忽略
+    static final int CHUNK_SIZE_LF = 2; // 长度行结尾的LF
+    static final int CHUNK_DATA    = 3; // chunk的数据
+    static final int CHUNK_DATA_CR = 4; // 数据后的CR
+    static final int CHUNK_DATA_LF = 5; // 数据后的LF
+    static final int TRAILER_START = 6; // 最后一个chunk后trailer行的开始
+    static final int TRAILER       = 7; // trailer行，忽略
+    static final int TRAILER_LF    = 8; // 结束空行的LF
+
     public void decode(HttpRequest request, FastBuf buf, HttpFastBufDataRange dataRange,
 					   ParseResult<HttpRequest> result, HttpNioSession httpNioSession) {
-        String method = request.getMethod();
-        if ("GET".equals(method)) {
-            result.setFinished(true);
-        } else {
+        // 没有会话时（如直接解析缓存中的完整请求）body状态不能跨读取保存
+        BodyDecodeState state = httpNioSession != null ? httpNioSession.getBodyDecodeState() : null;
+        if (state == null || !state.active) {
+            if ("GET".equals(request.getMethod())) {
+                finish(result, httpNioSession);
+                return;
+            }
             int contentLength = request.getContentLength();
-            String transferEncoding = null;
-            if (contentLength == 0) {
-				result.setFinished(true);
-            } else if (contentLength > 0) {
-                String typeValue = "";
-                HeaderValue hv = request.getHeaderValue(ContentTypeHeader.NAME);
-                if (hv == null) {
-                    typeValue = ContentTypeHeader.FORM_URLENCODED.getContentType();
-                } else {
-                    if (hv instanceof ContentTypeValue) {
-                        ContentTypeValue htv = (ContentTypeValue) hv;
-                        typeValue = htv.getContentType();
-                    } else {
-                        ContentTypeValue htv = ContentTypeValue.fromHeaderValue(hv);
-                        typeValue = htv.getContentType();
-                    }
+            boolean chunked = isChunked(request);
+            if (!chunked && contentLength <= 0) {
+                finish(result, httpNioSession);
+                return;
+            }
+            if (state == null) {
+                state = new BodyDecodeState();
+                if (httpNioSession != null) {
+                    httpNioSession.setBodyDecodeState(state);
                 }
-				result.setFinished(decodeFixedBody(typeValue, buf, contentLength, request, httpNioSession));
+            }
+            state.start(request, chunked, contentLength);
+            if (!chunked && state.maxBodySize >= 0 && contentLength > state.maxBodySize) {
+                fail(state, result, 413, "request body too large: " + contentLength);
+                return;
+            }
+        }
+        try {
+            boolean done = state.chunked ? decodeChunked(request, buf, state) : decodeFixed(request, buf, state);
+            if (done) {
+                complete(request, state);
+                finish(result, httpNioSession);
             } else {
-                HeaderValue encodingVal = request.getHeaderValue("Transfer-Encoding");
-                if (encodingVal != null) {
-                    transferEncoding = encodingVal.getValue();
+                result.setFinished(false);
+                if (httpNioSession != null) {
+                    httpNioSession.setDecodeState(HttpDecoder.State.READ_BODY);
                 }
             }
+        } catch (BodyDecodeException e) {
+            fail(state, result, e.code, e.getMessage());
+        } catch (IOException e) {
+            fail(state, result, 500, "handle request body error: " + e.getMessage());
         }
     }
 
-    private boolean decodeFixedBody(String typeValue, FastBuf buf, int length,
-                                    HttpRequest request, HttpNioSession httpNioSession) {
-        ByteData data = httpNioSession.getTmpData();
-        int hasLen = 0;
-        if (httpNioSession.getTmpData() == null) {
-            data = new ByteData(length);
-            httpNioSession.setTmpData(data);
-        } else {
-            hasLen = data.getLength();
+    private static boolean isChunked(HttpRequest request) {
+        HeaderValue hv = request.getHeaderValue("transfer-encoding");
+        if (hv == null) {
+            hv = request.getHeaderValue(TransferEncodingHeader.NAME);
+        }
+        if (hv == null || hv.getValue() == null) {
+            return false;
         }
-        if (buf.remain() + hasLen >= length) {
-            int readLen = buf.get(data.getBytes(), hasLen, length);
-            buf.rpos(buf.rpos() + (length - hasLen));
-            data.setLength(data.getLength() + readLen);
-            request.setBody(data);
-            httpNioSession.setTmpData(null);
-            return true;
-        } else {
-            int readLen = buf.get(data.getBytes(), hasLen, length);
-            buf.rpos(buf.rpos() + readLen);
+        String value = hv.getValue().trim();
+        return value.regionMatches(true, value.length() - 7, "chunked", 0, 7);
+    }
+
+    private boolean decodeFixed(HttpRequest request, FastBuf buf, BodyDecodeState state) throws IOException {
+        int len = (int) Math.min(state.remain, buf.remain());
+        if (len > 0) {
+            long start = buf.rpos();
+            buf.rpos(start + len);
+            state.remain -= len;
+            deliver(request, buf, start, len, state);
+        }
+        return state.remain == 0;
+    }
+
+    private boolean decodeChunked(HttpRequest request, FastBuf buf, BodyDecodeState state) throws IOException {
+        long pos = buf.rpos();
+        long end = buf.wpos();
+        int  cs  = state.chunkState;
+        try {
+            while (pos < end) {
+                byte b;
+                switch (cs) {
+                    case CHUNK_SIZE:
+                        b = buf.get(pos++);
+                        int v = b >= 0 && b < BYTE_VALUES.length ? BYTE_VALUES[b] : -1;
+                        if (v < 0 && b >= 'a' && b <= 'f') {
+                            v = b - 'a' + 10;
+                        }
+                        if (v >= 0) {
+                            if (++state.sizeDigits > 15) {
+                                throw new BodyDecodeException(400, "chunk size too large");
+                            }
+                            state.chunkSize = (state.chunkSize << 4) | v;
+                        } else if (state.sizeDigits == 0) {
+                            throw new BodyDecodeException(400, "invalid chunk size");
+                        } else if (b == '\r') {
+                            cs = CHUNK_SIZE_LF;
+                        } else if (b == ';' || b == ' ' || b == '\t') {
+                            cs = CHUNK_EXT;
+                        } else {
+                            throw new BodyDecodeException(400, "invalid chunk size");
+                        }
+                        break;
+                    case CHUNK_EXT:
+                        if (buf.get(pos++) == '\r') {
+                            cs = CHUNK_SIZE_LF;
+                        }
+                        break;
+                    case CHUNK_SIZE_LF:
+                        if (buf.get(pos++) != '\n') {
+                            throw new BodyDecodeException(400, "invalid chunk size line");
+                        }
+                        if (state.chunkSize == 0) {
+                            cs = TRAILER_START;
+                        } else {
+                            state.remain = state.chunkSize;
+                            cs = CHUNK_DATA;
+                        }
+                        state.chunkSize  = 0;
+                        state.sizeDigits = 0;
+                        break;
+                    case CHUNK_DATA:
+                        int len = (int) Math.min(state.remain, end - pos);
+                        state.remain -= len;
+                        // 先保存读位置，处理器可能读取读缓冲
+                        buf.rpos(pos + len);
+                        deliver(request, buf, pos, len, state);
+                        pos += len;
+                        if (state.remain == 0) {
+                            cs = CHUNK_DATA_CR;
+                        }
+                        break;
+                    case CHUNK_DATA_CR:
+                        if (buf.get(pos++) != '\r') {
+                            throw new BodyDecodeException(400, "missing CRLF after chunk data");
+                        }
+                        cs = CHUNK_DATA_LF;
+                        break;
+                    case CHUNK_DATA_LF:
+                        if (buf.get(pos++) != '\n') {
+                            throw new BodyDecodeException(400, "missing CRLF after chunk data");
+                        }
+                        cs = CHUNK_SIZE;
+                        break;
+                    case TRAILER_START:
+                        b = buf.get(pos++);
+                        if (b == '\r') {
+                            cs = TRAILER_LF;
+                        } else if (b == '\n') {
+                            buf.rpos(pos);
+                            return true;
+                        } else {
+                            cs = TRAILER;
+                        }
+                        break;
+                    case TRAILER:
+                        if (buf.get(pos++) == '\n') {
+                            cs = TRAILER_START;
+                        }
+                        break;
+                    case TRAILER_LF:
+                        if (buf.get(pos++) != '\n') {
+                            throw new BodyDecodeException(400, "invalid chunked body end");
+                        }
+                        buf.rpos(pos);
+                        return true;
+                    default:
+                        throw new BodyDecodeException(400, "invalid chunk state " + cs);
+                }
+            }
+            buf.rpos(end);
+            return false;
+        } finally {
+            state.chunkState = cs;
+        }
+    }
+
+    private void deliver(HttpRequest request, FastBuf buf, long start, int len,
+                         BodyDecodeState state) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        state.received += len;
+        if (state.maxBodySize >= 0 && state.received > state.maxBodySize) {
+            throw new BodyDecodeException(413, "request body too large: " + state.received);
+        }
+        if (state.handler != null) {
+            FastBufDataRange slice = state.slice;
+            slice.buffer(buf);
+            slice.start(start);
+            slice.length(len);
+            slice.first(buf.get(start));
+            slice.last(buf.get(start + len - 1));
+            state.handler.onBody(request, slice);
+        } else if (state.aggregator != null) {
+            state.aggregator.append(buf, start, len);
+        }
+    }
+
+    private void complete(HttpRequest request, BodyDecodeState state) throws IOException {
+        if (state.aggregator != null) {
+            ByteData body = state.aggregator.finish();
+            if (state.aggregator.isSpilled()) {
+                request.setBodyFile(state.aggregator.getFile());
+            } else {
+                request.setBody(body);
+            }
+        }
+        state.aggregator = null;
+        state.handler    = null;
+        state.active     = false;
+    }
+
+    private static void finish(ParseResult<HttpRequest> result, HttpNioSession httpNioSession) {
+        result.setFinished(true);
+        if (httpNioSession != null) {
+            httpNioSession.setDecodeState(HttpDecoder.State.SKIP_CONTROL_CHARS);
+        }
+    }
+
+    private static void fail(BodyDecodeState state, ParseResult<HttpRequest> result, int code, String error) {
+        state.discard();
+        result.setFinished(false);
+        result.setCode(code);
+        result.setError(error);
+    }
+
+    static class BodyDecodeException extends IOException {
+
+        final int code;
+
+        BodyDecodeException(int code, String message) {
+            super(message);
+            this.code = code;
         }
-        return false;
     }
 }
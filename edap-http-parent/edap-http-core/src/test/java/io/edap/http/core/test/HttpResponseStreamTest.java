@@ -0,0 +1,302 @@
+package io.edap.http.core.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.http.ChunkedWriter;
+import io.edap.http.HttpNioSession;
+import io.edap.http.HttpRequest;
+import io.edap.http.HttpResponse;
+import io.edap.http.HttpVersion;
+import io.edap.http.ValueHttpRequest;
+import io.edap.http.header.ContentTypeHeader;
+import io.edap.json.Eson;
+import io.edap.protobuf.ProtoBuf;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static io.edap.nio.NioSession.THREAD_WRITE_BUF;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseStreamTest {
+
+    private ServerSocketChannel server;
+    private SocketChannel       client;
+    private TestSession         session;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel sc = server.accept();
+        sc.configureBlocking(false);
+        client.configureBlocking(false);
+        session = new TestSession();
+        session.setSocketChannel(sc);
+        THREAD_WRITE_BUF.get().clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        session.close();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testChunked() throws IOException {
+        byte[] big = new byte[100000];
+        new Random(1).nextBytes(big);
+
+        HttpResponse resp = newResponse(HttpVersion.HTTP_1_1);
+        resp.contentType(ContentTypeHeader.OCTET_STREAM);
+        ChunkedWriter writer = resp.chunked();
+        writer.write("hello");
+        writer.write(new byte[0]);
+        writer.write(big);
+        writer.flush();
+        writer.write(" world");
+        writer.close();
+        writer.close();
+        assertThrows(IllegalStateException.class, () -> writer.write("x"));
+
+        byte[] data = drain();
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int headerEnd = text.indexOf("\r\n\r\n") + 4;
+        String head = text.substring(0, headerEnd);
+        assertTrue(head.startsWith("HTTP/1.1 200"));
+        assertTrue(head.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(head.contains("Content-Length"));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int pos = headerEnd;
+        while (true) {
+            int lineEnd = text.indexOf("\r\n", pos);
+            int size = Integer.parseInt(text.substring(pos, lineEnd), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                assertEquals("\r\n", text.substring(pos));
+                break;
+            }
+            body.write(data, pos, size);
+            pos += size;
+            assertEquals("\r\n", text.substring(pos, pos + 2));
+            pos += 2;
+        }
+        byte[] expect = new byte[5 + big.length + 6];
+        System.arraycopy("hello".getBytes(), 0, expect, 0, 5);
+        System.arraycopy(big, 0, expect, 5, big.length);
+        System.arraycopy(" world".getBytes(), 0, expect, 5 + big.length, 6);
+        assertArrayEquals(expect, body.toByteArray());
+    }
+
+    @Test
+    public void testChunkedRequiresHttp11() {
+        HttpResponse resp = newResponse(HttpVersion.HTTP_1_0);
+        assertThrows(IllegalStateException.class, resp::chunked);
+    }
+
+    @Test
+    public void testSendFile() throws IOException {
+        byte[] content = new byte[3 * 1024 * 1024];
+        new Random(2).nextBytes(content);
+        Path file = Files.createTempFile("edap-send", ".bin");
+        try {
+            Files.write(file, content);
+            HttpResponse resp = newResponse(HttpVersion.HTTP_1_1);
+            resp.sendFile(file);
+            // 同一批次中后续的响应需要排在文件之后
+            resp.contentType(ContentTypeHeader.PLAIN);
+            resp.write("next");
+
+            byte[] data = drain();
+            String text = new String(data, StandardCharsets.ISO_8859_1);
+            int headerEnd = text.indexOf("\r\n\r\n") + 4;
+            String head = text.substring(0, headerEnd);
+            assertTrue(head.contains("Content-Type: application/octet-stream\r\n"));
+            assertTrue(head.contains("Content-Length: " + content.length + "\r\n"));
+            byte[] body = new byte[content.length];
+            System.arraycopy(data, headerEnd, body, 0, body.length);
+            assertArrayEquals(content, body);
+            String next = text.substring(headerEnd + content.length);
+            assertTrue(next.startsWith("HTTP/1.1 200"));
+            assertTrue(next.endsWith("\r\n\r\nnext"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testWriteObject() throws IOException {
+        List<Item> small = items(10);
+        assertJsonResponse(writeObject(ContentTypeHeader.JSON, small), Eson.toJsonString(small));
+        // body超过写缓冲的大小，使用堆内的writer序列化后分段写入
+        List<Item> large = items(2000);
+        assertJsonResponse(writeObject(ContentTypeHeader.JSON, large), Eson.toJsonString(large));
+
+        byte[] data = writeObject(ContentTypeHeader.PROTOBUF, small.get(3));
+        byte[] expect = ProtoBuf.toByteArray(small.get(3));
+        assertProtoResponse(data, expect);
+        assertEquals("项目3", ProtoBuf.toObject(expect, Item.class).getName());
+
+        ItemList itemList = new ItemList();
+        itemList.setItems(large);
+        assertProtoResponse(writeObject(ContentTypeHeader.PROTOBUF, itemList), ProtoBuf.toByteArray(itemList));
+    }
+
+    private static void assertProtoResponse(byte[] data, byte[] expect) {
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int headerEnd = text.indexOf("\r\n\r\n") + 4;
+        String head = text.substring(0, headerEnd);
+        assertTrue(head.contains("Content-Type: application/x-protobuf\r\n"), head);
+        assertEquals(expect.length, contentLength(head));
+        byte[] body = new byte[data.length - headerEnd];
+        System.arraycopy(data, headerEnd, body, 0, body.length);
+        assertArrayEquals(expect, body);
+    }
+
+    private byte[] writeObject(ContentTypeHeader contentType, Object obj) throws IOException {
+        THREAD_WRITE_BUF.get().clear();
+        HttpResponse resp = newResponse(HttpVersion.HTTP_1_1);
+        resp.contentType(contentType);
+        resp.write(obj);
+        return drain();
+    }
+
+    private static void assertJsonResponse(byte[] data, String body) {
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int headerEnd = text.indexOf("\r\n\r\n") + 4;
+        String head = text.substring(0, headerEnd);
+        assertTrue(head.startsWith("HTTP/1.1 200"), head);
+        assertTrue(head.contains("Content-Type: application/json; charset=UTF-8\r\n"), head);
+        byte[] expect = body.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expect.length, contentLength(head));
+        assertEquals(expect.length, data.length - headerEnd);
+        assertEquals(body, new String(data, headerEnd, expect.length, StandardCharsets.UTF_8));
+    }
+
+    private static int contentLength(String head) {
+        int start = head.indexOf("Content-Length:") + "Content-Length:".length();
+        return Integer.parseInt(head.substring(start, head.indexOf("\r\n", start)).trim());
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setId(i + 1L);
+            item.setName("项目" + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    public static class Item {
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class ItemList {
+        private List<Item> items;
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    private HttpResponse newResponse(HttpVersion version) {
+        ValueHttpRequest request = new ValueHttpRequest();
+        request.setVersion(version);
+        request.setHttpNioSession(session);
+        HttpResponse resp = new HttpResponse();
+        resp.setRequest(request);
+        resp.setBuf(THREAD_WRITE_BUF.get());
+        return resp;
+    }
+
+    /**
+     * 按IO线程处理完请求后的方式发送剩余的数据，同时读取客户端收到的数据
+     */
+    private byte[] drain() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer rbuf = ByteBuffer.allocate(65536);
+        FastBuf iov = new FastBuf(1024);
+        FastBuf writeBuf = THREAD_WRITE_BUF.get();
+        boolean done;
+        if (session.hasPendingWrite()) {
+            if (writeBuf.remain() > 0) {
+                session.putToWriteQueue(writeBuf);
+                THREAD_WRITE_BUF.set(new FastBuf(32768));
+            }
+            done = false;
+        } else {
+            done = session.writeToChannel(writeBuf);
+            if (!done) {
+                session.putToWriteQueue(writeBuf);
+                THREAD_WRITE_BUF.set(new FastBuf(32768));
+            }
+        }
+        int idle = 0;
+        while (idle < 50) {
+            if (!done) {
+                done = session.flushWriteChain(iov, null);
+            }
+            rbuf.clear();
+            int n = client.read(rbuf);
+            if (n > 0) {
+                out.write(rbuf.array(), 0, n);
+                idle = 0;
+            } else if (done) {
+                idle++;
+                Thread.yield();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static class TestSession extends HttpNioSession {
+
+        @Override
+        public void handle(HttpRequest request) {
+        }
+
+        @Override
+        public boolean decode(FastBuf fastBuf, boolean threadSwitch) {
+            return false;
+        }
+    }
+}
@@ -34,6 +34,8 @@ import io.edap.util.CryptUtil;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static io.edap.http.header.UpgradeHeader.UPGRADE_WEBSOCKET;
@@ -141,6 +143,10 @@ public class HttpServerNioSession extends HttpNioSession implements WSConnection
 			while (fastBuf.remain() > 0) {
 				ParseResult pr = _decoder.decode(fastBuf, this);
 				if (!pr.isFinished()) {
+					if (pr.getError() != null) {
+						writeErrorResponse(pr.getCode());
+						throw new IOException("bad http request " + pr.getCode() + ": " + pr.getError());
+					}
 					break;
 				}
 				hasMsg = true;
@@ -150,6 +156,22 @@ public class HttpServerNioSession extends HttpNioSession implements WSConnection
 		return hasMsg;
 	}
 
+	/**
+	 * 请求无法继续解码时（body超过maxBodySize返回413，chunk格式错误返回400）先把状态码发送给客户端并声明关闭连接，
+	 * 调用方随后关闭连接
+	 */
+	private void writeErrorResponse(int code) throws IOException {
+		HttpResponse resp = THREAD_HTTP_RESPONSE.get();
+		resp.setNioSession(this);
+		resp.setVersion(HttpVersion.HTTP_1_1);
+		resp.setBuf(THREAD_WRITE_BUF.get());
+		try {
+			resp.setSimpleResponse(code, null, HeaderConnection.CLOSE);
+		} finally {
+			flushThreadWriteBuf();
+		}
+	}
+
 	private void handeshake(HttpRequest request, HttpResponse resp, WSAuthenticator wsAuthenticator) throws IOException {
 		HeaderValue upgradeVal = request.getHeaderValue("Upgrade");
 		HeaderValue connectionVal = request.getHeaderValue("Connection");
@@ -236,6 +258,7 @@ public class HttpServerNioSession extends HttpNioSession implements WSConnection
 		}
 		try {
 			handler.handle(request, resp);
+			deleteBodyFile(request);
 
 //			SocketChannel sc = getSocketChannel();
 //			if (sc.isOpen()) {
@@ -244,10 +267,27 @@ public class HttpServerNioSession extends HttpNioSession implements WSConnection
 //				sc.close();
 //			}
 		} catch (Exception e) {
+			deleteBodyFile(request);
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * handler返回后删除写入临时文件的body
+	 */
+	private void deleteBodyFile(HttpRequest request) {
+		Path bodyFile = request.getBodyFile();
+		if (bodyFile == null) {
+			return;
+		}
+		request.setBodyFile(null);
+		try {
+			Files.deleteIfExists(bodyFile);
+		} catch (IOException e) {
+			log.warn("delete body file {} error", l -> l.arg(bodyFile).threw(e));
+		}
+	}
+
 	public WSHandler getWsHandler() {
 		return wsHandler;
 	}
@@ -75,10 +75,8 @@ public class RangeHttpRequestDecoder extends AbstractHttpDecoder implements Deco
     static {
         THREAD_DECODE_CONTEXT = ThreadLocal.withInitial(() -> {
             DecodeContext dc = new DecodeContext();
-            ValueHttpRequest request = new ValueHttpRequest();
-            request.setResponse(new HttpResponse());
             dc.dataRange = new HttpFastBufDataRange();
-            dc.request = request;
+            dc.request = newRequest();
             dc.result = new ParseResult<>();
             return dc;
         });
@@ -114,10 +112,16 @@ public class RangeHttpRequestDecoder extends AbstractHttpDecoder implements Deco
         DecodeContext dc = THREAD_DECODE_CONTEXT.get();
         HttpFastBufDataRange dataRange = dc.dataRange;
         ValueHttpRequest request = dc.request;
+        if (state == State.READ_BODY && httpNioSession.getRequest() instanceof ValueHttpRequest) {
+            // 继续接收上次没有接收完成的body
+            request = (ValueHttpRequest) httpNioSession.getRequest();
+        }
         request.setHttpNioSession(httpNioSession);
         HttpResponse response = request.getResponse();
         response.setBuf(THREAD_WRITE_BUF.get());
         ParseResult<HttpRequest> result = dc.result;
+        result.setCode(0);
+        result.setError(null);
         if (state == State.SKIP_CONTROL_CHARS) {
             request.reset();
         }
@@ -125,13 +129,27 @@ public class RangeHttpRequestDecoder extends AbstractHttpDecoder implements Deco
         if (result.isFinished()) {
             result.setMessage(request);
             result.setFinished(true);
+            if (request != dc.request) {
+                httpNioSession.setRequest(null);
+            }
         } else {
             result.setFinished(false);
+            if (request == dc.request && httpNioSession.getDecodeState() == State.READ_BODY) {
+                // body跨多次读取时请求归连接所有，同一线程上的其他连接使用新的请求对象
+                httpNioSession.setRequest(request);
+                dc.request = newRequest();
+            }
         }
 
         return result;
     }
 
+    private static ValueHttpRequest newRequest() {
+        ValueHttpRequest request = new ValueHttpRequest();
+        request.setResponse(new HttpResponse());
+        return request;
+    }
+
     static class DecodeContext {
         ParseResult<HttpRequest> result;
         ValueHttpRequest request;
@@ -209,7 +227,8 @@ public class RangeHttpRequestDecoder extends AbstractHttpDecoder implements Deco
                         value = valueDecoder.decode(buf, dataRange, request);
                         if (value == null) {
 							httpNioSession.setDecodeState(State.READ_HEADER);
-                            break;
+                            result.setFinished(false);
+                            return;
                         }
                         request.putHeader(name.name, value);
                         dataRange.reset();
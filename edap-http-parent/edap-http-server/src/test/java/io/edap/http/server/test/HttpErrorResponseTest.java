@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.http.server.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.http.HttpHandleOption;
+import io.edap.http.HttpHandler;
+import io.edap.http.PathInfo;
+import io.edap.http.codec.HttpFastBufDataRange;
+import io.edap.http.server.HttpServerNioSession;
+import io.edap.http.server.PathInfoMatcher;
+import io.edap.http.server.RangeHttpRequestDecoder;
+import io.edap.http.server.rangedecoder.PathDecoder;
+import io.edap.nio.codec.FastBufDataRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求body无法解码时客户端应该收到错误的状态码，而不是直接被关闭连接
+ */
+public class HttpErrorResponseTest {
+
+    private ServerSocketChannel server;
+    private Socket client;
+    private SocketChannel channel;
+    private HttpServerNioSession session;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        HttpHandleOption option = new HttpHandleOption();
+        option.setMaxBodySize(8);
+        PathInfo pathInfo = new PathInfo();
+        pathInfo.setPath("/upload");
+        pathInfo.setFound(true);
+        pathInfo.setHttpHandlers(new HttpHandler[]{(req, resp) -> { }});
+        pathInfo.setHandlerOption(option);
+        Map<FastBufDataRange, PathInfo> paths = new HashMap<>();
+        paths.put(HttpFastBufDataRange.from("/upload"), pathInfo);
+        PathInfoMatcher matcher = new PathInfoMatcher();
+        matcher.setCache(paths);
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        client = new Socket("127.0.0.1", ((InetSocketAddress) server.getLocalAddress()).getPort());
+        client.setSoTimeout(5000);
+        channel = server.accept();
+
+        session = new HttpServerNioSession();
+        session.setSocketChannel(channel);
+        session.setDecoder(new RangeHttpRequestDecoder(new PathDecoder(matcher)));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        client.close();
+        channel.close();
+        server.close();
+    }
+
+    private String send(String request) throws IOException {
+        FastBuf buf = new FastBuf(4096);
+        buf.write(request.getBytes(StandardCharsets.ISO_8859_1));
+        assertThrows(IOException.class, () -> session.decode(buf, false));
+        // 与IO线程一样解码失败后关闭连接
+        channel.close();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = client.getInputStream();
+        byte[] bs = new byte[1024];
+        int n;
+        while ((n = in.read(bs)) > 0) {
+            out.write(bs, 0, n);
+        }
+        return out.toString(StandardCharsets.ISO_8859_1.name());
+    }
+
+    private static void assertStatus(String response, int code) {
+        assertTrue(response.startsWith("HTTP/1.1 " + code), response);
+        assertTrue(response.contains("Connection: close\r\n"), response);
+        assertTrue(response.endsWith("\r\n\r\n"), response);
+    }
+
+    @Test
+    public void testContentLengthTooLarge() throws IOException {
+        assertStatus(send("POST /upload HTTP/1.1\r\nContent-Length: 100\r\n\r\nhello"), 413);
+    }
+
+    @Test
+    public void testChunkedTooLarge() throws IOException {
+        assertStatus(send("POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "a\r\n0123456789\r\n0\r\n\r\n"), 413);
+    }
+
+    @Test
+    public void testBadChunkSize() throws IOException {
+        assertStatus(send("POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "zz\r\nabc\r\n0\r\n\r\n"), 400);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019 louis.lu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.edap.http.server.test.decoder;
+
+import io.edap.buffer.FastBuf;
+import io.edap.http.HttpHandleOption;
+import io.edap.http.HttpHandler;
+import io.edap.http.HttpNioSession;
+import io.edap.http.HttpRequest;
+import io.edap.http.HttpResponse;
+import io.edap.http.PathInfo;
+import io.edap.http.StreamingHttpHandler;
+import io.edap.http.codec.HttpFastBufDataRange;
+import io.edap.http.server.PathInfoMatcher;
+import io.edap.http.server.RangeHttpRequestDecoder;
+import io.edap.http.server.rangedecoder.PathDecoder;
+import io.edap.nio.ParseResult;
+import io.edap.nio.codec.FastBufDataRange;
+import io.edap.util.ByteData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BodyDecoderTest {
+
+    private RangeHttpRequestDecoder decoder;
+    private HttpHandleOption        option;
+    private ByteArrayOutputStream   streamed;
+    private FastBuf                 buf;
+
+    @BeforeEach
+    public void setUp() {
+        option   = new HttpHandleOption();
+        streamed = new ByteArrayOutputStream();
+        buf      = new FastBuf(4096);
+
+        HttpHandler handler = (req, resp) -> { };
+        StreamingHttpHandler streaming = new StreamingHttpHandler() {
+            @Override
+            public void onBody(HttpRequest req, FastBufDataRange slice) {
+                byte[] bs = new byte[slice.length()];
+                slice.buffer().get(slice.start(), bs, 0, bs.length);
+                streamed.write(bs, 0, bs.length);
+            }
+
+            @Override
+            public void handle(HttpRequest req, HttpResponse resp) {
+            }
+        };
+        Map<FastBufDataRange, PathInfo> paths = new HashMap<>();
+        paths.put(HttpFastBufDataRange.from("/upload"), pathInfo("/upload", handler));
+        paths.put(HttpFastBufDataRange.from("/stream"), pathInfo("/stream", streaming));
+        PathInfoMatcher matcher = new PathInfoMatcher();
+        matcher.setCache(paths);
+        decoder = new RangeHttpRequestDecoder(new PathDecoder(matcher));
+    }
+
+    private PathInfo pathInfo(String path, HttpHandler handler) {
+        PathInfo pathInfo = new PathInfo();
+        pathInfo.setPath(path);
+        pathInfo.setFound(true);
+        pathInfo.setHttpHandlers(new HttpHandler[]{handler});
+        pathInfo.setHandlerOption(option);
+        return pathInfo;
+    }
+
+    /**
+     * 和IO线程一样，每次读取前重置读缓冲
+     */
+    private ParseResult<HttpRequest> feed(HttpNioSession session, String data) {
+        buf.reset();
+        buf.write(data.getBytes(StandardCharsets.ISO_8859_1));
+        return decoder.decode(buf, session);
+    }
+
+    private static String body(ByteData data) {
+        return new String(data.getBytes(), data.getOffset(), data.getLength(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testFixedLengthAcrossReads() {
+        TestSession session = new TestSession();
+        TestSession other   = new TestSession();
+        ParseResult<HttpRequest> result = feed(session,
+                "POST /upload HTTP/1.1\r\nContent-Length: 11\r\n\r\nhello");
+        assertFalse(result.isFinished());
+        assertNull(result.getError());
+
+        // 同一线程上的其他连接不能影响还未接收完成的请求
+        result = feed(other, "POST /upload HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc");
+        assertTrue(result.isFinished());
+        assertEquals("abc", body(result.getMessage().getBody()));
+
+        result = feed(session, " world");
+        assertTrue(result.isFinished());
+        HttpRequest request = result.getMessage();
+        assertEquals("/upload", request.getPath());
+        assertEquals("hello world", body(request.getBody()));
+
+        result = feed(session, "GET /upload HTTP/1.1\r\nHost: a\r\n\r\n");
+        assertTrue(result.isFinished());
+        assertNull(result.getMessage().getBody());
+    }
+
+    @Test
+    public void testChunked() {
+        TestSession session = new TestSession();
+        String msg = "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;name=v\r\nhello\r\n1\r\n \r\nB\r\nchunked bod\r\n1\r\ny\r\n0\r\nX-Trailer: 1\r\n\r\n";
+        int headerLen = msg.indexOf("\r\n\r\n") + 4;
+        ParseResult<HttpRequest> result = feed(session, msg.substring(0, headerLen));
+        assertFalse(result.isFinished());
+        for (int i = headerLen; i < msg.length() - 1; i++) {
+            result = feed(session, msg.substring(i, i + 1));
+            assertFalse(result.isFinished(), "finished at " + i);
+            assertNull(result.getError());
+        }
+        result = feed(session, msg.substring(msg.length() - 1));
+        assertTrue(result.isFinished());
+        assertEquals("hello chunked body", body(result.getMessage().getBody()));
+    }
+
+    @Test
+    public void testChunkedPipelined() {
+        TestSession session = new TestSession();
+        ParseResult<HttpRequest> result = feed(session, "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "3\r\nabc\r\n0\r\n\r\nGET /upload HTTP/1.1\r\n\r\n");
+        assertTrue(result.isFinished());
+        assertEquals("abc", body(result.getMessage().getBody()));
+        result = decoder.decode(buf, session);
+        assertTrue(result.isFinished());
+        assertEquals("GET", result.getMessage().getMethod());
+    }
+
+    @Test
+    public void testBadChunk() {
+        TestSession session = new TestSession();
+        ParseResult<HttpRequest> result = feed(session, "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "zz\r\n");
+        assertFalse(result.isFinished());
+        assertEquals(400, result.getCode());
+        assertNotNull(result.getError());
+    }
+
+    @Test
+    public void testSpillToFile() throws IOException {
+        option.setMaxInMemoryBody(16);
+        TestSession session = new TestSession();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String data = sb.toString();
+        ParseResult<HttpRequest> result = feed(session, "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "a\r\n" + data.substring(0, 10) + "\r\n");
+        assertFalse(result.isFinished());
+        result = feed(session, Integer.toHexString(990) + "\r\n" + data.substring(10) + "\r\n0\r\n\r\n");
+        assertTrue(result.isFinished());
+        HttpRequest request = result.getMessage();
+        assertNull(request.getBody());
+        Path file = request.getBodyFile();
+        assertNotNull(file);
+        try {
+            assertEquals(data, new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDiscardOnClose() throws IOException {
+        option.setMaxInMemoryBody(4);
+        option.setBodyTempDir(Files.createTempDirectory("edap-body").toString());
+        TestSession session = new TestSession();
+        ParseResult<HttpRequest> result = feed(session, "POST /upload HTTP/1.1\r\nContent-Length: 100\r\n\r\n"
+                + "0123456789");
+        assertFalse(result.isFinished());
+        Path dir = Path.of(option.getBodyTempDir());
+        assertEquals(1, Files.list(dir).count());
+        session.channelClosed();
+        assertEquals(0, Files.list(dir).count());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testStreamingHandler() {
+        TestSession session = new TestSession();
+        ParseResult<HttpRequest> result = feed(session, "POST /stream HTTP/1.1\r\nContent-Length: 10\r\n\r\n"
+                + "01234");
+        assertFalse(result.isFinished());
+        assertEquals("01234", streamed.toString());
+        result = feed(session, "56789");
+        assertTrue(result.isFinished());
+        assertEquals("0123456789", streamed.toString());
+        assertNull(result.getMessage().getBody());
+        assertNull(result.getMessage().getBodyFile());
+    }
+
+    @Test
+    public void testMaxBodySize() {
+        option.setMaxBodySize(8);
+        TestSession session = new TestSession();
+        ParseResult<HttpRequest> result = feed(session, "POST /upload HTTP/1.1\r\nContent-Length: 9\r\n\r\n");
+        assertFalse(result.isFinished());
+        assertEquals(413, result.getCode());
+
+        session = new TestSession();
+        result = feed(session, "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "9\r\n123456789\r\n0\r\n\r\n");
+        assertFalse(result.isFinished());
+        assertEquals(413, result.getCode());
+    }
+
+    static class TestSession extends HttpNioSession {
+
+        @Override
+        public void handle(HttpRequest request) {
+        }
+
+        @Override
+        public boolean decode(FastBuf fastBuf, boolean threadSwitch) {
+            return false;
+        }
+    }
+}
@@ -53,6 +53,60 @@ public class ByteArrayJson5Reader extends ByteArrayJsonReader {
         }
     }
 
+    @Override
+    public int keyIndex(JsonKeyTable keyTable) {
+        char c = firstNotSpaceChar();
+        byte[] _json = json;
+        int _pos;
+        int index;
+        if (c == '"' || c == '\'') {
+            int start = pos + 1;
+            _pos = start;
+            while (true) {
+                if (_pos >= end) {
+                    throw new JsonParseException("Key 没正常结束");
+                }
+                byte b = _json[_pos];
+                if (b == c) {
+                    index = keyTable.indexOf(_json, start, _pos - start);
+                    pos = _pos + 1;
+                    break;
+                } else if (b == '\\') {
+                    pos = start;
+                    index = keyTable.indexOf(readQuotationMarksString(c));
+                    break;
+                }
+                _pos++;
+            }
+        } else {
+            if (!isIdentifierNameFirst(c)) {
+                throw new JsonParseException("Key首字符不符合ECMAScript 5.1 IdentifierName标准");
+            }
+            int start = pos;
+            _pos = start + 1;
+            for (; _pos < end; _pos++) {
+                byte b = _json[_pos];
+                if (b == ':' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                    break;
+                }
+                if (!isIdentifierNameOther(b)) {
+                    throw new JsonParseException("Key字符不符合ECMAScript 5.1 IdentifierName标准");
+                }
+            }
+            if (_pos >= end) {
+                throw new JsonParseException("Key 没正常结束");
+            }
+            index = keyTable.indexOf(_json, start, _pos - start);
+            pos = _pos;
+        }
+        c = firstNotSpaceChar();
+        if (c != ':') {
+            throw new JsonParseException("Key and value must use colon split");
+        }
+        pos++;
+        return index;
+    }
+
     @Override
     public int keyHash() {
         long hashCode = 0x811c9dc5;
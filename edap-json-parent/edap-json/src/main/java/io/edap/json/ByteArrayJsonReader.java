@@ -97,6 +97,7 @@ public class ByteArrayJsonReader implements JsonReader {
         JsonObjectImpl jsonObject = new JsonObjectImpl();
         char c = firstNotSpaceChar();
         if (c == '}') {
+            pos++;
             return jsonObject;
         }
         String key = readKey(c);
@@ -105,6 +106,7 @@ public class ByteArrayJsonReader implements JsonReader {
         c = firstNotSpaceChar();
         while (true) {
             if (c == '}') {
+                pos++;
                 break;
             } else if (c == ',') {
                 pos++;
@@ -428,6 +430,59 @@ public class ByteArrayJsonReader implements JsonReader {
         return (int)hashCode;
     }
 
+    @Override
+    public int keyIndex(JsonKeyTable keyTable) {
+        char c = firstNotSpaceChar();
+        if (c != '"') {
+            throw new JsonParseException("Key must start with '\"'!");
+        }
+        int start = pos + 1;
+        int _pos = start;
+        byte[] _json = json;
+        // 每次检查8个字节中是否有引号或反斜杠，剩余不足8个字节时逐字节检查
+        int n = 8;
+        while (n == 8 && _pos + 8 <= _json.length) {
+            n = JsonKeyTable.quoteOrEscape(JsonKeyTable.word(_json, _pos));
+            _pos += n;
+        }
+        while (_pos < end && _json[_pos] != '"' && _json[_pos] != '\\') {
+            _pos++;
+        }
+        if (_pos >= end) {
+            throw new JsonParseException("Key没有正确结束");
+        }
+        if (_json[_pos] == '\\') {
+            return escapedKeyIndex(keyTable, start);
+        }
+        int index = keyTable.indexOf(_json, start, _pos - start);
+        pos = _pos + 1;
+        // 大多数json的key后直接是冒号，其他情况再跳过空白字符
+        if (pos < end && _json[pos] == ':') {
+            pos++;
+            return index;
+        }
+        readColon();
+        return index;
+    }
+
+    /**
+     * 含有转义字符的key很少见，解码后再查找
+     */
+    private int escapedKeyIndex(JsonKeyTable keyTable, int start) {
+        pos = start;
+        int index = keyTable.indexOf(readQuotationMarksString('"'));
+        readColon();
+        return index;
+    }
+
+    private void readColon() {
+        char c = firstNotSpaceChar();
+        if (c != ':') {
+            throw new JsonParseException("Key and value must use colon split");
+        }
+        pos++;
+    }
+
     /**
      * 解析JSON的key，并判断Key后是否是":" 如果不是冒号则抛异常
      * @return
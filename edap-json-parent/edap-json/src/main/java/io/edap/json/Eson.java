@@ -22,6 +22,7 @@ import io.edap.json.writer.ByteArrayJsonWriter;
 import io.edap.json.writer.ByteArrayPrettyJsonWriter;
 import io.edap.util.CollectionUtils;
 
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
 import java.util.Collection;
@@ -261,6 +262,22 @@ public class Eson {
         return reader.readObjectValue();
     }
 
+    /**
+     * 延迟解码的JsonObject，只扫描一次json记录结构的索引，值在访问时才从json数组中解码，适合只读取少量字段的场景。
+     * 返回的对象引用json数组，使用期间不能修改该数组
+     */
+    public static JsonObject parseLazyJsonObject(byte[] json) {
+        return parseLazyJsonObject(json, 0, json.length);
+    }
+
+    public static JsonObject parseLazyJsonObject(byte[] json, int offset, int len) {
+        JsonTape tape = JsonTape.parse(json, offset, len);
+        if (JsonTape.type(tape.tape[0]) != JsonTape.OBJECT) {
+            throw new JsonParseException("不是JsonObject的数据");
+        }
+        return new LazyJsonObject(tape, 0);
+    }
+
     public static <T> T toBean(JsonObject jsonObject, Class<T> clazz) {
         return JsonCodecRegister.instance().getMapBeanDecoder(clazz).decode(jsonObject);
     }
@@ -285,6 +302,35 @@ public class Eson {
         }
     }
 
+    /**
+     * 从输入流中增量解析一个json对象，不需要将整个json读入内存，输入流由调用者关闭
+     */
+    public static JsonObject parseJsonObject(InputStream in) {
+        StreamJsonReader reader = new StreamJsonReader(in);
+        char c = reader.firstNotSpaceChar();
+        if (c != '{') {
+            throw new JsonParseException("不是JsonObject的数据");
+        }
+        reader.nextPos(1);
+        return reader.readObjectValue();
+    }
+
+    /**
+     * 从输入流中增量解码一个对象，不需要将整个json读入内存，输入流由调用者关闭
+     */
+    public static <T> T parseObject(InputStream in, Class<T> clazz) {
+        StreamJsonReader reader = new StreamJsonReader(in);
+        char c = reader.firstNotSpaceChar();
+        if (c != '{') {
+            throw new JsonParseException("不是JsonObject的数据");
+        }
+        try {
+            return reader.readObject(clazz);
+        } catch (Throwable t) {
+            throw new JsonParseException("parseJson error", t);
+        }
+    }
+
     public static JsonObject parseV5JsonObject(String json) {
         StringJson5Reader reader = THREAD_STRING_JSON5READER.get();
         reader.reset();
@@ -25,6 +25,7 @@ import io.edap.util.internal.GeneratorClassInfo;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,24 +42,35 @@ import static io.edap.util.CollectionUtils.isEmpty;
 
 public class JsonCodecRegister {
 
-    private static final Map<Class<?>, Map<String, JsonDecoder>> DECODER_MAP = new ConcurrentHashMap<>();
+    /**
+     * 每个类的编解码器槽位，由ClassValue和类的生命周期绑定，查找时不需要创建key也不需要加锁
+     */
+    private static final ClassValue<CodecSlots> CODEC_SLOTS = new ClassValue<CodecSlots>() {
+        @Override
+        protected CodecSlots computeValue(Class<?> type) {
+            return new CodecSlots(BUILTIN_ENCODERS.get(type));
+        }
+    };
 
-    private static final Map<Class<?>, MapBeanDecoder> MAP_BEAN_DECODER_MAP = new ConcurrentHashMap<>();
+    private static final int DATA_TYPE_COUNT = DataType.values().length;
+    private static final int DECODER_SLOT_COUNT = DATA_TYPE_COUNT * JsonVersion.values().length;
 
-    private static final Map<Class<?>, JsonEncoder> ENCODER_MAP        = new HashMap<>();
-    private static final Map<Type, MapEncoder>      MAP_ENCODER_MAP    = new HashMap<>();
-    private static final Map<Type, Lock>            MAP_TYPE_LOCKS     = new HashMap<>();
-    private static final Map<Type, JsonCodecLoader> MAP_ENCODER_LOADER = new HashMap<>();
+    private static final Map<Class<?>, JsonEncoder> BUILTIN_ENCODERS;
+    private static final Map<Type, MapEncoder>      MAP_ENCODER_MAP    = new ConcurrentHashMap<>();
+    private static final Map<Type, Lock>            MAP_TYPE_LOCKS     = new ConcurrentHashMap<>();
+    private static final Map<Type, JsonCodecLoader> MAP_ENCODER_LOADER = new ConcurrentHashMap<>();
 
     static {
-        ENCODER_MAP.put(Boolean.class, new BooleanEncoder());
-        ENCODER_MAP.put(String.class,  new StringEncoder());
-        ENCODER_MAP.put(Integer.class, new IntegerEncoder());
-        ENCODER_MAP.put(Long.class,    new LongEncoder());
-        ENCODER_MAP.put(Object.class,  new ObjectEncoder());
-        ENCODER_MAP.put(Double.class,  new DoubleEncoder());
-
-        ENCODER_MAP.put(Date.class,    new DateEncoder());
+        Map<Class<?>, JsonEncoder> encoders = new HashMap<>();
+        encoders.put(Boolean.class, new BooleanEncoder());
+        encoders.put(String.class,  new StringEncoder());
+        encoders.put(Integer.class, new IntegerEncoder());
+        encoders.put(Long.class,    new LongEncoder());
+        encoders.put(Object.class,  new ObjectEncoder());
+        encoders.put(Double.class,  new DoubleEncoder());
+
+        encoders.put(Date.class,    new DateEncoder());
+        BUILTIN_ENCODERS = Collections.unmodifiableMap(encoders);
     }
 
     private final Map<ClassLoader, JsonCodecLoader> codecLoaders = new HashMap<>();
@@ -66,17 +78,18 @@ public class JsonCodecRegister {
     private JsonCodecRegister() {}
 
     public <T> JsonEncoder<T> getEncoder(Class<T> tClass) {
-        JsonEncoder encoder = ENCODER_MAP.get(tClass);
+        CodecSlots slots = CODEC_SLOTS.get(tClass);
+        JsonEncoder encoder = slots.encoder;
         if (encoder != null) {
             return encoder;
         }
-        synchronized (tClass) {
-            encoder = ENCODER_MAP.get(tClass);
+        synchronized (slots) {
+            encoder = slots.encoder;
             if (encoder != null) {
                 return encoder;
             }
             encoder = generateEncoder(tClass);
-            ENCODER_MAP.put(tClass, encoder);
+            slots.encoder = encoder;
             return encoder;
         }
     }
@@ -86,46 +99,50 @@ public class JsonCodecRegister {
     }
 
     public <T> JsonDecoder<T> getDecoder(Class<T> tClass, DataType dataType, JsonVersion version) {
-        String key = dataType + "-" + version;
-        Map<String, JsonDecoder> decoders = DECODER_MAP.get(tClass);
-        if (decoders == null) {
-            decoders = new HashMap<>();
-            DECODER_MAP.put(tClass, decoders);
+        int index = version.ordinal() * DATA_TYPE_COUNT + dataType.ordinal();
+        CodecSlots slots = CODEC_SLOTS.get(tClass);
+        JsonDecoder decoder = slots.decoders[index];
+        if (decoder != null) {
+            return decoder;
         }
-        JsonDecoder decoder = decoders.get(key);
-        if (decoder == null) {
+        synchronized (slots) {
+            decoder = slots.decoders[index];
+            if (decoder != null) {
+                return decoder;
+            }
             decoder = generateDecoder(tClass, dataType, version);
-            decoders.put(key, decoder);
-        }
-
-        if (decoder == null) {
-            decoder = new ReflectDecoder(tClass, dataType);
-            decoders.put(key, decoder);
+            if (decoder == null) {
+                decoder = new ReflectDecoder(tClass, dataType);
+            }
+            JsonDecoder[] decoders = slots.decoders.clone();
+            decoders[index] = decoder;
+            slots.decoders = decoders;
+            return decoder;
         }
-        return decoder;
     }
 
     /**
      * 获取 {@code Map<String,Object> → T} 解码器（{@link MapBeanDecoder}）。
      *
-     * <p>首查 {@link #MAP_BEAN_DECODER_MAP}；miss 则尝试 ASM 生成（{@code MapBeanDecoderGenerator}），
+     * <p>首查该类的 {@link CodecSlots}；miss 则尝试 ASM 生成（{@code MapBeanDecoderGenerator}），
      *     失败则 fallback 到 {@link MapReflectDecoder}（与 {@link ReflectDecoder} 对称）。</p>
      *
      * <p>缓存键为 {@code Class<?>} —— Map 入参已 typed，无 JSON 格式维度，
      *     不需要 {@code DataType}/{@code JsonVersion} 复合 key。</p>
      */
     public <T> MapBeanDecoder<T> getMapBeanDecoder(Class<T> tClass) {
-        MapBeanDecoder decoder = MAP_BEAN_DECODER_MAP.get(tClass);
+        CodecSlots slots = CODEC_SLOTS.get(tClass);
+        MapBeanDecoder decoder = slots.mapBeanDecoder;
         if (decoder != null) {
             return decoder;
         }
-        synchronized (tClass) {
-            decoder = MAP_BEAN_DECODER_MAP.get(tClass);
+        synchronized (slots) {
+            decoder = slots.mapBeanDecoder;
             if (decoder != null) {
                 return decoder;
             }
             decoder = generateMapBeanDecoder(tClass);
-            MAP_BEAN_DECODER_MAP.put(tClass, decoder);
+            slots.mapBeanDecoder = decoder;
             return decoder;
         }
     }
@@ -278,7 +295,7 @@ public class JsonCodecRegister {
         lock = new ReentrantLock();
         Lock oldLock = MAP_TYPE_LOCKS.putIfAbsent(mapType, lock);
         if (oldLock != null) {
-            return lock;
+            return oldLock;
         }
 
         return lock;
@@ -396,6 +413,23 @@ public class JsonCodecRegister {
         private static final JsonCodecRegister INSTANCE = new JsonCodecRegister();
     }
 
+    /**
+     * 一个类的编码器和各种解码器。解码器数组创建后不再修改，新增解码器时复制一份新的数组替换，
+     * 读取时只需要一次volatile读和一次数组访问，写入在该对象的锁内完成
+     */
+    static final class CodecSlots {
+        volatile JsonEncoder encoder;
+        /**
+         * 下标为 {@code version.ordinal() * DataType数量 + dataType.ordinal()}
+         */
+        volatile JsonDecoder[] decoders = new JsonDecoder[DECODER_SLOT_COUNT];
+        volatile MapBeanDecoder mapBeanDecoder;
+
+        CodecSlots(JsonEncoder encoder) {
+            this.encoder = encoder;
+        }
+    }
+
     class JsonCodecLoader extends ClassLoader {
 
         public JsonCodecLoader(ClassLoader parent) {
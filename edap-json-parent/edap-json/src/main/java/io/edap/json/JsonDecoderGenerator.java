@@ -2,10 +2,8 @@ package io.edap.json;
 
 import io.edap.json.enums.DataType;
 import io.edap.json.enums.JsonVersion;
-import io.edap.json.model.ByteArrayDataRange;
 import io.edap.json.model.DataRange;
 import io.edap.json.model.JsonFieldInfo;
-import io.edap.json.model.StringDataRange;
 import io.edap.util.StringUtil;
 import io.edap.util.internal.GeneratorClassInfo;
 import org.objectweb.asm.*;
@@ -13,8 +11,6 @@ import org.objectweb.asm.*;
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import static io.edap.json.enums.JsonVersion.JSON;
@@ -31,6 +27,7 @@ public class JsonDecoderGenerator {
     static final String READER_NAME = toInternalName(JsonReader.class.getName());
 
     static final String DATARANGE_NAME = toInternalName(DataRange.class.getName());
+    static final String KEY_TABLE_NAME = toInternalName(JsonKeyTable.class.getName());
 
     static final String PARENT_NAME = toInternalName(AbstractDecoder.class.getName());
 
@@ -71,18 +68,13 @@ public class JsonDecoderGenerator {
         List<JsonFieldInfo> fields = getCodecFieldInfos(pojoCls);
 
         List<java.lang.reflect.Type> pojoTypes = new ArrayList<>();
-        DataRange dataRange;
-        if (dataType == DataType.STRING) {
-            dataRange = StringDataRange.from("a");
-        } else {
-            dataRange = ByteArrayDataRange.from("a");
-        }
+        List<String> jsonFieldNames = new ArrayList<>();
         for (JsonFieldInfo pfi : fields) {
             String jsonFieldName = pfi.jsonFieldName;
             if (StringUtil.isEmpty(jsonFieldName)) {
                 jsonFieldName = pfi.field.getName();
             }
-            pfi.jsonFieldHash = dataRange.keyHashCode(jsonFieldName);
+            jsonFieldNames.add(jsonFieldName);
             if (pfi.field.getType().getName().equals("java.lang.String")) {
                 stringFields.add(pfi);
             }
@@ -124,13 +116,11 @@ public class JsonDecoderGenerator {
             }
         }
 
-        Collections.sort(fields, Comparator.comparing((JsonFieldInfo o) -> o.jsonFieldHash));
-
         cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
         cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, pojoDecoderName,
                 pojoCodecDescriptor, PARENT_NAME, ifaceName);
 
-        //visitClinitMethod();
+        visitClinitMethod(jsonFieldNames);
         visitInitMethod(pojoTypes, fields);
         visitDecodeMethod(fields);
 
@@ -195,19 +185,16 @@ public class JsonDecoderGenerator {
             mv.visitInsn(POP);
         }
         mv.visitVarInsn(ALOAD, 1);
-        mv.visitMethodInsn(INVOKEINTERFACE, READER_NAME, "keyHash",
-                "()I", true);
+        visitKeyIndexOpcode(mv);
         mv.visitVarInsn(ISTORE, 4);
         mv.visitVarInsn(ILOAD, 4);
         Label[] lbFieldCases = new Label[fields.size()];
-        int[] fieldHashCodes = new int[fields.size()];
         for (int i=0;i<fields.size();i++) {
             lbFieldCases[i] = new Label();
-            fieldHashCodes[i] = fields.get(i).jsonFieldHash;
         }
         Label lbDefCase   = new Label();
         Label lbEndSwitch = new Label();
-        mv.visitLookupSwitchInsn(lbDefCase, fieldHashCodes, lbFieldCases);
+        visitFieldSwitch(mv, lbDefCase, lbFieldCases);
         for (int i=0;i<fields.size();i++) {
             JsonFieldInfo jfi = fields.get(i);
             mv.visitLabel(lbFieldCases[i]);
@@ -275,8 +262,7 @@ public class JsonDecoderGenerator {
             mv.visitMethodInsn(INVOKEINTERFACE, READER_NAME, "readComment", "()Ljava/util/List;", true);
             mv.visitInsn(POP);
         }
-        mv.visitMethodInsn(INVOKEINTERFACE, READER_NAME, "keyHash",
-                "()I", true);
+        visitKeyIndexOpcode(mv);
         mv.visitVarInsn(ISTORE, 4);
         mv.visitVarInsn(ILOAD, 4);
 
@@ -287,7 +273,7 @@ public class JsonDecoderGenerator {
         Label lbWhileDefCase = new Label();
         Label lbWhileSwitchEnd = new Label();
 
-        mv.visitLookupSwitchInsn(lbWhileDefCase, fieldHashCodes, lbWhileCases);
+        visitFieldSwitch(mv, lbWhileDefCase, lbWhileCases);
         for (int i=0;i<fields.size();i++) {
             JsonFieldInfo jfi = fields.get(i);
             mv.visitLabel(lbWhileCases[i]);
@@ -452,14 +438,50 @@ public class JsonDecoderGenerator {
         }
     }
 
-    private void visitClinitMethod() {
-        FieldVisitor fv;
+    /**
+     * 读取key并在KEYS中查找字段下标，调用前reader已在栈顶
+     */
+    private void visitKeyIndexOpcode(MethodVisitor mv) {
+        mv.visitFieldInsn(GETSTATIC, pojoDecoderName, "KEYS", "L" + KEY_TABLE_NAME + ";");
+        mv.visitMethodInsn(INVOKEINTERFACE, READER_NAME, "keyIndex",
+                "(L" + KEY_TABLE_NAME + ";)I", true);
+    }
+
+    /**
+     * 字段下标是从0开始连续的整数，使用tableswitch分发，没有字段的bean所有key都跳转到默认分支
+     */
+    private void visitFieldSwitch(MethodVisitor mv, Label lbDefault, Label[] lbCases) {
+        if (lbCases.length == 0) {
+            mv.visitLookupSwitchInsn(lbDefault, new int[0], lbCases);
+        } else {
+            mv.visitTableSwitchInsn(0, lbCases.length - 1, lbDefault, lbCases);
+        }
+    }
+
+    /**
+     * 在静态初始化时按字段的顺序创建字段名的完美哈希表KEYS
+     */
+    private void visitClinitMethod(List<String> jsonFieldNames) {
+        FieldVisitor fv = cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "KEYS",
+                "L" + KEY_TABLE_NAME + ";", null, null);
+        fv.visitEnd();
         MethodVisitor mv;
         mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
         mv.visitCode();
-
+        mv.visitTypeInsn(NEW, KEY_TABLE_NAME);
+        mv.visitInsn(DUP);
+        visitIntInsn(jsonFieldNames.size(), mv);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i=0;i<jsonFieldNames.size();i++) {
+            mv.visitInsn(DUP);
+            visitIntInsn(i, mv);
+            mv.visitLdcInsn(jsonFieldNames.get(i));
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, KEY_TABLE_NAME, "<init>", "([Ljava/lang/String;)V", false);
+        mv.visitFieldInsn(PUTSTATIC, pojoDecoderName, "KEYS", "L" + KEY_TABLE_NAME + ";");
         mv.visitInsn(RETURN);
-        mv.visitMaxs(2, 0);
+        mv.visitMaxs(6, 0);
         mv.visitEnd();
     }
 
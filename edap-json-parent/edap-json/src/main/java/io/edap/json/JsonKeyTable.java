@@ -0,0 +1,316 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.edap.util.UnsafeUtil.getLong;
+
+/**
+ * 生成解码器时为bean的字段名创建的完美哈希表。哈希值只使用key的长度以及key的前8个字节和后8个字节，创建时搜索一组
+ * 没有冲突的参数，解析时读取两个long即可定位到唯一的候选字段，同时这两个long也用来确认key是否和字段名一致，16个字节
+ * 以内的key不需要再逐字节比较，也不需要为key创建String对象。返回的下标即字段在构造参数中的顺序，生成的代码直接使用
+ * tableswitch分发，-1表示未知的key。
+ *
+ * <p>前后16个字节都相同、只有中间的字节不同的字段名无法区分时，退化为所有字节参与计算的哈希。</p>
+ */
+public final class JsonKeyTable {
+
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F,
+            0x165667B1, 0xD3A2646D, 0xFD7046C5, 0xB55A4F09};
+    /**
+     * 哈希表的大小最多为字段数向上取2的幂后再扩大的倍数(2的指数)
+     */
+    private static final int MAX_EXTRA_BITS = 4;
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    /**
+     * 长度小于8的key读取8个字节后只保留前len个字节的掩码，下标为key的长度
+     */
+    private static final long[] HEAD_MASKS = new long[8];
+
+    static {
+        for (int i = 0; i < 8; i++) {
+            HEAD_MASKS[i] = (1L << (i * 8)) - 1;
+        }
+    }
+
+    private final String[] keys;
+    private final byte[][] keyBytes;
+    /**
+     * 字段名前8个字节以及后8个字节组成的long，字节j在第8*j位开始
+     */
+    private final long[] heads;
+    private final long[] tails;
+    /**
+     * 所有字段名是否都是ASCII字符，是时字符串中的key可以直接按字符比较
+     */
+    private final boolean ascii;
+    /**
+     * 为true时使用所有的字节计算哈希值
+     */
+    private final boolean fullHash;
+    private final int seed;
+    private final int shift;
+    /**
+     * 按哈希槽排列的字段信息，每个槽3个long：字段名的head、tail以及长度(高32位)和字段下标(低32位)，
+     * 查找时只访问这一个数组。空槽的长度为-1，不会和任何key匹配
+     */
+    private final long[] slots;
+
+    public JsonKeyTable(String... keys) {
+        this.keys = keys.clone();
+        this.keyBytes = new byte[keys.length][];
+        this.heads = new long[keys.length];
+        this.tails = new long[keys.length];
+        boolean allAscii = true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                throw new IllegalArgumentException("key can't be null");
+            }
+            byte[] bs = keys[i].getBytes(StandardCharsets.UTF_8);
+            keyBytes[i] = bs;
+            allAscii &= bs.length == keys[i].length();
+            heads[i] = head(bs, 0, bs.length);
+            tails[i] = tail(bs, 0, bs.length);
+            for (int j = 0; j < i; j++) {
+                if (keys[i].equals(keys[j])) {
+                    throw new IllegalArgumentException("duplicate key [" + keys[i] + "]");
+                }
+            }
+        }
+
+        this.ascii = allAscii;
+
+        int minBits = 1;
+        while ((1 << minBits) < keys.length) {
+            minBits++;
+        }
+        boolean full = false;
+        int foundSeed = 0;
+        int foundBits = -1;
+        search:
+        for (int mode = 0; mode < 2; mode++) {
+            full = mode == 1;
+            for (int bits = minBits; bits <= minBits + MAX_EXTRA_BITS; bits++) {
+                for (int s : SEEDS) {
+                    if (isPerfect(full, s, bits)) {
+                        foundSeed = s;
+                        foundBits = bits;
+                        break search;
+                    }
+                }
+            }
+        }
+        if (foundBits < 0) {
+            throw new IllegalStateException("can't build perfect hash for keys " + Arrays.toString(keys));
+        }
+        this.fullHash = full;
+        this.seed = foundSeed;
+        this.shift = 32 - foundBits;
+        this.slots = new long[3 << foundBits];
+        for (int i = 2; i < slots.length; i += 3) {
+            slots[i] = -1L << 32;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            int slot = ((hash(i, full) * foundSeed) >>> shift) * 3;
+            slots[slot] = heads[i];
+            slots[slot + 1] = tails[i];
+            slots[slot + 2] = ((long) keyBytes[i].length << 32) | i;
+        }
+    }
+
+    /**
+     * 查找字节数组中[start, start+len)范围的key对应的字段下标
+     * @return 字段的下标，不存在时返回-1
+     */
+    public int indexOf(byte[] bs, int start, int len) {
+        long head;
+        long tail = 0;
+        if (start + 8 <= bs.length) {
+            head = word(bs, start);
+            if (len > 8) {
+                tail = word(bs, start + len - 8);
+            } else if (len < 8) {
+                head &= HEAD_MASKS[len];
+            }
+        } else {
+            head = head(bs, start, len);
+            tail = tail(bs, start, len);
+        }
+        int h = fullHash ? fullHash(bs, start, len) : hash(head, tail, len);
+        int slot = ((h * seed) >>> shift) * 3;
+        long[] ss = slots;
+        long info = ss[slot + 2];
+        if (ss[slot] != head || ss[slot + 1] != tail || (int) (info >>> 32) != len) {
+            return -1;
+        }
+        int i = (int) info;
+        if (len > 16) {
+            byte[] key = keyBytes[i];
+            for (int j = 8; j < len - 8; j++) {
+                if (key[j] != bs[start + j]) {
+                    return -1;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 查找字符串中[start, start+len)范围的key对应的字段下标，字段名中含有非ASCII字符时转为UTF-8后查找
+     * @return 字段的下标，不存在时返回-1
+     */
+    public int indexOf(String json, int start, int len) {
+        if (!ascii) {
+            return indexOf(json.substring(start, start + len));
+        }
+        long head = 0;
+        long tail = 0;
+        int headLen = Math.min(8, len);
+        for (int j = 0; j < headLen; j++) {
+            char c = json.charAt(start + j);
+            if (c > 0x7f) {
+                return -1;
+            }
+            head |= (long) c << (j * 8);
+        }
+        if (len > 8) {
+            int tailStart = start + len - 8;
+            for (int j = 0; j < 8; j++) {
+                char c = json.charAt(tailStart + j);
+                if (c > 0x7f) {
+                    return -1;
+                }
+                tail |= (long) c << (j * 8);
+            }
+        }
+        int h;
+        if (fullHash) {
+            h = len;
+            for (int j = 0; j < len; j++) {
+                h = h * 31 + (json.charAt(start + j) & 0xff);
+            }
+        } else {
+            h = hash(head, tail, len);
+        }
+        int slot = ((h * seed) >>> shift) * 3;
+        long info = slots[slot + 2];
+        if (slots[slot] != head || slots[slot + 1] != tail || (int) (info >>> 32) != len) {
+            return -1;
+        }
+        int i = (int) info;
+        if (len > 16) {
+            byte[] key = keyBytes[i];
+            for (int j = 8; j < len - 8; j++) {
+                if (key[j] != json.charAt(start + j)) {
+                    return -1;
+                }
+            }
+        }
+        return i;
+    }
+
+    public int indexOf(String key) {
+        byte[] bs = key.getBytes(StandardCharsets.UTF_8);
+        return indexOf(bs, 0, bs.length);
+    }
+
+    public String key(int index) {
+        return keys[index];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 哈希槽的数量，用于观察生成的哈希表的稀疏程度
+     */
+    public int capacity() {
+        return slots.length / 3;
+    }
+
+    private boolean isPerfect(boolean full, int s, int bits) {
+        int sh = 32 - bits;
+        boolean[] used = new boolean[1 << bits];
+        for (int i = 0; i < keyBytes.length; i++) {
+            int slot = (hash(i, full) * s) >>> sh;
+            if (used[slot]) {
+                return false;
+            }
+            used[slot] = true;
+        }
+        return true;
+    }
+
+    private int hash(int i, boolean full) {
+        byte[] bs = keyBytes[i];
+        return full ? fullHash(bs, 0, bs.length) : hash(heads[i], tails[i], bs.length);
+    }
+
+    private static int hash(long head, long tail, int len) {
+        long h = head * 0x9E3779B97F4A7C15L + tail;
+        return (int) (h ^ (h >>> 32)) + len;
+    }
+
+    private static int fullHash(byte[] bs, int start, int len) {
+        int h = len;
+        for (int j = 0; j < len; j++) {
+            h = h * 31 + (bs[start + j] & 0xff);
+        }
+        return h;
+    }
+
+    /**
+     * 读取8个字节，字节j在第8*j位开始，和本机字节序无关
+     */
+    static long word(byte[] bs, int offset) {
+        long v = getLong(bs, offset);
+        return BIG_ENDIAN ? Long.reverseBytes(v) : v;
+    }
+
+    /**
+     * 查找8个字节中第一个双引号或者反斜杠的位置，没有时返回8
+     */
+    static int quoteOrEscape(long word) {
+        long q = word ^ 0x2222222222222222L;
+        long e = word ^ 0x5C5C5C5C5C5C5C5CL;
+        long found = ((q - 0x0101010101010101L) & ~q | (e - 0x0101010101010101L) & ~e)
+                & 0x8080808080808080L;
+        return Long.numberOfTrailingZeros(found) >>> 3;
+    }
+
+    private static long head(byte[] bs, int start, int len) {
+        long v = 0;
+        for (int j = Math.min(8, len) - 1; j >= 0; j--) {
+            v = (v << 8) | (bs[start + j] & 0xff);
+        }
+        return v;
+    }
+
+    /**
+     * 长度超过8个字节的key的后8个字节，和head可能有重叠，不超过8个字节时为0
+     */
+    private static long tail(byte[] bs, int start, int len) {
+        if (len <= 8) {
+            return 0;
+        }
+        return head(bs, start + len - 8, 8);
+    }
+}
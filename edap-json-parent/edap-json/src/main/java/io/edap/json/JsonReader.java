@@ -56,4 +56,11 @@ public interface JsonReader {
     void reset();
 
     int keyHash();
+
+    /**
+     * 读取对象的key以及之后的冒号，并在生成解码器时创建的字段表中查找该key，查找时不为key创建String对象
+     * @param keyTable 字段名的完美哈希表
+     * @return key对应的字段下标，不是bean的字段时返回-1
+     */
+    int keyIndex(JsonKeyTable keyTable);
 }
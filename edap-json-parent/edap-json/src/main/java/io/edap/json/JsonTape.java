@@ -0,0 +1,435 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * json结构的索引带，一次扫描json的byte数组，每个节点用一个long记录类型、在数组中的位置和长度，不创建任何值对象。
+ * 值在访问时才从原始的byte数组中解码，见{@link LazyJsonObject}和{@link LazyJsonArray}。
+ *
+ * <p>每个节点的long从高位到低位为：4位类型，31位开始位置，29位附加信息。字符串、数字的附加信息为字节长度，
+ * 对象和数组的附加信息为该节点所有子节点之后的下一个节点的下标，用于跳过整个对象或者数组。对象的子节点为
+ * 依次排列的key节点和value节点，数组的子节点为依次排列的元素节点。</p>
+ */
+final class JsonTape {
+
+    static final int STRING         = 1;
+    /**
+     * 包含转义字符的字符串
+     */
+    static final int STRING_ESCAPED = 2;
+    static final int INTEGER        = 3;
+    /**
+     * 包含小数点或者指数的数字
+     */
+    static final int DECIMAL        = 4;
+    static final int TRUE           = 5;
+    static final int FALSE          = 6;
+    static final int NULL           = 7;
+    static final int OBJECT         = 8;
+    static final int ARRAY          = 9;
+
+    private static final int  MAX_DEPTH   = 512;
+    private static final int  START_SHIFT = 29;
+    private static final long INFO_MASK   = (1L << START_SHIFT) - 1;
+    private static final long START_MASK  = 0x7FFFFFFFL;
+
+    final byte[] json;
+    long[] tape;
+    int size;
+
+    private final int end;
+
+    private JsonTape(byte[] json, int offset, int length) {
+        this.json = json;
+        this.end  = offset + length;
+        // 常见的json每个节点（包括key）平均不少于6个字节，按此预估避免扩容时的复制
+        this.tape = new long[Math.max(16, length / 6)];
+    }
+
+    /**
+     * 扫描json数据生成索引带，根节点必须为对象或者数组
+     */
+    static JsonTape parse(byte[] json, int offset, int length) {
+        JsonTape jt = new JsonTape(json, offset, length);
+        int pos = jt.skipSpace(offset);
+        byte c = jt.at(pos);
+        if (c != '{' && c != '[') {
+            throw new JsonParseException("不是JsonObject的数据");
+        }
+        pos = jt.skipSpace(jt.scanValue(pos, 0));
+        if (pos < jt.end) {
+            throw new JsonParseException("Json结束后有多余的字符[" + (char) jt.json[pos] + "]");
+        }
+        return jt;
+    }
+
+    static int type(long node) {
+        return (int) (node >>> 60);
+    }
+
+    static int start(long node) {
+        return (int) ((node >>> START_SHIFT) & START_MASK);
+    }
+
+    static int info(long node) {
+        return (int) (node & INFO_MASK);
+    }
+
+    /**
+     * 下标为index的节点之后的下一个兄弟节点的下标
+     */
+    int next(int index) {
+        long node = tape[index];
+        int type = type(node);
+        return type == OBJECT || type == ARRAY ? info(node) : index + 1;
+    }
+
+    /**
+     * 将下标为index的节点解码为java对象，对象和数组返回延迟解码的视图
+     */
+    Object value(int index) {
+        long node = tape[index];
+        switch (type(node)) {
+            case STRING:
+            case STRING_ESCAPED:
+                return string(index);
+            case INTEGER:
+                if (info(node) <= 18) {
+                    return longValue(index);
+                }
+                return new BigDecimal(new String(json, start(node), info(node), StandardCharsets.ISO_8859_1));
+            case DECIMAL:
+                return doubleValue(index);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case OBJECT:
+                return new LazyJsonObject(this, index);
+            case ARRAY:
+                return new LazyJsonArray(this, index);
+            default:
+                return null;
+        }
+    }
+
+    String string(int index) {
+        long node = tape[index];
+        int start = start(node);
+        int len = info(node);
+        if (type(node) == STRING) {
+            return new String(json, start, len, StandardCharsets.UTF_8);
+        }
+        return unescape(start, len);
+    }
+
+    /**
+     * 不超过18位的整数直接从字节解析，不需要创建字符串
+     */
+    long longValue(int index) {
+        long node = tape[index];
+        int pos = start(node);
+        int len = info(node);
+        if (len > 18) {
+            return new BigDecimal(new String(json, pos, len, StandardCharsets.ISO_8859_1)).longValue();
+        }
+        int end = pos + len;
+        boolean negative = json[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        long v = 0;
+        for (; pos < end; pos++) {
+            v = v * 10 + (json[pos] - '0');
+        }
+        return negative ? -v : v;
+    }
+
+    double doubleValue(int index) {
+        long node = tape[index];
+        if (type(node) == INTEGER && info(node) <= 18) {
+            return longValue(index);
+        }
+        return Double.parseDouble(new String(json, start(node), info(node), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * 比较下标为index的字符串节点是否和key相等，没有转义的ASCII字符直接逐字节比较
+     */
+    boolean keyEquals(int index, String key) {
+        long node = tape[index];
+        if (type(node) == STRING) {
+            int start = start(node);
+            int len = info(node);
+            if (len == key.length()) {
+                byte[] bs = json;
+                for (int i = 0; i < len; i++) {
+                    byte b = bs[start + i];
+                    if (b < 0) {
+                        return key.equals(string(index));
+                    }
+                    if (b != key.charAt(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            // 多字节的UTF-8字符长度和字符数不同
+            if (len < key.length()) {
+                return false;
+            }
+        }
+        return key.equals(string(index));
+    }
+
+    private int scanValue(int pos, int depth) {
+        byte c = at(pos);
+        switch (c) {
+            case '"':
+                return scanString(pos);
+            case '{':
+                return scanObject(pos, depth + 1);
+            case '[':
+                return scanArray(pos, depth + 1);
+            case 't':
+                return scanLiteral(pos, "true", TRUE);
+            case 'f':
+                return scanLiteral(pos, "false", FALSE);
+            case 'n':
+                return scanLiteral(pos, "null", NULL);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return scanNumber(pos);
+                }
+                if (pos >= end) {
+                    throw new JsonParseException("Json没有正确结束");
+                }
+                throw new JsonParseException("不符合json的字符[" + (char) c + "]");
+        }
+    }
+
+    private int scanObject(int pos, int depth) {
+        checkDepth(depth);
+        int index = add(OBJECT, pos, 0);
+        pos = skipSpace(pos + 1);
+        if (at(pos) == '}') {
+            close(index);
+            return pos + 1;
+        }
+        while (true) {
+            if (at(pos) != '"') {
+                throw new JsonParseException("Key must start with '\"'!");
+            }
+            pos = skipSpace(scanString(pos));
+            if (at(pos) != ':') {
+                throw new JsonParseException("Key and value must use colon split");
+            }
+            pos = skipSpace(scanValue(skipSpace(pos + 1), depth));
+            byte c = at(pos);
+            if (c == ',') {
+                pos = skipSpace(pos + 1);
+            } else if (c == '}') {
+                close(index);
+                return pos + 1;
+            } else if (pos >= end) {
+                throw new JsonParseException("Json没有正确结束");
+            } else {
+                throw new JsonParseException("key and value 后为不符合json字符[" + (char) c + "]");
+            }
+        }
+    }
+
+    private int scanArray(int pos, int depth) {
+        checkDepth(depth);
+        int index = add(ARRAY, pos, 0);
+        pos = skipSpace(pos + 1);
+        if (at(pos) == ']') {
+            close(index);
+            return pos + 1;
+        }
+        while (true) {
+            pos = skipSpace(scanValue(pos, depth));
+            byte c = at(pos);
+            if (c == ',') {
+                pos = skipSpace(pos + 1);
+            } else if (c == ']') {
+                close(index);
+                return pos + 1;
+            } else {
+                throw new JsonParseException("数组格式不正确");
+            }
+        }
+    }
+
+    private int scanString(int pos) {
+        int start = pos + 1;
+        int type = STRING;
+        byte[] bs = json;
+        int _end = end;
+        for (int i = start; i < _end; i++) {
+            byte b = bs[i];
+            if (b == '"') {
+                add(type, start, i - start);
+                return i + 1;
+            }
+            if (b == '\\') {
+                type = STRING_ESCAPED;
+                i++;
+            }
+        }
+        throw new JsonParseException("JSON string was not closed with a char[\"]");
+    }
+
+    private int scanNumber(int pos) {
+        int type = INTEGER;
+        int i = json[pos] == '-' ? pos + 1 : pos;
+        for (; i < end; i++) {
+            byte b = json[i];
+            if (b >= '0' && b <= '9') {
+                continue;
+            }
+            if (b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-') {
+                type = DECIMAL;
+                continue;
+            }
+            break;
+        }
+        if (i == pos || (i == pos + 1 && json[pos] == '-')) {
+            throw new JsonParseException("数字格式不正确");
+        }
+        add(type, pos, i - pos);
+        return i;
+    }
+
+    private int scanLiteral(int pos, String literal, int type) {
+        int len = literal.length();
+        if (pos + len > end) {
+            throw new JsonParseException(literal + " 格式错误");
+        }
+        for (int i = 1; i < len; i++) {
+            if (json[pos + i] != literal.charAt(i)) {
+                throw new JsonParseException(literal + " 格式错误");
+            }
+        }
+        add(type, pos, len);
+        return pos + len;
+    }
+
+    private int add(int type, int start, int info) {
+        if (info > INFO_MASK) {
+            throw new JsonParseException("json value too large");
+        }
+        if (size == tape.length) {
+            tape = Arrays.copyOf(tape, size << 1);
+        }
+        tape[size] = ((long) type << 60) | ((long) start << START_SHIFT) | info;
+        return size++;
+    }
+
+    /**
+     * 对象或者数组结束时记录其后下一个节点的下标
+     */
+    private void close(int index) {
+        if (size > INFO_MASK) {
+            throw new JsonParseException("json has too many nodes");
+        }
+        tape[index] |= size;
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new JsonParseException("json nesting depth exceeds " + MAX_DEPTH);
+        }
+    }
+
+    private byte at(int pos) {
+        return pos < end ? json[pos] : 0;
+    }
+
+    private int skipSpace(int pos) {
+        byte[] bs = json;
+        int _end = end;
+        while (pos < _end) {
+            byte b = bs[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private String unescape(int start, int len) {
+        byte[] bs = json;
+        int end = start + len;
+        StringBuilder sb = new StringBuilder(len);
+        int plain = start;
+        for (int i = start; i < end; i++) {
+            if (bs[i] != '\\') {
+                continue;
+            }
+            if (i > plain) {
+                sb.append(new String(bs, plain, i - plain, StandardCharsets.UTF_8));
+            }
+            byte b = bs[++i];
+            switch (b) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case '"':
+                case '/':
+                case '\\':
+                    sb.append((char) b);
+                    break;
+                case 'u':
+                    if (i + 4 >= end) {
+                        throw new JsonParseException("Could not parse unicode escape at position: " + i);
+                    }
+                    sb.append((char) ((ByteArrayJsonReader.hexToInt(bs[i + 1]) << 12)
+                            + (ByteArrayJsonReader.hexToInt(bs[i + 2]) << 8)
+                            + (ByteArrayJsonReader.hexToInt(bs[i + 3]) << 4)
+                            + ByteArrayJsonReader.hexToInt(bs[i + 4])));
+                    i += 4;
+                    break;
+                default:
+                    throw new JsonParseException("Could not parse String at position: " + i
+                            + ". Invalid escape combination detected: '\\" + (char) b + "'");
+            }
+            plain = i + 1;
+        }
+        if (end > plain) {
+            sb.append(new String(bs, plain, end - plain, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json;
+
+import io.edap.json.util.JsonUtil;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import static io.edap.json.JsonTape.INTEGER;
+import static io.edap.json.JsonTape.type;
+
+/**
+ * 基于{@link JsonTape}索引带的只读数组，元素在第一次访问时才解码并缓存
+ */
+public class LazyJsonArray extends AbstractList<Object> implements RandomAccess {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final JsonTape tape;
+    private final int      index;
+    /**
+     * 每个元素在索引带中的下标，第一次访问时生成
+     */
+    private int[]    items;
+    private Object[] values;
+
+    LazyJsonArray(JsonTape tape, int index) {
+        this.tape  = tape;
+        this.index = index;
+    }
+
+    @Override
+    public Object get(int i) {
+        int[] is = items();
+        if (i < 0 || i >= is.length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + is.length);
+        }
+        Object[] vs = values;
+        if (vs == null) {
+            vs = values = new Object[is.length];
+            Arrays.fill(vs, UNRESOLVED);
+        }
+        Object v = vs[i];
+        if (v == UNRESOLVED) {
+            v = vs[i] = tape.value(is[i]);
+        }
+        return v;
+    }
+
+    @Override
+    public int size() {
+        return items().length;
+    }
+
+    public String getString(int i) {
+        Object o = get(i);
+        if (o == null) {
+            return null;
+        }
+        if (o instanceof String) {
+            return (String)o;
+        }
+        return String.valueOf(o);
+    }
+
+    public int getIntValue(int i) {
+        return (int) getLongValue(i);
+    }
+
+    public long getLongValue(int i) {
+        int[] is = items();
+        if (i >= 0 && i < is.length && type(tape.tape[is[i]]) == INTEGER) {
+            return tape.longValue(is[i]);
+        }
+        return JsonUtil.getLongValue(get(i));
+    }
+
+    public double getDoubleValue(int i) {
+        return JsonUtil.getDoubleValue(get(i));
+    }
+
+    public boolean getBooleanValue(int i) {
+        return JsonUtil.getBooleanValue(get(i));
+    }
+
+    public JsonObject getJsonObject(int i) {
+        Object o = get(i);
+        if (o == null) {
+            return null;
+        }
+        if (o instanceof JsonObject) {
+            return (JsonObject) o;
+        }
+        throw new JsonParseException("not json format");
+    }
+
+    private int[] items() {
+        int[] is = items;
+        if (is == null) {
+            int end = tape.next(index);
+            int count = 0;
+            for (int i = index + 1; i < end; i = tape.next(i)) {
+                count++;
+            }
+            is = new int[count];
+            count = 0;
+            for (int i = index + 1; i < end; i = tape.next(i)) {
+                is[count++] = i;
+            }
+            items = is;
+        }
+        return is;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.edap.json.JsonTape.*;
+
+/**
+ * 基于{@link JsonTape}索引带的JsonObject，由{@link Eson#parseLazyJsonObject(byte[])}创建。key的查找直接和原始的
+ * 字节比较，值在第一次访问时才解码并缓存，getLongValue等基础类型的方法直接从字节解析，不创建包装对象。
+ * 只读取少量字段时避免了为整个json创建对象树。
+ *
+ * <p>对象引用原始的byte数组，使用期间不能修改该数组。调用put、remove等修改方法时会先将所有的值解码为普通的Map，
+ * 之后的操作都在该Map上进行。</p>
+ */
+public class LazyJsonObject extends AbstractMap<String, Object> implements JsonObject {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final JsonTape tape;
+    private final int      index;
+    /**
+     * 每个成员key节点在索引带中的下标，第一次访问时生成
+     */
+    private int[]    keys;
+    private Object[] values;
+    /**
+     * 修改后的值，不为null时所有的操作都使用该Map
+     */
+    private Map<String, Object> modified;
+
+    LazyJsonObject(JsonTape tape, int index) {
+        this.tape  = tape;
+        this.index = index;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (modified != null) {
+            return modified.get(key);
+        }
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int i = indexOf((String) key);
+        return i < 0 ? null : valueAt(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (modified != null) {
+            return modified.containsKey(key);
+        }
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        if (modified != null) {
+            return modified.size();
+        }
+        return keys().length;
+    }
+
+    @Override
+    public String getString(String key) {
+        if (modified == null) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return null;
+            }
+            int type = type(tape.tape[keys[i] + 1]);
+            if (type == STRING || type == STRING_ESCAPED) {
+                return (String) valueAt(i);
+            }
+        }
+        return JsonObject.super.getString(key);
+    }
+
+    @Override
+    public long getLongValue(String key) {
+        if (modified == null) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return 0;
+            }
+            if (type(tape.tape[keys[i] + 1]) == INTEGER) {
+                return tape.longValue(keys[i] + 1);
+            }
+        }
+        return JsonObject.super.getLongValue(key);
+    }
+
+    @Override
+    public int getIntValue(String key) {
+        if (modified == null) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return 0;
+            }
+            if (type(tape.tape[keys[i] + 1]) == INTEGER) {
+                return (int) tape.longValue(keys[i] + 1);
+            }
+        }
+        return JsonObject.super.getIntValue(key);
+    }
+
+    @Override
+    public double getDoubleValue(String key) {
+        if (modified == null) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return 0;
+            }
+            int type = type(tape.tape[keys[i] + 1]);
+            if (type == INTEGER || type == DECIMAL) {
+                return tape.doubleValue(keys[i] + 1);
+            }
+        }
+        return JsonObject.super.getDoubleValue(key);
+    }
+
+    @Override
+    public boolean getBooleanValue(String key) {
+        if (modified == null) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return false;
+            }
+            int type = type(tape.tape[keys[i] + 1]);
+            if (type == TRUE || type == FALSE) {
+                return type == TRUE;
+            }
+        }
+        return JsonObject.super.getBooleanValue(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return modified().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return modified().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        modified().clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (modified != null) {
+            return modified.entrySet();
+        }
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    int i;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < keys().length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (i >= keys().length) {
+                            throw new NoSuchElementException();
+                        }
+                        int n = i++;
+                        return new SimpleImmutableEntry<>(tape.string(keys[n]), valueAt(n));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyJsonObject.this.size();
+            }
+        };
+    }
+
+    /**
+     * 和JsonObjectImpl一致，key重复时使用最后一个值
+     */
+    private int indexOf(String key) {
+        int[] ks = keys();
+        for (int i = ks.length - 1; i >= 0; i--) {
+            if (tape.keyEquals(ks[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object valueAt(int i) {
+        Object[] vs = values;
+        if (vs == null) {
+            vs = values = new Object[keys.length];
+            Arrays.fill(vs, UNRESOLVED);
+        }
+        Object v = vs[i];
+        if (v == UNRESOLVED) {
+            v = vs[i] = tape.value(keys[i] + 1);
+        }
+        return v;
+    }
+
+    private int[] keys() {
+        int[] ks = keys;
+        if (ks == null) {
+            int end = tape.next(index);
+            int count = 0;
+            for (int i = index + 1; i < end; i = tape.next(i + 1)) {
+                count++;
+            }
+            ks = new int[count];
+            count = 0;
+            for (int i = index + 1; i < end; i = tape.next(i + 1)) {
+                ks[count++] = i;
+            }
+            keys = ks;
+        }
+        return ks;
+    }
+
+    private Map<String, Object> modified() {
+        if (modified == null) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Entry<String, Object> entry : entrySet()) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+            modified = map;
+        }
+        return modified;
+    }
+}
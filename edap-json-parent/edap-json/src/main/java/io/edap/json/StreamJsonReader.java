@@ -0,0 +1,468 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json;
+
+import io.edap.buffer.FastBuf;
+import io.edap.json.model.DataRange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * 从InputStream、ReadableByteChannel或者连续的FastBuf分段中增量解析json的JsonReader。数据读入一个较小的窗口，
+ * 每读一个token前确保token完整的位于窗口中，不足时将未解析的数据移到窗口开头后继续读取，已经解析的数据不再保留，
+ * 内存占用只和窗口大小及最长的单个token有关，和整个json的大小无关。token的解析复用{@link ByteArrayJsonReader}
+ * 的实现，生成的JsonDecoder不需要修改即可使用。
+ *
+ * <p>多个连续的json值（如NDJSON每行一个对象）可以用{@link #hasNext()}循环读取，或者使用
+ * {@link #forEach(Class, Consumer)}逐个解码，顶层为数组时逐个解码数组中的元素。</p>
+ *
+ * <p>ReadableByteChannel需要为阻塞模式。数据源的IOException包装为JsonParseException抛出。</p>
+ */
+public class StreamJsonReader extends ByteArrayJsonReader implements Closeable {
+
+    /**
+     * 默认的读取窗口大小
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 8192;
+
+    private final Source source;
+    private boolean eof;
+
+    public StreamJsonReader(InputStream in) {
+        this(in, DEFAULT_WINDOW_SIZE);
+    }
+
+    public StreamJsonReader(InputStream in, int windowSize) {
+        this(new StreamSource(in), windowSize);
+    }
+
+    public StreamJsonReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    public StreamJsonReader(ReadableByteChannel channel, int windowSize) {
+        this(new ChannelSource(channel), windowSize);
+    }
+
+    /**
+     * 依次读取每个FastBuf中rpos到wpos之间的数据，读取后FastBuf的rpos移到wpos
+     */
+    public StreamJsonReader(Iterator<FastBuf> segments) {
+        this(segments, DEFAULT_WINDOW_SIZE);
+    }
+
+    public StreamJsonReader(Iterator<FastBuf> segments, int windowSize) {
+        this(new FastBufSource(segments), windowSize);
+    }
+
+    private StreamJsonReader(Source source, int windowSize) {
+        super(new byte[Math.max(windowSize, 16)]);
+        this.source = source;
+        this.end    = 0;
+    }
+
+    /**
+     * 是否还有未解析的json值，跳过值之间的空白字符（包括换行）
+     */
+    public boolean hasNext() {
+        return firstNotSpaceChar() != 0;
+    }
+
+    /**
+     * 逐个解码剩余的json值，第一个值为数组时解码数组中的每个元素，否则解码每个连续的json对象
+     * @param valueType 值的类型
+     * @param action 每个解码后的对象的处理
+     */
+    public <T> void forEach(Class<T> valueType, Consumer<? super T> action) {
+        char c = firstNotSpaceChar();
+        if (c == '[') {
+            nextPos(1);
+            c = firstNotSpaceChar();
+            while (c != ']') {
+                if (c == 0) {
+                    throw new JsonParseException("数组没有正确结束");
+                }
+                action.accept(decode(valueType));
+                c = firstNotSpaceChar();
+                if (c == ',') {
+                    nextPos(1);
+                    c = firstNotSpaceChar();
+                } else if (c != ']') {
+                    throw new JsonParseException("数组格式不正确");
+                }
+            }
+            nextPos(1);
+        } else {
+            while (c != 0) {
+                action.accept(decode(valueType));
+                c = firstNotSpaceChar();
+            }
+        }
+    }
+
+    private <T> T decode(Class<T> valueType) {
+        try {
+            return readObject(valueType);
+        } catch (JsonParseException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new JsonParseException("parseJson error", t);
+        }
+    }
+
+    @Override
+    public char firstNotSpaceChar() {
+        while (true) {
+            char c = super.firstNotSpaceChar();
+            if (c != 0) {
+                return c;
+            }
+            // 窗口中剩余的都是空白字符，直接丢弃
+            pos = end;
+            if (!fill()) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public DataRange readKeyRange() {
+        requireKey(firstNotSpaceChar());
+        return super.readKeyRange();
+    }
+
+    @Override
+    public int keyHash() {
+        requireKey(firstNotSpaceChar());
+        return super.keyHash();
+    }
+
+    @Override
+    public int keyIndex(JsonKeyTable keyTable) {
+        requireKey(firstNotSpaceChar());
+        return super.keyIndex(keyTable);
+    }
+
+    @Override
+    protected String readKey(char c) {
+        requireKey(c);
+        return super.readKey(c);
+    }
+
+    @Override
+    protected void skipKey(char c) {
+        requireKey(c);
+        super.skipKey(c);
+    }
+
+    @Override
+    protected Object readValue() {
+        requireValue(firstNotSpaceChar());
+        return super.readValue();
+    }
+
+    @Override
+    public String readString() {
+        requireValue(firstNotSpaceChar());
+        return super.readString();
+    }
+
+    @Override
+    public int readInt() {
+        requireValue(firstNotSpaceChar());
+        return super.readInt();
+    }
+
+    @Override
+    public long readLong() {
+        requireValue(firstNotSpaceChar());
+        return super.readLong();
+    }
+
+    @Override
+    public float readFloat() {
+        requireValue(firstNotSpaceChar());
+        return super.readFloat();
+    }
+
+    @Override
+    public double readDouble() {
+        requireValue(firstNotSpaceChar());
+        return super.readDouble();
+    }
+
+    @Override
+    public boolean readBoolean() {
+        requireValue(firstNotSpaceChar());
+        return super.readBoolean();
+    }
+
+    @Override
+    public void skipValue() {
+        char c = firstNotSpaceChar();
+        if (c == '"') {
+            requireString(c);
+        } else if (c != '{' && c != '[') {
+            requireDelimiter();
+        }
+        super.skipValue();
+    }
+
+    @Override
+    public void setJsonData(byte[] json) {
+        throw new UnsupportedOperationException("StreamJsonReader reads data from its source");
+    }
+
+    @Override
+    public void setJsonData(byte[] json, int offset, int length) {
+        throw new UnsupportedOperationException("StreamJsonReader reads data from its source");
+    }
+
+    /**
+     * 已经解析的数据不再保留，不能回到数据的开头
+     */
+    @Override
+    public void reset() {
+        throw new UnsupportedOperationException("StreamJsonReader can't be reset");
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * 确保pos处开始的key以及key后的冒号都已经在窗口中，key解析过程中不会再移动窗口中的数据
+     */
+    private void requireKey(char c) {
+        if (c != '"') {
+            return;
+        }
+        int i = requireString(c) + 1;
+        while (true) {
+            for (; pos + i < end; i++) {
+                byte b = json[pos + i];
+                if (b < 0 || b > ' ') {
+                    return;
+                }
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 确保pos处开始的简单值完整的在窗口中，对象和数组的开始字符不需要处理
+     */
+    private void requireValue(char c) {
+        if (c == '"' || c == '\'') {
+            requireString(c);
+        } else if (c == 'n' || c == 't' || c == 'f') {
+            require(5);
+        } else if (c != '{' && c != '[' && c != 0) {
+            requireNumber();
+        }
+    }
+
+    /**
+     * 确保pos处引号开始的字符串包括结束的引号都在窗口中
+     * @return 结束引号相对pos的偏移
+     */
+    private int requireString(char quotation) {
+        int i = 1;
+        while (true) {
+            while (pos + i < end) {
+                byte b = json[pos + i];
+                if (b == '\\') {
+                    i += 2;
+                } else if (b == quotation) {
+                    return i;
+                } else {
+                    i++;
+                }
+            }
+            if (!fill()) {
+                throw new JsonParseException("JSON string was not closed with a char[" + quotation + "]");
+            }
+        }
+    }
+
+    /**
+     * 确保数字以及数字后的第一个字符在窗口中，数据结束时数字可以没有结束字符
+     */
+    private void requireNumber() {
+        int i = 0;
+        while (true) {
+            for (; pos + i < end; i++) {
+                if (!isNumberChar(json[pos + i])) {
+                    return;
+                }
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    private void requireDelimiter() {
+        int i = 0;
+        while (true) {
+            for (; pos + i < end; i++) {
+                byte b = json[pos + i];
+                if (b == ',' || b == '}' || b == ']') {
+                    return;
+                }
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    private void require(int n) {
+        while (end - pos < n) {
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    /**
+     * 将未解析的数据移到窗口开头，窗口已满时扩大一倍，然后从数据源读取数据
+     * @return 数据源已经没有数据时返回false
+     */
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        byte[] window = json;
+        int remain = end - pos;
+        if (pos > 0) {
+            System.arraycopy(window, pos, window, 0, remain);
+            pos = 0;
+            end = remain;
+        }
+        if (end == window.length) {
+            window = json = Arrays.copyOf(window, window.length << 1);
+        }
+        try {
+            int n = source.read(window, end, window.length - end);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        } catch (IOException e) {
+            throw new JsonParseException("read json data error", e);
+        }
+    }
+
+    /**
+     * json数据的来源，read至少读取1个字节，没有数据时返回-1
+     */
+    interface Source extends Closeable {
+
+        int read(byte[] bs, int offset, int len) throws IOException;
+    }
+
+    static class StreamSource implements Source {
+
+        private final InputStream in;
+
+        StreamSource(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(byte[] bs, int offset, int len) throws IOException {
+            int n;
+            do {
+                n = in.read(bs, offset, len);
+            } while (n == 0);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static class ChannelSource implements Source {
+
+        private final ReadableByteChannel channel;
+
+        ChannelSource(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(byte[] bs, int offset, int len) throws IOException {
+            ByteBuffer buf = ByteBuffer.wrap(bs, offset, len);
+            int n;
+            do {
+                n = channel.read(buf);
+            } while (n == 0);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    static class FastBufSource implements Source {
+
+        private final Iterator<FastBuf> segments;
+        private FastBuf current;
+
+        FastBufSource(Iterator<FastBuf> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public int read(byte[] bs, int offset, int len) {
+            while (current == null || current.remain() == 0) {
+                if (!segments.hasNext()) {
+                    return -1;
+                }
+                current = segments.next();
+            }
+            return current.get(bs, offset, len);
+        }
+
+        @Override
+        public void close() {
+            current = null;
+        }
+    }
+}
@@ -577,6 +577,69 @@ public class StringJsonReader implements JsonReader {
         return (int)hashCode;
     }
 
+    @Override
+    public int keyIndex(JsonKeyTable keyTable) {
+        String _json = json;
+        int start = pos;
+        if (start >= end || _json.charAt(start) != '"') {
+            // key前有空白字符时才跳过
+            char c = firstNotSpaceChar();
+            if (c != '"') {
+                throw new JsonParseException("Key must start with '\"'!");
+            }
+            start = pos;
+        }
+        start++;
+        int _pos = _json.indexOf('"', start);
+        if (_pos < 0 || _pos >= end) {
+            throw new JsonParseException("Key没有正确结束");
+        }
+        if (_json.charAt(_pos - 1) == '\\') {
+            return escapedKeyIndex(keyTable, start);
+        }
+        int index = keyTable.indexOf(_json, start, _pos - start);
+        if (index < 0 && hasEscape(start, _pos)) {
+            return escapedKeyIndex(keyTable, start);
+        }
+        pos = _pos + 1;
+        // 大多数json的key后直接是冒号，其他情况再跳过空白字符
+        if (pos < end && _json.charAt(pos) == ':') {
+            pos++;
+            return index;
+        }
+        readColon();
+        return index;
+    }
+
+    private boolean hasEscape(int start, int end) {
+        String _json = json;
+        for (int _pos = start; _pos < end; _pos++) {
+            if (_json.charAt(_pos) == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 含有转义字符的key很少见，解码后再查找。未找到的key以及结束引号前是反斜杠的key才会检查是否有转义字符，
+     * 避免在查找每个key时都判断
+     */
+    private int escapedKeyIndex(JsonKeyTable keyTable, int start) {
+        pos = start;
+        int index = keyTable.indexOf(readQuotationMarksString('"'));
+        readColon();
+        return index;
+    }
+
+    private void readColon() {
+        char c = firstNotSpaceChar();
+        if (c != ':') {
+            throw new JsonParseException("Key and value must use colon split");
+        }
+        pos++;
+    }
+
     protected Object readNumberValue() {
         char c1 = firstNotSpaceChar();
         int start = pos;
@@ -16,10 +16,32 @@
 
 package io.edap.json.writer;
 
+import io.edap.json.JsonEncoder;
+import io.edap.json.JsonWriter;
+import io.edap.json.MapEncoder;
+import io.edap.json.SerializerFeature;
+import io.edap.util.Grisu;
+import io.edap.util.StringUtil;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static io.edap.json.Eson.serialize;
+import static io.edap.json.consts.JsonConsts.NEGATIVE_INFINITY_BYTES;
+import static io.edap.json.consts.JsonConsts.POSITIVE_INFINITY_BYTES;
+import static io.edap.util.FastNum.uncheckWriteInt;
+import static io.edap.util.FastNum.uncheckWriteLong;
+import static io.edap.util.StringUtil.IS_BYTE_ARRAY;
+import static io.edap.util.StringUtil.isLatin1;
+import static io.edap.util.UnsafeUtil.copyMemory;
+import static io.edap.util.UnsafeUtil.putByte;
+
 /**
- * JsonWriter的基类，封装JsonWriter常用操作
+ * JsonWriter的基类，封装JsonWriter常用操作。数据通过base对象加偏移量的方式写入，base为byte数组时写入数组，
+ * base为null时偏移量为堆外内存的地址，子类只需要初始化base、start、pos、end并实现空间不足时的expand。
  */
-public abstract class AbstractJsonWriter {
+public abstract class AbstractJsonWriter implements JsonWriter {
 
     public static final boolean[] CAN_DIRECT_WRITE = new boolean[128];
     /**
@@ -38,18 +60,40 @@ public abstract class AbstractJsonWriter {
     protected boolean pretty;
 
     protected int depth;
+    /**
+     * 写入数据的对象，写入byte数组时为该数组，写入堆外内存时为null
+     */
+    protected Object  base;
+    /**
+     * 本次序列化开始的偏移量，写入堆外内存时为内存地址
+     */
+    protected long    start;
+    /**
+     * 当前写入的偏移量
+     */
+    protected long    pos;
+    /**
+     * 可写的结束偏移量
+     */
+    protected long    end;
+    protected boolean longToString = false;
+    protected int     featuresValue;
+    /**
+     * 数字转为字符串时使用的临时数组
+     */
+    private final byte[] numBuf = new byte[32];
 
     static {
 
         for (int i = 0; i < CAN_DIRECT_WRITE.length; i++) {
-            if (i > 31 && i < 126 && i != '"' && i != '\\') {
+            if (i > 31 && i < 127 && i != '"' && i != '\\') {
                 CAN_DIRECT_WRITE[i] = true;
             }
         }
 
         JS_REPLACEMENT_CHAR = new byte[12];
         System.arraycopy("\\u2028".getBytes(), 0, JS_REPLACEMENT_CHAR, 0, 6);
-        System.arraycopy("\\u2028".getBytes(), 0, JS_REPLACEMENT_CHAR, 6, 6);
+        System.arraycopy("\\u2029".getBytes(), 0, JS_REPLACEMENT_CHAR, 6, 6);
 
         REPLACEMENT_CHARS = new byte[128][];
         String hex;
@@ -58,6 +102,7 @@ public abstract class AbstractJsonWriter {
             REPLACEMENT_CHARS[i] = hex.getBytes();
         }
 
+        REPLACEMENT_CHARS[0x7f] = "\\u007f".getBytes();
         REPLACEMENT_CHARS['"']  = "\\\"".getBytes();
         REPLACEMENT_CHARS['\\'] = "\\\\".getBytes();
         REPLACEMENT_CHARS['\t'] = "\\t".getBytes();
@@ -74,6 +119,23 @@ public abstract class AbstractJsonWriter {
         HTML_REPLACEMENT_CHARS['\''] = "\\u0027".getBytes();
     }
 
+    protected AbstractJsonWriter(SerializerFeature... features) {
+        int fval = 0;
+        for (SerializerFeature feature : features) {
+            fval |= feature.getMask();
+            if (feature == SerializerFeature.LONG_TO_STRING) {
+                longToString = true;
+            }
+        }
+        featuresValue = fval;
+    }
+
+    /**
+     * 保证至少还有minLength个字节可写，空间不足时byte数组扩容，容量固定的输出对象抛出异常
+     * @param minLength 需要的字节数
+     */
+    protected abstract void expand(int minLength);
+
     public boolean isPretty() {
         return pretty;
     }
@@ -81,4 +143,405 @@ public abstract class AbstractJsonWriter {
     public void setPretty(boolean pretty) {
         this.pretty = pretty;
     }
+
+    @Override
+    public int getFeatureValue() {
+        return featuresValue;
+    }
+
+    @Override
+    public void setFeatureValue(int featuresValue) {
+        if (this.featuresValue != featuresValue) {
+            this.longToString = (featuresValue & SerializerFeature.LONG_TO_STRING.mask) != 0;
+            this.featuresValue = featuresValue;
+        }
+    }
+
+    @Override
+    public void writeObjStart() {
+        write((byte)'{');
+    }
+
+    @Override
+    public void writeObjEnd() {
+        write((byte)'}');
+    }
+
+    @Override
+    public void writeArrayStart() {
+        write((byte)'[');
+    }
+
+    @Override
+    public void writeArrayEnd() {
+        write((byte)']');
+    }
+
+    @Override
+    public void write(boolean bool) {
+        if (bool) {
+            expand(4);
+            Object b = base;
+            long p = pos;
+            putByte(b, p,     (byte)'t');
+            putByte(b, p + 1, (byte)'r');
+            putByte(b, p + 2, (byte)'u');
+            putByte(b, p + 3, (byte)'e');
+            pos = p + 4;
+        } else {
+            expand(5);
+            Object b = base;
+            long p = pos;
+            putByte(b, p,     (byte)'f');
+            putByte(b, p + 1, (byte)'a');
+            putByte(b, p + 2, (byte)'l');
+            putByte(b, p + 3, (byte)'s');
+            putByte(b, p + 4, (byte)'e');
+            pos = p + 5;
+        }
+    }
+
+    @Override
+    public void write(Boolean bool) {
+        if (bool == null) {
+            writeNull();
+        } else {
+            write(bool.booleanValue());
+        }
+    }
+
+    @Override
+    public void write(byte b) {
+        expand(1);
+        putByte(base, pos++, b);
+    }
+
+    @Override
+    public void write(byte b1, byte b2) {
+        expand(2);
+        long p = pos;
+        putByte(base, p,     b1);
+        putByte(base, p + 1, b2);
+        pos = p + 2;
+    }
+
+    @Override
+    public void write(byte b1, byte b2, byte b3) {
+        expand(3);
+        long p = pos;
+        putByte(base, p,     b1);
+        putByte(base, p + 1, b2);
+        putByte(base, p + 2, b3);
+        pos = p + 3;
+    }
+
+    @Override
+    public void write(int i) {
+        int len = uncheckWriteInt(numBuf, 0, i);
+        write(numBuf, 0, len);
+    }
+
+    @Override
+    public void write(Integer i) {
+        if (i == null) {
+            writeNull();
+            return;
+        }
+        write(i.intValue());
+    }
+
+    @Override
+    public void write(long l) {
+        byte[] nb = numBuf;
+        if (longToString) {
+            nb[0] = '"';
+            int len = uncheckWriteLong(nb, 1, l);
+            nb[len++] = '"';
+            write(nb, 0, len);
+        } else {
+            int len = uncheckWriteLong(nb, 0, l);
+            write(nb, 0, len);
+        }
+    }
+
+    @Override
+    public void write(Long l) {
+        if (l == null) {
+            writeNull();
+            return;
+        }
+        write(l.longValue());
+    }
+
+    @Override
+    public void write(float f) {
+        if (f == Float.POSITIVE_INFINITY) {
+            write(POSITIVE_INFINITY_BYTES, 0, POSITIVE_INFINITY_BYTES.length);
+        } else if (f == Float.NEGATIVE_INFINITY) {
+            write(NEGATIVE_INFINITY_BYTES, 0, NEGATIVE_INFINITY_BYTES.length);
+        } else if (f != f) {
+            write((byte)'N', (byte)'a', (byte)'N');
+        } else {
+            byte[] bs = (String.valueOf(f)).getBytes();
+            write(bs, 0, bs.length);
+        }
+    }
+
+    @Override
+    public void write(Float f) {
+        if (f == null) {
+            writeNull();
+            return;
+        }
+        write(f.floatValue());
+    }
+
+    @Override
+    public void write(double d) {
+        if (d == Double.POSITIVE_INFINITY) {
+            write(POSITIVE_INFINITY_BYTES, 0, POSITIVE_INFINITY_BYTES.length);
+        } else if (d == Double.NEGATIVE_INFINITY) {
+            write(NEGATIVE_INFINITY_BYTES, 0, NEGATIVE_INFINITY_BYTES.length);
+        } else if (d != d) {
+            write((byte)'N', (byte)'a', (byte)'N');
+        } else {
+            int len = Grisu.fmt.doubleToBytes(numBuf, 0, d);
+            write(numBuf, 0, len);
+        }
+    }
+
+    @Override
+    public void write(Double d) {
+        if (d == null) {
+            writeNull();
+            return;
+        }
+        write(d.doubleValue());
+    }
+
+    @Override
+    public void write(byte b, int i) {
+        byte[] nb = numBuf;
+        nb[0] = b;
+        int len = uncheckWriteInt(nb, 1, i);
+        write(nb, 0, len);
+    }
+
+    @Override
+    public void write(byte b, Integer i) {
+        if (i == null) {
+            write(b);
+            writeNull();
+            return;
+        }
+        write(b, i.intValue());
+    }
+
+    @Override
+    public void write(byte b, long l) {
+        byte[] nb = numBuf;
+        nb[0] = b;
+        int len = uncheckWriteLong(nb, 1, l);
+        write(nb, 0, len);
+    }
+
+    @Override
+    public void write(byte b, Long l) {
+        if (l == null) {
+            write(b);
+            writeNull();
+            return;
+        }
+        write(b, l.longValue());
+    }
+
+    @Override
+    public void writeNull() {
+        expand(4);
+        Object b = base;
+        long p = pos;
+        putByte(b, p,     (byte)'n');
+        putByte(b, p + 1, (byte)'u');
+        putByte(b, p + 2, (byte)'l');
+        putByte(b, p + 3, (byte)'l');
+        pos = p + 4;
+    }
+
+    @Override
+    public void writeKey(String key) {
+        write(key);
+    }
+
+    @Override
+    public void write(String s) {
+        int slen = s.length();
+        // 每个字符最多转义为6个字节，加上前后的双引号
+        int maxLen = slen * 6 + 2;
+        if (end - pos < maxLen) {
+            // 剩余空间不足以容纳最坏情况时按UTF-8实际计算的长度判断
+            expand(jsonLength(s));
+        }
+        long p = pos;
+        putByte(base, p++, (byte)'"');
+        if (IS_BYTE_ARRAY && isLatin1(s)) {
+            p = writeLatin1(StringUtil.getValue(s), p);
+        } else {
+            p = writeChars(s, p);
+        }
+        putByte(base, p++, (byte)'"');
+        pos = p;
+    }
+
+    /**
+     * 写入Latin1编码的字符串，连续的不需要转义的ASCII字符直接整段复制
+     */
+    private long writeLatin1(byte[] bs, long p) {
+        Object b = base;
+        int len = bs.length;
+        int runStart = 0;
+        for (int i = 0; i < len; i++) {
+            int c = bs[i] & 0xFF;
+            if (c < 128 && CAN_DIRECT_WRITE[c]) {
+                continue;
+            }
+            if (i > runStart) {
+                copyMemory(bs, runStart, b, p, i - runStart);
+                p += i - runStart;
+            }
+            runStart = i + 1;
+            if (c < 128) {
+                p = writeEscape(c, p);
+            } else {
+                putByte(b, p,     (byte)(0xC0 | (c >>> 6)));
+                putByte(b, p + 1, (byte)(0x80 | (c & 0x3F)));
+                p += 2;
+            }
+        }
+        if (len > runStart) {
+            copyMemory(bs, runStart, b, p, len - runStart);
+            p += len - runStart;
+        }
+        return p;
+    }
+
+    private long writeChars(String s, long p) {
+        Object b = base;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                if (CAN_DIRECT_WRITE[c]) {
+                    putByte(b, p++, (byte)c);
+                } else {
+                    p = writeEscape(c, p);
+                }
+            } else if (c == '\u2028') {
+                copyMemory(JS_REPLACEMENT_CHAR, 0, b, p, 6);
+                p += 6;
+            } else if (c == '\u2029') {
+                copyMemory(JS_REPLACEMENT_CHAR, 6, b, p, 6);
+                p += 6;
+            } else if (c < 0x800) {
+                putByte(b, p,     (byte)(0xC0 | (c >>> 6)));
+                putByte(b, p + 1, (byte)(0x80 | (c & 0x3F)));
+                p += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int uc = Character.toCodePoint(c, s.charAt(++i));
+                putByte(b, p,     (byte)(0xF0 | (uc >>> 18)));
+                putByte(b, p + 1, (byte)(0x80 | ((uc >>> 12) & 0x3F)));
+                putByte(b, p + 2, (byte)(0x80 | ((uc >>> 6) & 0x3F)));
+                putByte(b, p + 3, (byte)(0x80 | (uc & 0x3F)));
+                p += 4;
+            } else {
+                putByte(b, p,     (byte)(0xE0 | (c >>> 12)));
+                putByte(b, p + 1, (byte)(0x80 | ((c >>> 6) & 0x3F)));
+                putByte(b, p + 2, (byte)(0x80 | (c & 0x3F)));
+                p += 3;
+            }
+        }
+        return p;
+    }
+
+    private long writeEscape(int c, long p) {
+        byte[] tmp = REPLACEMENT_CHARS[c];
+        copyMemory(tmp, 0, base, p, tmp.length);
+        return p + tmp.length;
+    }
+
+    /**
+     * 字符串序列化为JSON后的字节数，包括前后的双引号
+     */
+    private static int jsonLength(String s) {
+        int len = 2;
+        int slen = s.length();
+        for (int i = 0; i < slen; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                len += CAN_DIRECT_WRITE[c] ? 1 : REPLACEMENT_CHARS[c].length;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (c == '\u2028' || c == '\u2029') {
+                len += 6;
+            } else {
+                // 代理对的两个char共4个字节，单独的代理字符按3个字节写入
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+    @Override
+    public void writeField(byte[] bs, int offset, int end) {
+        write(bs, offset, end - offset);
+    }
+
+    @Override
+    public void write(byte[] bs, int offset, int length) {
+        expand(length);
+        copyMemory(bs, offset, base, pos, length);
+        pos += length;
+    }
+
+    @Override
+    public void write(BigDecimal bigDecimal) {
+        if (bigDecimal == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = bigDecimal.toString().getBytes(StandardCharsets.UTF_8);
+        write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void writeObject(Object obj) {
+        if (obj == null) {
+            writeNull();
+            return;
+        }
+        serialize(obj, this);
+    }
+
+    @Override
+    public void write(Object obj, JsonEncoder encoder) {
+        encoder.encode(this, obj);
+    }
+
+    @Override
+    public <K, V> void write(Map<K, V> map, MapEncoder<K, V> mapEncoder) {
+        if (map == null) {
+            writeNull();
+            return;
+        }
+        if (map.isEmpty()) {
+            write((byte)'{', (byte)'}');
+            return;
+        }
+        mapEncoder.encode(this, map);
+    }
+
+    @Override
+    public int size() {
+        return (int)(pos - start);
+    }
 }
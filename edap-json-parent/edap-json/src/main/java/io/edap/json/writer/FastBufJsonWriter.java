@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.writer;
+
+import io.edap.buffer.FastBuf;
+import io.edap.json.JsonWriter;
+import io.edap.json.SerializerFeature;
+import io.edap.util.UnsafeUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+
+/**
+ * 直接写入FastBuf堆外内存的JsonWriter，用于把对象直接序列化到连接的写缓冲中，省去先写入byte数组再复制到FastBuf
+ * 的过程。FastBuf的容量是固定的，剩余空间不足时抛出{@link BufferOverflowException}，已写入的数据不会提交到
+ * FastBuf，调用方可以改用ByteArrayJsonWriter重新序列化。
+ *
+ * <p>写入的数据在调用{@link #finish()}后才提交到FastBuf。</p>
+ */
+public class FastBufJsonWriter extends AbstractJsonWriter implements JsonWriter {
+
+    private FastBuf buf;
+
+    public FastBufJsonWriter(SerializerFeature... features) {
+        super(features);
+    }
+
+    public FastBufJsonWriter(FastBuf buf, SerializerFeature... features) {
+        this(features);
+        wrap(buf);
+    }
+
+    /**
+     * 从FastBuf当前的写位置开始写入数据
+     * @param buf 写入数据的FastBuf
+     * @return 当前writer
+     */
+    public FastBufJsonWriter wrap(FastBuf buf) {
+        this.buf   = buf;
+        this.base  = null;
+        this.start = buf.wpos();
+        this.pos   = start;
+        this.end   = start + buf.writeRemain();
+        return this;
+    }
+
+    /**
+     * 将写入的数据提交到FastBuf，FastBuf的写位置移动到数据的结尾
+     * @return 本次写入的字节数
+     */
+    public int finish() {
+        buf.wpos(pos);
+        return size();
+    }
+
+    /**
+     * 数据直接写入FastBuf，没有可以返回的byte数组
+     */
+    @Override
+    public byte[] getBuf() {
+        throw new UnsupportedOperationException("FastBufJsonWriter has no byte array");
+    }
+
+    @Override
+    public void toStream(OutputStream stream) throws IOException {
+        stream.write(toByteArray());
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] data = new byte[size()];
+        UnsafeUtil.copyMemory(start, data, 0, data.length);
+        return data;
+    }
+
+    @Override
+    public int toFastBuf(FastBuf fastBuf) {
+        if (fastBuf == buf) {
+            return finish();
+        }
+        int len = Math.min(size(), fastBuf.writeRemain());
+        UnsafeUtil.UNSAFE.copyMemory(start, fastBuf.wpos(), len);
+        fastBuf.wpos(fastBuf.wpos() + len);
+        return len;
+    }
+
+    @Override
+    public void reset() {
+        pos = start;
+    }
+
+    @Override
+    public void setWPos(int wPos) {
+
+    }
+
+    @Override
+    protected void expand(int minLength) {
+        if (end - pos < minLength) {
+            throw new BufferOverflowException();
+        }
+    }
+}
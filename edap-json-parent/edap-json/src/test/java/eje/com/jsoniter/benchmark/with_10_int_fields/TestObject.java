@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package eje.com.jsoniter.benchmark.with_10_int_fields;
+
+public class TestObject {
+
+    public int field1;
+    public int field2;
+    public int field3;
+    public int field4;
+    public int field5;
+    public int field6;
+    public int field7;
+    public int field8;
+    public int field9;
+    public int field10;
+
+    public static TestObject createTestObject() {
+        TestObject testObject = new TestObject();
+        testObject.field1 = 31415926;
+        testObject.field2 = 61415923;
+        testObject.field3 = 31415269;
+        testObject.field4 = 53141926;
+        testObject.field5 = 13145926;
+        testObject.field6 = 43115926;
+        testObject.field7 = 31419265;
+        testObject.field8 = 23141596;
+        testObject.field9 = 43161592;
+        testObject.field10 = 112;
+        return testObject;
+    }
+}
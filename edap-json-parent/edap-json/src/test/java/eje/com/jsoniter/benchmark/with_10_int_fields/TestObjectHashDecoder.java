@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package eje.com.jsoniter.benchmark.with_10_int_fields;
+
+import io.edap.json.JsonDecoder;
+import io.edap.json.JsonParseException;
+import io.edap.json.JsonReader;
+
+/**
+ * 按原来生成的解码器手写的对照实现：对整个key计算FNV-1a哈希后使用lookupswitch分发，用于和完美哈希的解码器对比
+ */
+public class TestObjectHashDecoder implements JsonDecoder<TestObject> {
+
+    private static final int HASH_FIELD1  = 1212206434;
+    private static final int HASH_FIELD2  = 1195428815;
+    private static final int HASH_FIELD3  = 1178651196;
+    private static final int HASH_FIELD4  = 1161873577;
+    private static final int HASH_FIELD5  = 1145095958;
+    private static final int HASH_FIELD6  = 1128318339;
+    private static final int HASH_FIELD7  = 1111540720;
+    private static final int HASH_FIELD8  = 1363205005;
+    private static final int HASH_FIELD9  = 1346427386;
+    private static final int HASH_FIELD10 = 268646422;
+
+    @Override
+    public TestObject decode(JsonReader reader) {
+        char c = reader.firstNotSpaceChar();
+        if (c != '{') {
+            return null;
+        }
+        reader.nextPos(1);
+        TestObject obj = new TestObject();
+        c = reader.firstNotSpaceChar();
+        if (c == '}') {
+            reader.nextPos(1);
+            return obj;
+        }
+        readField(reader, obj);
+        c = reader.firstNotSpaceChar();
+        while (c == ',') {
+            reader.nextPos(1);
+            readField(reader, obj);
+            c = reader.firstNotSpaceChar();
+        }
+        if (c != '}') {
+            throw new JsonParseException("key and value 后为不符合json字符[" + c + "]");
+        }
+        reader.nextPos(1);
+        return obj;
+    }
+
+    private static void readField(JsonReader reader, TestObject obj) {
+        switch (reader.keyHash()) {
+            case HASH_FIELD1:
+                obj.field1 = reader.readInt();
+                break;
+            case HASH_FIELD2:
+                obj.field2 = reader.readInt();
+                break;
+            case HASH_FIELD3:
+                obj.field3 = reader.readInt();
+                break;
+            case HASH_FIELD4:
+                obj.field4 = reader.readInt();
+                break;
+            case HASH_FIELD5:
+                obj.field5 = reader.readInt();
+                break;
+            case HASH_FIELD6:
+                obj.field6 = reader.readInt();
+                break;
+            case HASH_FIELD7:
+                obj.field7 = reader.readInt();
+                break;
+            case HASH_FIELD8:
+                obj.field8 = reader.readInt();
+                break;
+            case HASH_FIELD9:
+                obj.field9 = reader.readInt();
+                break;
+            case HASH_FIELD10:
+                obj.field10 = reader.readInt();
+                break;
+            default:
+                reader.skipValue();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.json.Eson;
+import io.edap.json.SerializerFeature;
+import io.edap.json.test.model.DemoPojo;
+import io.edap.json.writer.FastBufJsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFastBufJsonWriter {
+
+    private static String toJson(Object obj, FastBuf buf, SerializerFeature... features) {
+        FastBufJsonWriter writer = new FastBufJsonWriter(buf, features);
+        long start = buf.wpos();
+        Eson.serialize(obj, writer);
+        int len = writer.finish();
+        assertEquals(start + len, buf.wpos());
+        byte[] bs = new byte[len];
+        buf.get(start, bs);
+        return new String(bs, StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(Object obj, SerializerFeature... features) {
+        FastBuf buf = new FastBuf(64 * 1024);
+        // 从非起始位置开始写入，和HttpResponse中先写入响应头的情况一致
+        buf.write("HTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.UTF_8));
+        return toJson(obj, buf, features);
+    }
+
+    private static DemoPojo pojo(String name, int age) {
+        DemoPojo pojo = new DemoPojo();
+        pojo.setName(name);
+        pojo.setAge(age);
+        pojo.setOld(age > 60);
+        pojo.setBalance(age * 1.25);
+        pojo.setIntegral(age * 10000000000L);
+        return pojo;
+    }
+
+    @Test
+    public void testSameAsByteArrayWriter() {
+        DemoPojo pojo = pojo("louis \"lu\"\\ \t\n", 45);
+        List<DemoPojo> children = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            children.add(pojo("child" + i, i - 10));
+        }
+        pojo.setChildren(children);
+        assertEquals(Eson.toJsonString(pojo), toJson(pojo));
+        assertEquals(Eson.toJsonString(pojo, SerializerFeature.LONG_TO_STRING),
+                toJson(pojo, SerializerFeature.LONG_TO_STRING));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("int", -123456789);
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", -3.1415926);
+        map.put("bool", false);
+        map.put("null", null);
+        map.put("list", children);
+        assertEquals(Eson.toJsonString(map), toJson(map));
+        assertEquals(Eson.toJsonString(children), toJson(children));
+    }
+
+    @Test
+    public void testString() {
+        String[] values = {"", "a", "~!@#$%^&*()_+", "控制字符\u0001\u001f", "café", "中文字符串",
+                "emoji😀end", "line\u2028sep", "\"quoted\"", "back\\slash", "del\u007f", "~",
+                "para\u2029sep", "latin\u00ff\u0080"};
+        for (String value : values) {
+            DemoPojo pojo = pojo(value, 1);
+            String json = toJson(pojo);
+            DemoPojo result = Eson.parseObject(json, DemoPojo.class);
+            assertEquals(value, result.getName(), json);
+            // byte数组和FastBuf的输出使用同一套编码逻辑
+            assertEquals(Eson.toJsonString(value), toJson(value));
+        }
+        assertEquals("\"~\\u007f\"", toJson("~\u007f"));
+        assertEquals("\"\\u2028\\u2029\"", toJson("\u2028\u2029"));
+        assertEquals("\"café\"", toJson("café"));
+        assertEquals("\"\\u0001\\n\"", toJson("\u0001\n"));
+    }
+
+    @Test
+    public void testOverflow() {
+        List<DemoPojo> children = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            children.add(pojo("child" + i, i));
+        }
+        FastBuf buf = new FastBuf(1024);
+        buf.write(new byte[]{'a', 'b', 'c'});
+        long wpos = buf.wpos();
+        assertThrows(BufferOverflowException.class, () -> toJson(children, buf));
+        // 空间不足时不提交写入的数据
+        assertEquals(wpos, buf.wpos());
+
+        // 剩余空间正好容纳结果
+        String json = Eson.toJsonString("中文字符串");
+        FastBuf exact = new FastBuf(json.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(json, toJson("中文字符串", exact));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test;
+
+import io.edap.json.ByteArrayJsonReader;
+import io.edap.json.JsonCodecRegister;
+import io.edap.json.JsonDecoder;
+import io.edap.json.JsonEncoder;
+import io.edap.json.MapBeanDecoder;
+import io.edap.json.StringJsonReader;
+import io.edap.json.enums.DataType;
+import io.edap.json.enums.JsonVersion;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJsonCodecRegister {
+
+    private static final int THREADS = 16;
+
+    public static class ColdPojo1 {
+        private String name;
+        private int age;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    public static class ColdPojo2 {
+        private String name;
+        private long id;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+    }
+
+    public static class ColdPojo3 {
+        private String name;
+        private boolean ok;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isOk() {
+            return ok;
+        }
+
+        public void setOk(boolean ok) {
+            this.ok = ok;
+        }
+    }
+
+    /**
+     * 多个线程同时第一次获取同一批类的编解码器，每个槽位只能生成一个实例，所有线程拿到的实例必须相同
+     */
+    @Test
+    public void testConcurrentFirstUse() throws Exception {
+        Class<?>[] classes = {ColdPojo1.class, ColdPojo2.class, ColdPojo3.class};
+        DataType[] dataTypes = DataType.values();
+        JsonVersion[] versions = JsonVersion.values();
+        int perClass = dataTypes.length * versions.length + 2;
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(pool.submit(() -> {
+                    Object[] codecs = new Object[classes.length * perClass];
+                    barrier.await(10, TimeUnit.SECONDS);
+                    JsonCodecRegister register = JsonCodecRegister.instance();
+                    // 每个线程从不同的类开始，增加同一时刻不同槽位交叉初始化的机会
+                    for (int i = 0; i < classes.length; i++) {
+                        int c = (i + offset) % classes.length;
+                        int pos = c * perClass;
+                        for (JsonVersion version : versions) {
+                            for (DataType dataType : dataTypes) {
+                                codecs[pos++] = register.getDecoder(classes[c], dataType, version);
+                            }
+                        }
+                        codecs[pos++] = register.getEncoder(classes[c]);
+                        codecs[pos] = register.getMapBeanDecoder(classes[c]);
+                    }
+                    return codecs;
+                }));
+            }
+            Object[] first = futures.get(0).get(60, TimeUnit.SECONDS);
+            for (Object codec : first) {
+                assertNotNull(codec);
+            }
+            for (int t = 1; t < THREADS; t++) {
+                Object[] codecs = futures.get(t).get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < first.length; i++) {
+                    assertSame(first[i], codecs[i], "thread " + t + " slot " + i);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        JsonCodecRegister register = JsonCodecRegister.instance();
+        String json = "{\"name\":\"edap\",\"age\":18}";
+        JsonDecoder<ColdPojo1> decoder = register.getDecoder(ColdPojo1.class, DataType.STRING);
+        assertSame(decoder, register.getDecoder(ColdPojo1.class, DataType.STRING, JsonVersion.JSON));
+        ColdPojo1 pojo = decoder.decode(new StringJsonReader(json));
+        assertEquals("edap", pojo.getName());
+        assertEquals(18, pojo.getAge());
+        pojo = register.getDecoder(ColdPojo1.class, DataType.BYTE_ARRAY)
+                .decode(new ByteArrayJsonReader(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("edap", pojo.getName());
+        assertEquals(18, pojo.getAge());
+        assertNotSame(register.getDecoder(ColdPojo1.class, DataType.STRING),
+                register.getDecoder(ColdPojo1.class, DataType.BYTE_ARRAY));
+    }
+
+    @Test
+    public void testBuiltinEncoders() {
+        JsonEncoder<String> encoder = JsonCodecRegister.instance().getEncoder(String.class);
+        assertSame(encoder, JsonCodecRegister.instance().getEncoder(String.class));
+        MapBeanDecoder<ColdPojo2> decoder = JsonCodecRegister.instance().getMapBeanDecoder(ColdPojo2.class);
+        assertSame(decoder, JsonCodecRegister.instance().getMapBeanDecoder(ColdPojo2.class));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test;
+
+import io.edap.json.ByteArrayJson5Reader;
+import io.edap.json.Eson;
+import io.edap.json.JsonKeyTable;
+import io.edap.json.StringJson5Reader;
+import io.edap.json.test.model.DemoPojo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJsonKeyTable {
+
+    private static void assertTable(String... keys) {
+        JsonKeyTable table = new JsonKeyTable(keys);
+        assertEquals(keys.length, table.size());
+        for (int i = 0; i < keys.length; i++) {
+            byte[] bs = ("x\"" + keys[i] + "\"").getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, table.indexOf(bs, 2, bs.length - 3), keys[i]);
+            assertEquals(i, table.indexOf("x\"" + keys[i] + "\"", 2, keys[i].length()), keys[i]);
+            assertEquals(i, table.indexOf(keys[i]), keys[i]);
+            assertEquals(-1, table.indexOf(keys[i] + "_"), keys[i]);
+            assertEquals(-1, table.indexOf("_" + keys[i]), keys[i]);
+        }
+        assertEquals(-1, table.indexOf(""));
+    }
+
+    @Test
+    public void testIndexOf() {
+        assertTable();
+        assertTable("name");
+        assertTable("name", "age", "old", "balance", "integral", "children");
+        assertTable("a", "b", "c", "ab", "ba", "abc", "cba");
+        assertTable("userName", "userNamf", "userAge", "userAgf", "userId", "userIds");
+        assertTable("名称", "年龄", "name");
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("field" + i);
+        }
+        assertTable(keys.toArray(new String[0]));
+
+        keys.clear();
+        for (int i = 0; i < 64; i++) {
+            keys.add("prefix_" + i + "_suffix");
+        }
+        JsonKeyTable table = new JsonKeyTable(keys.toArray(new String[0]));
+        assertTrue(table.capacity() <= 64 * 16);
+        assertTable(keys.toArray(new String[0]));
+
+        // 前后16个字节相同，只能使用所有字节计算哈希
+        assertTable("prefix_prefix_prefix_a_suffix_suffix", "prefix_prefix_prefix_b_suffix_suffix",
+                "aaaaaaaaa", "aaaaaaaaaa", "aaaaaaaaaaa");
+        table = new JsonKeyTable("orderCreateTime");
+        byte[] bs = "orderCreateTime".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0, table.indexOf(bs, 0, bs.length));
+        assertEquals(-1, table.indexOf(bs, 0, bs.length - 1));
+        assertEquals(-1, table.indexOf(bs, 1, bs.length - 1));
+
+        assertThrows(IllegalArgumentException.class, () -> new JsonKeyTable("a", "a"));
+    }
+
+    @Test
+    public void testDecode() {
+        String json = "{\"unknown\":{\"name\":\"x\",\"list\":[1,2]},\"age\":30,\"na\\u006de\":\"alice\","
+                + "\"old\":true,\"nam\":\"y\",\"integ\\u0072al\":9000000000, \"balance\" :1.5,\"names\":\"z\","
+                + "\"a\\\"b\":1,\"\\\\\":2}";
+        DemoPojo pojo = Eson.parseObject(json, DemoPojo.class);
+        assertEquals("alice", pojo.getName());
+        assertEquals(30, pojo.getAge());
+        assertTrue(pojo.isOld());
+        assertEquals(9000000000L, pojo.getIntegral());
+        assertEquals(1.5, pojo.getBalance());
+
+        pojo = Eson.parseObject(json.getBytes(StandardCharsets.UTF_8), DemoPojo.class);
+        assertEquals("alice", pojo.getName());
+        assertEquals(30, pojo.getAge());
+        assertTrue(pojo.isOld());
+        assertEquals(9000000000L, pojo.getIntegral());
+        assertEquals(1.5, pojo.getBalance());
+    }
+
+    @Test
+    public void testDecodeJson5() throws Exception {
+        String json = "{name:\"alice\", 'age' : 30, \"old\":true, other:1, integral :9000000000}";
+        DemoPojo pojo = new StringJson5Reader(json).readObject(DemoPojo.class);
+        assertEquals("alice", pojo.getName());
+        assertEquals(30, pojo.getAge());
+        assertTrue(pojo.isOld());
+        assertEquals(9000000000L, pojo.getIntegral());
+
+        pojo = new ByteArrayJson5Reader(json.getBytes(StandardCharsets.UTF_8)).readObject(DemoPojo.class);
+        assertEquals("alice", pojo.getName());
+        assertEquals(30, pojo.getAge());
+        assertTrue(pojo.isOld());
+        assertEquals(9000000000L, pojo.getIntegral());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test;
+
+import io.edap.json.Eson;
+import io.edap.json.JsonObject;
+import io.edap.json.JsonParseException;
+import io.edap.json.LazyJsonArray;
+import io.edap.json.test.model.DemoPojo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLazyJsonObject {
+
+    private static final String JSON = "{\n"
+            + "  \"id\" : 9000000001, \"name\":\"edap\\t\\\"json\\\" \\u4e2d\", \"中文\": \"值\",\n"
+            + "  \"price\": -12.5e1, \"count\": -3, \"ok\": true, \"none\": null, \"big\": 123456789012345678901,\n"
+            + "  \"tags\": [\"a\", 1, 2.5, false, null, {\"x\": 1}, []],\n"
+            + "  \"owner\": {\"name\": \"louis\", \"address\": {\"city\": \"hz\"}},\n"
+            + "  \"empty\": {}\n"
+            + "}";
+
+    private static JsonObject parse(String json) {
+        return Eson.parseLazyJsonObject(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGet() {
+        JsonObject jo = parse(JSON);
+        assertEquals(11, jo.size());
+        assertEquals(9000000001L, jo.getLongValue("id"));
+        assertEquals(9000000001L, jo.get("id"));
+        assertEquals("edap\t\"json\" 中", jo.getString("name"));
+        assertEquals("值", jo.getString("中文"));
+        assertEquals(-125.0, jo.getDoubleValue("price"));
+        assertEquals(-3, jo.getIntValue("count"));
+        assertTrue(jo.getBooleanValue("ok"));
+        assertTrue(jo.containsKey("none"));
+        assertNull(jo.get("none"));
+        assertNull(jo.get("missing"));
+        assertFalse(jo.containsKey("missing"));
+        assertEquals(new BigDecimal("123456789012345678901"), jo.get("big"));
+        assertSame(jo.get("name"), jo.get("name"));
+
+        List<Object> tags = (List<Object>) jo.get("tags");
+        assertEquals(7, tags.size());
+        assertEquals("a", tags.get(0));
+        assertEquals(1L, tags.get(1));
+        assertEquals(2.5, tags.get(2));
+        assertEquals(false, tags.get(3));
+        assertNull(tags.get(4));
+        assertEquals(1, ((LazyJsonArray) tags).getJsonObject(5).getIntValue("x"));
+        assertTrue(((List<?>) tags.get(6)).isEmpty());
+
+        assertEquals("louis", jo.getJsonObject("owner").getString("name"));
+        assertEquals("hz", jo.getByPath("owner.address.city"));
+        assertTrue(jo.getJsonObject("empty").isEmpty());
+    }
+
+    @Test
+    public void testSameAsEagerParse() {
+        DemoPojo pojo = new DemoPojo();
+        pojo.setName("alice");
+        pojo.setAge(30);
+        pojo.setOld(true);
+        pojo.setIntegral(9_000_000_000L);
+        byte[] json = Eson.toJsonString(pojo).getBytes(StandardCharsets.UTF_8);
+
+        JsonObject eager = Eson.parseJsonObject(json);
+        JsonObject lazy = Eson.parseLazyJsonObject(json);
+        assertEquals(eager.keySet(), lazy.keySet());
+        for (String key : eager.keySet()) {
+            assertEquals(eager.get(key), lazy.get(key), key);
+        }
+        assertEquals(((Number) eager.get("age")).intValue(), lazy.getIntValue("age"));
+
+        DemoPojo child = new DemoPojo();
+        child.setName("bob");
+        pojo.setChildren(Arrays.asList(child));
+        lazy = Eson.parseLazyJsonObject(Eson.toJsonString(pojo).getBytes(StandardCharsets.UTF_8));
+        Map<String, Object> lazyChild = (Map<String, Object>) ((List<?>) lazy.get("children")).get(0);
+        assertEquals("bob", lazyChild.get("name"));
+        assertEquals(pojo.getName(), Eson.toBean(lazy, DemoPojo.class).getName());
+    }
+
+    @Test
+    public void testModify() {
+        JsonObject jo = parse("{\"a\":1,\"b\":\"x\",\"a\":2}");
+        assertEquals(2L, jo.get("a"));
+        jo.put("c", "y");
+        jo.remove("b");
+        assertEquals(2L, jo.get("a"));
+        assertEquals("y", jo.getString("c"));
+        assertFalse(jo.containsKey("b"));
+        assertEquals(2, jo.size());
+    }
+
+    @Test
+    public void testOffset() {
+        byte[] data = ("xx{\"a\":[1,2]}yy").getBytes(StandardCharsets.UTF_8);
+        JsonObject jo = Eson.parseLazyJsonObject(data, 2, data.length - 4);
+        assertEquals(Arrays.asList(1L, 2L), jo.get("a"));
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] invalids = {"", "[1]", "{", "{\"a\"}", "{\"a\":}", "{\"a\":1,}", "{\"a\":tru}", "{\"a\":\"x}",
+                "{\"a\":[1 2]}", "{\"a\":1} x", "{a:1}"};
+        for (String json : invalids) {
+            assertThrows(JsonParseException.class, () -> parse(json), json);
+        }
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            deep.append("{\"a\":");
+        }
+        assertThrows(JsonParseException.class, () -> parse(deep.toString()));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.json.Eson;
+import io.edap.json.JsonObject;
+import io.edap.json.JsonParseException;
+import io.edap.json.StreamJsonReader;
+import io.edap.json.test.model.DemoPojo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStreamJsonReader {
+
+    private static DemoPojo demo(int i) {
+        DemoPojo pojo = new DemoPojo();
+        StringBuilder name = new StringBuilder("name-").append(i).append("-中文\\\"");
+        for (int j = 0; j < i % 7 * 20; j++) {
+            name.append((char) ('a' + j % 26));
+        }
+        pojo.setName(name.toString());
+        pojo.setAge(i);
+        pojo.setOld(i % 2 == 0);
+        pojo.setBalance(i + 0.5);
+        pojo.setIntegral(9_000_000_000L + i);
+        DemoPojo child = new DemoPojo();
+        child.setName("child-" + i);
+        child.setAge(-i);
+        pojo.setChildren(Arrays.asList(child));
+        return pojo;
+    }
+
+    private static void assertPojo(DemoPojo expect, DemoPojo actual) {
+        assertEquals(expect.getName(), actual.getName());
+        assertEquals(expect.getAge(), actual.getAge());
+        assertEquals(expect.isOld(), actual.isOld());
+        assertEquals(expect.getBalance(), actual.getBalance(), 0.0001);
+        assertEquals(expect.getIntegral(), actual.getIntegral());
+        assertEquals(1, actual.getChildren().size());
+        assertEquals(expect.getChildren().get(0).getName(), actual.getChildren().get(0).getName());
+        assertEquals(expect.getChildren().get(0).getAge(), actual.getChildren().get(0).getAge());
+    }
+
+    /**
+     * 每次只返回一个字节的输入流，使每个token都跨越多次读取
+     */
+    private static InputStream trickle(byte[] data) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    @Test
+    public void testParseObject() {
+        DemoPojo pojo = demo(13);
+        byte[] data = ("  \n" + Eson.toJsonString(pojo) + "\n").getBytes(StandardCharsets.UTF_8);
+        assertPojo(pojo, Eson.parseObject(new ByteArrayInputStream(data), DemoPojo.class));
+        assertPojo(pojo, parse(trickle(data)));
+    }
+
+    private static DemoPojo parse(InputStream in) {
+        try {
+            return new StreamJsonReader(in, 16).readObject(DemoPojo.class);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testNdjson() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(Eson.toJsonString(demo(i))).append('\n');
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+        List<DemoPojo> list = new ArrayList<>();
+        try (StreamJsonReader reader = new StreamJsonReader(Channels.newChannel(new ByteArrayInputStream(data)), 64)) {
+            reader.forEach(DemoPojo.class, list::add);
+            assertFalse(reader.hasNext());
+        }
+        assertEquals(200, list.size());
+        for (int i = 0; i < 200; i++) {
+            assertPojo(demo(i), list.get(i));
+        }
+
+        List<DemoPojo> items = new ArrayList<>();
+        StreamJsonReader reader = new StreamJsonReader(trickle(data), 32);
+        while (reader.hasNext()) {
+            items.add(reader.readObject(DemoPojo.class));
+        }
+        assertEquals(200, items.size());
+        assertPojo(demo(199), items.get(199));
+    }
+
+    @Test
+    public void testArrayFromFastBufSegments() {
+        List<DemoPojo> pojos = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            pojos.add(demo(i));
+        }
+        byte[] data = Eson.toJsonString(pojos).getBytes(StandardCharsets.UTF_8);
+        List<FastBuf> segments = new ArrayList<>();
+        for (int off = 0; off < data.length; off += 100) {
+            FastBuf buf = new FastBuf(100);
+            buf.write(data, off, Math.min(100, data.length - off));
+            segments.add(buf);
+        }
+        segments.add(1, new FastBuf(16));
+
+        List<DemoPojo> list = new ArrayList<>();
+        new StreamJsonReader(segments.iterator(), 16).forEach(DemoPojo.class, list::add);
+        assertEquals(50, list.size());
+        for (int i = 0; i < 50; i++) {
+            assertPojo(pojos.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void testReadUntyped() {
+        String json = "{\"a\" : \"x\\ty\" , \"b\":[1, -2.5, true, null], \"long\":\""
+                + "0123456789".repeat(20) + "\", \"d\" : 123456789012, \"e\": {\"c\" : false}}";
+        JsonObject jo = Eson.parseJsonObject(trickle(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("x\ty", jo.getString("a"));
+        List<Object> b = (List<Object>) jo.get("b");
+        assertEquals(4, b.size());
+        assertEquals(1L, ((Number) b.get(0)).longValue());
+        assertEquals(-2.5, ((Number) b.get(1)).doubleValue());
+        assertEquals(Boolean.TRUE, b.get(2));
+        assertNull(b.get(3));
+        assertEquals(200, jo.getString("long").length());
+        assertEquals(123456789012L, ((Number) jo.get("d")).longValue());
+        assertEquals(Boolean.FALSE, jo.getJsonObject("e").get("c"));
+    }
+
+    @Test
+    public void testSkipUnknownField() {
+        String json = "{\"unknown\": {\"x\": [1, \"a,]}\", 3]}, \"name\":\"n\", \"skip\" : 12.5e3 , \"age\": 7}";
+        DemoPojo pojo = parse(trickle(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("n", pojo.getName());
+        assertEquals(7, pojo.getAge());
+    }
+
+    @Test
+    public void testUnclosed() {
+        byte[] data = "{\"name\":\"abc".getBytes(StandardCharsets.UTF_8);
+        assertThrows(JsonParseException.class, () -> Eson.parseObject(trickle(data), DemoPojo.class));
+        assertThrows(UnsupportedOperationException.class, () -> new StreamJsonReader(trickle(data)).reset());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test.perf;
+
+import eje.com.jsoniter.benchmark.with_10_int_fields.TestObject;
+import eje.com.jsoniter.benchmark.with_10_int_fields.TestObjectHashDecoder;
+import io.edap.json.ByteArrayJsonReader;
+import io.edap.json.Eson;
+import io.edap.json.JsonCodecRegister;
+import io.edap.json.JsonDecoder;
+import io.edap.json.StringJsonReader;
+import io.edap.json.enums.DataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成的解码器使用字段名完美哈希加tableswitch分发，和对整个key计算哈希后lookupswitch分发的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class KeyDispatchTest {
+
+    private String json;
+    private byte[] bytes;
+    private JsonDecoder<TestObject> bytesDecoder;
+    private JsonDecoder<TestObject> stringDecoder;
+    private TestObjectHashDecoder hashDecoder;
+
+    @Setup
+    public void setup() {
+        json = Eson.toJsonString(TestObject.createTestObject());
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+        bytesDecoder = JsonCodecRegister.instance().getDecoder(TestObject.class, DataType.BYTE_ARRAY);
+        stringDecoder = JsonCodecRegister.instance().getDecoder(TestObject.class, DataType.STRING);
+        hashDecoder = new TestObjectHashDecoder();
+    }
+
+    @Benchmark
+    public TestObject perfectHashBytes() throws Exception {
+        return bytesDecoder.decode(new ByteArrayJsonReader(bytes));
+    }
+
+    @Benchmark
+    public TestObject keyHashBytes() {
+        return hashDecoder.decode(new ByteArrayJsonReader(bytes));
+    }
+
+    @Benchmark
+    public TestObject perfectHashString() throws Exception {
+        return stringDecoder.decode(new StringJsonReader(json));
+    }
+
+    @Benchmark
+    public TestObject keyHashString() {
+        return hashDecoder.decode(new StringJsonReader(json));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(KeyDispatchTest.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.json.test.perf;
+
+import io.edap.json.Eson;
+import io.edap.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关读取少量字段的场景下，延迟解码和完整解析的耗时以及内存分配对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LazyJsonObjectTest {
+
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"service\":\"order\",\"method\":\"create\",\"items\":[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"sku\":\"sku-").append(i).append("\",\"count\":").append(i)
+                    .append(",\"price\":").append(i).append(".5,\"remark\":\"remark ").append(i).append("\"}");
+        }
+        sb.append("],\"userId\":123456789}");
+        json = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long eager() {
+        JsonObject jo = Eson.parseJsonObject(json);
+        return jo.getString("service").length() + jo.getLongValue("userId");
+    }
+
+    @Benchmark
+    public long lazy() {
+        JsonObject jo = Eson.parseLazyJsonObject(json);
+        return jo.getString("service").length() + jo.getLongValue("userId");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(LazyJsonObjectTest.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
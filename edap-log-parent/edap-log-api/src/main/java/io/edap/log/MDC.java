@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log;
+
+import java.util.Map;
+
+/**
+ * 线程的诊断上下文（Mapped Diagnostic Context），例如请求的traceId等。每个线程保存一个不可修改的
+ * {@link MDCContext}，put和remove时替换为新的上下文，输出日志时事件只需要保存当前上下文的引用，异步输出时也不
+ * 需要复制上下文。
+ */
+public final class MDC {
+
+    private static final ThreadLocal<MDCContext> CONTEXT = ThreadLocal.withInitial(() -> MDCContext.EMPTY);
+
+    private MDC() {}
+
+    public static void put(String key, Object value) {
+        CONTEXT.set(CONTEXT.get().with(key, value));
+    }
+
+    /**
+     * 设置键值并返回一个AutoCloseable，在try-with-resources结束时恢复该键之前的值
+     * @param key 键
+     * @param value 值
+     * @return 关闭时恢复之前值的对象
+     */
+    public static MDCCloseable putCloseable(String key, Object value) {
+        MDCContext context = CONTEXT.get();
+        Object old = context.get(key);
+        CONTEXT.set(context.with(key, value));
+        return () -> put(key, old);
+    }
+
+    public static Object get(String key) {
+        return CONTEXT.get().get(key);
+    }
+
+    public static void remove(String key) {
+        CONTEXT.set(CONTEXT.get().without(key));
+    }
+
+    public static void clear() {
+        CONTEXT.set(MDCContext.EMPTY);
+    }
+
+    /**
+     * 获取当前线程的上下文，返回的上下文不可修改，也不会受之后put和remove的影响
+     * @return 当前线程的上下文
+     */
+    public static MDCContext getContext() {
+        return CONTEXT.get();
+    }
+
+    /**
+     * 设置当前线程的上下文，通常用于将提交任务线程的上下文传递给执行任务的线程
+     * @param context 上下文，为null时清空
+     */
+    public static void setContext(Map<String, ?> context) {
+        CONTEXT.set(MDCContext.of(context));
+    }
+
+    /**
+     * 恢复MDC键值的AutoCloseable，close时不抛出异常
+     */
+    @FunctionalInterface
+    public interface MDCCloseable extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * MDC的上下文，创建后不可修改的Map。修改时返回一个新的上下文，原来的上下文不受影响，所以日志事件保存上下文时只需
+ * 要保存引用，不需要复制。MDC中的键通常只有几个，所以使用键值交替存放的数组，查找时顺序比较键。
+ */
+public final class MDCContext extends AbstractMap<String, Object> {
+
+    public static final MDCContext EMPTY = new MDCContext(new Object[0]);
+
+    /**
+     * 键值交替存放的数组，偶数下标为键，奇数下标为值
+     */
+    private final Object[] kvs;
+
+    private Set<Entry<String, Object>> entrySet;
+
+    private MDCContext(Object[] kvs) {
+        this.kvs = kvs;
+    }
+
+    /**
+     * 由Map创建上下文，值为null的键被忽略
+     * @param map 键值对
+     * @return 包含map中所有键值的上下文
+     */
+    public static MDCContext of(Map<String, ?> map) {
+        if (map instanceof MDCContext) {
+            return (MDCContext) map;
+        }
+        MDCContext context = EMPTY;
+        if (map != null) {
+            for (Entry<String, ?> e : map.entrySet()) {
+                context = context.with(e.getKey(), e.getValue());
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 返回设置了key的值后的上下文，当前的上下文不变
+     * @param key 键
+     * @param value 值，为null时等同于{@link #without(String)}
+     * @return 新的上下文，值没有变化时返回当前上下文
+     */
+    public MDCContext with(String key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        if (value == null) {
+            return without(key);
+        }
+        int index = indexOf(key);
+        Object[] n;
+        if (index >= 0) {
+            if (kvs[index + 1] == value) {
+                return this;
+            }
+            n = kvs.clone();
+        } else {
+            index = kvs.length;
+            n = new Object[kvs.length + 2];
+            System.arraycopy(kvs, 0, n, 0, kvs.length);
+            n[index] = key;
+        }
+        n[index + 1] = value;
+        return new MDCContext(n);
+    }
+
+    /**
+     * 返回删除了key后的上下文，当前的上下文不变
+     * @param key 键
+     * @return 新的上下文，没有该键时返回当前上下文
+     */
+    public MDCContext without(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        if (kvs.length == 2) {
+            return EMPTY;
+        }
+        Object[] n = new Object[kvs.length - 2];
+        System.arraycopy(kvs, 0, n, 0, index);
+        System.arraycopy(kvs, index + 2, n, index, kvs.length - index - 2);
+        return new MDCContext(n);
+    }
+
+    private int indexOf(Object key) {
+        Object[] kvs = this.kvs;
+        for (int i = 0; i < kvs.length; i += 2) {
+            if (kvs[i] == key || kvs[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : kvs[index + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return kvs.length >> 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return kvs.length == 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Set<Entry<String, Object>> es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<Entry<String, Object>>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < kvs.length;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (index >= kvs.length) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, Object> e = new SimpleImmutableEntry<>((String) kvs[index], kvs[index + 1]);
+                    index += 2;
+                    return e;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return kvs.length >> 1;
+        }
+    }
+}
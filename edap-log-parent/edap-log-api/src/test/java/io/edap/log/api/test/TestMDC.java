@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 The edap Project
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ *  with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package io.edap.log.api.test;
+
+import io.edap.log.MDC;
+import io.edap.log.MDCContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMDC {
+
+    @AfterEach
+    public void clear() {
+        MDC.clear();
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        assertSame(MDCContext.EMPTY, MDC.getContext());
+        MDC.put("traceId", "t-1");
+        MDC.put("userId", 42L);
+        assertEquals("t-1", MDC.get("traceId"));
+        assertEquals(42L, MDC.get("userId"));
+
+        MDC.put("traceId", "t-2");
+        assertEquals("t-2", MDC.get("traceId"));
+        assertEquals(2, MDC.getContext().size());
+
+        MDC.put("userId", null);
+        assertFalse(MDC.getContext().containsKey("userId"));
+        MDC.remove("traceId");
+        assertNull(MDC.get("traceId"));
+        assertSame(MDCContext.EMPTY, MDC.getContext());
+        assertThrows(IllegalArgumentException.class, () -> MDC.put(null, "v"));
+    }
+
+    @Test
+    public void testSnapshot() {
+        MDC.put("traceId", "t-1");
+        MDC.put("spanId", "s-1");
+        MDCContext snapshot = MDC.getContext();
+        assertSame(snapshot, MDC.getContext());
+
+        MDC.put("traceId", "t-2");
+        MDC.remove("spanId");
+        // 之前获取的上下文不受修改的影响
+        assertEquals("t-1", snapshot.get("traceId"));
+        assertEquals("s-1", snapshot.get("spanId"));
+        assertEquals(2, snapshot.size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("a", "b"));
+        assertThrows(UnsupportedOperationException.class, snapshot::clear);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("traceId", "t-1");
+        expected.put("spanId", "s-1");
+        assertEquals(expected, snapshot);
+        assertEquals(expected.hashCode(), snapshot.hashCode());
+        assertEquals("{traceId=t-1, spanId=s-1}", snapshot.toString());
+    }
+
+    @Test
+    public void testCloseable() {
+        MDC.put("traceId", "outer");
+        try (MDC.MDCCloseable ignored = MDC.putCloseable("traceId", "inner")) {
+            assertEquals("inner", MDC.get("traceId"));
+            try (MDC.MDCCloseable ignored2 = MDC.putCloseable("spanId", "s")) {
+                assertEquals("s", MDC.get("spanId"));
+            }
+            assertFalse(MDC.getContext().containsKey("spanId"));
+        }
+        assertEquals("outer", MDC.get("traceId"));
+    }
+
+    @Test
+    public void testThreadIsolation() throws InterruptedException {
+        MDC.put("traceId", "main");
+        MDCContext parent = MDC.getContext();
+        AtomicReference<Object> child = new AtomicReference<>();
+        AtomicReference<Object> inherited = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            child.set(MDC.get("traceId"));
+            MDC.setContext(parent);
+            inherited.set(MDC.get("traceId"));
+            MDC.put("traceId", "child");
+        });
+        t.start();
+        t.join();
+        assertNull(child.get());
+        assertEquals("main", inherited.get());
+        assertEquals("main", MDC.get("traceId"));
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("a", "1");
+        map.put("b", null);
+        MDC.setContext(map);
+        assertEquals(1, MDC.getContext().size());
+        MDC.setContext(null);
+        assertSame(MDCContext.EMPTY, MDC.getContext());
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.edap.log;
 
+import io.edap.util.ByteArrayBuilder;
+
 import java.util.function.*;
 
 import static io.edap.log.Logger.MAX_ARGS;
@@ -26,13 +28,32 @@ import static io.edap.log.Logger.MAX_ARGS;
  */
 public class LogArgsImpl implements LogArgs {
 
+    /**
+     * 参数的类型，基本类型的参数保存在primitives中，编码时直接写入不需要装箱
+     */
+    public static final byte ARG_OBJECT  = 0;
+    public static final byte ARG_BOOLEAN = 1;
+    public static final byte ARG_BYTE    = 2;
+    public static final byte ARG_CHAR    = 3;
+    public static final byte ARG_SHORT   = 4;
+    public static final byte ARG_INT     = 5;
+    public static final byte ARG_LONG    = 6;
+    public static final byte ARG_FLOAT   = 7;
+    public static final byte ARG_DOUBLE  = 8;
+
     private       int        level;
     private       String     format;
     private       int        argc;
     private       Throwable  throwable;
     private       Appender[] appenders;
     private       String     loggerName;
+    /**
+     * 是否正在被同步输出的日志事件引用
+     */
+    private       boolean    bound;
     private final Object[]   argv       = new Object[MAX_ARGS];
+    private final long[]     primitives = new long[MAX_ARGS];
+    private final byte[]     argTypes   = new byte[MAX_ARGS];
 
     @Override
     public void reset() {
@@ -51,42 +72,42 @@ public class LogArgsImpl implements LogArgs {
 
     @Override
     public LogArgs arg(boolean arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_BOOLEAN, arg ? 1 : 0);
     }
 
     @Override
     public LogArgs arg(byte arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_BYTE, arg);
     }
 
     @Override
     public LogArgs arg(char arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_CHAR, arg);
     }
 
     @Override
     public LogArgs arg(short arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_SHORT, arg);
     }
 
     @Override
     public LogArgs arg(float arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_FLOAT, Float.floatToRawIntBits(arg));
     }
 
     @Override
     public LogArgs arg(int arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_INT, arg);
     }
 
     @Override
     public LogArgs arg(long arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_LONG, arg);
     }
 
     @Override
     public LogArgs arg(double arg) {
-        return appendArg(arg);
+        return appendPrimitive(ARG_DOUBLE, Double.doubleToRawLongBits(arg));
     }
 
     @Override
@@ -101,22 +122,22 @@ public class LogArgsImpl implements LogArgs {
 
     @Override
     public LogArgs arg(BooleanSupplier supplier) {
-        return appendArg(supplier.getAsBoolean());
+        return arg(supplier.getAsBoolean());
     }
 
     @Override
     public LogArgs arg(IntSupplier supplier) {
-        return appendArg(supplier.getAsInt());
+        return arg(supplier.getAsInt());
     }
 
     @Override
     public LogArgs arg(LongSupplier supplier) {
-        return appendArg(supplier.getAsLong());
+        return arg(supplier.getAsLong());
     }
 
     @Override
     public LogArgs arg(DoubleSupplier supplier) {
-        return appendArg(supplier.getAsDouble());
+        return arg(supplier.getAsDouble());
     }
 
     @Override
@@ -148,15 +169,124 @@ public class LogArgsImpl implements LogArgs {
         if (argc == MAX_ARGS) {
             throw new TooManyArgsException("Number of args cannot exceed " + MAX_ARGS);
         }
+        argTypes[argc] = ARG_OBJECT;
         argv[argc++] = arg;
         return this;
     }
 
+    private LogArgs appendPrimitive(byte type, long value) {
+        if (argc == MAX_ARGS) {
+            throw new TooManyArgsException("Number of args cannot exceed " + MAX_ARGS);
+        }
+        argTypes[argc] = type;
+        primitives[argc++] = value;
+        return this;
+    }
+
+    /**
+     * 获取指定位置参数的类型，为ARG_OBJECT时参数通过{@link #getArg(int)}获取
+     */
+    public byte getArgType(int index) {
+        return argTypes[index];
+    }
+
+    /**
+     * 获取基本类型参数的原始值，float和double为对应的bit位
+     */
+    public long getPrimitive(int index) {
+        return primitives[index];
+    }
+
+    /**
+     * 获取指定位置的参数，基本类型的参数返回装箱后的对象
+     */
+    public Object getArg(int index) {
+        long v = primitives[index];
+        switch (argTypes[index]) {
+            case ARG_BOOLEAN:
+                return v != 0;
+            case ARG_BYTE:
+                return (byte) v;
+            case ARG_CHAR:
+                return (char) v;
+            case ARG_SHORT:
+                return (short) v;
+            case ARG_INT:
+                return (int) v;
+            case ARG_LONG:
+                return v;
+            case ARG_FLOAT:
+                return Float.intBitsToFloat((int) v);
+            case ARG_DOUBLE:
+                return Double.longBitsToDouble(v);
+            default:
+                return argv[index];
+        }
+    }
+
+    /**
+     * 将指定位置的参数写入ByteArrayBuilder，基本类型的参数不装箱
+     */
+    public void appendArgTo(ByteArrayBuilder out, int index) {
+        long v = primitives[index];
+        switch (argTypes[index]) {
+            case ARG_BOOLEAN:
+                out.append(v != 0);
+                break;
+            case ARG_BYTE:
+            case ARG_SHORT:
+            case ARG_INT:
+                out.append((int) v);
+                break;
+            case ARG_LONG:
+                out.append(v);
+                break;
+            case ARG_CHAR:
+                if (v < 0x80) {
+                    out.append((byte) v);
+                } else {
+                    out.append(String.valueOf((char) v));
+                }
+                break;
+            case ARG_FLOAT:
+                out.append(Float.intBitsToFloat((int) v));
+                break;
+            case ARG_DOUBLE:
+                out.append(Double.longBitsToDouble(v));
+                break;
+            default:
+                out.append(argv[index]);
+        }
+    }
+
+    /**
+     * 复制参数到新的数组，有异常时异常作为最后一个元素，用于需要脱离调用线程保存参数的场景
+     */
+    public Object[] toArgv() {
+        int count = argc;
+        Object[] result = new Object[throwable != null ? count + 1 : count];
+        for (int i = 0; i < count; i++) {
+            result[i] = getArg(i);
+        }
+        if (throwable != null) {
+            result[count] = throwable;
+        }
+        return result;
+    }
+
     public int level() {
         return this.level;
     }
 
+    /**
+     * 返回参数数组，基本类型的参数在第一次调用时装箱后填充到数组中
+     */
     public Object[] getArgv() {
+        for (int i = 0; i < argc; i++) {
+            if (argTypes[i] != ARG_OBJECT && argv[i] == null) {
+                argv[i] = getArg(i);
+            }
+        }
         return argv;
     }
 
@@ -192,6 +322,14 @@ public class LogArgsImpl implements LogArgs {
         return appenders;
     }
 
+    public boolean isBound() {
+        return bound;
+    }
+
+    public void setBound(boolean bound) {
+        this.bound = bound;
+    }
+
     public void setAppenders(Appender[] appenders) {
         this.appenders = appenders;
     }
@@ -17,6 +17,8 @@
 package io.edap.log;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 日志文件压缩SPI定义
@@ -35,4 +37,21 @@ public interface LogCompression {
      * @param gzName
      */
     void compress(File plainName, File gzName);
+
+    /**
+     * 是否支持写入日志时压缩
+     * @return 支持时返回true
+     */
+    default boolean supportStream() {
+        return false;
+    }
+
+    /**
+     * 创建写入时压缩的输出流，flush时需要输出同步点，使已经写入的数据不需要等待文件结束即可解压
+     * @param out 压缩后数据的输出流
+     * @return 压缩的输出流
+     */
+    default OutputStream compressStream(OutputStream out) throws IOException {
+        throw new UnsupportedOperationException(getSuffix() + " not support stream compression");
+    }
 }
@@ -34,6 +34,10 @@ public class LogEvent {
 
     private StackTraceElement[] callerData;
     private Appender[] appenders;
+    /**
+     * 同步输出时指向调用线程的日志参数，编码器直接从中读取参数，不复制也不装箱。异步的事件为null
+     */
+    private LogArgsImpl logArgs;
 
     public long getLogTime() {
         return logTime;
@@ -76,6 +80,9 @@ public class LogEvent {
     }
 
     public Object[] getArgv() {
+        if (argv == null && logArgs != null) {
+            argv = logArgs.toArgv();
+        }
         return argv;
     }
 
@@ -122,4 +129,19 @@ public class LogEvent {
     public void setAppenders(Appender[] appenders) {
         this.appenders = appenders;
     }
+
+    public LogArgsImpl getLogArgs() {
+        return logArgs;
+    }
+
+    /**
+     * 是否为正在同步输出的事件，Appender输出的过程中该事件不能再用于其他日志
+     */
+    public boolean isBound() {
+        return logArgs != null;
+    }
+
+    public void setLogArgs(LogArgsImpl logArgs) {
+        this.logArgs = logArgs;
+    }
 }
@@ -17,14 +17,18 @@
 package io.edap.log;
 
 import io.edap.log.queue.LogEventQueue;
+import io.edap.util.ByteArrayBuilder;
 import io.edap.util.EdapTime;
 
 import java.io.IOException;
 import java.util.function.Consumer;
 
+import static io.edap.log.AbstractEncoder.LOCAL_BYTE_ARRAY_BUILDER;
 import static io.edap.log.LogLevel.*;
 import static io.edap.log.helpers.Util.printError;
+import static io.edap.log.queue.LogEventQueue.bindLogEvent;
 import static io.edap.log.queue.LogEventQueue.translateLogEvent;
+import static io.edap.log.queue.LogEventQueue.unbindLogEvent;
 
 public class LoggerImpl implements Logger {
 
@@ -38,6 +42,12 @@ public class LoggerImpl implements Logger {
 
     protected final ThreadLocal<LogArgsImpl> threadLocalArgs = ThreadLocal.withInitial(LogArgsImpl::new);
 
+    /**
+     * 同步输出时每个线程复用的日志事件，Appender不能在append返回后继续持有该事件。Appender输出的过程中再次
+     * 输出日志时（例如参数的toString中输出日志）该事件正在使用，这时使用新的事件
+     */
+    private static final ThreadLocal<LogEvent> LOCAL_LOG_EVENT = ThreadLocal.withInitial(LogEvent::new);
+
     public LoggerImpl(String name) {
         this.name = name;
         this.setAsync(false);
@@ -152,11 +162,42 @@ public class LoggerImpl implements Logger {
     }
 
     protected void syncFlush(LogArgsImpl logArgs) {
-        LogEvent logEvent = new LogEvent();
+        LogEvent logEvent = LOCAL_LOG_EVENT.get();
         logArgs.setLoggerName(name);
+        if (logEvent.isBound()) {
+            nestedFlush(logArgs);
+            return;
+        }
+        bindLogEvent(logEvent, logArgs);
+        try {
+            append(logEvent);
+        } finally {
+            unbindLogEvent(logEvent);
+            logArgs.reset();
+        }
+    }
+
+    /**
+     * 外层日志还在输出时再次输出日志，线程复用的事件以及编码缓存都在被外层使用，所以复制参数到新的事件，并在
+     * 输出期间为线程换上新的编码缓存，输出完成后恢复外层的编码缓存
+     */
+    private void nestedFlush(LogArgsImpl logArgs) {
+        LogEvent logEvent = new LogEvent();
         translateLogEvent(logEvent, logArgs);
-        if (appenders != null && appenders.length > 0) {
-            for (Appender appender : appenders) {
+        ByteArrayBuilder outer = LOCAL_BYTE_ARRAY_BUILDER.get();
+        LOCAL_BYTE_ARRAY_BUILDER.set(new ByteArrayBuilder());
+        try {
+            append(logEvent);
+        } finally {
+            LOCAL_BYTE_ARRAY_BUILDER.set(outer);
+            logArgs.reset();
+        }
+    }
+
+    private void append(LogEvent logEvent) {
+        Appender[] as = appenders;
+        if (as != null && as.length > 0) {
+            for (Appender appender : as) {
                 try {
                     appender.append(logEvent);
                 } catch (IOException e) {
@@ -164,7 +205,6 @@ public class LoggerImpl implements Logger {
                 }
             }
         }
-        logArgs.reset();
     }
 
     @Override
@@ -181,9 +221,17 @@ public class LoggerImpl implements Logger {
         this.level = level;
     }
 
+    /**
+     * 当前线程的日志参数，同一个Logger在输出日志的过程中再次输出日志时外层的参数还在使用，这时使用新的参数
+     */
+    private LogArgsImpl localArgs() {
+        LogArgsImpl logArgs = threadLocalArgs.get();
+        return logArgs.isBound() ? new LogArgsImpl() : logArgs;
+    }
+
     private void log(int level, Object message) {
         if (isEnabled(level)) {
-            LogArgsImpl logArgs = threadLocalArgs.get();
+            LogArgsImpl logArgs = localArgs();
             logArgs.level(level).message(message);
             flush(logArgs);
         }
@@ -191,7 +239,7 @@ public class LoggerImpl implements Logger {
 
     private void log(int level, String msg, Throwable cause) {
         if (isEnabled(level)) {
-            LogArgsImpl logArgs = threadLocalArgs.get();
+            LogArgsImpl logArgs = localArgs();
             logArgs.level(level).message(msg).threw(cause);
             flush(logArgs);
         }
@@ -199,7 +247,7 @@ public class LoggerImpl implements Logger {
 
     private void log(int level, String format, Consumer<LogArgs> logArgsConsumer) {
         if (isEnabled(level)) {
-            LogArgsImpl logArgs = threadLocalArgs.get();
+            LogArgsImpl logArgs = localArgs();
             logArgs.level(level).format(format);
             logArgsConsumer.accept(logArgs);
             flush(logArgs);
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.appenders;
+
+import io.edap.log.Encoder;
+import io.edap.log.binary.BinaryLogDecoder;
+import io.edap.log.binary.BinaryLogEncoder;
+import io.edap.util.ByteArrayBuilder;
+
+import java.io.IOException;
+
+import static io.edap.log.helpers.Util.printError;
+
+/**
+ * 以二进制格式记录日志的FileAppender，记录日志时不格式化日期和消息，查看日志时使用{@link BinaryLogDecoder}
+ * 渲染为文本。配置的encoder的pattern在写入时不使用，渲染时由BinaryLogDecoder指定。
+ */
+public class BinaryFileAppender extends FileAppender {
+
+    /**
+     * 上次写入时异步队列已丢弃的日志数，以及上次写入是否失败，只在持有lock时访问
+     */
+    private long seenDropped;
+    private boolean redefine;
+
+    public BinaryFileAppender() {
+        super.setEncoder(new BinaryLogEncoder());
+    }
+
+    @Override
+    public void setEncoder(Encoder encoder) {
+        if (encoder instanceof BinaryLogEncoder) {
+            super.setEncoder(encoder);
+        }
+    }
+
+    /**
+     * 打开文件后写入流的开始记录，追加到已有的文件时之前的字典在解码时同样会失效
+     */
+    @Override
+    public void openFile() {
+        super.openFile();
+        if (getOutputStream() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            ByteArrayBuilder builder = new ByteArrayBuilder(32);
+            ((BinaryLogEncoder) encoder).startStream(builder, System.currentTimeMillis());
+            writeData(builder);
+        } catch (IOException e) {
+            printError("BinaryFileAppender write stream header error", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 被丢弃或者写入失败的数据中可能有字典的定义，之后的日志仍会引用这些id，因此在写入下一段数据之前重新写入整个字典
+     */
+    @Override
+    protected void writeLocked(ByteArrayBuilder data) throws IOException {
+        long dropped = queue == null ? 0 : queue.getDroppedCount();
+        try {
+            if (redefine || dropped != seenDropped) {
+                ByteArrayBuilder defines = new ByteArrayBuilder(4096);
+                ((BinaryLogEncoder) encoder).writeDictionary(defines);
+                super.writeLocked(defines);
+                seenDropped = dropped;
+                redefine = false;
+            }
+            super.writeLocked(data);
+        } catch (IOException e) {
+            redefine = true;
+            throw e;
+        }
+    }
+}
@@ -48,11 +48,6 @@ public class ConsoleAppender extends OutputStremAppender {
             default:
                 setOutputStream(new BaseLogOutputStream(System.out));
         }
-        if (async) {
-            queue.setEventHandler((builder, l, b) -> {});
-            queue.start();
-        }
-
         super.start();
     }
 
@@ -80,16 +80,6 @@ public class FileAppender extends OutputStremAppender {
             return;
         }
         openFile();
-        if (async) {
-            queue.setEventHandler((event, l, b) -> {
-                if (prudent) {
-                    safeWrite(event.getByteArrayBuilder());
-                } else {
-                    super.lockFreeWriteData(event.getByteArrayBuilder());
-                }
-            });
-            queue.start();
-        }
         super.start();
     }
 
@@ -102,11 +92,11 @@ public class FileAppender extends OutputStremAppender {
             BufferedOutputStream bufOut;
             try {
                 FileOutputStream fos = new FileOutputStream(fileName, append);
-                bufOut = new BufferedOutputStream(fos, bufferSize);
+                bufOut = new BufferedOutputStream(wrapOutputStream(fos), bufferSize);
                 fileChannel = fos.getChannel();
                 super.setOutputStream(new BaseLogOutputStream(bufOut));
                 super.start();
-            } catch (FileNotFoundException e) {
+            } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         } catch (Throwable t) {
@@ -116,6 +106,15 @@ public class FileAppender extends OutputStremAppender {
         }
     }
 
+    /**
+     * 包装日志文件的输出流，子类可以在数据写入文件前进行处理，例如写入时压缩
+     * @param out 日志文件的输出流
+     * @return 写入日志数据的输出流
+     */
+    protected OutputStream wrapOutputStream(OutputStream out) throws IOException {
+        return out;
+    }
+
     private boolean checkAndCreateFile() {
         File f = new File(fileName);
         if (f.exists()) {
@@ -140,13 +139,6 @@ public class FileAppender extends OutputStremAppender {
         }
     }
 
-    private void asyncAppend(LogEvent logEvent) throws IOException {
-        ByteArrayBuilder builder = LOCAL_BYTE_ARRAY_BUILDER.get();
-        builder.reset();
-        encoder.encode(logEvent, builder);
-        queue.publish(builder);
-    }
-
     private void syncAppend(LogEvent logEvent) throws IOException {
         ByteArrayBuilder builder = encoder.encode(logEvent);
         if (prudent) {
@@ -161,6 +153,10 @@ public class FileAppender extends OutputStremAppender {
         if (CollectionUtils.isEmpty(logEvents)) {
             return;
         }
+        if (async) {
+            super.batchAppend(logEvents);
+            return;
+        }
         int count = logEvents.size();
         ByteArrayBuilder builder = LOCAL_BYTE_ARRAY_BUILDER.get();
         builder.reset();
@@ -174,6 +170,15 @@ public class FileAppender extends OutputStremAppender {
         }
     }
 
+    @Override
+    public void writeBatch(ByteArrayBuilder batch) throws IOException {
+        if (prudent) {
+            safeWrite(batch);
+        } else {
+            super.writeBatch(batch);
+        }
+    }
+
     public void safeWrite(ByteArrayBuilder builder) throws IOException {
         if (fileChannel == null || encoder == null) {
             return;
@@ -20,6 +20,7 @@ import io.edap.log.*;
 import io.edap.util.ByteArrayBuilder;
 import io.edap.log.io.BaseLogOutputStream;
 import io.edap.log.queue.LogDataQueue;
+import io.edap.log.queue.LogDataSink;
 import io.edap.util.CollectionUtils;
 
 import java.io.IOException;
@@ -29,7 +30,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import static io.edap.log.AbstractEncoder.LOCAL_BYTE_ARRAY_BUILDER;
 import static io.edap.log.helpers.Util.printError;
 
-public abstract class OutputStremAppender implements Appender {
+public abstract class OutputStremAppender implements Appender, LogDataSink {
 
     protected final ReentrantLock lock = new ReentrantLock(false);
 
@@ -50,6 +51,11 @@ public abstract class OutputStremAppender implements Appender {
 
     protected static final AppenderManager APPENDER_MANAGER = AppenderManager.instance();
 
+    /**
+     * 停止时等待异步队列中日志数据写入的最长毫秒数
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 3000;
+
 
     public ReentrantLock getCompressLock() {
         return compressLock;
@@ -74,21 +80,27 @@ public abstract class OutputStremAppender implements Appender {
             return;
         }
         if (async) {
-
+            asyncAppend(logEvent);
         } else {
             syncAppend(logEvent);
         }
     }
 
-    private void asyncAppend(LogEvent logEvent) {
+    /**
+     * 在调用线程编码日志后发布到异步队列，由队列的消费线程合并后写入
+     * @param logEvent 日志事件
+     */
+    protected void asyncAppend(LogEvent logEvent) {
         ByteArrayBuilder builder = LOCAL_BYTE_ARRAY_BUILDER.get();
         builder.reset();
         encoder.encode(logEvent, builder);
-        queue.publish(builder);
+        queue.publish(this, logEvent.getLevel(), builder);
     }
 
     private void syncAppend(LogEvent logEvent) throws IOException {
-        ByteArrayBuilder builder = encoder.encode(logEvent);
+        ByteArrayBuilder builder = LOCAL_BYTE_ARRAY_BUILDER.get();
+        builder.reset();
+        encoder.encode(logEvent, builder);
         writeData(builder);
     }
 
@@ -106,16 +118,23 @@ public abstract class OutputStremAppender implements Appender {
         int count = logEvents.size();
         ByteArrayBuilder builder = AbstractEncoder.LOCAL_BYTE_ARRAY_BUILDER.get();
         builder.reset();
+        int level = 0;
         for (int i=0;i<count;i++) {
-            encoder.encode(logEvents.get(i), builder);
+            LogEvent logEvent = logEvents.get(i);
+            encoder.encode(logEvent, builder);
+            level = Math.max(level, logEvent.getLevel());
+        }
+        if (async) {
+            queue.publish(this, level, builder);
+        } else {
+            writeData(builder);
         }
-        writeData(builder);
     }
 
     protected void writeData(ByteArrayBuilder builder) throws IOException {
         lock.lock();
         try {
-            builder.writeTo(this.outputStream);
+            writeLocked(builder);
             if (isImmediateFlush()) {
                 this.outputStream.flush();
             }
@@ -124,9 +143,37 @@ public abstract class OutputStremAppender implements Appender {
         }
     }
 
-    protected void lockFreeWriteData(ByteArrayBuilder builder) throws IOException {
-        if (isImmediateFlush()) {
+    /**
+     * 异步队列的消费线程合并后的日志数据写入OutputStream，是否刷新由消费线程决定
+     * @param batch 多条日志编码后拼接的数据
+     * @throws IOException 写入失败时抛出
+     */
+    @Override
+    public void writeBatch(ByteArrayBuilder batch) throws IOException {
+        lock.lock();
+        try {
+            writeLocked(batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 同步写入和异步批量写入最终都调用该方法把数据写入OutputStream，调用时需要已经持有lock
+     * @param data 编码后的日志数据
+     * @throws IOException 写入失败时抛出
+     */
+    protected void writeLocked(ByteArrayBuilder data) throws IOException {
+        data.writeTo(this.outputStream);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
             this.outputStream.flush();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -175,6 +222,9 @@ public abstract class OutputStremAppender implements Appender {
 
     @Override
     public void start() {
+        if (async && queue != null) {
+            queue.start();
+        }
         if (!started) {
             started = true;
         }
@@ -182,6 +232,9 @@ public abstract class OutputStremAppender implements Appender {
 
     @Override
     public void stop() {
+        if (async && queue != null) {
+            queue.drain(DRAIN_TIMEOUT_MILLIS);
+        }
         try {
             this.outputStream.flush();
         } catch (IOException e) {
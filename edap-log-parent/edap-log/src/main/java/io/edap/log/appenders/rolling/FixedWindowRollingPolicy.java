@@ -139,7 +139,7 @@ public class FixedWindowRollingPolicy extends RollingPolicyBase {
         }
         try {
             String minFileName = buildFileName(minIndex);
-            if (compression != null && minFileName.endsWith("." + compression.getSuffix())) {
+            if (compression != null && !isInlineCompression() && minFileName.endsWith("." + compression.getSuffix())) {
                 minFileName = minFileName.substring(0, minFileName.length() - compression.getSuffix().length() - 1);
             }
             File minFile = new File(minFileName);
@@ -149,7 +149,7 @@ public class FixedWindowRollingPolicy extends RollingPolicyBase {
             fileAppender.closeOutputStream();
             fileAppender.setFile(getActiveFileName());
             fileAppender.openFile();
-            if (compression != null) {
+            if (compression != null && !isInlineCompression()) {
                 File compressionFile = new File(minFileName + "." + compression.getSuffix());
                 doCompress(minFile, compressionFile);
             }
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.appenders.rolling;
+
+import io.edap.buffer.FastBuf;
+import io.edap.log.LogEvent;
+import io.edap.log.io.BaseLogOutputStream;
+import io.edap.util.ByteArrayBuilder;
+import io.edap.util.CollectionUtils;
+import io.edap.util.UnsafeUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.edap.log.AbstractEncoder.LOCAL_BYTE_ARRAY_BUILDER;
+import static io.edap.log.helpers.Util.printError;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 使用内存映射文件写入日志的RollingFileAppender。写入日志时先通过原子操作在文件中预留日志数据的位置，然后将数据
+ * 复制到映射的内存中，多个线程写入时不需要加锁，也不需要每条日志调用一次write和flush。映射的区域写满后映射下一个
+ * 区域，滚动文件或者关闭时等待已经预留位置的数据复制完成，然后将文件截断为实际写入的长度。
+ *
+ * <p>触发策略判断文件大小时使用实际写入的长度，而不是包含了映射区域的文件长度。prudent模式以及immediateFlush
+ * 对该Appender不起作用，写入映射内存的数据由操作系统负责写入磁盘。</p>
+ */
+public class MappedRollingFileAppender extends RollingFileAppender {
+
+    /**
+     * 默认每次映射的区域大小
+     */
+    public static final int DEFAULT_REGION_SIZE = 32 * 1024 * 1024;
+    /**
+     * 关闭文件时等待正在复制的数据完成的最长时间
+     */
+    private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    private int regionSize = DEFAULT_REGION_SIZE;
+
+    private volatile MappedFile mappedFile;
+
+    private volatile File activeFile;
+
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+    public void setRegionSize(int regionSize) {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("regionSize must be positive");
+        }
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public void openFile() {
+        lock.lock();
+        try {
+            File file = new File(fileName);
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            FileChannel channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+            long length;
+            if (append) {
+                length = realLength(channel, regionSize);
+            } else {
+                channel.truncate(0);
+                length = 0;
+            }
+            MappedFile mapped = new MappedFile(channel, length, regionSize);
+            mappedFile = mapped;
+            activeFile = new MappedActiveFile(fileName, mapped);
+            // OutputStremAppender的flush、stop以及滚动时的closeOutputStream通过该OutputStream关闭映射的文件
+            setOutputStream(new BaseLogOutputStream(new MappedOutputStream(mapped)));
+        } catch (Throwable t) {
+            printError("MappedRollingFileAppender open file error", t);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected File getActiveFile() {
+        return activeFile;
+    }
+
+    @Override
+    public void batchAppend(List<LogEvent> logEvents) throws IOException {
+        if (CollectionUtils.isEmpty(logEvents)) {
+            return;
+        }
+        if (async) {
+            super.batchAppend(logEvents);
+            return;
+        }
+        ByteArrayBuilder builder = LOCAL_BYTE_ARRAY_BUILDER.get();
+        builder.reset();
+        for (int i = 0; i < logEvents.size(); i++) {
+            encoder.encode(logEvents.get(i), builder);
+        }
+        writeData(builder);
+    }
+
+    @Override
+    protected void writeData(ByteArrayBuilder builder) throws IOException {
+        writeMapped(builder.getValue(), 0, builder.length());
+    }
+
+    @Override
+    public void writeBatch(ByteArrayBuilder batch) throws IOException {
+        writeMapped(batch.getValue(), 0, batch.length());
+    }
+
+    @Override
+    public void flush() {
+        // 数据复制到映射的内存后已经对其他进程可见
+    }
+
+    /**
+     * 将数据写入当前映射的文件，文件正在滚动时等待新的文件打开后写入
+     */
+    private void writeMapped(byte[] data, int offset, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        long deadline = 0;
+        while (true) {
+            MappedFile mapped = mappedFile;
+            if (mapped != null && mapped.write(data, offset, len)) {
+                return;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + CLOSE_TIMEOUT_NANOS;
+            } else if (now > deadline) {
+                printError("MappedRollingFileAppender no active file, drop " + len + " bytes");
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 进程异常退出时映射区域中未写入的部分为0，重新打开文件时从最后一个非0字节之后继续写入，最多向前查找一个映射区域
+     */
+    static long realLength(FileChannel channel, int regionSize) throws IOException {
+        long size = channel.size();
+        long min = Math.max(0, size - regionSize);
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > min) {
+            int n = (int) Math.min(buf.capacity(), end - min);
+            buf.clear().limit(n);
+            long start = end - n;
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, start + buf.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buf.position() - 1; i >= 0; i--) {
+                if (buf.get(i) != 0) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return end;
+    }
+
+    /**
+     * 映射的日志文件。position为下一次写入的位置，写入时先增加position预留位置，复制完成后增加committed，
+     * 关闭时将position设置为负数使后续的写入失败，然后等待committed和关闭前的position一致
+     */
+    static final class MappedFile {
+
+        private static final long CLOSED = Long.MIN_VALUE / 2;
+
+        private final FileChannel channel;
+        private final int regionSize;
+        private final AtomicLong position;
+        private final AtomicLong committed;
+        private volatile Region current;
+        private volatile long closedLength = -1;
+
+        MappedFile(FileChannel channel, long length, int regionSize) throws IOException {
+            this.channel = channel;
+            this.regionSize = regionSize;
+            this.position = new AtomicLong(length);
+            this.committed = new AtomicLong(length);
+            this.current = map(length);
+        }
+
+        /**
+         * 写入数据，文件已经关闭时返回false
+         */
+        boolean write(byte[] data, int offset, int len) throws IOException {
+            long start = position.getAndAdd(len);
+            if (start < 0) {
+                return false;
+            }
+            try {
+                long pos = start;
+                int off = offset;
+                int remain = len;
+                while (remain > 0) {
+                    Region region = region(pos);
+                    int n = (int) Math.min(remain, region.end - pos);
+                    UnsafeUtil.copyMemory(data, off, region.address + (pos - region.base), n);
+                    // 复制时只使用了内存地址，需要保证映射的ByteBuffer在复制完成前不会被回收
+                    Reference.reachabilityFence(region.buf);
+                    pos += n;
+                    off += n;
+                    remain -= n;
+                }
+            } finally {
+                committed.addAndGet(len);
+            }
+            return true;
+        }
+
+        /**
+         * 实际写入的长度
+         */
+        long length() {
+            long p = position.get();
+            return p >= 0 ? p : closedLength;
+        }
+
+        private Region region(long pos) throws IOException {
+            Region region = current;
+            if (pos >= region.base && pos < region.end) {
+                return region;
+            }
+            synchronized (this) {
+                region = current;
+                if (pos >= region.base && pos < region.end) {
+                    return region;
+                }
+                Region next = map(pos);
+                // 预留位置较早的线程可能在映射了后面的区域之后才开始复制，这时只为它临时映射之前的区域
+                if (next.base > region.base) {
+                    current = next;
+                }
+                return next;
+            }
+        }
+
+        private Region map(long pos) throws IOException {
+            long base = pos - pos % regionSize;
+            return new Region(new FastBuf(channel, base, regionSize), base);
+        }
+
+        /**
+         * 停止写入，等待正在复制的数据完成后截断并关闭文件。超时后仍有线程在复制时不截断文件，映射的内存在关闭通道后
+         * 仍然有效，该线程可以继续完成复制，文件尾部保留未使用的映射区域
+         */
+        void close() throws IOException {
+            long end = position.getAndSet(CLOSED);
+            if (end < 0) {
+                return;
+            }
+            closedLength = end;
+            long deadline = System.nanoTime() + CLOSE_TIMEOUT_NANOS;
+            while (committed.get() != end && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            try {
+                long done = committed.get();
+                if (done == end) {
+                    channel.truncate(end);
+                } else {
+                    printError("MappedRollingFileAppender close timeout, " + (end - done)
+                            + " bytes still copying, skip truncate");
+                }
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    static final class Region {
+        final FastBuf buf;
+        final long base;
+        final long end;
+        final long address;
+
+        Region(FastBuf buf, long base) {
+            this.buf = buf;
+            this.base = base;
+            this.end = base + buf.byteBuffer().capacity();
+            this.address = buf.address();
+        }
+    }
+
+    /**
+     * 长度为实际写入长度的文件，供SizeAndTimeBasedFNATP等触发策略判断文件大小
+     */
+    static final class MappedActiveFile extends File {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient MappedFile mapped;
+
+        MappedActiveFile(String pathname, MappedFile mapped) {
+            super(pathname);
+            this.mapped = mapped;
+        }
+
+        @Override
+        public long length() {
+            long length = mapped.length();
+            return length >= 0 ? length : super.length();
+        }
+    }
+
+    private static final class MappedOutputStream extends OutputStream {
+
+        private final MappedFile mapped;
+
+        MappedOutputStream(MappedFile mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!mapped.write(b, off, len)) {
+                throw new IOException("mapped file closed");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            mapped.close();
+        }
+    }
+}
@@ -6,7 +6,9 @@ import io.edap.util.ByteArrayBuilder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 
+import static io.edap.log.AbstractEncoder.LOCAL_BYTE_ARRAY_BUILDER;
 import static io.edap.log.helpers.Util.printError;
 
 public class RollingFileAppender extends FileAppender {
@@ -57,21 +59,51 @@ public class RollingFileAppender extends FileAppender {
 
     @Override
     public void append(LogEvent logEvent) throws IOException {
-        ByteArrayBuilder builder = encoder.encode(logEvent);
+        ByteArrayBuilder builder;
+        if (async) {
+            builder = LOCAL_BYTE_ARRAY_BUILDER.get();
+            builder.reset();
+            encoder.encode(logEvent, builder);
+        } else {
+            builder = encoder.encode(logEvent);
+        }
         // 如果判断日志文件需要滚动，则先加锁后再次判断是否需要滚动，判断是否需要滚动和日志文件滚动为非原子操作
         // 为了降低加锁频率所以先判断后如果需要滚动再加锁然后再次判断，因为当前线程判断时需要加锁，但是加锁后
         // 可能其他线程已经进行了日志滚动，所以需要再次判断是否需要滚动，因为需要滚次频次比非滚动频次低的多，所以
         // 这个操作会比每次都加锁效率高。
-        if (triggeringPolicy.isTriggeringEvent(currentlyActiveFile, logEvent, builder)) {
+        if (triggeringPolicy.isTriggeringEvent(getActiveFile(), logEvent, builder)) {
             try {
                 lock.lock();
-                if (triggeringPolicy.isTriggeringEvent(currentlyActiveFile, logEvent, builder)) {
+                if (triggeringPolicy.isTriggeringEvent(getActiveFile(), logEvent, builder)) {
                     rollingPolicy.rollover();
                 }
             } finally {
                 lock.unlock();
             }
         }
-        super.writeData(builder);
+        // 异步时滚动的判断仍在调用线程完成，写入由队列的消费线程合并后进行，滚动时会持有lock，和消费线程的写入互斥
+        if (async) {
+            queue.publish(this, logEvent.getLevel(), builder);
+        } else {
+            writeData(builder);
+        }
+    }
+
+    /**
+     * 滚动策略设置了写入时压缩时，写入文件的数据先经过压缩
+     */
+    @Override
+    protected OutputStream wrapOutputStream(OutputStream out) throws IOException {
+        if (rollingPolicy instanceof RollingPolicyBase) {
+            return ((RollingPolicyBase) rollingPolicy).wrapOutputStream(out);
+        }
+        return out;
+    }
+
+    /**
+     * 触发策略判断文件大小时使用的当前日志文件
+     */
+    protected File getActiveFile() {
+        return currentlyActiveFile;
     }
 }
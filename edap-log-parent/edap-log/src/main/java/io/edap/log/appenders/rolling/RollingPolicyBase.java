@@ -3,12 +3,17 @@ package io.edap.log.appenders.rolling;
 import io.edap.log.LogCompression;
 import io.edap.log.appenders.FileAppender;
 import io.edap.log.compression.CompressionManager;
+import io.edap.log.io.SyncFlushOutputStream;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static io.edap.log.helpers.Util.printError;
+
 public abstract class RollingPolicyBase implements RollingPolicy {
 
     ExecutorService executorService = Executors.newSingleThreadExecutor();
@@ -17,6 +22,21 @@ public abstract class RollingPolicyBase implements RollingPolicy {
 
     protected LogCompression compression = null;
 
+    /**
+     * 默认写入时压缩的同步点间隔毫秒数
+     */
+    public static final int DEFAULT_SYNC_FLUSH_INTERVAL = 1000;
+
+    /**
+     * 是否在写入日志时压缩，为true时正在写入的日志文件已经是压缩后的文件，滚动时只需要重命名
+     */
+    private boolean inlineCompression;
+
+    /**
+     * 写入时压缩输出同步点的最小间隔毫秒数，同步点之前的数据可以从正在写入的文件中解压
+     */
+    private int syncFlushInterval = DEFAULT_SYNC_FLUSH_INTERVAL;
+
     private boolean started;
 
     private FileAppender parent;
@@ -50,9 +70,51 @@ public abstract class RollingPolicyBase implements RollingPolicy {
 
     public void start() throws ParseException {
         determineCompressionMode();
+        if (inlineCompression && compression != null && !compression.supportStream()) {
+            printError(compression.getSuffix() + " not support inline compression, compress after rollover");
+            inlineCompression = false;
+        }
         started = true;
     }
 
+    public boolean isInlineCompression() {
+        return inlineCompression && compression != null;
+    }
+
+    public void setInlineCompression(boolean inlineCompression) {
+        this.inlineCompression = inlineCompression;
+    }
+
+    public int getSyncFlushInterval() {
+        return syncFlushInterval;
+    }
+
+    public void setSyncFlushInterval(int syncFlushInterval) {
+        this.syncFlushInterval = syncFlushInterval;
+    }
+
+    /**
+     * 写入时压缩的模式下为文件的输出流加上压缩，否则直接返回原输出流
+     * @param out 日志文件的输出流
+     * @return 写入日志的输出流
+     */
+    public OutputStream wrapOutputStream(OutputStream out) throws IOException {
+        if (!isInlineCompression()) {
+            return out;
+        }
+        return new SyncFlushOutputStream(compression.compressStream(out), syncFlushInterval);
+    }
+
+    /**
+     * 写入时压缩的模式下文件名需要包含压缩的后缀
+     */
+    protected String inlineFileName(String fileName) {
+        if (!isInlineCompression() || fileName.endsWith("." + compression.getSuffix())) {
+            return fileName;
+        }
+        return fileName + "." + compression.getSuffix();
+    }
+
     public void stop() {
         started = false;
     }
@@ -51,8 +51,8 @@ public class TimeBasedRollingPolicy extends RollingPolicyBase implements Trigger
             // 生成新的文件，然后设置Appender的文件为新生成的文件。
             String activeFileName = getActiveFileName();
             TimeBasedFileNamingAndTriggeringPolicy tbfat = timeBasedFileNamingAndTriggeringPolicy;
-            String datePatternFileName = tbfat.getCurrentPeriodsFileNameWithoutCompressionSuffix();
-            String nextFileName = tbfat.getElapsedPeriodsFileName();
+            String datePatternFileName = inlineFileName(tbfat.getCurrentPeriodsFileNameWithoutCompressionSuffix());
+            String nextFileName = inlineFileName(tbfat.getElapsedPeriodsFileName());
             if (activeFileName.equals(datePatternFileName)) {
                 fileAppender.closeOutputStream();
                 fileAppender.setFile(nextFileName);
@@ -88,8 +88,8 @@ public class TimeBasedRollingPolicy extends RollingPolicyBase implements Trigger
         if (!archiveDir.exists()) {
             return;
         }
-        // 如果有设置压缩则先压缩刚切换的日志文件
-        if (compression != null) {
+        // 如果有设置压缩则先压缩刚切换的日志文件，写入时已经压缩的文件不需要再压缩
+        if (compression != null && !isInlineCompression()) {
             String zipName = currentFileName.endsWith("." + compression.getSuffix())
                     ?currentFileName:currentFileName + "." + compression.getSuffix();
             try {
@@ -137,7 +137,8 @@ public class TimeBasedRollingPolicy extends RollingPolicyBase implements Trigger
         if (!StringUtil.isEmpty(rawFileName)) {
             return rawFileName;
         } else {
-            return timeBasedFileNamingAndTriggeringPolicy.getCurrentPeriodsFileNameWithoutCompressionSuffix();
+            return inlineFileName(
+                    timeBasedFileNamingAndTriggeringPolicy.getCurrentPeriodsFileNameWithoutCompressionSuffix());
         }
     }
 
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.binary;
+
+import io.edap.log.Encoder;
+import io.edap.log.LogEvent;
+import io.edap.log.helps.LogEncoderRegister;
+import io.edap.util.ByteArrayBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.edap.log.binary.BinaryLogFormat.*;
+
+/**
+ * 将{@link BinaryLogEncoder}写入的二进制日志按照pattern渲染为文本，渲染的结果和直接使用该pattern的Encoder
+ * 输出的内容一致。可以直接在命令行中使用：
+ * <pre>
+ * java -cp edap-log.jar:edap-common.jar:... io.edap.log.binary.BinaryLogDecoder app.blog [pattern]
+ * </pre>
+ * 文件名为"-"时从标准输入读取。文件末尾没有写完整的记录会被忽略。
+ */
+public class BinaryLogDecoder {
+
+    public static final String DEFAULT_PATTERN =
+            "%date{yyyy-MM-dd HH:mm:ss.SSS} %-5level [%thread] [%logger{36}] - %msg %ex%n";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Encoder textEncoder;
+    private final Map<Integer, String> dictionary = new HashMap<>();
+    /**
+     * 引用了还没有定义的字典id的日志原始数据，按写入顺序保存，定义出现后再渲染
+     */
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private final LogEvent logEvent = new LogEvent();
+    private final ByteArrayBuilder builder = new ByteArrayBuilder();
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private long baseTime;
+    /**
+     * 解析当前日志时是否遇到了未定义的字典id
+     */
+    private boolean missing;
+    private long count;
+
+    public BinaryLogDecoder() {
+        this(DEFAULT_PATTERN);
+    }
+
+    public BinaryLogDecoder(String pattern) {
+        this(LogEncoderRegister.instance().getEncoder(pattern));
+    }
+
+    public BinaryLogDecoder(Encoder textEncoder) {
+        this.textEncoder = textEncoder;
+    }
+
+    /**
+     * 读取输入流中所有的二进制日志，渲染为文本后写入输出流
+     * @param in 二进制日志的输入流
+     * @param out 文本日志的输出流
+     * @return 渲染的日志条数
+     * @throws IOException 读写失败或者数据不是二进制日志格式时抛出
+     */
+    public long decode(InputStream in, OutputStream out) throws IOException {
+        buf = new byte[BUFFER_SIZE];
+        pos = 0;
+        limit = 0;
+        count = 0;
+        dictionary.clear();
+        pending.clear();
+        while (true) {
+            if (pos >= limit && !fill(in)) {
+                break;
+            }
+            int start = pos;
+            try {
+                decodeRecord(start, out);
+            } catch (Underflow e) {
+                // 记录跨越了缓冲区的边界，读取更多数据后重新解析
+                pos = start;
+                if (!fill(in)) {
+                    break;
+                }
+            }
+        }
+        renderPending(out, true);
+        out.flush();
+        return count;
+    }
+
+    private void decodeRecord(int start, OutputStream out) throws IOException {
+        int type = buf[pos++] & 0xff;
+        switch (type) {
+            case REC_STREAM_START:
+                byte[] magic = readBytes(MAGIC.length);
+                int version = readByte();
+                long time = readFixed64();
+                if (!Arrays.equals(MAGIC, magic)) {
+                    throw new IOException("not a binary log stream");
+                }
+                if (version > VERSION) {
+                    throw new IOException("unsupported binary log version " + version);
+                }
+                renderPending(out, true);
+                dictionary.clear();
+                baseTime = time;
+                break;
+            case REC_DEFINE:
+                int id = readVarInt();
+                dictionary.put(id, readString());
+                renderPending(out, false);
+                break;
+            case REC_EVENT:
+                missing = false;
+                readEvent();
+                if (missing || !pending.isEmpty()) {
+                    pending.add(Arrays.copyOfRange(buf, start, pos));
+                } else {
+                    render(out);
+                }
+                break;
+            default:
+                throw new IOException("unknown binary log record type " + type);
+        }
+    }
+
+    /**
+     * 按顺序渲染暂存的日志，force为false时遇到仍然缺少定义的日志即停止
+     */
+    private void renderPending(OutputStream out, boolean force) throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        byte[] savedBuf = buf;
+        int savedPos = pos;
+        int savedLimit = limit;
+        try {
+            while (!pending.isEmpty()) {
+                byte[] data = pending.peek();
+                buf = data;
+                pos = 1;
+                limit = data.length;
+                missing = false;
+                readEvent();
+                if (missing && !force) {
+                    break;
+                }
+                pending.poll();
+                render(out);
+            }
+        } finally {
+            buf = savedBuf;
+            pos = savedPos;
+            limit = savedLimit;
+        }
+    }
+
+    private void render(OutputStream out) throws IOException {
+        builder.reset();
+        textEncoder.encode(logEvent, builder);
+        builder.writeTo(out);
+        count++;
+    }
+
+    private void readEvent() {
+        int level = readByte() << 8;
+        long logTime = baseTime + unzigzag(readVarLong());
+        int nanos = readVarInt();
+        String loggerName = readRef();
+        String threadName = readRef();
+        String format = readRef();
+        int argc = readByte();
+        Object[] args = new Object[argc];
+        for (int i = 0; i < argc; i++) {
+            args[i] = readArg();
+        }
+        Throwable threw = null;
+        if (readByte() != 0) {
+            threw = readThrowable();
+            // 和异步输出一样，异常作为参数数组的最后一个元素交给MessageFormatter
+            args = Arrays.copyOf(args, argc + 1);
+            args[argc] = threw;
+        }
+        logEvent.setLevel(level);
+        logEvent.setLogTime(logTime);
+        logEvent.setNanoSeconds(nanos);
+        logEvent.setLoggerName(loggerName);
+        logEvent.setThreadName(threadName);
+        logEvent.setFormat(format);
+        logEvent.setArgv(args);
+        logEvent.setThrew(threw);
+    }
+
+    private Object readArg() {
+        int tag = readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_BYTE:
+                require(1);
+                return buf[pos++];
+            case TAG_CHAR:
+                return (char) readVarInt();
+            case TAG_SHORT:
+                return (short) unzigzag(readVarInt());
+            case TAG_INT:
+                return unzigzag(readVarInt());
+            case TAG_LONG:
+                return unzigzag(readVarLong());
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(readFixed32());
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(readFixed64());
+            case TAG_STRING:
+                return readString();
+            default:
+                throw new IllegalStateException("unknown binary log argument tag " + tag);
+        }
+    }
+
+    private Throwable readThrowable() {
+        String className = readRef();
+        String message = readRef();
+        int size = readVarInt();
+        StackTraceElement[] trace = new StackTraceElement[size];
+        for (int i = 0; i < size; i++) {
+            String declaringClass = readRef();
+            String methodName = readRef();
+            String fileName = readRef();
+            int line = unzigzag(readVarInt());
+            trace[i] = new StackTraceElement(declaringClass, methodName, fileName, line);
+        }
+        Throwable cause = readByte() != 0 ? readThrowable() : null;
+        return new DecodedThrowable(className, message, cause, trace);
+    }
+
+    private String readRef() {
+        int ref = readVarInt();
+        if (ref == REF_NULL) {
+            return null;
+        }
+        if (ref == REF_INLINE) {
+            return readString();
+        }
+        String s = dictionary.get(ref);
+        if (s == null) {
+            missing = true;
+            return "<undefined#" + ref + ">";
+        }
+        return s;
+    }
+
+    private String readString() {
+        int len = readVarInt();
+        require(len);
+        String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return s;
+    }
+
+    private byte[] readBytes(int len) {
+        require(len);
+        byte[] bs = Arrays.copyOfRange(buf, pos, pos + len);
+        pos += len;
+        return bs;
+    }
+
+    private int readByte() {
+        require(1);
+        return buf[pos++] & 0xff;
+    }
+
+    private int readVarInt() {
+        return (int) readVarLong();
+    }
+
+    private long readVarLong() {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IllegalStateException("malformed varint in binary log");
+    }
+
+    private int readFixed32() {
+        require(4);
+        int v = (buf[pos] & 0xff) | (buf[pos + 1] & 0xff) << 8 | (buf[pos + 2] & 0xff) << 16
+                | (buf[pos + 3] & 0xff) << 24;
+        pos += 4;
+        return v;
+    }
+
+    private long readFixed64() {
+        long low = readFixed32() & 0xffffffffL;
+        return low | (long) readFixed32() << 32;
+    }
+
+    private void require(int len) {
+        if (len < 0 || limit - pos < len) {
+            throw Underflow.INSTANCE;
+        }
+    }
+
+    /**
+     * 将未解析的数据移到缓冲区的开始位置，缓冲区已满时扩容，然后从输入流读取更多的数据
+     * @return 输入流已经结束时返回false
+     */
+    private boolean fill(InputStream in) throws IOException {
+        int remain = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remain);
+            pos = 0;
+            limit = remain;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n <= 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BinaryLogDecoder <file|-> [pattern]");
+            return;
+        }
+        String pattern = args.length > 1 ? args[1] : DEFAULT_PATTERN;
+        BinaryLogDecoder decoder = new BinaryLogDecoder(pattern);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE);
+        if ("-".equals(args[0])) {
+            decoder.decode(System.in, out);
+        } else {
+            try (InputStream in = new FileInputStream(args[0])) {
+                decoder.decode(in, out);
+            }
+        }
+    }
+
+    /**
+     * 从二进制日志中还原的异常，保留原始异常的类名、消息、堆栈以及异常链
+     */
+    public static final class DecodedThrowable extends Throwable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        DecodedThrowable(String className, String message, Throwable cause, StackTraceElement[] trace) {
+            super(message, cause, false, true);
+            this.className = className;
+            setStackTrace(trace);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            String message = getLocalizedMessage();
+            return message != null ? className + ": " + message : className;
+        }
+    }
+
+    private static final class Underflow extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        static final Underflow INSTANCE = new Underflow();
+
+        private Underflow() {
+            super(null, null, false, false);
+        }
+    }
+}
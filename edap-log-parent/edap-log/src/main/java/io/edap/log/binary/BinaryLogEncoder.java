@@ -0,0 +1,357 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.binary;
+
+import io.edap.log.AbstractEncoder;
+import io.edap.log.LogArgsImpl;
+import io.edap.log.LogEvent;
+import io.edap.util.ByteArrayBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.edap.log.binary.BinaryLogFormat.*;
+
+/**
+ * 将日志事件编码为{@link BinaryLogFormat}定义的二进制记录，记录日志时不做日期格式化和消息的拼接，只写入字典id、
+ * 时间差以及参数的原始值，由{@link BinaryLogDecoder}在需要查看时渲染为文本。
+ *
+ * <p>字典属于当前写入的流，每个编码器只能被一个Appender使用，打开新的文件时需要调用
+ * {@link #startStream(ByteArrayBuilder, long)}。多个线程同时编码时，字典的定义可能晚于引用它的日志写入文件，
+ * 解码器会暂存这些日志直到对应的定义出现，重复的定义不影响解码。</p>
+ */
+public class BinaryLogEncoder extends AbstractEncoder {
+
+    private final ConcurrentHashMap<String, Integer> dictionary = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(FIRST_ID);
+    private volatile long baseTime;
+
+    /**
+     * 开始一个新的流，清空字典并写入STREAM_START记录
+     * @param out 写入流头的数据对象
+     * @param baseTime 日志时间差的基准时间
+     */
+    public void startStream(ByteArrayBuilder out, long baseTime) {
+        dictionary.clear();
+        nextId.set(FIRST_ID);
+        this.baseTime = baseTime;
+        out.append((byte) REC_STREAM_START);
+        out.append(MAGIC);
+        out.append((byte) VERSION);
+        writeFixed64(out, baseTime);
+    }
+
+    public long getBaseTime() {
+        return baseTime;
+    }
+
+    @Override
+    public void encode(LogEvent logEvent, ByteArrayBuilder out) {
+        Throwable threw = logEvent.getThrew();
+        // 定义记录需要在引用它的日志之前写入
+        int loggerRef = define(out, logEvent.getLoggerName());
+        int threadRef = define(out, logEvent.getThreadName());
+        int formatRef = define(out, logEvent.getFormat());
+        if (threw != null) {
+            defineThrowable(out, threw, 0);
+        }
+
+        out.append((byte) REC_EVENT);
+        out.append((byte) (logEvent.getLevel() >>> 8));
+        writeVarLong(out, zigzag(logEvent.getLogTime() - baseTime));
+        writeVarInt(out, logEvent.getNanoSeconds());
+        writeRef(out, loggerRef, logEvent.getLoggerName());
+        writeRef(out, threadRef, logEvent.getThreadName());
+        writeRef(out, formatRef, logEvent.getFormat());
+
+        LogArgsImpl logArgs = logEvent.getLogArgs();
+        if (logArgs != null) {
+            int argc = logArgs.getArgc();
+            out.append((byte) argc);
+            for (int i = 0; i < argc; i++) {
+                writeArg(out, logArgs, i);
+            }
+        } else {
+            Object[] argv = logEvent.getArgv();
+            int argc = argv == null ? 0 : argv.length;
+            // 异步事件的异常作为参数数组的最后一个元素
+            if (argc > 0 && threw != null && argv[argc - 1] == threw) {
+                argc--;
+            }
+            out.append((byte) argc);
+            for (int i = 0; i < argc; i++) {
+                writeArg(out, argv[i]);
+            }
+        }
+
+        if (threw == null) {
+            out.append((byte) 0);
+        } else {
+            out.append((byte) 1);
+            writeThrowable(out, threw, 0);
+        }
+    }
+
+    /**
+     * 查找字符串在字典中的id，不存在时分配新的id并写入定义记录
+     * @return 字符串的引用值
+     */
+    private int define(ByteArrayBuilder out, String s) {
+        if (s == null) {
+            return REF_NULL;
+        }
+        Integer id = dictionary.get(s);
+        if (id != null) {
+            return id;
+        }
+        if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+            return REF_INLINE;
+        }
+        int newId = nextId.getAndIncrement();
+        Integer prev = dictionary.putIfAbsent(s, newId);
+        if (prev != null) {
+            return prev;
+        }
+        writeDefine(out, newId, s);
+        return newId;
+    }
+
+    /**
+     * 重新写入字典中所有的定义记录。定义和第一次引用它的日志写在同一段数据中，这段数据被异步队列丢弃或者写入失败时，
+     * 字典中已经有id但文件中没有定义，需要在之后的数据之前重新写入
+     * @param out 写入定义记录的数据对象
+     */
+    public void writeDictionary(ByteArrayBuilder out) {
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            writeDefine(out, entry.getValue(), entry.getKey());
+        }
+    }
+
+    private void writeDefine(ByteArrayBuilder out, int id, String s) {
+        out.append((byte) REC_DEFINE);
+        writeVarInt(out, id);
+        writeString(out, s);
+    }
+
+    /**
+     * 只查找字典，不写入定义记录，用于定义已经在之前写入的场景
+     */
+    private int refOf(String s) {
+        if (s == null) {
+            return REF_NULL;
+        }
+        Integer id = dictionary.get(s);
+        return id != null ? id : REF_INLINE;
+    }
+
+    private void defineThrowable(ByteArrayBuilder out, Throwable t, int depth) {
+        define(out, t.getClass().getName());
+        for (StackTraceElement e : t.getStackTrace()) {
+            define(out, e.getClassName());
+            define(out, e.getMethodName());
+            define(out, e.getFileName());
+        }
+        Throwable cause = t.getCause();
+        if (cause != null && cause != t && depth + 1 < MAX_CAUSE_DEPTH) {
+            defineThrowable(out, cause, depth + 1);
+        }
+    }
+
+    private void writeThrowable(ByteArrayBuilder out, Throwable t, int depth) {
+        String className = t.getClass().getName();
+        writeRef(out, refOf(className), className);
+        String message = t.getLocalizedMessage();
+        writeRef(out, message == null ? REF_NULL : REF_INLINE, message);
+        StackTraceElement[] trace = t.getStackTrace();
+        writeVarInt(out, trace.length);
+        for (StackTraceElement e : trace) {
+            writeRef(out, refOf(e.getClassName()), e.getClassName());
+            writeRef(out, refOf(e.getMethodName()), e.getMethodName());
+            writeRef(out, refOf(e.getFileName()), e.getFileName());
+            writeVarInt(out, zigzag(e.getLineNumber()));
+        }
+        Throwable cause = t.getCause();
+        if (cause != null && cause != t && depth + 1 < MAX_CAUSE_DEPTH) {
+            out.append((byte) 1);
+            writeThrowable(out, cause, depth + 1);
+        } else {
+            out.append((byte) 0);
+        }
+    }
+
+    private static void writeRef(ByteArrayBuilder out, int ref, String s) {
+        writeVarInt(out, ref);
+        if (ref == REF_INLINE) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeArg(ByteArrayBuilder out, LogArgsImpl logArgs, int index) {
+        long v = logArgs.getPrimitive(index);
+        switch (logArgs.getArgType(index)) {
+            case LogArgsImpl.ARG_BOOLEAN:
+                out.append((byte) (v != 0 ? TAG_TRUE : TAG_FALSE));
+                break;
+            case LogArgsImpl.ARG_BYTE:
+                out.append((byte) TAG_BYTE, (byte) v);
+                break;
+            case LogArgsImpl.ARG_CHAR:
+                out.append((byte) TAG_CHAR);
+                writeVarInt(out, (int) v);
+                break;
+            case LogArgsImpl.ARG_SHORT:
+                out.append((byte) TAG_SHORT);
+                writeVarInt(out, zigzag((int) v));
+                break;
+            case LogArgsImpl.ARG_INT:
+                out.append((byte) TAG_INT);
+                writeVarInt(out, zigzag((int) v));
+                break;
+            case LogArgsImpl.ARG_LONG:
+                out.append((byte) TAG_LONG);
+                writeVarLong(out, zigzag(v));
+                break;
+            case LogArgsImpl.ARG_FLOAT:
+                out.append((byte) TAG_FLOAT);
+                writeFixed32(out, (int) v);
+                break;
+            case LogArgsImpl.ARG_DOUBLE:
+                out.append((byte) TAG_DOUBLE);
+                writeFixed64(out, v);
+                break;
+            default:
+                writeArg(out, logArgs.getArg(index));
+        }
+    }
+
+    private static void writeArg(ByteArrayBuilder out, Object arg) {
+        if (arg == null) {
+            out.append((byte) TAG_NULL);
+        } else if (arg instanceof Integer) {
+            out.append((byte) TAG_INT);
+            writeVarInt(out, zigzag((Integer) arg));
+        } else if (arg instanceof Long) {
+            out.append((byte) TAG_LONG);
+            writeVarLong(out, zigzag((Long) arg));
+        } else if (arg instanceof Boolean) {
+            out.append((byte) ((Boolean) arg ? TAG_TRUE : TAG_FALSE));
+        } else if (arg instanceof Double) {
+            out.append((byte) TAG_DOUBLE);
+            writeFixed64(out, Double.doubleToRawLongBits((Double) arg));
+        } else if (arg instanceof Float) {
+            out.append((byte) TAG_FLOAT);
+            writeFixed32(out, Float.floatToRawIntBits((Float) arg));
+        } else if (arg instanceof Short) {
+            out.append((byte) TAG_SHORT);
+            writeVarInt(out, zigzag((Short) arg));
+        } else if (arg instanceof Byte) {
+            out.append((byte) TAG_BYTE, (Byte) arg);
+        } else if (arg instanceof Character) {
+            out.append((byte) TAG_CHAR);
+            writeVarInt(out, (Character) arg);
+        } else {
+            String s = arg instanceof String ? (String) arg : arg.toString();
+            if (s == null) {
+                out.append((byte) TAG_NULL);
+            } else {
+                out.append((byte) TAG_STRING);
+                writeString(out, s);
+            }
+        }
+    }
+
+    /**
+     * 写入varint长度以及UTF-8编码后的字符串，不创建中间的字节数组。不成对的代理字符和String.getBytes一样写为'?'
+     */
+    static void writeString(ByteArrayBuilder out, String s) {
+        int len = s.length();
+        int utf8Len = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                utf8Len++;
+            } else if (c < 0x800) {
+                utf8Len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Len += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Len++;
+            } else {
+                utf8Len += 3;
+            }
+        }
+        writeVarInt(out, utf8Len);
+        if (utf8Len == len) {
+            for (int i = 0; i < len; i++) {
+                out.append((byte) s.charAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.append((byte) c);
+            } else if (c < 0x800) {
+                out.append((byte) (0xc0 | (c >> 6)), (byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.append((byte) (0xf0 | (cp >> 18)), (byte) (0x80 | ((cp >> 12) & 0x3f)),
+                        (byte) (0x80 | ((cp >> 6) & 0x3f)), (byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                out.append((byte) '?');
+            } else {
+                out.append((byte) (0xe0 | (c >> 12)), (byte) (0x80 | ((c >> 6) & 0x3f)),
+                        (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    static void writeVarInt(ByteArrayBuilder out, int v) {
+        while ((v & ~0x7f) != 0) {
+            out.append((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.append((byte) v);
+    }
+
+    static void writeVarLong(ByteArrayBuilder out, long v) {
+        while ((v & ~0x7fL) != 0) {
+            out.append((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.append((byte) v);
+    }
+
+    static void writeFixed32(ByteArrayBuilder out, int v) {
+        out.append((byte) v, (byte) (v >> 8), (byte) (v >> 16), (byte) (v >> 24));
+    }
+
+    static void writeFixed64(ByteArrayBuilder out, long v) {
+        writeFixed32(out, (int) v);
+        writeFixed32(out, (int) (v >> 32));
+    }
+
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+}
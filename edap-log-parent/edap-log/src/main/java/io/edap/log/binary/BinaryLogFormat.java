@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.binary;
+
+/**
+ * 二进制日志格式的常量定义。日志文件由一系列记录组成，每条记录以一个字节的记录类型开始：
+ * <pre>
+ * STREAM_START: 'E' 'B' 'L' 'G' 版本号(1字节) 基准时间(8字节小端)，之前定义的字典全部失效
+ * DEFINE      : 字典id(varint) 字符串(varint长度 + UTF-8字节)
+ * EVENT       : 日志级别(level >>> 8，1字节) 相对基准时间的毫秒差(zigzag varlong) 纳秒(varint)
+ *               logger(字符串引用) 线程名(字符串引用) 格式(字符串引用) 参数个数(1字节) 参数... 异常
+ * </pre>
+ * 字符串引用为varint，0表示null，1表示后面紧跟字符串的内容，大于1的值为字典的id。格式、logger名称、线程名以及
+ * 异常的类名和堆栈只在第一次出现时写入DEFINE记录，之后的日志只写入id。参数以一个字节的类型开始，基本类型写入
+ * 原始值，其他对象在记录日志时转为字符串。
+ */
+public final class BinaryLogFormat {
+
+    public static final byte[] MAGIC = {'E', 'B', 'L', 'G'};
+    public static final int VERSION = 1;
+
+    public static final int REC_STREAM_START = 1;
+    public static final int REC_DEFINE       = 2;
+    public static final int REC_EVENT        = 3;
+
+    public static final int REF_NULL   = 0;
+    public static final int REF_INLINE = 1;
+    /**
+     * 字典id的起始值
+     */
+    public static final int FIRST_ID   = 2;
+    /**
+     * 每个流中字典的最大条目数，超过后的字符串直接写入记录中，避免动态拼接的格式无限占用内存
+     */
+    public static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    public static final int TAG_NULL   = 0;
+    public static final int TAG_FALSE  = 1;
+    public static final int TAG_TRUE   = 2;
+    public static final int TAG_BYTE   = 3;
+    public static final int TAG_CHAR   = 4;
+    public static final int TAG_SHORT  = 5;
+    public static final int TAG_INT    = 6;
+    public static final int TAG_LONG   = 7;
+    public static final int TAG_FLOAT  = 8;
+    public static final int TAG_DOUBLE = 9;
+    public static final int TAG_STRING = 10;
+
+    /**
+     * 异常链最多记录的层数
+     */
+    public static final int MAX_CAUSE_DEPTH = 8;
+
+    private BinaryLogFormat() {}
+}
@@ -22,6 +22,8 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class GzCompression implements LogCompression {
@@ -57,4 +59,18 @@ public class GzCompression implements LogCompression {
             throw new RuntimeException("GzCompression compress error", e);
         }
     }
+
+    @Override
+    public boolean supportStream() {
+        return true;
+    }
+
+    /**
+     * 使用SYNC_FLUSH模式的GZIPOutputStream，flush后之前写入的数据可以被gzip解压，多次打开同一个文件追加写入
+     * 时每次写入一个新的gzip member，解压时会依次读取
+     */
+    @Override
+    public OutputStream compressStream(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE, true);
+    }
 }
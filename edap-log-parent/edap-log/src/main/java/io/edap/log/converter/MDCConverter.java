@@ -7,14 +7,21 @@ import io.edap.log.helps.EncoderPatternToken;
 import io.edap.util.StringUtil;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static io.edap.log.helpers.Util.printError;
 
+/**
+ * 输出MDC中的值，%X{key}输出key的值，%X{key:-默认值}在没有值时输出默认值，%X输出所有的键值
+ */
 public class MDCConverter implements Converter<LogEvent> {
 
+    private static final String DEFAULT_SEPARATOR = ":-";
+
     private final String format;
     private final byte[] nextText;
     private final String mdcKey;
+    private final byte[] defaultValue;
 
     public MDCConverter(String format) {
         this(format, null);
@@ -34,7 +41,19 @@ public class MDCConverter implements Converter<LogEvent> {
         } catch (Throwable t) {
             printError("Get Logger length error!", t);
         }
+        byte[] defaultValue = null;
+        if (key != null) {
+            int sepIndex = key.indexOf(DEFAULT_SEPARATOR);
+            if (sepIndex != -1) {
+                defaultValue = key.substring(sepIndex + DEFAULT_SEPARATOR.length()).getBytes(StandardCharsets.UTF_8);
+                key = key.substring(0, sepIndex);
+            }
+            if (key.isEmpty()) {
+                key = null;
+            }
+        }
         this.mdcKey = key;
+        this.defaultValue = defaultValue;
         this.format = format;
         if (!StringUtil.isEmpty(nextText)) {
             this.nextText = nextText.getBytes(StandardCharsets.UTF_8);
@@ -44,12 +63,34 @@ public class MDCConverter implements Converter<LogEvent> {
     }
     @Override
     public void convertTo(ByteArrayBuilder out, LogEvent logEvent) {
-        Object v = logEvent.getMdc()!=null?logEvent.getMdc().get(mdcKey):null;
-        if (v != null) {
-            out.append(v);
+        Map<String, Object> mdc = logEvent.getMdc();
+        if (mdcKey == null) {
+            if (mdc != null && !mdc.isEmpty()) {
+                appendAll(out, mdc);
+            }
+        } else {
+            Object v = mdc != null ? mdc.get(mdcKey) : null;
+            if (v instanceof String) {
+                out.append((String) v);
+            } else if (v != null) {
+                out.append(v);
+            } else if (defaultValue != null) {
+                out.append(defaultValue);
+            }
         }
         if (nextText != null) {
             out.append(nextText);
         }
     }
+
+    private void appendAll(ByteArrayBuilder out, Map<String, Object> mdc) {
+        boolean first = true;
+        for (Map.Entry<String, Object> e : mdc.entrySet()) {
+            if (!first) {
+                out.append((byte)',', (byte)' ');
+            }
+            first = false;
+            out.append(e.getKey()).append((byte)'=').append(e.getValue());
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package io.edap.log.converter;
 
 import io.edap.log.Converter;
+import io.edap.log.LogArgsImpl;
 import io.edap.log.LogEvent;
 import io.edap.util.ByteArrayBuilder;
 import io.edap.log.helps.MessageFormatter;
@@ -43,7 +44,12 @@ public class MessageConverter implements Converter<LogEvent> {
 
     @Override
     public void convertTo(ByteArrayBuilder out, LogEvent logEvent) {
-        MessageFormatter.formatTo(out, logEvent.getFormat(), logEvent.getArgv());
+        LogArgsImpl logArgs = logEvent.getLogArgs();
+        if (logArgs != null) {
+            MessageFormatter.formatTo(out, logEvent.getFormat(), logArgs);
+        } else {
+            MessageFormatter.formatTo(out, logEvent.getFormat(), logEvent.getArgv());
+        }
         if (nextText != null) {
             out.append(nextText);
         }
@@ -16,10 +16,9 @@
 
 package io.edap.log.helps;
 
+import io.edap.log.LogArgsImpl;
 import io.edap.util.ByteArrayBuilder;
 
-import java.nio.charset.StandardCharsets;
-
 /**
  * 根据给定的变量值替换字符串中占位符相关功能封装
  */
@@ -33,7 +32,7 @@ public class MessageFormatter {
 								String messagePattern,
 								Object[] args) {
         if (args == null || args.length == 0) {
-            bytesBuilder.append(messagePattern.getBytes(StandardCharsets.UTF_8));
+            bytesBuilder.append(messagePattern);
             return;
         }
         if (messagePattern.equals("{}")) {
@@ -58,7 +57,7 @@ public class MessageFormatter {
             if (j == -1) {
                 // no more variables
                 if (i == 0) { // this is a simple string
-                    bytesBuilder.append(messagePattern.getBytes(StandardCharsets.UTF_8));
+                    bytesBuilder.append(messagePattern);
                 } else { // add the tail string which contains no variables and return
                     // the result.
                     bytesBuilder.append(messagePattern, i, messagePattern.length() - i);
@@ -91,6 +90,75 @@ public class MessageFormatter {
         bytesBuilder.append(messagePattern, i, messagePattern.length()-i);
     }
 
+    /**
+     * 直接从调用线程的参数格式化消息，基本类型的参数不装箱。有异常时异常作为最后一个参数，和
+     * {@link LogArgsImpl#toArgv()}生成的数组一致
+     */
+    public static void formatTo(ByteArrayBuilder bytesBuilder,
+                                String messagePattern,
+                                LogArgsImpl logArgs) {
+        int argc = logArgs.getArgc();
+        Throwable throwable = logArgs.getThrowable();
+        int count = throwable != null ? argc + 1 : argc;
+        if (count == 0) {
+            bytesBuilder.append(messagePattern);
+            return;
+        }
+        if (messagePattern.equals("{}")) {
+            appendArg(bytesBuilder, logArgs, 0);
+            if (count > 1) {
+                bytesBuilder.append((byte)'\n', (byte)'\t');
+                Object second = argc > 1 ? logArgs.getArg(1) : throwable;
+                if (second instanceof Throwable) {
+                    Throwable t = (Throwable)second;
+                    bytesBuilder.append(t.getMessage()).append((byte)'\n');
+                    printToBuilder(t, bytesBuilder);
+                }
+            }
+            return;
+        }
+        int i = 0;
+        int j;
+        int L;
+        for (L = 0; L < count; L++) {
+            j = messagePattern.indexOf(DELIM_STR, i);
+            if (j == -1) {
+                if (i == 0) {
+                    bytesBuilder.append(messagePattern);
+                } else {
+                    bytesBuilder.append(messagePattern, i, messagePattern.length() - i);
+                }
+                return;
+            } else {
+                if (isEscapedDelimeter(messagePattern, j)) {
+                    if (!isDoubleEscaped(messagePattern, j)) {
+                        L--;
+                        bytesBuilder.append(messagePattern, i, j - 1);
+                        bytesBuilder.append(DELIM_START);
+                        i = j + 1;
+                    } else {
+                        bytesBuilder.append(messagePattern, i, j - 1);
+                        appendArg(bytesBuilder, logArgs, L);
+                        i = j + 2;
+                    }
+                } else {
+                    bytesBuilder.append(messagePattern, i, j-i);
+                    appendArg(bytesBuilder, logArgs, L);
+                    i = j + 2;
+                }
+            }
+        }
+        bytesBuilder.append(messagePattern, i, messagePattern.length()-i);
+    }
+
+    private static void appendArg(ByteArrayBuilder bytesBuilder, LogArgsImpl logArgs, int index) {
+        if (index < logArgs.getArgc()) {
+            logArgs.appendArgTo(bytesBuilder, index);
+        } else {
+            bytesBuilder.append(logArgs.getThrowable());
+        }
+    }
+
     final static boolean isEscapedDelimeter(String messagePattern, int delimeterStartIndex) {
         if (delimeterStartIndex == 0) {
             return false;
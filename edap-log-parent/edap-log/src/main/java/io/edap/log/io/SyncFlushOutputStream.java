@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.io;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.edap.log.helpers.Util.printError;
+
+/**
+ * 限制压缩输出流同步点频率的OutputStream。每次flush都输出同步点会降低压缩率并增加CPU的开销，所以距离上一次
+ * 同步点不足syncInterval毫秒的flush只保留数据在压缩器中。写入停止后由定时任务在超过syncInterval毫秒时输出同步点，
+ * 保证已写入的日志最迟在两个syncInterval内可以读取，关闭时写入所有的数据。
+ */
+public class SyncFlushOutputStream extends OutputStream {
+
+    /**
+     * 所有SyncFlushOutputStream共用的定时刷新线程
+     */
+    private static final ScheduledExecutorService SYNC_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+
+    private final OutputStream out;
+
+    private final long syncInterval;
+
+    private long lastSyncTime;
+    /**
+     * 上一次同步点之后是否有写入的数据
+     */
+    private boolean pending;
+
+    private final ScheduledFuture<?> syncTask;
+
+    public SyncFlushOutputStream(OutputStream out, long syncInterval) {
+        this.out = out;
+        this.syncInterval = syncInterval;
+        this.lastSyncTime = System.currentTimeMillis();
+        if (syncInterval > 0) {
+            syncTask = SYNC_SCHEDULER.scheduleWithFixedDelay(this::syncIfIdle, syncInterval, syncInterval,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncTask = null;
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        out.write(b);
+        pending = true;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        pending = true;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastSyncTime >= syncInterval) {
+            sync(now);
+        }
+    }
+
+    /**
+     * 定时任务调用，上一次同步点之后有数据并且已经超过syncInterval毫秒没有输出同步点时输出同步点
+     */
+    private synchronized void syncIfIdle() {
+        long now = System.currentTimeMillis();
+        if (!pending || now - lastSyncTime < syncInterval) {
+            return;
+        }
+        try {
+            sync(now);
+        } catch (IOException e) {
+            printError("SyncFlushOutputStream sync flush error", e);
+        }
+    }
+
+    private void sync(long now) throws IOException {
+        out.flush();
+        pending = false;
+        lastSyncTime = now;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+        synchronized (this) {
+            out.close();
+        }
+    }
+}
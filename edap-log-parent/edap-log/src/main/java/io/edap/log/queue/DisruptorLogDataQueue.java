@@ -22,19 +22,60 @@ import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 import io.edap.log.LogConfig;
+import io.edap.log.LogLevel;
 import io.edap.log.config.DisruptorConfig;
 import io.edap.util.ByteArrayBuilder;
 
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.edap.log.helpers.Util.parseLevel;
 import static io.edap.log.helpers.Util.printError;
 import static io.edap.log.util.DisruptorUtil.checkSetConfig;
 
 public class DisruptorLogDataQueue implements LogDataQueue {
 
+    /**
+     * 消费线程合并写入时单次写入的默认最大字节数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256 * 1024;
+
     private DisruptorConfig              config;
     private RingBuffer<WriteEvent> ringBuffer;
     private Disruptor<WriteEvent>  disruptor;
-    private boolean                      started;
+    private volatile boolean             started;
     private EventHandler<WriteEvent> eventHandler;
+    private ScheduledExecutorService     flushScheduler;
+
+    /**
+     * 合并写入时单次写入的最大字节数
+     */
+    private int             batchSize     = DEFAULT_BATCH_SIZE;
+    /**
+     * 队列中没有待写入的数据时是否刷新已写入的数据
+     */
+    private boolean         flushOnIdle   = true;
+    /**
+     * 定时刷新的间隔毫秒数，小于等于0时不定时刷新
+     */
+    private long            flushInterval = 0;
+    private QueueFullPolicy queueFullPolicy = QueueFullPolicy.BLOCK;
+    /**
+     * DISCARD_BELOW_LEVEL策略下可以丢弃的最高日志级别
+     */
+    private int             discardLevel  = LogLevel.INFO;
+
+    private final LongAdder  droppedCount   = new LongAdder();
+    /**
+     * DISCARD_OLDEST策略下等待消费线程丢弃的请求，每个请求为请求时队列中最后一个事件的序号，只丢弃不大于该序号的事件
+     */
+    private final Queue<Long> discardBounds  = new ConcurrentLinkedQueue<>();
 
     public DisruptorLogDataQueue() {
         config  = new DisruptorConfig();
@@ -51,27 +92,164 @@ public class DisruptorLogDataQueue implements LogDataQueue {
     }
 
     @Override
-    public void start() {
+    public boolean publish(LogDataSink sink, int level, ByteArrayBuilder builder) {
+        if (!started) {
+            printError("DisruptorLogDataQueue not started");
+            return false;
+        }
+        switch (queueFullPolicy) {
+            case DISCARD_BELOW_LEVEL:
+                if (ringBuffer.tryPublishEvent(LogDataQueue::translate, sink, builder)) {
+                    return true;
+                }
+                if (level <= discardLevel) {
+                    droppedCount.increment();
+                    return false;
+                }
+                break;
+            case DISCARD_OLDEST:
+                if (ringBuffer.tryPublishEvent(LogDataQueue::translate, sink, builder)) {
+                    return true;
+                }
+                // 队列已满时发布线程不等待，立即腾出了位置时丢弃一条新日志之前已在队列中的最早的日志，否则丢弃新日志，
+                // 每次队列满只丢弃一条日志
+                long bound = ringBuffer.getCursor();
+                if (ringBuffer.tryPublishEvent(LogDataQueue::translate, sink, builder)) {
+                    discardBounds.offer(bound);
+                    return true;
+                }
+                droppedCount.increment();
+                return false;
+            default:
+                break;
+        }
+        ringBuffer.publishEvent(LogDataQueue::translate, sink, builder);
+        return true;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    @Override
+    public void drain(long timeoutMillis) {
+        if (!started) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long cursor = ringBuffer.getCursor();
+        while (disruptor.getSequenceValueFor(eventHandler) < cursor) {
+            if (System.currentTimeMillis() > deadline) {
+                printError("DisruptorLogDataQueue drain timeout");
+                return;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * 消费线程处理事件前调用，DISCARD_OLDEST策略下有等待丢弃的日志并且该事件在请求丢弃时已经在队列中时返回true，
+     * 该事件不再写入。请求时已在队列中的事件都已处理完成的请求直接移除
+     * @param sequence 事件的序号
+     */
+    boolean discardOldest(long sequence) {
+        Long bound;
+        while ((bound = discardBounds.peek()) != null) {
+            discardBounds.poll();
+            if (sequence <= bound) {
+                droppedCount.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        if (eventHandler == null) {
+            eventHandler = new LogDataBatchHandler(this, batchSize, flushOnIdle);
+        }
         disruptor = new Disruptor<>(WriteEvent::new, config.getCapacity(), DaemonThreadFactory.INSTANCE,
                 ProducerType.MULTI, config.getWaitStrategy());
         disruptor.handleEventsWith(eventHandler);
         ringBuffer = disruptor.start();
         started = true;
+        if (flushInterval > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+            flushScheduler.scheduleAtFixedRate(this::publishFlush, flushInterval, flushInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publishFlush() {
+        if (started) {
+            ringBuffer.tryPublishEvent(LogDataQueue::translateFlush);
+        }
     }
 
     @Override
-    public void stop() {
-        disruptor.shutdown();
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+            flushScheduler = null;
+        }
         started = false;
+        disruptor.shutdown();
     }
 
     @Override
     public void setArg(LogConfig.ArgNode arg) throws Throwable {
-        checkSetConfig(config, arg);
+        switch (arg.getName()) {
+            case "batchSize":
+                int size = Integer.parseInt(arg.getValue().trim());
+                batchSize = size > 0 ? size : DEFAULT_BATCH_SIZE;
+                break;
+            case "flushOnIdle":
+                flushOnIdle = Boolean.parseBoolean(arg.getValue().trim());
+                break;
+            case "flushInterval":
+                flushInterval = Long.parseLong(arg.getValue().trim());
+                break;
+            case "queueFullPolicy":
+                queueFullPolicy = QueueFullPolicy.valueOf(arg.getValue().trim().toUpperCase(Locale.ENGLISH));
+                break;
+            case "discardLevel":
+                discardLevel = parseLevel(arg.getValue().trim());
+                break;
+            default:
+                checkSetConfig(config, arg);
+        }
     }
 
     @Override
     public void setEventHandler(EventHandler<WriteEvent> handler) {
         this.eventHandler = handler;
     }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isFlushOnIdle() {
+        return flushOnIdle;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public QueueFullPolicy getQueueFullPolicy() {
+        return queueFullPolicy;
+    }
+
+    public int getDiscardLevel() {
+        return discardLevel;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.queue;
+
+import com.lmax.disruptor.EventHandler;
+import io.edap.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.edap.log.helpers.Util.printError;
+
+/**
+ * 异步日志数据的消费者，将写入同一个目标的连续日志数据合并后一次写入，在队列空闲、合并数据达到batchSize或者收到
+ * 定时刷新事件时刷新已写入的目标
+ */
+class LogDataBatchHandler implements EventHandler<LogDataQueue.WriteEvent> {
+
+    private final DisruptorLogDataQueue queue;
+    private final int                   batchSize;
+    private final boolean               flushOnIdle;
+    private final ByteArrayBuilder      batch;
+    /**
+     * 当前合并数据的写入目标
+     */
+    private LogDataSink                 batchSink;
+    /**
+     * 已写入数据但还没有刷新的目标
+     */
+    private final List<LogDataSink>     dirtySinks;
+
+    LogDataBatchHandler(DisruptorLogDataQueue queue, int batchSize, boolean flushOnIdle) {
+        this.queue       = queue;
+        this.batchSize   = batchSize;
+        this.flushOnIdle = flushOnIdle;
+        this.batch       = new ByteArrayBuilder(Math.min(batchSize, 64 * 1024));
+        this.dirtySinks  = new ArrayList<>();
+    }
+
+    @Override
+    public void onEvent(LogDataQueue.WriteEvent event, long sequence, boolean endOfBatch) {
+        if (event.isFlush()) {
+            writeBatch();
+            flushSinks();
+        } else if (event.getSink() != null && !queue.discardOldest(sequence)) {
+            LogDataSink sink = event.getSink();
+            if (sink != batchSink) {
+                writeBatch();
+                batchSink = sink;
+            }
+            batch.append(event.getByteArrayBuilder());
+            if (batch.length() >= batchSize) {
+                writeBatch();
+            }
+        }
+        event.reset();
+        if (endOfBatch) {
+            writeBatch();
+            if (flushOnIdle) {
+                flushSinks();
+            }
+        }
+    }
+
+    private void writeBatch() {
+        if (batch.length() == 0) {
+            return;
+        }
+        try {
+            batchSink.writeBatch(batch);
+            if (!dirtySinks.contains(batchSink)) {
+                dirtySinks.add(batchSink);
+            }
+        } catch (IOException e) {
+            printError("async write log data error", e);
+        } finally {
+            batch.reset();
+        }
+    }
+
+    private void flushSinks() {
+        int size = dirtySinks.size();
+        if (size == 0) {
+            return;
+        }
+        for (int i=0;i<size;i++) {
+            try {
+                dirtySinks.get(i).flush();
+            } catch (IOException e) {
+                printError("async flush log data error", e);
+            }
+        }
+        dirtySinks.clear();
+    }
+}
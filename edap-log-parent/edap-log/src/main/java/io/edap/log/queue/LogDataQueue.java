@@ -30,6 +30,44 @@ public interface LogDataQueue extends LogQueue<ByteArrayBuilder, LogDataQueue.Wr
 
     void setEventHandler(EventHandler<WriteEvent> handler);
 
+    /**
+     * 发布一条或者多条已编码的日志数据，由消费线程批量写入指定的目标，队列已满时按队列的策略处理
+     * @param sink 日志数据的写入目标
+     * @param level 日志的级别，队列已满时按级别决定是否丢弃
+     * @param builder 已编码的日志数据，发布时会复制到队列中
+     * @return 日志数据被丢弃时返回false
+     */
+    default boolean publish(LogDataSink sink, int level, ByteArrayBuilder builder) {
+        publish(builder);
+        return true;
+    }
+
+    /**
+     * 因队列已满被丢弃的日志数
+     */
+    default long getDroppedCount() {
+        return 0;
+    }
+
+    /**
+     * 等待队列中已发布的日志数据全部写入
+     * @param timeoutMillis 最长等待的毫秒数
+     */
+    default void drain(long timeoutMillis) {
+
+    }
+
+    static void translate(WriteEvent event, long sequence, LogDataSink sink, ByteArrayBuilder builder) {
+        event.reset();
+        event.setSink(sink);
+        event.append(builder);
+    }
+
+    static void translateFlush(WriteEvent event, long sequence) {
+        event.reset();
+        event.setFlush(true);
+    }
+
     static void translate(WriteEvent event, long sequence, ByteArrayBuilder builder) {
         //event.setOutputStream(builder.getOutputStream());
         event.reset();
@@ -45,6 +83,14 @@ public interface LogDataQueue extends LogQueue<ByteArrayBuilder, LogDataQueue.Wr
         private BaseLogOutputStream outputStream;
 
         private ByteArrayBuilder builder = new ByteArrayBuilder();
+        /**
+         * 日志数据的写入目标
+         */
+        private LogDataSink sink;
+        /**
+         * 定时刷新的标记事件，不包含日志数据
+         */
+        private boolean flush;
 
         public WriteEvent() {
 
@@ -60,6 +106,24 @@ public interface LogDataQueue extends LogQueue<ByteArrayBuilder, LogDataQueue.Wr
 
         public void reset() {
             builder.reset();
+            sink  = null;
+            flush = false;
+        }
+
+        public LogDataSink getSink() {
+            return sink;
+        }
+
+        public void setSink(LogDataSink sink) {
+            this.sink = sink;
+        }
+
+        public boolean isFlush() {
+            return flush;
+        }
+
+        public void setFlush(boolean flush) {
+            this.flush = flush;
         }
 
         public void append(ByteArrayBuilder builder) {
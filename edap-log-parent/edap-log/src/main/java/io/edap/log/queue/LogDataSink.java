@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.queue;
+
+import io.edap.util.ByteArrayBuilder;
+
+import java.io.IOException;
+
+/**
+ * 异步日志数据的写入目标，由异步队列的消费线程调用
+ */
+public interface LogDataSink {
+
+    /**
+     * 将一批连续的已编码日志数据一次写入
+     * @param batch 多条日志编码后拼接的数据
+     * @throws IOException 写入失败时抛出
+     */
+    void writeBatch(ByteArrayBuilder batch) throws IOException;
+
+    /**
+     * 将已写入的数据刷新到底层的存储
+     * @throws IOException 刷新失败时抛出
+     */
+    void flush() throws IOException;
+}
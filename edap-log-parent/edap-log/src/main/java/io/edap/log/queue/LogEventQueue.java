@@ -20,6 +20,7 @@ import io.edap.log.Appender;
 import io.edap.log.LogArgsImpl;
 import io.edap.log.LogEvent;
 import io.edap.log.LogQueue;
+import io.edap.log.MDC;
 import io.edap.util.FastList;
 
 import java.io.IOException;
@@ -59,19 +60,42 @@ public interface LogEventQueue extends LogQueue<LogArgsImpl, LogEvent> {
 
     static void translateLogEvent(LogEvent event, LogArgsImpl logArgs) {
         event.setLogTime(LOG_TIME.currentTimeMillis());
+        // MDC的上下文不可修改，异步输出时保存引用即可
+        event.setMdc(MDC.getContext());
         event.setFormat(logArgs.getFormat());
         event.setThrew(logArgs.getThrowable());
-        Object[] argv;
-        if (logArgs.getThrowable() != null) {
-            argv = new Object[logArgs.getArgc() + 1];
-            argv[logArgs.getArgc()]  = logArgs.getThrowable();
-        } else {
-            argv = new Object[logArgs.getArgc()];
-        }
-        System.arraycopy(logArgs.getArgv(), 0, argv, 0, logArgs.getArgc());
-        event.setArgv(argv);
+        event.setArgv(logArgs.toArgv());
+        event.setLogArgs(null);
+        event.setLevel(logArgs.level());
+        event.setLoggerName(logArgs.getLoggerName());
+        event.setThreadName(Thread.currentThread().getName());
+    }
+
+    /**
+     * 同步输出时事件直接引用调用线程的参数，不复制参数数组，Appender返回后需要调用{@link #unbindLogEvent}
+     */
+    static void bindLogEvent(LogEvent event, LogArgsImpl logArgs) {
+        event.setLogTime(LOG_TIME.currentTimeMillis());
+        event.setMdc(MDC.getContext());
+        event.setFormat(logArgs.getFormat());
+        event.setThrew(logArgs.getThrowable());
+        event.setArgv(null);
+        event.setLogArgs(logArgs);
+        logArgs.setBound(true);
         event.setLevel(logArgs.level());
         event.setLoggerName(logArgs.getLoggerName());
         event.setThreadName(Thread.currentThread().getName());
     }
+
+    static void unbindLogEvent(LogEvent event) {
+        LogArgsImpl logArgs = event.getLogArgs();
+        if (logArgs != null) {
+            logArgs.setBound(false);
+        }
+        event.setLogArgs(null);
+        event.setArgv(null);
+        event.setThrew(null);
+        event.setFormat(null);
+        event.setMdc(null);
+    }
 }
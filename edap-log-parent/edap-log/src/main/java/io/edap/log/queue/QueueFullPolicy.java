@@ -0,0 +1,35 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.queue;
+
+/**
+ * 异步日志队列已满时的处理策略
+ */
+public enum QueueFullPolicy {
+    /**
+     * 阻塞写日志的线程直到队列有空闲位置
+     */
+    BLOCK,
+    /**
+     * 丢弃级别不高于discardLevel的日志，更高级别的日志阻塞等待
+     */
+    DISCARD_BELOW_LEVEL,
+    /**
+     * 发布线程不等待，立即腾出了位置时丢弃队列中最早的一条日志，否则丢弃新日志，每次队列满只丢弃一条日志
+     */
+    DISCARD_OLDEST
+}
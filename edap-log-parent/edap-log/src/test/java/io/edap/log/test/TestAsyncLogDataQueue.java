@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.test;
+
+import io.edap.log.LogConfig;
+import io.edap.log.LogLevel;
+import io.edap.log.queue.DisruptorLogDataQueue;
+import io.edap.log.queue.LogDataSink;
+import io.edap.util.ByteArrayBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAsyncLogDataQueue {
+
+    @Test
+    public void testBatchWrite() throws Throwable {
+        DisruptorLogDataQueue queue = createQueue("queueFullPolicy", "BLOCK");
+        CountSink sink = new CountSink(null);
+        queue.start();
+        StringBuilder expected = new StringBuilder();
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        for (int i=0;i<1000;i++) {
+            String line = "log line " + i + "\n";
+            expected.append(line);
+            builder.reset();
+            builder.append(line.getBytes(StandardCharsets.UTF_8));
+            assertTrue(queue.publish(sink, LogLevel.INFO, builder));
+        }
+        queue.drain(5000);
+        assertEquals(expected.toString(), sink.getString());
+        assertTrue(sink.batches.get() <= 1000);
+        assertTrue(sink.flushes.get() > 0);
+        assertEquals(0, queue.getDroppedCount());
+        queue.stop();
+    }
+
+    @Test
+    public void testDiscardBelowLevel() throws Throwable {
+        DisruptorLogDataQueue queue = createQueue("queueFullPolicy", "DISCARD_BELOW_LEVEL");
+        queue.setArg(createArg("discardLevel", "debug"));
+        CountDownLatch latch = new CountDownLatch(1);
+        CountSink sink = new CountSink(latch);
+        queue.start();
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        builder.append("debug\n".getBytes(StandardCharsets.UTF_8));
+        int published = 0;
+        for (int i=0;i<100;i++) {
+            if (queue.publish(sink, LogLevel.DEBUG, builder)) {
+                published++;
+            }
+        }
+        assertTrue(queue.getDroppedCount() > 0);
+        assertEquals(100, published + queue.getDroppedCount());
+
+        latch.countDown();
+        builder.reset();
+        builder.append("error\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(queue.publish(sink, LogLevel.ERROR, builder));
+        queue.drain(5000);
+        String data = sink.getString();
+        assertTrue(data.endsWith("error\n"));
+        assertEquals(published + 1, data.split("\n").length);
+        queue.stop();
+    }
+
+    @Test
+    public void testDiscardOldest() throws Throwable {
+        DisruptorLogDataQueue queue = createQueue("queueFullPolicy", "DISCARD_OLDEST");
+        CountDownLatch latch = new CountDownLatch(1);
+        CountSink sink = new CountSink(latch);
+        queue.start();
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        builder.append("block\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(queue.publish(sink, LogLevel.INFO, builder));
+        assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+        // 消费线程阻塞在写入时还占用一个位置，队列还可以放入7条日志
+        for (int i=0;i<7;i++) {
+            builder.reset();
+            builder.append(("line" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            assertTrue(queue.publish(sink, LogLevel.INFO, builder));
+        }
+        // 队列已满并且没有腾出位置，发布线程不等待，每次只丢弃新的一条日志
+        for (int i=7;i<17;i++) {
+            builder.reset();
+            builder.append(("line" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            assertFalse(queue.publish(sink, LogLevel.INFO, builder));
+        }
+        assertEquals(10, queue.getDroppedCount());
+
+        latch.countDown();
+        queue.drain(5000);
+        builder.reset();
+        builder.append("last\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(queue.publish(sink, LogLevel.INFO, builder));
+        queue.drain(5000);
+        StringBuilder expected = new StringBuilder("block\n");
+        for (int i=0;i<7;i++) {
+            expected.append("line").append(i).append("\n");
+        }
+        expected.append("last\n");
+        assertEquals(expected.toString(), sink.getString());
+        assertEquals(10, queue.getDroppedCount());
+        queue.stop();
+    }
+
+    private static DisruptorLogDataQueue createQueue(String name, String value) throws Throwable {
+        DisruptorLogDataQueue queue = new DisruptorLogDataQueue();
+        queue.setArg(createArg("capacity", "8"));
+        queue.setArg(createArg(name, value));
+        return queue;
+    }
+
+    private static LogConfig.ArgNode createArg(String name, String value) {
+        LogConfig.ArgNode arg = new LogConfig.ArgNode();
+        arg.setName(name);
+        arg.setValue(value);
+        return arg;
+    }
+
+    static class CountSink implements LogDataSink {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger flushes = new AtomicInteger();
+        final CountDownLatch latch;
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        CountSink(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void writeBatch(ByteArrayBuilder batch) throws IOException {
+            if (latch != null) {
+                entered.countDown();
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batches.incrementAndGet();
+            synchronized (out) {
+                batch.writeTo(out);
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+        String getString() {
+            synchronized (out) {
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
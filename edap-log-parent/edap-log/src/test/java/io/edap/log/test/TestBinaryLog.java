@@ -0,0 +1,264 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.test;
+
+import io.edap.log.Appender;
+import io.edap.log.Encoder;
+import io.edap.log.LogConfig;
+import io.edap.log.LogEvent;
+import io.edap.log.LogLevel;
+import io.edap.log.LoggerImpl;
+import io.edap.log.appenders.BinaryFileAppender;
+import io.edap.log.appenders.OutputStremAppender;
+import io.edap.log.binary.BinaryLogDecoder;
+import io.edap.log.binary.BinaryLogEncoder;
+import io.edap.log.helps.LogEncoderRegister;
+import io.edap.log.io.BaseLogOutputStream;
+import io.edap.log.queue.DisruptorLogDataQueue;
+import io.edap.util.ByteArrayBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestBinaryLog {
+
+    private static final String PATTERN = "%date{yyyy-MM-dd HH:mm:ss.SSS} %level [%thread] %logger - %msg%n";
+
+    private static OutputStremAppender appender(Encoder encoder, OutputStream out) {
+        OutputStremAppender appender = new OutputStremAppender() {};
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new BaseLogOutputStream(out));
+        appender.start();
+        return appender;
+    }
+
+    private static BinaryLogEncoder binaryEncoder(OutputStream out) throws IOException {
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
+        ByteArrayBuilder header = new ByteArrayBuilder();
+        encoder.startStream(header, System.currentTimeMillis() - 3600_000L);
+        header.writeTo(out);
+        return encoder;
+    }
+
+    private static String decode(byte[] data) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        new BinaryLogDecoder(PATTERN).decode(new ByteArrayInputStream(data), text);
+        return text.toString(StandardCharsets.UTF_8);
+    }
+
+    private static LogEvent event(String format, Object... argv) {
+        LogEvent event = new LogEvent();
+        event.setLogTime(System.currentTimeMillis());
+        event.setLevel(LogLevel.DEBUG);
+        event.setLoggerName("io.edap.Async");
+        event.setThreadName("worker-1");
+        event.setFormat(format);
+        event.setArgv(argv);
+        return event;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        LoggerImpl logger = new LoggerImpl(TestBinaryLog.class.getName());
+        logger.setAppenders(new Appender[]{
+                appender(LogEncoderRegister.instance().getEncoder(PATTERN), text),
+                appender(binaryEncoder(binary), binary)});
+
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            logger.info("request {} cost {}ms ratio {} cached {}",
+                    a -> a.arg(id).arg(id * 1000L).arg(id / 3.0).arg(id % 2 == 0));
+        }
+        assertTrue(binary.size() * 2 < text.size(), binary.size() + " vs " + text.size());
+        logger.warn("{} {} {} {} {}", a -> a.arg('c').arg('中').arg((byte) -7).arg((short) -3).arg(1.5f));
+        logger.error("{} {} {} 😀", a -> a.arg("中文").arg((Object) null).arg(Arrays.asList(1, 2)));
+        logger.warn("plain message without args");
+        logger.error("failed {}", a -> a.arg(Long.MIN_VALUE).threw(
+                new IllegalStateException("boom", new IOException("disk"))));
+
+        String expected = text.toString(StandardCharsets.UTF_8);
+        assertEquals(expected, decode(binary.toByteArray()));
+
+        // 异步事件的参数和异常在参数数组中
+        Encoder textEncoder = LogEncoderRegister.instance().getEncoder(PATTERN);
+        binary.reset();
+        BinaryLogEncoder encoder = binaryEncoder(binary);
+        Exception cause = new RuntimeException();
+        LogEvent[] events = {event("async {} {}", 1, "a"), event("async {}", 2.5, cause),
+                event(null), event("{}", (Object) null)};
+        events[1].setThrew(cause);
+        StringBuilder sb = new StringBuilder();
+        for (LogEvent e : events) {
+            sb.append(textEncoder.encode(e).toString());
+            encoder.encode(e).writeTo(binary);
+        }
+        assertEquals(sb.toString(), decode(binary.toByteArray()));
+    }
+
+    @Test
+    public void testForwardReference() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = binaryEncoder(binary);
+        LogEvent first = event("first {}", 1);
+        LogEvent second = event("first {}", 2);
+        byte[] firstData = encoder.encode(first).toByteArray();
+        byte[] secondData = encoder.encode(second).toByteArray();
+        assertTrue(secondData.length < firstData.length);
+        // 多线程写入时引用字典的日志可能先于定义写入文件
+        binary.write(secondData);
+        binary.write(firstData);
+        binary.write(encoder.encode(event("third")).toByteArray());
+
+        String[] lines = decode(binary.toByteArray()).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].endsWith("io.edap.Async - first 2"));
+        assertTrue(lines[1].endsWith("io.edap.Async - first 1"));
+        assertTrue(lines[2].endsWith("io.edap.Async - third"));
+
+        // 缺少定义时仍然输出，未定义的字符串使用占位符
+        lines = decode(Arrays.copyOf(binary.toByteArray(), 14 + secondData.length)).split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("<undefined#"));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = binaryEncoder(binary);
+        for (int i = 0; i < 10; i++) {
+            encoder.encode(event("truncated {}", i)).writeTo(binary);
+        }
+        byte[] data = binary.toByteArray();
+        String[] lines = decode(Arrays.copyOf(data, data.length - 1)).split("\n");
+        assertEquals(9, lines.length);
+        assertTrue(lines[8].endsWith("truncated 8"));
+
+        assertThrows(IOException.class, () -> decode("not a log".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testFileAppender(@TempDir Path dir) throws IOException {
+        String file = dir.resolve("app.blog").toString();
+        for (int round = 0; round < 2; round++) {
+            BinaryFileAppender appender = new BinaryFileAppender();
+            appender.setFile(file);
+            appender.setEncoder(LogEncoderRegister.instance().getEncoder(PATTERN));
+            appender.start();
+            LoggerImpl logger = new LoggerImpl("io.edap.File");
+            logger.setAppenders(new Appender[]{appender});
+            int r = round;
+            logger.info("round {}", a -> a.arg(r));
+            appender.stop();
+        }
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(file)) {
+            assertEquals(2, new BinaryLogDecoder(PATTERN).decode(in, text));
+        }
+        String[] lines = text.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].endsWith("io.edap.File - round 0"));
+        assertTrue(lines[1].endsWith("io.edap.File - round 1"));
+    }
+
+    @Test
+    public void testAsyncDropped(@TempDir Path dir) throws Throwable {
+        String file = dir.resolve("drop.blog").toString();
+        DisruptorLogDataQueue queue = new DisruptorLogDataQueue();
+        queue.setArg(createArg("capacity", "8"));
+        queue.setArg(createArg("queueFullPolicy", "DISCARD_BELOW_LEVEL"));
+        BinaryFileAppender appender = new BinaryFileAppender();
+        appender.setFile(file);
+        appender.setAsync(true);
+        appender.setAsyncQueue(queue);
+        appender.start();
+        LoggerImpl logger = new LoggerImpl("io.edap.Drop");
+        logger.setAppenders(new Appender[]{appender});
+
+        // 持有appender的锁阻塞消费线程，直到队列已满
+        appender.getLock().lock();
+        int fills = 0;
+        try {
+            while (queue.getDroppedCount() == 0) {
+                int n = fills++;
+                logger.info("fill {}", a -> a.arg(n));
+            }
+            // 第一次使用的格式的定义和日志一起被丢弃
+            logger.info("dropped {}", a -> a.arg(0));
+            assertEquals(2, queue.getDroppedCount());
+        } finally {
+            appender.getLock().unlock();
+        }
+        queue.drain(5000);
+        logger.info("dropped {}", a -> a.arg(1));
+        appender.stop();
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(file)) {
+            assertEquals(fills, new BinaryLogDecoder(PATTERN).decode(in, text));
+        }
+        String[] lines = text.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(fills, lines.length);
+        assertTrue(lines[fills - 1].endsWith("io.edap.Drop - dropped 1"), lines[fills - 1]);
+    }
+
+    private static LogConfig.ArgNode createArg(String name, String value) {
+        LogConfig.ArgNode arg = new LogConfig.ArgNode();
+        arg.setName(name);
+        arg.setValue(value);
+        return arg;
+    }
+
+    @Test
+    public void testZeroAllocation() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        TestSyncLogAllocation.CountOutputStream out = new TestSyncLogAllocation.CountOutputStream();
+        LoggerImpl logger = new LoggerImpl(TestBinaryLog.class.getName());
+        logger.setAppenders(new Appender[]{appender(binaryEncoder(out), out)});
+        for (int i = 0; i < 50000; i++) {
+            logger.info("request {} cost {}ms ratio {}", a -> a.arg(1024).arg(35L).arg(0.25));
+        }
+        long allocated = -1;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            long start = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10000; i++) {
+                logger.info("request {} cost {}ms ratio {}", a -> a.arg(1024).arg(35L).arg(0.25));
+            }
+            allocated = bean.getCurrentThreadAllocatedBytes() - start;
+        }
+        assertEquals(0, allocated, "bytes allocated by 10000 binary log calls");
+        assertTrue(out.count > 0);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.test;
+
+import io.edap.log.Appender;
+import io.edap.log.Encoder;
+import io.edap.log.LogArgsImpl;
+import io.edap.log.LogEvent;
+import io.edap.log.LoggerImpl;
+import io.edap.log.MDC;
+import io.edap.log.appenders.OutputStremAppender;
+import io.edap.log.helps.LogEncoderRegister;
+import io.edap.log.io.BaseLogOutputStream;
+import io.edap.log.queue.LogEventQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static io.edap.log.LogLevel.INFO;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMDCConverter {
+
+    @AfterEach
+    public void clear() {
+        MDC.clear();
+    }
+
+    private static LoggerImpl logger(String pattern, ByteArrayOutputStream out) {
+        Encoder encoder = LogEncoderRegister.instance().getEncoder(pattern);
+        OutputStremAppender appender = new OutputStremAppender() {};
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new BaseLogOutputStream(out));
+        appender.start();
+        LoggerImpl logger = new LoggerImpl(TestMDCConverter.class.getName());
+        logger.setAppenders(new Appender[]{appender});
+        return logger;
+    }
+
+    @Test
+    public void testSyncLog() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoggerImpl logger = logger("[%X{traceId}] [%X{userId:-anonymous}] %msg%n", out);
+        logger.info("no context");
+        MDC.put("traceId", "0af7651916cd43dd8448eb211c80319c");
+        MDC.put("userId", 10086);
+        logger.info("with context");
+        MDC.remove("userId");
+        logger.info("removed {}", a -> a.arg("userId"));
+        assertEquals("[] [anonymous] no context\n"
+                + "[0af7651916cd43dd8448eb211c80319c] [10086] with context\n"
+                + "[0af7651916cd43dd8448eb211c80319c] [anonymous] removed userId\n",
+                out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        logger = logger("%X - %msg%n", out);
+        MDC.put("userId", "u1");
+        logger.info("all");
+        assertEquals("traceId=0af7651916cd43dd8448eb211c80319c, userId=u1 - all\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAsyncSnapshot() {
+        MDC.put("traceId", "t-1");
+        LogArgsImpl logArgs = new LogArgsImpl();
+        logArgs.level(INFO);
+        logArgs.format("async");
+        logArgs.setLoggerName("io.edap.Async");
+        LogEvent event = new LogEvent();
+        LogEventQueue.translateLogEvent(event, logArgs);
+        // 异步事件保存的是发布时上下文的引用，之后修改MDC不影响已经发布的事件
+        assertSame(MDC.getContext(), event.getMdc());
+        MDC.put("traceId", "t-2");
+
+        Encoder encoder = LogEncoderRegister.instance().getEncoder("%X{traceId} %msg%n");
+        assertEquals("t-1 async\n", encoder.encode(event).toString());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.log.test;
+
+import io.edap.log.Appender;
+import io.edap.log.Encoder;
+import io.edap.log.LoggerImpl;
+import io.edap.log.appenders.OutputStremAppender;
+import io.edap.log.helps.LogEncoderRegister;
+import io.edap.log.io.BaseLogOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestSyncLogAllocation {
+
+    private static final String PATTERN = "%level [%thread] %logger - %msg%n";
+
+    private static int requestId = 1024;
+    private static long cost = 35L;
+    private static double ratio = 0.25;
+
+    static class CountOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static LoggerImpl logger(OutputStream out) {
+        Encoder encoder = LogEncoderRegister.instance().getEncoder(PATTERN);
+        OutputStremAppender appender = new OutputStremAppender() {};
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new BaseLogOutputStream(out));
+        appender.start();
+        LoggerImpl logger = new LoggerImpl(TestSyncLogAllocation.class.getName());
+        logger.setAppenders(new Appender[]{appender});
+        return logger;
+    }
+
+    private static void log(LoggerImpl logger) {
+        logger.info("request {} cost {}ms ratio {} cached {}",
+                a -> a.arg(requestId).arg(cost).arg(ratio).arg(true));
+        logger.warn("plain message without args");
+    }
+
+    @Test
+    public void testFormat() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoggerImpl logger = logger(out);
+        String prefix = " [" + Thread.currentThread().getName() + "] " + TestSyncLogAllocation.class.getName() + " - ";
+
+        log(logger);
+        assertEquals("INFO" + prefix + "request 1024 cost 35ms ratio 0.25 cached true\n"
+                + "WARN" + prefix + "plain message without args\n", out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        logger.info("{} {} {} {} {}", a -> a.arg('c').arg('中').arg((byte)7).arg((short)-3).arg(1.5f));
+        assertEquals("INFO" + prefix + "c 中 7 -3 1.5\n", out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        logger.error("failed {} {}", a -> a.arg(-1L).threw(new IllegalStateException("boom")));
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("ERROR" + prefix
+                + "failed -1 java.lang.IllegalStateException: boom"));
+    }
+
+    @Test
+    public void testZeroAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        CountOutputStream out = new CountOutputStream();
+        LoggerImpl logger = logger(out);
+        for (int i = 0; i < 50000; i++) {
+            log(logger);
+        }
+        // JIT编译的层级切换可能产生少量分配，取稳定后的一轮结果
+        long allocated = -1;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            long start = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10000; i++) {
+                log(logger);
+            }
+            allocated = bean.getCurrentThreadAllocatedBytes() - start;
+        }
+        assertEquals(0, allocated, "bytes allocated by 20000 log calls");
+        assertTrue(out.count > 0);
+    }
+
+    private static OutputStremAppender appender(String pattern, OutputStream out) {
+        OutputStremAppender appender = new OutputStremAppender() {};
+        appender.setEncoder(LogEncoderRegister.instance().getEncoder(pattern));
+        appender.setOutputStream(new BaseLogOutputStream(out));
+        appender.start();
+        return appender;
+    }
+
+    @Test
+    public void testNestedLogging() {
+        String pattern = "%logger - %msg%n";
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        ByteArrayOutputStream innerOut = new ByteArrayOutputStream();
+        LoggerImpl outer = new LoggerImpl("outer");
+        outer.setAppenders(new Appender[]{appender(pattern, out1), appender(pattern, out2)});
+        LoggerImpl inner = new LoggerImpl("inner");
+        inner.setAppenders(new Appender[]{appender(pattern, innerOut)});
+        // 参数的toString中通过其他Logger以及同一个Logger输出日志
+        Object user = new Object() {
+            @Override
+            public String toString() {
+                inner.info("toString called");
+                outer.warn("nested {}", a -> a.arg(7));
+                return "USER";
+            }
+        };
+
+        outer.info("hello {} id {}", a -> a.arg(user).arg(42));
+        outer.info("after {}", a -> a.arg(1));
+        // 每个Appender编码时都会调用一次toString，内层的日志先于外层的日志写入
+        assertEquals("outer - nested 7\nouter - hello USER id 42\nouter - nested 7\nouter - after 1\n",
+                out1.toString(StandardCharsets.UTF_8));
+        assertEquals("outer - nested 7\nouter - nested 7\nouter - hello USER id 42\nouter - after 1\n",
+                out2.toString(StandardCharsets.UTF_8));
+        assertEquals("inner - toString called\ninner - toString called\n",
+                innerOut.toString(StandardCharsets.UTF_8));
+    }
+}
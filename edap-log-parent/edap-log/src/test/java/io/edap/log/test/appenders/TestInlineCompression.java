@@ -0,0 +1,180 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.test.appenders;
+
+import io.edap.log.LogEvent;
+import io.edap.log.LogLevel;
+import io.edap.log.appenders.rolling.RollingFileAppender;
+import io.edap.log.appenders.rolling.SizeAndTimeBasedRollingPolicy;
+import io.edap.log.helps.LogEncoderRegister;
+import io.edap.log.io.SyncFlushOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInlineCompression {
+
+    private static RollingFileAppender appender(String file, String pattern, String maxFileSize,
+                                                int syncFlushInterval) {
+        SizeAndTimeBasedRollingPolicy policy = new SizeAndTimeBasedRollingPolicy();
+        policy.setFileNamePattern(pattern);
+        policy.setMaxFileSize(maxFileSize);
+        policy.setInlineCompression(true);
+        policy.setSyncFlushInterval(syncFlushInterval);
+        policy.start();
+        RollingFileAppender appender = new RollingFileAppender();
+        policy.setParent(appender);
+        appender.setRollingPolicy(policy);
+        appender.setEncoder(LogEncoderRegister.instance().getEncoder("%msg%n"));
+        if (file != null) {
+            appender.setFile(file);
+        }
+        appender.start();
+        return appender;
+    }
+
+    private static LogEvent event(int seq) {
+        LogEvent event = new LogEvent();
+        event.setLogTime(System.currentTimeMillis());
+        event.setLevel(LogLevel.INFO);
+        event.setLoggerName("io.edap.Inline");
+        event.setThreadName("main");
+        event.setFormat("seq {} payload 0123456789");
+        event.setArgv(new Object[]{seq});
+        return event;
+    }
+
+    /**
+     * 解压文件中已经写入的数据，正在写入的文件没有gzip的结尾，读到文件结束时返回已经解压的内容
+     */
+    private static String gunzip(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (EOFException e) {
+            // 文件还在写入中
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void collect(String text, Set<String> lines) {
+        for (String line : text.split("\n")) {
+            if (!line.isEmpty()) {
+                assertTrue(lines.add(line), line);
+            }
+        }
+    }
+
+    private static void assertLines(Set<String> lines, int count) {
+        assertEquals(count, lines.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(lines.contains("seq " + i + " payload 0123456789"));
+        }
+    }
+
+    @Test
+    public void testReadWhileWriting(@TempDir Path dir) throws Exception {
+        String file = dir.resolve("inline.log.gz").toString();
+        RollingFileAppender appender = appender(file, dir + "/inline-%d{yyyy-MM-dd}-%i.log.gz", "100MB", 0);
+        for (int i = 0; i < 100; i++) {
+            appender.append(event(i));
+        }
+        // 每次flush都输出同步点，没有关闭的文件也可以解压出已经写入的日志
+        Set<String> lines = new HashSet<>();
+        collect(gunzip(new File(file)), lines);
+        assertLines(lines, 100);
+        appender.stop();
+
+        // 追加写入时gzip文件包含多个member，解压后是所有的日志
+        appender = appender(file, dir + "/inline-%d{yyyy-MM-dd}-%i.log.gz", "100MB", 0);
+        for (int i = 100; i < 200; i++) {
+            appender.append(event(i));
+        }
+        appender.stop();
+        lines.clear();
+        collect(gunzip(new File(file)), lines);
+        assertLines(lines, 200);
+    }
+
+    @Test
+    public void testRollover(@TempDir Path dir) throws Exception {
+        RollingFileAppender appender = appender(null, dir + "/roll-%d{yyyy-MM-dd}-%i.log.gz", "2KB", 0);
+        for (int i = 0; i < 5000; i++) {
+            appender.append(event(i));
+        }
+        appender.stop();
+        Thread.sleep(200);
+
+        File[] files = dir.toFile().listFiles();
+        assertNotNull(files);
+        assertTrue(files.length > 3, "files " + files.length);
+        Set<String> lines = new HashSet<>();
+        for (File f : files) {
+            // 滚动后不再生成未压缩的文件
+            assertTrue(f.getName().endsWith(".log.gz"), f.getName());
+            collect(gunzip(f), lines);
+        }
+        assertLines(lines, 5000);
+    }
+
+    @Test
+    public void testSyncOnIdle() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        SyncFlushOutputStream sync = new SyncFlushOutputStream(out, 50);
+        sync.write("last line\n".getBytes(StandardCharsets.UTF_8));
+        sync.flush();
+        assertEquals(0, flushes.get());
+        // 之后没有新的写入，定时任务也需要输出同步点
+        long deadline = System.currentTimeMillis() + 2000;
+        while (flushes.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, flushes.get());
+        Thread.sleep(200);
+        assertEquals(1, flushes.get());
+        sync.close();
+    }
+}
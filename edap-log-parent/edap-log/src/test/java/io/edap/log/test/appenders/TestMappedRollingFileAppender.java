@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.log.test.appenders;
+
+import io.edap.log.LogEvent;
+import io.edap.log.LogLevel;
+import io.edap.log.appenders.rolling.MappedRollingFileAppender;
+import io.edap.log.appenders.rolling.SizeAndTimeBasedRollingPolicy;
+import io.edap.log.helps.LogEncoderRegister;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMappedRollingFileAppender {
+
+    private static MappedRollingFileAppender appender(String file, String pattern, String maxFileSize) {
+        SizeAndTimeBasedRollingPolicy policy = new SizeAndTimeBasedRollingPolicy();
+        policy.setFileNamePattern(pattern);
+        policy.setMaxFileSize(maxFileSize);
+        policy.start();
+        MappedRollingFileAppender appender = new MappedRollingFileAppender();
+        policy.setParent(appender);
+        appender.setRollingPolicy(policy);
+        appender.setRegionSize(4096);
+        appender.setEncoder(LogEncoderRegister.instance().getEncoder("%msg%n"));
+        if (file != null) {
+            appender.setFile(file);
+        }
+        appender.start();
+        return appender;
+    }
+
+    private static LogEvent event(int thread, int seq) {
+        LogEvent event = new LogEvent();
+        event.setLogTime(System.currentTimeMillis());
+        event.setLevel(LogLevel.INFO);
+        event.setLoggerName("io.edap.Mapped");
+        event.setThreadName("t" + thread);
+        event.setFormat("thread {} seq {} payload 0123456789");
+        event.setArgv(new Object[]{thread, seq});
+        return event;
+    }
+
+    private static void write(MappedRollingFileAppender appender, int threads, int count) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        appender.append(event(thread, i));
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+    }
+
+    private static void assertLines(Set<String> lines, int threads, int count) {
+        assertEquals(threads * count, lines.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < count; i++) {
+                assertTrue(lines.contains("thread " + t + " seq " + i + " payload 0123456789"));
+            }
+        }
+    }
+
+    private static Set<String> read(File file, Set<String> lines) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        for (byte b : data) {
+            assertNotEquals(0, b, file.getName());
+        }
+        for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                assertTrue(lines.add(line), line);
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testConcurrentWrite(@TempDir Path dir) throws Exception {
+        String file = dir.resolve("mapped.log").toString();
+        MappedRollingFileAppender appender = appender(file, dir + "/mapped-%d{yyyy-MM-dd}-%i.log", "100MB");
+        write(appender, 4, 5000);
+        appender.stop();
+
+        Set<String> lines = read(new File(file), new HashSet<>());
+        assertLines(lines, 4, 5000);
+    }
+
+    @Test
+    public void testRollover(@TempDir Path dir) throws Exception {
+        MappedRollingFileAppender appender = appender(null, dir + "/roll-%d{yyyy-MM-dd}-%i.log", "8KB");
+        write(appender, 4, 1000);
+        appender.stop();
+
+        File[] files = dir.toFile().listFiles();
+        assertNotNull(files);
+        assertTrue(files.length > 10, "files " + files.length);
+        Set<String> lines = new HashSet<>();
+        for (File f : files) {
+            assertTrue(f.length() <= 8 * 1024 + 4 * 64, f.getName() + " " + f.length());
+            read(f, lines);
+        }
+        assertLines(lines, 4, 1000);
+    }
+
+    @Test
+    public void testReopen(@TempDir Path dir) throws Exception {
+        String file = dir.resolve("reopen.log").toString();
+        MappedRollingFileAppender appender = appender(file, dir + "/reopen-%d{yyyy-MM-dd}-%i.log", "100MB");
+        appender.append(event(0, 0));
+        appender.stop();
+        // 模拟进程退出时没有截断文件，映射区域剩余的部分为0
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() + 1000);
+        }
+
+        appender = appender(file, dir + "/reopen-%d{yyyy-MM-dd}-%i.log", "100MB");
+        appender.append(event(0, 1));
+        appender.stop();
+        assertLines(read(new File(file), new HashSet<>()), 1, 2);
+    }
+}
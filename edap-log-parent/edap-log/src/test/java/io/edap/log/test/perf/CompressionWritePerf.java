@@ -0,0 +1,117 @@
+package io.edap.log.test.perf;
+
+import io.edap.log.compression.GzCompression;
+import io.edap.log.io.SyncFlushOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较每写入约1MB日志的CPU时间以及磁盘占用：不压缩、写入时gzip压缩（定期输出同步点）以及写入后滚动时再压缩
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Threads(1)
+public class CompressionWritePerf {
+
+    static final int LINES = 8192;
+
+    byte[][] lines;
+
+    GzCompression gz = new GzCompression();
+
+    File plain = new File("perf-plain.log");
+    File inline = new File("perf-inline.log.gz");
+    File archive = new File("perf-archive.log.gz");
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class DiskBytes {
+        /**
+         * 写入的日志字节数，与diskBytes的比值为压缩率
+         */
+        public long rawBytes;
+        public long diskBytes;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            rawBytes = 0;
+            diskBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        lines = new byte[LINES][];
+        String[] levels = {"INFO ", "DEBUG", "WARN ", "ERROR"};
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = ("2023-06-01 12:" + (10 + i % 50) + ":" + (10 + i % 49) + "." + (100 + i % 900) + " "
+                    + levels[i % levels.length] + " [worker-" + (i % 16) + "] io.edap.order.OrderService - order "
+                    + (1000000 + i * 7) + " paid amount " + (i % 997) + "." + (i % 100) + " user " + (i * 31 % 10007)
+                    + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        plain.delete();
+        inline.delete();
+        archive.delete();
+    }
+
+    private void writeLines(OutputStream out, DiskBytes counter) throws IOException {
+        for (int i = 0; i < LINES; i++) {
+            counter.rawBytes += lines[i].length;
+            out.write(lines[i]);
+            // 与FileAppender一样每条日志flush一次
+            out.flush();
+        }
+    }
+
+    @Benchmark
+    public void plainWrite(DiskBytes counter) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(plain), 8192)) {
+            writeLines(out, counter);
+        }
+        counter.diskBytes += plain.length();
+    }
+
+    @Benchmark
+    public void inlineGzipWrite(DiskBytes counter) throws IOException {
+        FileOutputStream fos = new FileOutputStream(inline);
+        try (OutputStream out = new BufferedOutputStream(
+                new SyncFlushOutputStream(gz.compressStream(fos), 1000), 8192)) {
+            writeLines(out, counter);
+        }
+        counter.diskBytes += inline.length();
+    }
+
+    @Benchmark
+    public void writeThenGzip(DiskBytes counter) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(plain), 8192)) {
+            writeLines(out, counter);
+        }
+        gz.compress(plain, archive);
+        plain.delete();
+        counter.diskBytes += archive.length();
+        archive.delete();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CompressionWritePerf.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
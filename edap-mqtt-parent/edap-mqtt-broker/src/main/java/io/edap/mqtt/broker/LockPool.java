@@ -17,7 +17,7 @@ public class LockPool {
     }
 
     public Lock getSubTopicLock(String topic) {
-        return SUB_TOPIC_LOCKS[topic.hashCode() % SUB_TOPIC_LOCKS.length];
+        return SUB_TOPIC_LOCKS[(topic.hashCode() & 0x7FFFFFFF) % SUB_TOPIC_LOCKS.length];
     }
 
     public Lock getTopicLock() {
@@ -8,7 +8,7 @@ import io.edap.mqtt.broker.mqtthandler.MqttBrokerHandler_V31;
 import io.edap.mqtt.broker.mqtthandler.MqttBrokerHandler_V311;
 import io.edap.mqtt.broker.mqtthandler.MqttBrokerHandler_V5;
 import io.edap.mqtt.ControlPacket;
-import io.edap.mqtt.broker.submgt.MemorySubMgt;
+import io.edap.mqtt.broker.submgt.TopicTrieSubMgt;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,6 +25,13 @@ public class MqttBroker extends Server<ControlPacket, MqttBrokerSession> {
 
     private SubscribeManager subscribeManager;
 
+    private PublishFanout publishFanout;
+
+    /**
+     * 每个客户端会话待发送PUBLISH消息队列的容量
+     */
+    private int outboundQueueSize = 1024;
+
     @Override
     public void init() {
         super.init();
@@ -36,7 +43,10 @@ public class MqttBroker extends Server<ControlPacket, MqttBrokerSession> {
             qoSLevel = QoSLevel.EXACTLY_ONCE;
         }
         lockPool         = new LockPool();
-        subscribeManager = new MemorySubMgt();
+        if (subscribeManager == null) {
+            subscribeManager = new TopicTrieSubMgt();
+        }
+        publishFanout    = new PublishFanout(subscribeManager);
     }
 
     public void setQoSLevel(QoSLevel qoSLevel) {
@@ -51,6 +61,8 @@ public class MqttBroker extends Server<ControlPacket, MqttBrokerSession> {
         session.setMqttHandlers(MQTT_HANDLERS);
         session.setQoSLevel(qoSLevel);
         session.setSubscribeManager(subscribeManager);
+        session.setPublishFanout(publishFanout);
+        session.setOutboundQueueSize(outboundQueueSize);
         return session;
     }
 
@@ -61,4 +73,20 @@ public class MqttBroker extends Server<ControlPacket, MqttBrokerSession> {
     public SubscribeManager getSubscribeManager() {
         return subscribeManager;
     }
+
+    public void setSubscribeManager(SubscribeManager subscribeManager) {
+        this.subscribeManager = subscribeManager;
+    }
+
+    public PublishFanout getPublishFanout() {
+        return publishFanout;
+    }
+
+    public int getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+
+    public void setOutboundQueueSize(int outboundQueueSize) {
+        this.outboundQueueSize = outboundQueueSize;
+    }
 }
@@ -9,6 +9,8 @@ public class MqttBrokerBuilder {
 
     List<String> addrs = new ArrayList<>();
     private QoSLevel qoSLevel;
+    private int outboundQueueSize;
+    private SubscribeManager subscribeManager;
 
     public MqttBrokerBuilder listen(int... ports) {
         if (ports == null) {
@@ -33,8 +35,22 @@ public class MqttBrokerBuilder {
         return this;
     }
 
+    public MqttBrokerBuilder outboundQueueSize(int outboundQueueSize) {
+        this.outboundQueueSize = outboundQueueSize;
+        return this;
+    }
+
+    public MqttBrokerBuilder subscribeManager(SubscribeManager subscribeManager) {
+        this.subscribeManager = subscribeManager;
+        return this;
+    }
+
     public MqttBroker build() {
         MqttBroker broker = new MqttBroker();
+        broker.setSubscribeManager(subscribeManager);
+        if (outboundQueueSize > 0) {
+            broker.setOutboundQueueSize(outboundQueueSize);
+        }
         int index;
         for (String addr : addrs) {
             index = addr.indexOf(":");
@@ -133,6 +133,10 @@ public interface MqttBrokerHandler {
         }
         SubscribeManager subManager = session.getSubscribeManager();
         subManager.checkAndAddTopic(publish.getTopic());
+        PublishFanout fanout = session.getPublishFanout();
+        if (fanout != null) {
+            fanout.fanout(publish);
+        }
         if (qoSLevel == QoSLevel.LEAST_ONCE) {
             PubAck pubAck = new PubAck(PUBACK.getValue() << 4);
             pubAck.setPacketIdentifier(publish.getPacketIdentifier());
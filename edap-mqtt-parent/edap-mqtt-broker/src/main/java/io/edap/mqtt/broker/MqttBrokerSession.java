@@ -3,7 +3,10 @@ package io.edap.mqtt.broker;
 import io.edap.Decoder;
 import io.edap.NioServerSession;
 import io.edap.buffer.FastBuf;
+import io.edap.concurrent.ConcurrentQueue;
+import io.edap.concurrent.MultithreadConcurrentQueue;
 import io.edap.mqtt.*;
+import io.edap.mqtt.broker.po.EncodedPublish;
 import io.edap.mqtt.encoder.V311Encoder;
 import io.edap.mqtt.encoder.V31Encoder;
 import io.edap.mqtt.encoder.V5Encoder;
@@ -36,6 +39,29 @@ public class MqttBrokerSession extends NioServerSession<ControlPacket> implement
 
     private SubscribeManager subscribeManager;
 
+    private PublishFanout publishFanout;
+
+    /**
+     * 投递给该客户端的PUBLISH消息队列，由发布消息的线程写入，该会话所属的IO线程批量发送
+     */
+    private ConcurrentQueue<EncodedPublish> outboundQueue;
+    /**
+     * 写缓冲空间不足只追加了部分数据的消息
+     */
+    private EncodedPublish pendingPublish;
+    /**
+     * pendingPublish下一次追加的开始位置
+     */
+    private int pendingPos;
+    /**
+     * pendingPublish使用的packetIdentifier
+     */
+    private int pendingPacketId;
+    /**
+     * 服务端向该客户端发送消息的packetIdentifier序列
+     */
+    private int packetIdSeq;
+
     private static final Map<ProtocolLevel, MqttEncoder> MQTT_ENCODERS;
 
     static {
@@ -107,6 +133,63 @@ public class MqttBrokerSession extends NioServerSession<ControlPacket> implement
         }
     }
 
+    /**
+     * 将共享的PUBLISH数据包投递到该会话的发送队列，并请求IO线程发送
+     * @param encoded 已编码的PUBLISH数据包
+     * @return 发送队列已满时返回false
+     */
+    public boolean deliver(EncodedPublish encoded) {
+        ConcurrentQueue<EncodedPublish> queue = outboundQueue;
+        if (queue == null || !queue.offer(encoded)) {
+            return false;
+        }
+        scheduleFlush();
+        return true;
+    }
+
+    @Override
+    public boolean drainOutbound(FastBuf buf) {
+        ConcurrentQueue<EncodedPublish> queue = outboundQueue;
+        if (queue == null) {
+            return false;
+        }
+        for (;;) {
+            EncodedPublish encoded = pendingPublish;
+            if (encoded == null) {
+                encoded = queue.poll();
+                if (encoded == null) {
+                    return false;
+                }
+                pendingPublish  = encoded;
+                pendingPos      = 0;
+                pendingPacketId = encoded.getPacketIdPos() < 0 ? 0 : nextPacketId();
+            }
+            int pos = encoded.writeTo(buf, pendingPos, pendingPacketId);
+            if (pos < encoded.getLength()) {
+                pendingPos = pos;
+                return true;
+            }
+            pendingPublish = null;
+        }
+    }
+
+    @Override
+    public boolean hasOutbound() {
+        return pendingPublish != null || (outboundQueue != null && !outboundQueue.isEmpty());
+    }
+
+    /**
+     * 生成服务端发送消息使用的packetIdentifier，取值范围为1-65535
+     */
+    private int nextPacketId() {
+        int id = packetIdSeq + 1;
+        if (id > 0xFFFF) {
+            id = 1;
+        }
+        packetIdSeq = id;
+        return id;
+    }
+
     /**
      * 该客户端是否已经执行了connect的操作，如果未执行过connect操作，第一个解析的数据包必须为connect的包
      */
@@ -168,4 +251,16 @@ public class MqttBrokerSession extends NioServerSession<ControlPacket> implement
     public void setSubscribeManager(SubscribeManager subscribeManager) {
         this.subscribeManager = subscribeManager;
     }
+
+    public PublishFanout getPublishFanout() {
+        return publishFanout;
+    }
+
+    public void setPublishFanout(PublishFanout publishFanout) {
+        this.publishFanout = publishFanout;
+    }
+
+    public void setOutboundQueueSize(int outboundQueueSize) {
+        this.outboundQueue = new MultithreadConcurrentQueue<>(outboundQueueSize);
+    }
 }
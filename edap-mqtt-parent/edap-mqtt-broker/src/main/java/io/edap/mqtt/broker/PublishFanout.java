@@ -0,0 +1,129 @@
+package io.edap.mqtt.broker;
+
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+import io.edap.mqtt.MqttEncoder;
+import io.edap.mqtt.MqttWriter;
+import io.edap.mqtt.ProtocolLevel;
+import io.edap.mqtt.QoSLevel;
+import io.edap.mqtt.broker.po.EncodedPublish;
+import io.edap.mqtt.broker.po.SubscribeInfo;
+import io.edap.mqtt.encoder.V311Encoder;
+import io.edap.mqtt.encoder.V31Encoder;
+import io.edap.mqtt.encoder.V5Encoder;
+import io.edap.mqtt.packet.Publish;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.edap.mqtt.ControlPacketType.PUBLISH_VALUE;
+import static io.edap.mqtt.MqttEncoder.LOCAL_MQTT_WRITER;
+
+/**
+ * PUBLISH消息的分发引擎，每个协议版本和QoS等级的组合只编码一次，编码后的数据被所有匹配的订阅者共享，
+ * 投递到订阅者会话的发送队列后由订阅者所属的IO线程批量发送
+ */
+public class PublishFanout {
+
+    static Logger LOG = LoggerManager.getLogger(PublishFanout.class);
+
+    private static final MqttEncoder[] ENCODERS;
+
+    private static final int QOS_COUNT = 3;
+
+    static {
+        ENCODERS = new MqttEncoder[ProtocolLevel.VERSION_5.getValue() + 1];
+        ENCODERS[ProtocolLevel.VERSION_3_1.getValue()]   = new V31Encoder();
+        ENCODERS[ProtocolLevel.VERSION_3_1_1.getValue()] = new V311Encoder();
+        ENCODERS[ProtocolLevel.VERSION_5.getValue()]     = new V5Encoder();
+    }
+
+    private final SubscribeManager subscribeManager;
+
+    /**
+     * 订阅者发送队列已满而丢弃的消息数
+     */
+    private final LongAdder droppedCount = new LongAdder();
+
+    public PublishFanout(SubscribeManager subscribeManager) {
+        this.subscribeManager = subscribeManager;
+    }
+
+    /**
+     * 将PUBLISH消息投递给所有订阅了该Topic的客户端
+     * @param publish 客户端发布的消息
+     * @return 成功投递的订阅者数量
+     */
+    public int fanout(Publish publish) {
+        List<SubscribeInfo> subscribeInfos = subscribeManager.getSubscribeInfos(publish.getTopic());
+        if (subscribeInfos == null || subscribeInfos.isEmpty()) {
+            return 0;
+        }
+        QoSLevel pubQos  = publish.getQos();
+        Publish  forward = null;
+        EncodedPublish[] encodeds = new EncodedPublish[ENCODERS.length * QOS_COUNT];
+        int delivered = 0;
+        for (SubscribeInfo si : subscribeInfos) {
+            MqttBrokerSession session = si.getSession();
+            if (session == null || session.getProtocolLevel() == null) {
+                continue;
+            }
+            int level = session.getProtocolLevel().getValue();
+            if (level >= ENCODERS.length || ENCODERS[level] == null) {
+                continue;
+            }
+            QoSLevel qos = si.getQoSLevel().getValue() < pubQos.getValue() ? si.getQoSLevel() : pubQos;
+            int index = level * QOS_COUNT + qos.getValue();
+            EncodedPublish encoded = encodeds[index];
+            if (encoded == null) {
+                if (forward == null) {
+                    forward = forwardCopy(publish);
+                }
+                encoded = encode(ENCODERS[level], forward, qos);
+                encodeds[index] = encoded;
+            }
+            if (session.deliver(encoded)) {
+                delivered++;
+            } else {
+                droppedCount.increment();
+                LOG.debug("client {} outbound queue full, drop publish {}",
+                        l -> l.arg(session.getClientId()).arg(publish.getTopic()));
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 创建转发使用的PUBLISH副本，客户端发布的消息可能同时作为保留消息或者被其他处理器使用，编码时不能修改。
+     * 转发的消息retain和dup标志都为0，V5协议编码需要属性表，原消息没有属性时使用空的属性表
+     */
+    private static Publish forwardCopy(Publish publish) {
+        Publish forward = new Publish(PUBLISH_VALUE << 4);
+        forward.setTopic(publish.getTopic());
+        forward.setPacketIdentifier(publish.getPacketIdentifier());
+        forward.setPayload(publish.getPayload());
+        forward.setProperties(publish.getProperties() != null ? publish.getProperties() : new LinkedHashMap<>());
+        return forward;
+    }
+
+    /**
+     * 按订阅者的协议版本和QoS等级编码一次PUBLISH数据包
+     */
+    private EncodedPublish encode(MqttEncoder encoder, Publish forward, QoSLevel qos) {
+        forward.setQos(qos);
+        MqttWriter writer = LOCAL_MQTT_WRITER.get();
+        writer.reset();
+        encoder.encode(writer, forward);
+        byte[] data = Arrays.copyOfRange(writer.getData(), writer.getStart(), writer.getPos());
+        return new EncodedPublish(encoder.getProtocelLevel(), qos, data);
+    }
+
+    /**
+     * 订阅者发送队列已满而丢弃的消息数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
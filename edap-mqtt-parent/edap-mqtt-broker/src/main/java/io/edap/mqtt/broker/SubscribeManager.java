@@ -1,11 +1,21 @@
 package io.edap.mqtt.broker;
 
+import io.edap.mqtt.broker.po.SubscribeInfo;
 import io.edap.mqtt.packet.SubAck;
 import io.edap.mqtt.packet.Subscribe;
 
+import java.util.List;
+
 public interface SubscribeManager {
 
     void checkAndAddTopic(String topic);
 
     SubAck subscribe(Subscribe subscribe, MqttBrokerSession session);
+
+    /**
+     * 获取订阅了指定Topic的所有订阅信息，发布消息时调用，返回的列表不会被修改
+     * @param topic 发布消息的Topic
+     * @return 订阅信息列表，没有订阅者时返回null或者空列表
+     */
+    List<SubscribeInfo> getSubscribeInfos(String topic);
 }
@@ -0,0 +1,91 @@
+package io.edap.mqtt.broker.po;
+
+import io.edap.buffer.FastBuf;
+import io.edap.mqtt.ProtocolLevel;
+import io.edap.mqtt.QoSLevel;
+
+/**
+ * 按协议版本和QoS等级编码一次的PUBLISH数据包，被所有匹配的订阅者共享，投递时只做内存追加，
+ * QoS大于0时由订阅者的会话在发送时写入自己的packetIdentifier
+ */
+public class EncodedPublish {
+
+    private final ProtocolLevel protocolLevel;
+    private final QoSLevel      qoSLevel;
+    private final byte[]        data;
+    /**
+     * packetIdentifier在data中的位置，QoS为0时为-1，发送时不需要替换
+     */
+    private final int           packetIdPos;
+
+    public EncodedPublish(ProtocolLevel protocolLevel, QoSLevel qoSLevel, byte[] data) {
+        this.protocolLevel = protocolLevel;
+        this.qoSLevel      = qoSLevel;
+        this.data          = data;
+        this.packetIdPos   = qoSLevel == QoSLevel.MOST_ONCE ? -1 : findPacketIdPos(data);
+    }
+
+    /**
+     * 跳过固定头以及Topic后即为packetIdentifier的位置
+     */
+    private static int findPacketIdPos(byte[] data) {
+        int pos = 1;
+        while ((data[pos] & 0x80) != 0) {
+            pos++;
+        }
+        pos++;
+        int topicLen = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+        return pos + 2 + topicLen;
+    }
+
+    /**
+     * 从指定位置开始将数据包追加到buf中，buf空间不足时只写入部分数据
+     * @param buf 写缓冲
+     * @param from 本次追加的开始位置
+     * @param packetId 订阅者会话分配的packetIdentifier
+     * @return 下一次追加的开始位置，等于getLength()时该数据包已经全部追加
+     */
+    public int writeTo(FastBuf buf, int from, int packetId) {
+        int pos = from;
+        int idPos = packetIdPos;
+        if (idPos >= 0) {
+            if (pos < idPos) {
+                pos += buf.write(data, pos, idPos - pos);
+                if (pos < idPos) {
+                    return pos;
+                }
+            }
+            if (pos == idPos && buf.write((byte)(packetId >> 8)) > 0) {
+                pos++;
+            }
+            if (pos == idPos + 1 && buf.write((byte)(packetId & 0xFF)) > 0) {
+                pos++;
+            }
+            if (pos < idPos + 2) {
+                return pos;
+            }
+        }
+        pos += buf.write(data, pos, data.length - pos);
+        return pos;
+    }
+
+    public ProtocolLevel getProtocolLevel() {
+        return protocolLevel;
+    }
+
+    public QoSLevel getQoSLevel() {
+        return qoSLevel;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return data.length;
+    }
+
+    public int getPacketIdPos() {
+        return packetIdPos;
+    }
+}
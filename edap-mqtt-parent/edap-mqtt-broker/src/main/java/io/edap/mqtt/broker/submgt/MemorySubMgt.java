@@ -14,6 +14,7 @@ import io.edap.mqtt.packet.TopicFilter;
 import io.edap.util.StringUtil;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 
 import static io.edap.mqtt.broker.utils.WildcardUtils.containsWildcard;
@@ -23,9 +24,12 @@ public class MemorySubMgt implements SubscribeManager {
 
     static Logger LOG = LoggerManager.getLogger(MemorySubMgt.class);
 
-    private Set<String> TOPICS = new HashSet<>();
+    private Set<String> TOPICS = ConcurrentHashMap.newKeySet();
 
-    private Map<String, List<SubscribeInfo>> TOPIC_TO_SUBSCRIBE_INFOS = new HashMap<>();
+    /**
+     * Topic对应的订阅信息，列表采用写时复制，发布消息时无需加锁即可遍历
+     */
+    private Map<String, List<SubscribeInfo>> TOPIC_TO_SUBSCRIBE_INFOS = new ConcurrentHashMap<>();
 
     private Map<String, MqttBrokerSession> WILDCARD_TO_SESSION = new HashMap();
 
@@ -75,6 +79,11 @@ public class MemorySubMgt implements SubscribeManager {
         return subAck;
     }
 
+    @Override
+    public List<SubscribeInfo> getSubscribeInfos(String topic) {
+        return TOPIC_TO_SUBSCRIBE_INFOS.get(topic);
+    }
+
     private void subscribeTopic(LockPool lockPool, String topic, MqttBrokerSession session, QoSLevel level) {
         Lock lock = lockPool.getSubTopicLock(topic);
         lock.lock();
@@ -105,7 +114,10 @@ public class MemorySubMgt implements SubscribeManager {
                     si.setQoSLevel(level);
                     si.setSession(session);
                     si.setClientId(session.getClientId());
-                    sis.add(si);
+                    List<SubscribeInfo> newSis = new ArrayList<>(sis.size() + 1);
+                    newSis.addAll(sis);
+                    newSis.add(si);
+                    TOPIC_TO_SUBSCRIBE_INFOS.put(topic, newSis);
                 }
             }
         } finally {
@@ -0,0 +1,248 @@
+package io.edap.mqtt.broker.submgt;
+
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+import io.edap.mqtt.QoSLevel;
+import io.edap.mqtt.broker.MqttBrokerSession;
+import io.edap.mqtt.broker.SubscribeManager;
+import io.edap.mqtt.broker.po.SubscribeInfo;
+import io.edap.mqtt.packet.SubAck;
+import io.edap.mqtt.packet.Subscribe;
+import io.edap.mqtt.packet.TopicFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.edap.mqtt.broker.utils.WildcardUtils.isValidTopicFilter;
+
+/**
+ * 按Topic层级构建的订阅树，"+"和"#"通配符在发布消息时匹配，查找的代价只和Topic的层级数有关，
+ * 订阅后新出现的Topic也能匹配到已有的通配符订阅。节点的订阅列表采用写时复制，发布消息时无需加锁
+ */
+public class TopicTrieSubMgt implements SubscribeManager {
+
+    static Logger LOG = LoggerManager.getLogger(TopicTrieSubMgt.class);
+
+    private static final SubscribeInfo[] EMPTY_INFOS = new SubscribeInfo[0];
+
+    private final Node root = new Node();
+
+    @Override
+    public void checkAndAddTopic(String topic) {
+        // 通配符在发布时匹配，不需要记录所有的Topic
+    }
+
+    @Override
+    public SubAck subscribe(Subscribe subscribe, MqttBrokerSession session) {
+        LOG.info("client {} subscribe packetIdentifier {}",
+                l -> l.arg(session.getClientId()).arg(subscribe.getPacketIdentifier()));
+        SubAck subAck = new SubAck();
+        subAck.setPacketIdentifier(subscribe.getPacketIdentifier());
+        List<Integer> respCodes = new ArrayList<>();
+        for (TopicFilter tf : subscribe.getTopicFilterList()) {
+            QoSLevel level = QoSLevel.fromValue(tf.getSubscriptionOptions());
+            if (level == QoSLevel.RESERVED || !isValidTopicFilter(tf.getTopicFilter())) {
+                respCodes.add(143);
+                continue;
+            }
+            addSubscribe(tf.getTopicFilter(), session, level);
+            respCodes.add(level.getValue());
+        }
+        subAck.setRespCodes(respCodes);
+        return subAck;
+    }
+
+    /**
+     * 将订阅添加到订阅树中，同一客户端重复订阅同一个过滤器时更新QoS等级
+     * @param topicFilter 订阅的过滤器
+     * @param session 客户端的会话
+     * @param level 订阅的QoS等级
+     */
+    public void addSubscribe(String topicFilter, MqttBrokerSession session, QoSLevel level) {
+        Node node = root;
+        int start = 0;
+        boolean multiLevel = false;
+        for (;;) {
+            int end = topicFilter.indexOf('/', start);
+            String item = end < 0 ? topicFilter.substring(start) : topicFilter.substring(start, end);
+            if ("#".equals(item)) {
+                multiLevel = true;
+                break;
+            }
+            node = "+".equals(item) ? node.getOrCreatePlusChild() : node.getOrCreateChild(item);
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        node.addSubscribe(topicFilter, session, level, multiLevel);
+    }
+
+    @Override
+    public List<SubscribeInfo> getSubscribeInfos(String topic) {
+        MatchResult result = new MatchResult();
+        Node node = root;
+        if (!topic.isEmpty() && topic.charAt(0) == '$') {
+            // 以$开头的Topic不匹配首层的通配符
+            int end = topic.indexOf('/');
+            String item = end < 0 ? topic : topic.substring(0, end);
+            Node child = node.children.get(item);
+            if (child != null) {
+                match(child, topic, end < 0 ? -1 : end + 1, result);
+            }
+        } else {
+            match(node, topic, 0, result);
+        }
+        return result.toList();
+    }
+
+    /**
+     * 从指定节点开始匹配Topic剩余的层级
+     * @param node 当前匹配到的节点
+     * @param topic 发布消息的Topic
+     * @param start 下一个层级的开始位置，-1表示所有的层级都已经匹配
+     * @param result 匹配结果
+     */
+    private static void match(Node node, String topic, int start, MatchResult result) {
+        result.add(node.multiLevelInfos);
+        if (start < 0) {
+            result.add(node.infos);
+            return;
+        }
+        int end = topic.indexOf('/', start);
+        int next = end < 0 ? -1 : end + 1;
+        if (!node.children.isEmpty()) {
+            Node child = node.children.get(end < 0 ? topic.substring(start) : topic.substring(start, end));
+            if (child != null) {
+                match(child, topic, next, result);
+            }
+        }
+        Node plus = node.plusChild;
+        if (plus != null) {
+            match(plus, topic, next, result);
+        }
+    }
+
+    static class Node {
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        /**
+         * "+"通配符对应的子节点
+         */
+        volatile Node plusChild;
+        /**
+         * 过滤器在该节点结束的订阅
+         */
+        volatile SubscribeInfo[] infos = EMPTY_INFOS;
+        /**
+         * 过滤器为该节点后接"#"的订阅，匹配该层级以及所有的下级
+         */
+        volatile SubscribeInfo[] multiLevelInfos = EMPTY_INFOS;
+
+        Node getOrCreateChild(String item) {
+            Node child = children.get(item);
+            if (child == null) {
+                child = children.computeIfAbsent(item, k -> new Node());
+            }
+            return child;
+        }
+
+        Node getOrCreatePlusChild() {
+            Node plus = plusChild;
+            if (plus == null) {
+                synchronized (this) {
+                    plus = plusChild;
+                    if (plus == null) {
+                        plus = new Node();
+                        plusChild = plus;
+                    }
+                }
+            }
+            return plus;
+        }
+
+        synchronized void addSubscribe(String topicFilter, MqttBrokerSession session, QoSLevel level,
+                                       boolean multiLevel) {
+            SubscribeInfo[] olds = multiLevel ? multiLevelInfos : infos;
+            String clientId = session.getClientId();
+            SubscribeInfo si = new SubscribeInfo();
+            si.setTopicFilter(topicFilter);
+            si.setQoSLevel(level);
+            si.setSession(session);
+            si.setClientId(clientId);
+            SubscribeInfo[] news = null;
+            for (int i=0;i<olds.length;i++) {
+                if (olds[i].getClientId().equals(clientId)) {
+                    news = olds.clone();
+                    news[i] = si;
+                    break;
+                }
+            }
+            if (news == null) {
+                news = new SubscribeInfo[olds.length + 1];
+                System.arraycopy(olds, 0, news, 0, olds.length);
+                news[olds.length] = si;
+            }
+            if (multiLevel) {
+                multiLevelInfos = news;
+            } else {
+                infos = news;
+            }
+        }
+    }
+
+    /**
+     * 匹配结果，只有一个订阅列表匹配时直接返回该列表，多个列表匹配时同一会话只保留QoS等级最高的订阅
+     */
+    static class MatchResult {
+        private SubscribeInfo[]       first;
+        private List<SubscribeInfo[]> others;
+
+        void add(SubscribeInfo[] infos) {
+            if (infos.length == 0) {
+                return;
+            }
+            if (first == null) {
+                first = infos;
+            } else {
+                if (others == null) {
+                    others = new ArrayList<>(4);
+                }
+                others.add(infos);
+            }
+        }
+
+        List<SubscribeInfo> toList() {
+            if (first == null) {
+                return Collections.emptyList();
+            }
+            if (others == null) {
+                return Arrays.asList(first);
+            }
+            Map<MqttBrokerSession, Integer> indexes = new IdentityHashMap<>();
+            List<SubscribeInfo> list = new ArrayList<>();
+            merge(first, indexes, list);
+            for (SubscribeInfo[] infos : others) {
+                merge(infos, indexes, list);
+            }
+            return list;
+        }
+
+        private static void merge(SubscribeInfo[] infos, Map<MqttBrokerSession, Integer> indexes,
+                                  List<SubscribeInfo> list) {
+            for (SubscribeInfo si : infos) {
+                Integer index = indexes.get(si.getSession());
+                if (index == null) {
+                    indexes.put(si.getSession(), list.size());
+                    list.add(si);
+                } else if (list.get(index).getQoSLevel().getValue() < si.getQoSLevel().getValue()) {
+                    list.set(index, si);
+                }
+            }
+        }
+    }
+}
@@ -48,6 +48,33 @@ public class WildcardUtils {
         return false;
     }
 
+    /**
+     * 判断订阅的过滤器是否合法，"+"必须占据整个层级，"#"必须占据整个层级并且只能在最后一个层级
+     * @param topicFilter 订阅主题的过滤字符串
+     * @return 合法返回true，否则返回false
+     */
+    public static boolean isValidTopicFilter(String topicFilter) {
+        if (StringUtil.isEmpty(topicFilter)) {
+            return false;
+        }
+        int len = topicFilter.length();
+        for (int i=0;i<len;i++) {
+            char c = topicFilter.charAt(i);
+            if (c == '+' || c == '#') {
+                if (i > 0 && topicFilter.charAt(i - 1) != '/') {
+                    return false;
+                }
+                if (c == '#') {
+                    return i == len - 1;
+                }
+                if (i < len - 1 && topicFilter.charAt(i + 1) != '/') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public static List<String> matchTopics(String wildcard, Set<String> allTopic) {
         List<String> topics = new ArrayList<>();
         WildcardParseResult wildcardResult = splitWildcard(wildcard, '/');
@@ -0,0 +1,166 @@
+package io.edap.mqtt.broker.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.mqtt.MqttWriter;
+import io.edap.mqtt.ProtocolLevel;
+import io.edap.mqtt.QoSLevel;
+import io.edap.mqtt.broker.MqttBroker;
+import io.edap.mqtt.broker.MqttBrokerSession;
+import io.edap.mqtt.broker.po.EncodedPublish;
+import io.edap.mqtt.encoder.V311Encoder;
+import io.edap.mqtt.packet.Publish;
+import io.edap.mqtt.packet.Subscribe;
+import io.edap.mqtt.packet.TopicFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.edap.mqtt.ControlPacketType.PUBLISH_VALUE;
+import static io.edap.mqtt.ControlPacketType.SUBSCRIBE_VALUE;
+import static io.edap.mqtt.broker.test.TestUtil.randomStr;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishFanoutTest {
+
+    private static final String TOPIC = "sensor/1/temperature";
+
+    @Test
+    public void testFanout() {
+        MqttBroker broker = new MqttBroker();
+        broker.init();
+        MqttBrokerSession s1 = createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.LEAST_ONCE);
+        MqttBrokerSession s2 = createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.LEAST_ONCE);
+        MqttBrokerSession s3 = createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.MOST_ONCE);
+        MqttBrokerSession s4 = createSession(broker, ProtocolLevel.VERSION_5, QoSLevel.EXACTLY_ONCE);
+
+        Publish publish = createPublish(QoSLevel.LEAST_ONCE);
+        int delivered = broker.getPublishFanout().fanout(publish);
+        assertEquals(4, delivered);
+        assertEquals(QoSLevel.LEAST_ONCE, publish.getQos());
+
+        byte[] expected = encode(createPublish(QoSLevel.LEAST_ONCE), 1);
+        assertArrayEquals(expected, drain(s1, 32768));
+        assertArrayEquals(expected, drain(s2, 32768));
+        assertFalse(s1.hasOutbound());
+
+        byte[] qos0 = encode(createPublish(QoSLevel.MOST_ONCE), 1234);
+        assertArrayEquals(qos0, drain(s3, 32768));
+
+        byte[] v5 = drain(s4, 32768);
+        assertTrue(v5.length > 0);
+        assertEquals((PUBLISH_VALUE << 4) | (QoSLevel.LEAST_ONCE.getValue() << 1), v5[0] & 0xFF);
+
+        broker.getPublishFanout().fanout(createPublish(QoSLevel.LEAST_ONCE));
+        assertArrayEquals(encode(createPublish(QoSLevel.LEAST_ONCE), 2), drain(s1, 32768));
+        assertEquals(0, broker.getPublishFanout().getDroppedCount());
+    }
+
+    @Test
+    public void testPublishUnchanged() {
+        MqttBroker broker = new MqttBroker();
+        broker.init();
+        createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.MOST_ONCE);
+        createSession(broker, ProtocolLevel.VERSION_5, QoSLevel.LEAST_ONCE);
+        Publish publish = createPublish(QoSLevel.EXACTLY_ONCE);
+        publish.setDup(1);
+        assertNull(publish.getProperties());
+        // 发布的消息可能同时作为保留消息保存，分发后不能被修改
+        assertEquals(2, broker.getPublishFanout().fanout(publish));
+        assertEquals(QoSLevel.EXACTLY_ONCE, publish.getQos());
+        assertEquals(1, publish.getRetain());
+        assertEquals(1, publish.getDup());
+        assertEquals(1234, publish.getPacketIdentifier());
+        assertNull(publish.getProperties());
+    }
+
+    @Test
+    public void testPartialDrain() {
+        MqttBroker broker = new MqttBroker();
+        broker.init();
+        MqttBrokerSession session = createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.EXACTLY_ONCE);
+        for (int i=0;i<3;i++) {
+            broker.getPublishFanout().fanout(createPublish(QoSLevel.EXACTLY_ONCE));
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i=1;i<=3;i++) {
+            byte[] data = encode(createPublish(QoSLevel.EXACTLY_ONCE), i);
+            expected.write(data, 0, data.length);
+        }
+        assertArrayEquals(expected.toByteArray(), drain(session, 7));
+    }
+
+    @Test
+    public void testQueueFull() {
+        MqttBroker broker = new MqttBroker();
+        broker.setOutboundQueueSize(2);
+        broker.init();
+        MqttBrokerSession session = createSession(broker, ProtocolLevel.VERSION_3_1_1, QoSLevel.MOST_ONCE);
+        for (int i=0;i<3;i++) {
+            broker.getPublishFanout().fanout(createPublish(QoSLevel.MOST_ONCE));
+        }
+        assertEquals(1, broker.getPublishFanout().getDroppedCount());
+    }
+
+    @Test
+    public void testPacketIdPos() {
+        byte[] data = encode(createPublish(QoSLevel.LEAST_ONCE), 0x1234);
+        EncodedPublish encoded = new EncodedPublish(ProtocolLevel.VERSION_3_1_1, QoSLevel.LEAST_ONCE, data);
+        int pos = encoded.getPacketIdPos();
+        assertEquals(0x12, data[pos]);
+        assertEquals(0x34, data[pos + 1]);
+    }
+
+    private static MqttBrokerSession createSession(MqttBroker broker, ProtocolLevel level, QoSLevel qos) {
+        MqttBrokerSession session = broker.createNioSession();
+        session.setClientId(randomStr(20));
+        session.setProtocolLevel(level);
+        session.setConnected(true);
+        Subscribe subscribe = new Subscribe(SUBSCRIBE_VALUE << 4);
+        subscribe.setPacketIdentifier(1);
+        List<TopicFilter> topicFilters = new ArrayList<>();
+        TopicFilter tf = new TopicFilter();
+        tf.setTopicFilter(TOPIC);
+        tf.setSubscriptionOptions(qos.getValue());
+        topicFilters.add(tf);
+        subscribe.setTopicFilterList(topicFilters);
+        broker.getSubscribeManager().subscribe(subscribe, session);
+        return session;
+    }
+
+    private static Publish createPublish(QoSLevel qos) {
+        Publish publish = new Publish(PUBLISH_VALUE << 4);
+        publish.setTopic(TOPIC);
+        publish.setQos(qos);
+        publish.setRetain(1);
+        publish.setPacketIdentifier(1234);
+        publish.setPayload("{\"value\":23.5}".getBytes(StandardCharsets.UTF_8));
+        return publish;
+    }
+
+    private static byte[] encode(Publish publish, int packetId) {
+        publish.setRetain(0);
+        publish.setPacketIdentifier(packetId);
+        MqttWriter writer = new MqttWriter();
+        new V311Encoder().encode(writer, publish);
+        byte[] data = new byte[writer.getLength()];
+        System.arraycopy(writer.getData(), writer.getStart(), data, 0, data.length);
+        return data;
+    }
+
+    private static byte[] drain(MqttBrokerSession session, int bufSize) {
+        FastBuf buf = new FastBuf(bufSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean more;
+        do {
+            buf.clear();
+            more = session.drainOutbound(buf);
+            byte[] data = new byte[buf.remain()];
+            buf.get(data);
+            out.write(data, 0, data.length);
+        } while (more);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,118 @@
+package io.edap.mqtt.broker.test;
+
+import io.edap.mqtt.QoSLevel;
+import io.edap.mqtt.broker.MqttBroker;
+import io.edap.mqtt.broker.MqttBrokerSession;
+import io.edap.mqtt.broker.po.SubscribeInfo;
+import io.edap.mqtt.broker.submgt.TopicTrieSubMgt;
+import io.edap.mqtt.packet.SubAck;
+import io.edap.mqtt.packet.Subscribe;
+import io.edap.mqtt.packet.TopicFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.edap.mqtt.ControlPacketType.SUBSCRIBE_VALUE;
+import static io.edap.mqtt.broker.test.TestUtil.randomStr;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TopicTrieSubMgtTest {
+
+    @Test
+    public void testExactMatch() {
+        TopicTrieSubMgt subMgt = new TopicTrieSubMgt();
+        MqttBrokerSession s1 = createSession();
+        MqttBrokerSession s2 = createSession();
+        subscribe(subMgt, s1, QoSLevel.LEAST_ONCE, "sensor/1/temperature");
+        subscribe(subMgt, s2, QoSLevel.MOST_ONCE, "sensor/1/temperature");
+
+        assertEquals(2, subMgt.getSubscribeInfos("sensor/1/temperature").size());
+        assertEquals(0, subMgt.getSubscribeInfos("sensor/1").size());
+        assertEquals(0, subMgt.getSubscribeInfos("sensor/1/temperature/x").size());
+        assertEquals(0, subMgt.getSubscribeInfos("sensor/2/temperature").size());
+
+        subscribe(subMgt, s1, QoSLevel.EXACTLY_ONCE, "sensor/1/temperature");
+        List<SubscribeInfo> infos = subMgt.getSubscribeInfos("sensor/1/temperature");
+        assertEquals(2, infos.size());
+        assertEquals(QoSLevel.EXACTLY_ONCE, findInfo(infos, s1).getQoSLevel());
+    }
+
+    @Test
+    public void testWildcardMatch() {
+        TopicTrieSubMgt subMgt = new TopicTrieSubMgt();
+        MqttBrokerSession plus  = createSession();
+        MqttBrokerSession multi = createSession();
+        MqttBrokerSession all   = createSession();
+        subscribe(subMgt, plus, QoSLevel.LEAST_ONCE, "sensor/+/temperature");
+        subscribe(subMgt, multi, QoSLevel.LEAST_ONCE, "sensor/#");
+        subscribe(subMgt, all, QoSLevel.LEAST_ONCE, "#");
+
+        // 订阅之后才出现的Topic也能匹配
+        assertEquals(3, subMgt.getSubscribeInfos("sensor/100/temperature").size());
+        assertEquals(2, subMgt.getSubscribeInfos("sensor").size());
+        assertEquals(2, subMgt.getSubscribeInfos("sensor/100/humidity").size());
+        assertEquals(1, subMgt.getSubscribeInfos("device/1").size());
+        assertEquals(3, subMgt.getSubscribeInfos("sensor//temperature").size());
+        assertEquals(0, subMgt.getSubscribeInfos("$SYS/broker/load").size());
+
+        subscribe(subMgt, plus, QoSLevel.MOST_ONCE, "$SYS/#");
+        assertEquals(1, subMgt.getSubscribeInfos("$SYS/broker/load").size());
+    }
+
+    @Test
+    public void testOverlapSubscribe() {
+        TopicTrieSubMgt subMgt = new TopicTrieSubMgt();
+        MqttBrokerSession session = createSession();
+        subscribe(subMgt, session, QoSLevel.MOST_ONCE, "a/b");
+        subscribe(subMgt, session, QoSLevel.EXACTLY_ONCE, "a/+");
+        subscribe(subMgt, session, QoSLevel.LEAST_ONCE, "a/#");
+
+        List<SubscribeInfo> infos = subMgt.getSubscribeInfos("a/b");
+        assertEquals(1, infos.size());
+        assertSame(session, infos.get(0).getSession());
+        assertEquals(QoSLevel.EXACTLY_ONCE, infos.get(0).getQoSLevel());
+    }
+
+    @Test
+    public void testInvalidFilter() {
+        TopicTrieSubMgt subMgt = new TopicTrieSubMgt();
+        MqttBrokerSession session = createSession();
+        SubAck subAck = subscribe(subMgt, session, QoSLevel.LEAST_ONCE, "a/#/b", "a/b+", "", "a/+/c");
+        assertEquals(143, subAck.getRespCodes().get(0));
+        assertEquals(143, subAck.getRespCodes().get(1));
+        assertEquals(143, subAck.getRespCodes().get(2));
+        assertEquals(QoSLevel.LEAST_ONCE.getValue(), subAck.getRespCodes().get(3));
+        assertEquals(1, subMgt.getSubscribeInfos("a/b/c").size());
+    }
+
+    static MqttBrokerSession createSession() {
+        MqttBrokerSession session = new MqttBroker().createNioSession();
+        session.setClientId(randomStr(20));
+        return session;
+    }
+
+    static SubAck subscribe(TopicTrieSubMgt subMgt, MqttBrokerSession session, QoSLevel qos, String... filters) {
+        Subscribe subscribe = new Subscribe(SUBSCRIBE_VALUE << 4);
+        subscribe.setPacketIdentifier(1);
+        List<TopicFilter> topicFilters = new ArrayList<>();
+        for (String filter : filters) {
+            TopicFilter tf = new TopicFilter();
+            tf.setTopicFilter(filter);
+            tf.setSubscriptionOptions(qos.getValue());
+            topicFilters.add(tf);
+        }
+        subscribe.setTopicFilterList(topicFilters);
+        return subMgt.subscribe(subscribe, session);
+    }
+
+    private static SubscribeInfo findInfo(List<SubscribeInfo> infos, MqttBrokerSession session) {
+        for (SubscribeInfo si : infos) {
+            if (si.getSession() == session) {
+                return si;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package io.edap.mqtt.broker.test.perf;
+
+import io.edap.mqtt.QoSLevel;
+import io.edap.mqtt.broker.MqttBroker;
+import io.edap.mqtt.broker.MqttBrokerSession;
+import io.edap.mqtt.broker.SubscribeManager;
+import io.edap.mqtt.broker.po.SubscribeInfo;
+import io.edap.mqtt.broker.submgt.MemorySubMgt;
+import io.edap.mqtt.broker.submgt.TopicTrieSubMgt;
+import io.edap.mqtt.packet.Subscribe;
+import io.edap.mqtt.packet.TopicFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.edap.mqtt.ControlPacketType.SUBSCRIBE_VALUE;
+
+/**
+ * 对比MemorySubMgt和TopicTrieSubMgt在大量Topic时订阅以及发布查找订阅者的性能
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SubscribeMatchPerf {
+
+    @Param({"1000", "100000"})
+    int topicCount;
+
+    private MemorySubMgt    memorySubMgt;
+    private TopicTrieSubMgt topicTrieSubMgt;
+    private MqttBroker      broker;
+    private String[]        topics;
+    private int             index;
+
+    @Setup
+    public void setup() {
+        broker = new MqttBroker();
+        broker.init();
+        memorySubMgt    = new MemorySubMgt();
+        topicTrieSubMgt = new TopicTrieSubMgt();
+        topics = new String[topicCount];
+        for (int i=0;i<topicCount;i++) {
+            topics[i] = "tenant/" + (i % 10) + "/device/" + i + "/temperature";
+            memorySubMgt.checkAndAddTopic(topics[i]);
+            topicTrieSubMgt.checkAndAddTopic(topics[i]);
+        }
+        for (int i=0;i<100;i++) {
+            String exact    = topics[i * (topicCount / 100)];
+            String wildcard = "tenant/" + (i % 10) + "/device/+/temperature";
+            subscribe(memorySubMgt, exact, wildcard);
+            subscribe(topicTrieSubMgt, exact, wildcard);
+        }
+    }
+
+    private void subscribe(SubscribeManager subMgt, String... filters) {
+        MqttBrokerSession session = broker.createNioSession();
+        session.setClientId("client-" + filters[0]);
+        Subscribe subscribe = new Subscribe(SUBSCRIBE_VALUE << 4);
+        List<TopicFilter> topicFilters = new ArrayList<>();
+        for (String filter : filters) {
+            TopicFilter tf = new TopicFilter();
+            tf.setTopicFilter(filter);
+            tf.setSubscriptionOptions(QoSLevel.LEAST_ONCE.getValue());
+            topicFilters.add(tf);
+        }
+        subscribe.setTopicFilterList(topicFilters);
+        subMgt.subscribe(subscribe, session);
+    }
+
+    private String nextTopic() {
+        int i = index++;
+        if (index == topics.length) {
+            index = 0;
+        }
+        return topics[i];
+    }
+
+    @Benchmark
+    public List<SubscribeInfo> memoryMatch() {
+        return memorySubMgt.getSubscribeInfos(nextTopic());
+    }
+
+    @Benchmark
+    public List<SubscribeInfo> trieMatch() {
+        return topicTrieSubMgt.getSubscribeInfos(nextTopic());
+    }
+
+    @Benchmark
+    public void memoryWildcardSubscribe() {
+        subscribe(memorySubMgt, "tenant/+/device/" + index++ + "/temperature");
+    }
+
+    @Benchmark
+    public void trieWildcardSubscribe() {
+        subscribe(topicTrieSubMgt, "tenant/+/device/" + index++ + "/temperature");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(SubscribeMatchPerf.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
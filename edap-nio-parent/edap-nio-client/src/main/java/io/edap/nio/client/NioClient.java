@@ -1,11 +1,201 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
 package io.edap.nio.client;
 
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * NIO客户端，一个IO线程管理多个客户端连接的读写事件。连接建立为阻塞方式，建立后注册到IO线程的Selector，
+ * 读事件由IO线程交给会话解码，写数据由调用线程直接写入，socket缓冲区满时由IO线程在可写后继续写入。
+ */
 public class NioClient {
 
-    public static void main(String[] args) throws IOException {
+    static Logger LOG = LoggerManager.getLogger(NioClient.class);
+
+    private static final AtomicInteger CLIENT_SEQ = new AtomicInteger();
+
+    private final String                  name;
+    private final Queue<NioClientSession> pendingRegisters;
+    private Selector                      selector;
+    private Thread                        ioThread;
+    private volatile boolean              running;
+
+    public NioClient() {
+        this("edap-nio-client-" + CLIENT_SEQ.getAndIncrement());
+    }
+
+    public NioClient(String name) {
+        this.name             = name;
+        this.pendingRegisters = new ConcurrentLinkedQueue<>();
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        running  = true;
+        ioThread = new Thread(this::loop, name);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(3000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            Object attach = key.attachment();
+            if (attach instanceof NioClientSession) {
+                ((NioClientSession)attach).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("close selector error", e);
+        }
+    }
+
+    /**
+     * 阻塞的建立连接，建立成功后将会话注册到IO线程
+     * @param address 服务端地址
+     * @param session 连接的会话
+     * @param timeoutMillis 建立连接的超时毫秒数
+     * @return 已建立连接的会话
+     * @throws IOException 连接失败或者超时时抛出
+     */
+    public <S extends NioClientSession> S connect(InetSocketAddress address, S session,
+                                                  int timeoutMillis) throws IOException {
+        if (!running) {
+            throw new IOException("NioClient " + name + " not started");
+        }
         SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.socket().connect(address, timeoutMillis);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        session.bind(this, channel);
+        pendingRegisters.add(session);
+        selector.wakeup();
+        return session;
+    }
+
+    void interestWrite(NioClientSession session) {
+        SelectionKey key = keyOf(session);
+        if (key != null) {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            selector.wakeup();
+        }
+    }
+
+    void clearInterestWrite(NioClientSession session) {
+        SelectionKey key = keyOf(session);
+        if (key != null) {
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        }
+    }
+
+    private SelectionKey keyOf(NioClientSession session) {
+        SelectionKey key = session.getSocketChannel().keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return null;
+        }
+        return key;
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                selector.select(1000);
+                registerPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioClientSession session = (NioClientSession) key.attachment();
+                    if (!key.isValid()) {
+                        session.close();
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        session.readReady();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        session.writeReady();
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (Throwable t) {
+                LOG.warn("nio client loop error", t);
+            }
+        }
+    }
+
+    private void registerPending() {
+        NioClientSession session;
+        while ((session = pendingRegisters.poll()) != null) {
+            if (session.isClosed()) {
+                continue;
+            }
+            try {
+                SelectionKey key = session.getSocketChannel().register(selector, SelectionKey.OP_READ, session);
+                session.setSelectionKey(key);
+                // 注册前已经有未写完的数据时，interestWrite找不到SelectionKey，需要在注册后补上可写事件
+                if (session.isWritePending()) {
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                session.close(e);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
     }
 }
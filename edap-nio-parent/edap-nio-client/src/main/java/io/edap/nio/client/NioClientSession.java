@@ -1,6 +1,248 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
 package io.edap.nio.client;
 
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
 import io.edap.nio.NioSession;
 
-public class NioClientSession extends NioSession {
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 客户端连接的会话，多个线程可以并发的写入数据，写入的数据按写入顺序排队后由抢到写权限的线程合并后一次写入，
+ * 未写完的数据由IO线程在连接可写时继续写入。读取的数据由IO线程交给decode方法解码。
+ */
+public abstract class NioClientSession extends NioSession {
+
+    static Logger LOG = LoggerManager.getLogger(NioClientSession.class);
+
+    /**
+     * 单次聚合写入最多的ByteBuffer的数量
+     */
+    public static final int GATHER_MAX = 64;
+
+    /**
+     * 读缓冲区的默认大小
+     */
+    public static final int DEFAULT_READ_BUF_SIZE = 64 * 1024;
+
+    private SocketChannel socketChannel;
+    private SelectionKey  selectionKey;
+    private NioClient     nioClient;
+    private ByteBuffer    readBuf;
+
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否有线程正在写数据，抢到写权限的线程负责写出队列中的数据
+     */
+    private final AtomicBoolean     writing    = new AtomicBoolean(false);
+    private final AtomicBoolean     closed     = new AtomicBoolean(false);
+    /**
+     * 写权限已交给IO线程，等待连接可写后继续写入
+     */
+    private volatile boolean        writePending;
+    private final ByteBuffer[]      gatherBufs = new ByteBuffer[GATHER_MAX];
+
+    /**
+     * 解码IO线程读取到的数据，未能解码的半包数据保留在buf中，等待下次读取后再解码
+     * @param buf 已切换为读模式的读缓冲区
+     * @throws IOException 数据不合法时抛出，连接将被关闭
+     */
+    protected abstract void decode(ByteBuffer buf) throws IOException;
+
+    /**
+     * 连接关闭时的回调
+     * @param cause 关闭的原因，主动关闭时为null
+     */
+    protected void onClose(Throwable cause) {
+
+    }
+
+    void bind(NioClient nioClient, SocketChannel socketChannel) {
+        this.nioClient     = nioClient;
+        this.socketChannel = socketChannel;
+        this.readBuf       = ByteBuffer.allocateDirect(DEFAULT_READ_BUF_SIZE);
+    }
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * 将数据加入写队列后尝试写入，如果其他线程正在写则由该线程负责写出
+     * @param buf 需要写入的数据
+     * @throws IOException 连接已关闭时抛出
+     */
+    public void write(ByteBuffer buf) throws IOException {
+        if (closed.get()) {
+            throw new ClosedChannelException();
+        }
+        writeQueue.add(buf);
+        flush();
+    }
+
+    private void flush() {
+        while (!writeQueue.isEmpty() && writing.compareAndSet(false, true)) {
+            if (!writeQueued()) {
+                // 未写完的数据由IO线程在可写时继续写，写权限交给IO线程
+                writePending = true;
+                nioClient.interestWrite(this);
+                return;
+            }
+            writing.set(false);
+        }
+    }
+
+    boolean isWritePending() {
+        return writePending;
+    }
+
+    /**
+     * 连接可写时由IO线程调用，继续写出上次没有写完的数据
+     */
+    void writeReady() {
+        nioClient.clearInterestWrite(this);
+        if (!writePending) {
+            return;
+        }
+        if (!writeQueued()) {
+            nioClient.interestWrite(this);
+            return;
+        }
+        writePending = false;
+        writing.set(false);
+        flush();
+    }
+
+    /**
+     * 持有写权限时将队列中的数据聚合后写出
+     * @return 队列中数据全部写完返回true，socket缓冲区满时返回false
+     */
+    private boolean writeQueued() {
+        ByteBuffer[] bufs = gatherBufs;
+        try {
+            while (true) {
+                int count = 0;
+                Iterator<ByteBuffer> iterator = writeQueue.iterator();
+                while (count < GATHER_MAX && iterator.hasNext()) {
+                    bufs[count++] = iterator.next();
+                }
+                if (count == 0) {
+                    return true;
+                }
+                socketChannel.write(bufs, 0, count);
+                for (int i=0;i<count;i++) {
+                    if (bufs[i].hasRemaining()) {
+                        clearGather(count);
+                        return false;
+                    }
+                    writeQueue.poll();
+                }
+                clearGather(count);
+            }
+        } catch (IOException e) {
+            clearGather(GATHER_MAX);
+            close(e);
+            return true;
+        }
+    }
+
+    private void clearGather(int count) {
+        for (int i=0;i<count;i++) {
+            gatherBufs[i] = null;
+        }
+    }
+
+    /**
+     * 连接可读时由IO线程调用
+     */
+    void readReady() {
+        try {
+            int n = socketChannel.read(readBuf);
+            if (n < 0) {
+                close(new ClosedChannelException());
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            readBuf.flip();
+            decode(readBuf);
+            readBuf.compact();
+        } catch (Throwable t) {
+            close(t);
+        }
+    }
+
+    /**
+     * 解码时发现一个完整的消息超过读缓冲区的容量时扩大读缓冲区，调用后decode应直接返回等待下次读取
+     * @param capacity 需要的最小容量
+     */
+    protected void ensureReadCapacity(int capacity) {
+        if (readBuf.capacity() >= capacity) {
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(capacity);
+        buf.put(readBuf);
+        buf.flip();
+        readBuf = buf;
+    }
+
+    public void close() {
+        close(null);
+    }
+
+    protected void close(Throwable cause) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (selectionKey != null) {
+            selectionKey.cancel();
+        }
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            LOG.warn("close channel error", e);
+        }
+        writeQueue.clear();
+        try {
+            onClose(cause);
+        } catch (Throwable t) {
+            LOG.warn("onClose error", t);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    public SocketChannel getSocketChannel() {
+        return socketChannel;
+    }
+
+    public NioClient getNioClient() {
+        return nioClient;
+    }
 }
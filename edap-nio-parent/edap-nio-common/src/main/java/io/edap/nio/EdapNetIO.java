@@ -16,6 +16,8 @@
 
 package io.edap.nio;
 
+import io.edap.util.UnsafeUtil;
+
 import java.io.FileDescriptor;
 import java.io.IOException;
 
@@ -24,4 +26,30 @@ public interface EdapNetIO {
     int read(FileDescriptor fd, long address, int len) throws IOException;
 
     int write(FileDescriptor fd, long address, int len) throws IOException;
+
+    /**
+     * 将iovec数组描述的多段内存聚集写出，默认实现按顺序逐段写出，遇到未能全部写出的段时返回
+     * @param fd 连接的文件描述符
+     * @param iovAddress iovec数组的内存地址，每个iovec包含8字节的地址以及8字节的长度
+     * @param iovCount iovec的个数
+     * @return 写出的字节数
+     * @throws IOException 写数据失败时抛出
+     */
+    default long writev(FileDescriptor fd, long iovAddress, int iovCount) throws IOException {
+        long total = 0;
+        for (int i=0;i<iovCount;i++) {
+            long entry = iovAddress + (long) i * FastBufChain.IOVEC_SIZE;
+            long address = UnsafeUtil.UNSAFE.getLong(entry);
+            int len = (int)UnsafeUtil.UNSAFE.getLong(entry + 8);
+            int wlen = write(fd, address, len);
+            if (wlen <= 0) {
+                return total > 0 ? total : wlen;
+            }
+            total += wlen;
+            if (wlen < len) {
+                break;
+            }
+        }
+        return total;
+    }
 }
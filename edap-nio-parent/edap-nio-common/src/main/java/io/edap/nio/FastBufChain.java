@@ -0,0 +1,196 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio;
+
+import io.edap.buffer.FastBuf;
+import io.edap.pool.Pool;
+import io.edap.util.UnsafeUtil;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 连接待发送数据的FastBuf链表，多个线程可以无锁的追加数据，只有连接所属的IO线程消费，
+ * 消费时将链表中的多个FastBuf通过一次writev系统调用聚集写出。链表中也可以有文件区域（{@link FileRegion}），
+ * 聚集写在文件区域处截止，文件区域由消费线程单独通过transferTo发送，保证和前后FastBuf的顺序
+ */
+public class FastBufChain {
+
+    /**
+     * 每个iovec结构体的字节数，包含8字节的内存地址以及8字节的长度
+     */
+    public static final int IOVEC_SIZE = 16;
+    /**
+     * 一次writev最多聚集的FastBuf个数
+     */
+    public static final int IOV_MAX    = 64;
+
+    private static final AtomicReferenceFieldUpdater<FastBufChain, Node> TAIL_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(FastBufChain.class, Node.class, "tail");
+
+    /**
+     * 已经消费的最后一个节点，只由消费线程修改
+     */
+    private Node head;
+    /**
+     * 最后追加的节点，生产者通过原子交换追加节点
+     */
+    private volatile Node tail;
+
+    public FastBufChain() {
+        Node stub = new Node(null);
+        head = stub;
+        tail = stub;
+    }
+
+    /**
+     * 将FastBuf追加到链表尾部，可以由多个线程并发调用，不会阻塞
+     * @param buf 待发送的数据
+     */
+    public void add(FastBuf buf) {
+        Node node = new Node(buf);
+        Node prev = TAIL_UPDATER.getAndSet(this, node);
+        prev.next = node;
+    }
+
+    /**
+     * 将文件区域追加到链表尾部，可以由多个线程并发调用，不会阻塞
+     * @param region 待发送的文件区域
+     */
+    public void add(FileRegion region) {
+        Node node = new Node(null);
+        node.region = region;
+        Node prev = TAIL_UPDATER.getAndSet(this, node);
+        prev.next = node;
+    }
+
+    /**
+     * 链表中是否没有待发送的数据，包括生产者已经追加但还未链接完成的节点
+     */
+    public boolean isEmpty() {
+        return head.next == null && head == tail;
+    }
+
+    /**
+     * 返回链表头部的FastBuf，只能由消费线程调用
+     * @return 链表为空或者节点还未链接完成时返回null
+     */
+    public FastBuf peek() {
+        Node next = head.next;
+        return next == null ? null : next.buf;
+    }
+
+    /**
+     * 返回链表头部的文件区域，只能由消费线程调用
+     * @return 链表头部不是文件区域时返回null
+     */
+    public FileRegion peekRegion() {
+        Node next = head.next;
+        return next == null ? null : next.region;
+    }
+
+    /**
+     * 移除链表头部的节点并返回其中的FastBuf，只能由消费线程调用
+     * @return 链表为空、节点还未链接完成或者头部是文件区域时返回null
+     */
+    public FastBuf poll() {
+        Node next = head.next;
+        if (next == null) {
+            return null;
+        }
+        FastBuf buf = next.buf;
+        next.buf    = null;
+        next.region = null;
+        head = next;
+        return buf;
+    }
+
+    /**
+     * 将链表中的数据通过一次聚集写发送，全部写出的FastBuf从链表中移除并归还到对象池，
+     * 部分写出的FastBuf更新读位置后保留在链表头部。聚集写在第一个文件区域处截止。只能由消费线程调用
+     * @param netIO 网络IO的实现
+     * @param fd 连接的文件描述符
+     * @param iov 存放iovec数组的FastBuf，容量不小于IOVEC_SIZE
+     * @param pool 归还已经全部写出的FastBuf的对象池，为null时不归还
+     * @return 写出的字节数
+     * @throws IOException 写数据失败时抛出
+     */
+    public long writeTo(EdapNetIO netIO, FileDescriptor fd, FastBuf iov, Pool<FastBuf> pool) throws IOException {
+        int max = Math.min(IOV_MAX, iov.byteBuffer().capacity() / IOVEC_SIZE);
+        long iovAddress = iov.address();
+        int count = 0;
+        Node node = head.next;
+        while (node != null && count < max) {
+            if (node.region != null) {
+                break;
+            }
+            FastBuf buf = node.buf;
+            long pos = buf.rpos();
+            long len = buf.wpos() - pos;
+            if (len > 0) {
+                long entry = iovAddress + (long) count * IOVEC_SIZE;
+                UnsafeUtil.UNSAFE.putLong(entry, pos);
+                UnsafeUtil.UNSAFE.putLong(entry + 8, len);
+                count++;
+            }
+            node = node.next;
+        }
+        long written = 0;
+        if (count > 0) {
+            written = netIO.writev(fd, iovAddress, count);
+            if (written < 0) {
+                written = 0;
+            }
+        }
+        release(written, pool);
+        return written;
+    }
+
+    /**
+     * 按写出的字节数移除已经全部写出的FastBuf，并更新部分写出的FastBuf的读位置
+     */
+    private void release(long written, Pool<FastBuf> pool) {
+        long remain = written;
+        Node next;
+        while ((next = head.next) != null && next.region == null) {
+            FastBuf buf = next.buf;
+            long len = buf.wpos() - buf.rpos();
+            if (remain < len) {
+                buf.rpos(buf.rpos() + remain);
+                return;
+            }
+            remain -= len;
+            next.buf = null;
+            head = next;
+            buf.clear();
+            if (pool != null) {
+                pool.requite(buf);
+            }
+        }
+    }
+
+    static final class Node {
+        FastBuf       buf;
+        FileRegion    region;
+        volatile Node next;
+
+        Node(FastBuf buf) {
+            this.buf = buf;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 待发送的文件区域，通过FileChannel.transferTo（Linux下为sendfile）直接从文件写到连接，数据不经过java堆。
+ * 连接不可写时文件区域和FastBuf按顺序暂存在{@link FastBufChain}中，由连接所属的IO线程在连接可写时继续发送
+ */
+public class FileRegion implements Closeable {
+
+    private final FileChannel channel;
+    /**
+     * 发送完成或者连接关闭时是否关闭文件
+     */
+    private final boolean     closeOnComplete;
+    /**
+     * 下一个待发送字节在文件中的位置
+     */
+    private long position;
+    /**
+     * 还未发送的字节数
+     */
+    private long remain;
+
+    /**
+     * @param channel 文件的FileChannel
+     * @param position 发送区域在文件中的开始位置
+     * @param count 发送的字节数
+     * @param closeOnComplete 发送完成或者连接关闭时是否关闭文件
+     */
+    public FileRegion(FileChannel channel, long position, long count, boolean closeOnComplete) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count must be >= 0");
+        }
+        this.channel         = channel;
+        this.position        = position;
+        this.remain          = count;
+        this.closeOnComplete = closeOnComplete;
+    }
+
+    /**
+     * 发送整个文件的区域，发送完成后关闭文件
+     */
+    public static FileRegion of(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new FileRegion(channel, 0, channel.size(), true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 将文件区域尽量多的写到target，target为非阻塞连接时，连接的发送缓冲满后返回
+     * @param target 写入的连接
+     * @return 本次写出的字节数
+     * @throws IOException 写数据失败或者文件在发送过程中被截断时抛出
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long total = 0;
+        while (remain > 0) {
+            long n = channel.transferTo(position, remain, target);
+            if (n <= 0) {
+                // 连接不可写和文件被截断都返回0，后者需要结束发送，否则IO线程会一直等待可写事件
+                if (position >= channel.size()) {
+                    throw new EOFException("file truncated at " + position + ", " + remain + " bytes not sent");
+                }
+                break;
+            }
+            position += n;
+            remain   -= n;
+            total    += n;
+        }
+        return total;
+    }
+
+    /**
+     * 是否已经全部发送
+     */
+    public boolean isComplete() {
+        return remain == 0;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long remain() {
+        return remain;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeOnComplete) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.enums;
+
+/**
+ * 新连接分配到IO线程(reactor)的策略
+ */
+public enum IoBalanceType {
+    /**
+     * 按顺序轮流分配
+     */
+    ROUND_ROBIN,
+    /**
+     * 分配到当前连接数最少的IO线程
+     */
+    LEAST_CONNECTIONS,
+    /**
+     * 分配到最近一段时间读写字节数最少的IO线程，适合长连接流量差异较大的场景
+     */
+    LEAST_RECENT_BYTES,
+    /**
+     * 按连接的远端IP地址哈希固定分配IO线程，同一个来源地址的连接总是由同一个线程处理，不绑定CPU
+     */
+    CPU_AFFINITY
+}
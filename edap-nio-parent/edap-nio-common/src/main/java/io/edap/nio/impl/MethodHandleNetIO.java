@@ -35,6 +35,7 @@ public class MethodHandleNetIO implements EdapNetIO {
     protected static final MethodHandle READ0_MH;
     protected static final MethodHandle WRITE0_MH;
     protected static final MethodHandle WRITE0_MH2;
+    protected static final MethodHandle WRITEV0_MH;
     protected static final ConstantCallSite READ_CALLSITE;
     protected static final ConstantCallSite WRITE_CALLSITE;
     protected static final ConstantCallSite WRITE_CALLSITE2;
@@ -74,6 +75,14 @@ public class MethodHandleNetIO implements EdapNetIO {
             } else {
                 WRITE_CALLSITE2 = null;
             }
+
+            MethodHandle writev0Mh = null;
+            try {
+                Method writev0 = getMethod(fdi, "writev0", FileDescriptor.class, long.class, int.class);
+                writev0Mh = lookup.unreflect(writev0);
+            } catch (AssertionError ignored) {
+            }
+            WRITEV0_MH = writev0Mh;
         } catch (ClassNotFoundException | IllegalAccessException e) {
             throw new AssertionError(e);
         }
@@ -88,43 +97,35 @@ public class MethodHandleNetIO implements EdapNetIO {
         }
     }
 
+    /**
+     * 非阻塞的连接发送缓冲区满时只写出部分数据，返回实际写出的字节数，由调用方保留剩余的数据
+     * 等待连接可写后再发送，不在IO线程中循环等待
+     */
     @Override
     public int write(FileDescriptor fd, long address, int len) throws IOException {
         try {
             if (WRITE0_MH != null) {
-                int wlen = (int)WRITE0_MH.invokeExact(fd, address, len);
-                if (wlen >= len) {
-                   return wlen;
-                }
-                int remain = len - wlen;
-                address += wlen;
-                while (remain > 0) {
-                    int tmpLen = (int)WRITE0_MH.invokeExact(fd, address, remain);
-                    remain  -= tmpLen;
-                    address += tmpLen;
-                    wlen    += tmpLen;
-                }
-                return wlen;
+                return (int)WRITE0_MH.invokeExact(fd, address, len);
             } else {
-                int wlen = (int)WRITE0_MH2.invokeExact(fd, address, len);
-                if (wlen >= len) {
-                    return wlen;
-                }
-                int remain = len - wlen;
-                address += wlen;
-                while (remain > 0) {
-                    int tmpLen = (int)WRITE0_MH2.invokeExact(fd, address, remain);
-                    remain  -= tmpLen;
-                    address += tmpLen;
-                    wlen    += tmpLen;
-                }
-                return wlen;
+                return (int)WRITE0_MH2.invokeExact(fd, address, len, false);
             }
         } catch (Throwable e) {
             throw new IOException(e);
         }
     }
 
+    @Override
+    public long writev(FileDescriptor fd, long iovAddress, int iovCount) throws IOException {
+        if (WRITEV0_MH == null) {
+            return EdapNetIO.super.writev(fd, iovAddress, iovCount);
+        }
+        try {
+            return (long)WRITEV0_MH.invokeExact(fd, iovAddress, iovCount);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+
     private static Method getMethod(Class clazz, String name, Class... args) {
         return getMethod0(clazz, name, args, true);
     }
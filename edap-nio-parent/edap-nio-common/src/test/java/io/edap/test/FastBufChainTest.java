@@ -0,0 +1,151 @@
+package io.edap.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.nio.EdapNetIO;
+import io.edap.nio.FastBufChain;
+import io.edap.nio.impl.MethodHandleNetIO;
+import io.edap.pool.Pool;
+import io.edap.pool.impl.ThreadLocalPool;
+import io.edap.util.UnsafeUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastBufChainTest {
+
+    @Test
+    public void testPartialWritev() throws IOException {
+        FastBufChain chain = new FastBufChain();
+        assertTrue(chain.isEmpty());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i=0;i<10;i++) {
+            byte[] data = ("message-" + i + ";").getBytes(StandardCharsets.UTF_8);
+            expected.write(data, 0, data.length);
+            chain.add(toFastBuf(data));
+        }
+        chain.add(new FastBuf(16));
+        assertFalse(chain.isEmpty());
+
+        LimitedNetIO netIO = new LimitedNetIO(7);
+        FastBuf iov = new FastBuf(FastBufChain.IOV_MAX * FastBufChain.IOVEC_SIZE);
+        Pool<FastBuf> pool = new ThreadLocalPool<>();
+        while (!chain.isEmpty()) {
+            long n = chain.writeTo(netIO, null, iov, pool);
+            assertTrue(n <= 7);
+        }
+        assertArrayEquals(expected.toByteArray(), netIO.out.toByteArray());
+        assertNull(chain.peek());
+        FastBuf buf = pool.borrow();
+        assertNotNull(buf);
+        assertEquals(0, buf.remain());
+    }
+
+    @Test
+    public void testUnavailable() throws IOException {
+        FastBufChain chain = new FastBufChain();
+        byte[] data = "hello".getBytes(StandardCharsets.UTF_8);
+        chain.add(toFastBuf(data));
+        FastBuf iov = new FastBuf(FastBufChain.IOVEC_SIZE);
+        assertEquals(0, chain.writeTo(new LimitedNetIO(0), null, iov, null));
+        assertFalse(chain.isEmpty());
+        assertEquals(data.length, chain.peek().remain());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        FastBufChain chain = new FastBufChain();
+        int threads = 4;
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        List<Thread> list = new ArrayList<>();
+        for (int t=0;t<threads;t++) {
+            Thread thread = new Thread(() -> {
+                for (int i=0;i<count;i++) {
+                    chain.add(new FastBuf(1));
+                }
+                latch.countDown();
+            });
+            list.add(thread);
+            thread.start();
+        }
+        int polled = 0;
+        while (polled < threads * count) {
+            if (chain.poll() != null) {
+                polled++;
+            }
+        }
+        latch.await();
+        assertTrue(chain.isEmpty());
+        assertNull(chain.poll());
+    }
+
+    @Test
+    public void testMethodHandleWritev() throws IOException {
+        File file = File.createTempFile("edap-writev", ".dat");
+        file.deleteOnExit();
+        FastBufChain chain = new FastBufChain();
+        chain.add(toFastBuf("abc".getBytes(StandardCharsets.UTF_8)));
+        chain.add(toFastBuf("defg".getBytes(StandardCharsets.UTF_8)));
+        FastBuf iov = new FastBuf(FastBufChain.IOV_MAX * FastBufChain.IOVEC_SIZE);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            assertEquals(7, chain.writeTo(new MethodHandleNetIO(), out.getFD(), iov, null));
+        }
+        assertTrue(chain.isEmpty());
+        assertEquals("abcdefg", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    private static FastBuf toFastBuf(byte[] data) {
+        FastBuf buf = new FastBuf(data.length);
+        buf.write(data, 0, data.length);
+        return buf;
+    }
+
+    /**
+     * 每次写操作最多只接受limit个字节的模拟实现，limit为0时模拟发送缓冲区已满
+     */
+    static class LimitedNetIO implements EdapNetIO {
+
+        final int limit;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int remain;
+
+        LimitedNetIO(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int read(FileDescriptor fd, long address, int len) {
+            return 0;
+        }
+
+        @Override
+        public int write(FileDescriptor fd, long address, int len) {
+            int n = Math.min(len, remain);
+            if (n == 0) {
+                return -2;
+            }
+            for (int i=0;i<n;i++) {
+                out.write(UnsafeUtil.UNSAFE.getByte(address + i));
+            }
+            remain -= n;
+            return n;
+        }
+
+        @Override
+        public long writev(FileDescriptor fd, long iovAddress, int iovCount) throws IOException {
+            remain = limit;
+            return EdapNetIO.super.writev(fd, iovAddress, iovCount);
+        }
+    }
+}
@@ -19,16 +19,20 @@ package io.edap;
 import io.edap.buffer.FastBuf;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
+import io.edap.nio.FastBufChain;
+import io.edap.nio.FileRegion;
+import io.edap.nio.IoWorkerLoad;
 import io.edap.nio.NioSession;
 import io.edap.nio.ParseResult;
+import io.edap.pool.Pool;
+import io.edap.pool.impl.ThreadLocalPool;
 
 import java.io.FileDescriptor;
 import java.io.IOException;
 import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -59,6 +63,27 @@ public abstract class NioServerSession<T> extends NioSession {
 
     private static int UNAVAILABLE = -2;
 
+    /**
+     * 写缓冲池中写缓冲的大小，当前线程写缓冲转入暂存链表后从池中换用该大小的写缓冲
+     */
+    static final int DEFAULT_WRITE_BUF_SIZE = 32768;
+
+    /**
+     * 写缓冲池创建时预先放入的写缓冲个数
+     */
+    private static final int WRITE_BUF_POOL_INIT = 16;
+
+    /**
+     * 线程的写缓冲池，IO线程发送完成的写缓冲归还到该线程的池中，再需要新的写缓冲时从池中获取
+     */
+    public static final ThreadLocal<Pool<FastBuf>> THREAD_WRITE_BUF_POOL = ThreadLocal.withInitial(() -> {
+        Pool<FastBuf> pool = new ThreadLocalPool<>();
+        for (int i=0;i<WRITE_BUF_POOL_INIT;i++) {
+            pool.requite(new FastBuf(DEFAULT_WRITE_BUF_SIZE));
+        }
+        return pool;
+    });
+
     /**
      * 最后读取到数据的时间
      */
@@ -94,10 +119,21 @@ public abstract class NioServerSession<T> extends NioSession {
      */
     private int maxPipeline;
 
-	private BlockingQueue<FastBuf> writeBufs;
+    /**
+     * 连接不可写时暂存的待发送数据，可由多个线程无锁追加，由所属的IO线程聚集写出
+     */
+    private final FastBufChain writeChain = new FastBufChain();
+    /**
+     * 是否已经请求IO线程在连接可写时发送其他线程投递的数据
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    /**
+     * 该会话所属IO线程的负载统计
+     */
+    private volatile IoWorkerLoad ioWorkerLoad;
 
 	public boolean writeToChannel(FastBuf buf) throws IOException {
-		int len = (int)(buf.wpos() - buf.address());
+		int len = buf.remain();
 		int wlen = fastWrite(buf);
 		if (wlen >= len) {
 			buf.clear();
@@ -110,19 +146,172 @@ public abstract class NioServerSession<T> extends NioSession {
     protected NioServerSession() {
     }
 
-    public FastBuf getWriteBuf() {
-		if (writeBufs == null) {
-			return null;
-		}
-        return writeBufs.peek();
+    /**
+     * 是否有还未发送完成的数据
+     */
+    public boolean hasPendingWrite() {
+        return !writeChain.isEmpty();
     }
 
-    public void removeWriteBuf(FastBuf wbuf) {
-		if (writeBufs != null) {
-			writeBufs.remove(wbuf);
-		}
+    /**
+     * 由所属的IO线程调用，将暂存的待发送数据通过一次writev聚集写出，全部写出的FastBuf归还到对象池，
+     * 暂存的文件区域通过transferTo发送，发送完成后关闭
+     * @param iov 存放iovec数组的FastBuf
+     * @param pool 归还FastBuf的对象池
+     * @return 暂存的数据全部发送完成返回true
+     * @throws IOException 写数据失败时抛出
+     */
+    public boolean flushWriteChain(FastBuf iov, Pool<FastBuf> pool) throws IOException {
+        while (true) {
+            FileRegion region = writeChain.peekRegion();
+            if (region != null) {
+                if (!transferRegion(region)) {
+                    return false;
+                }
+                writeChain.poll();
+                region.close();
+            } else if (writeChain.peek() == null) {
+                return writeChain.isEmpty();
+            } else if (!flushBufs(iov, pool)) {
+                return false;
+            }
+        }
     }
 
+    /**
+     * 写出暂存链表头部到下一个文件区域之前的FastBuf
+     * @return 全部写出返回true
+     */
+    private boolean flushBufs(FastBuf iov, Pool<FastBuf> pool) throws IOException {
+        if (channelFd == null) {
+            FastBuf wbuf;
+            while ((wbuf = writeChain.peek()) != null) {
+                fastWrite(wbuf);
+                if (wbuf.remain() > 0) {
+                    return false;
+                }
+                writeChain.poll();
+                wbuf.clear();
+                if (pool != null) {
+                    pool.requite(wbuf);
+                }
+            }
+            return true;
+        }
+        long n = writeChain.writeTo(EDAP_NET_IO, channelFd, iov, pool);
+        IoWorkerLoad load = ioWorkerLoad;
+        if (n > 0 && load != null) {
+            load.addWriteBytes(n);
+        }
+        if (n <= 0 && !socketChannel.isOpen()) {
+            throw new AsynchronousCloseException();
+        }
+        return writeChain.peek() == null;
+    }
+
+    private boolean transferRegion(FileRegion region) throws IOException {
+        long n = region.transferTo(socketChannel);
+        IoWorkerLoad load = ioWorkerLoad;
+        if (n > 0 && load != null) {
+            load.addWriteBytes(n);
+        }
+        return region.isComplete();
+    }
+
+    /**
+     * 由所属的IO线程调用，先发送当前线程写缓冲中已有的数据，再通过FileChannel.transferTo（Linux下为sendfile）
+     * 将文件区域直接写到连接，文件内容不复制到java堆。连接不可写时将写缓冲中剩余的数据和文件区域按顺序追加到暂存链表，
+     * 由IO线程在连接可写时继续发送，调用方之后需要重新获取THREAD_WRITE_BUF
+     * @param region 待发送的文件区域
+     * @return 全部发送完成返回true
+     * @throws IOException 写数据失败时抛出
+     */
+    public boolean transferFile(FileRegion region) throws IOException {
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        if (!hasPendingWrite() && writeToChannel(wbuf)) {
+            if (transferRegion(region)) {
+                region.close();
+                return true;
+            }
+        } else {
+            queueThreadWriteBuf();
+        }
+        writeChain.add(region);
+        return false;
+    }
+
+    /**
+     * 由所属的IO线程调用，当前线程写缓冲已满时发送其中的数据，连接不可写或者还有暂存的数据时将写缓冲追加到暂存链表，
+     * 并为当前线程换一个新的写缓冲，不会阻塞IO线程
+     * @return 当前线程可以继续写入的写缓冲
+     * @throws IOException 写数据失败时抛出
+     */
+    public FastBuf flushThreadWriteBuf() throws IOException {
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        if (!hasPendingWrite() && writeToChannel(wbuf)) {
+            return wbuf;
+        }
+        return queueThreadWriteBuf();
+    }
+
+    private FastBuf queueThreadWriteBuf() {
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        if (wbuf.remain() == 0) {
+            wbuf.clear();
+            return wbuf;
+        }
+        putToWriteQueue(wbuf);
+        FastBuf nbuf = borrowWriteBuf();
+        THREAD_WRITE_BUF.set(nbuf);
+        return nbuf;
+    }
+
+    /**
+     * 从当前线程的写缓冲池获取默认大小的写缓冲，池中没有空闲的写缓冲时新建
+     * @return 空的写缓冲
+     */
+    public static FastBuf borrowWriteBuf() {
+        return borrowWriteBuf(DEFAULT_WRITE_BUF_SIZE);
+    }
+
+    /**
+     * 从当前线程的写缓冲池获取至少size字节的写缓冲，池中没有足够大的写缓冲时新建，新建的写缓冲发送完成后也归还到池中
+     * @param size 需要的字节数
+     * @return 空的写缓冲
+     */
+    public static FastBuf borrowWriteBuf(int size) {
+        if (size <= DEFAULT_WRITE_BUF_SIZE) {
+            FastBuf buf = THREAD_WRITE_BUF_POOL.get().borrow();
+            if (buf != null && buf.writeRemain() >= size) {
+                return buf;
+            }
+        }
+        return new FastBuf(Math.max(DEFAULT_WRITE_BUF_SIZE, size));
+    }
+
+    /**
+     * 连接关闭时由IO线程调用，释放会话持有的资源，子类覆盖时需要调用super.channelClosed()
+     */
+    public void channelClosed() {
+        discardWriteChain();
+    }
+
+    /**
+     * 连接关闭时丢弃还未发送的数据，并关闭暂存的文件区域
+     */
+    public void discardWriteChain() {
+        FileRegion region;
+        while ((region = writeChain.peekRegion()) != null || writeChain.peek() != null) {
+            writeChain.poll();
+            if (region != null) {
+                try {
+                    region.close();
+                } catch (IOException e) {
+                    LOG.warn("close file region error", l -> l.threw(e));
+                }
+            }
+        }
+    }
 
     public SocketChannel getSocketChannel() {
         return socketChannel;
@@ -247,14 +436,25 @@ public abstract class NioServerSession<T> extends NioSession {
         int ret = (n == UNAVAILABLE?0:n);
         if (ret > 0) {
             buf.wpos(buf.wpos() + ret);
+            IoWorkerLoad load = ioWorkerLoad;
+            if (load != null) {
+                load.addReadBytes(ret);
+            }
         }
         return ret;
     }
 
     public int fastWrite(FastBuf buf) throws IOException {
         if (channelFd == null) {
-            buf.syncToByteBuffer();
-            return socketChannel.write(buf.byteBuffer());
+            // 没有可用的本地IO时按FastBuf的读写位置通过SocketChannel写出
+            ByteBuffer bb = buf.byteBuffer();
+            bb.limit((int)(buf.wpos() - buf.address()));
+            bb.position((int)(buf.rpos() - buf.address()));
+            int n = socketChannel.write(bb);
+            if (n > 0) {
+                buf.rpos(buf.rpos() + n);
+            }
+            return n;
         }
         try {
 //            while (true) {
@@ -278,6 +478,10 @@ public abstract class NioServerSession<T> extends NioSession {
         int res = write0(channelFd, pos, len);
         if (res > 0) {
             buf.rpos(pos + res);
+            IoWorkerLoad load = ioWorkerLoad;
+            if (load != null) {
+                load.addWriteBytes(res);
+            }
         }
         if ((res == INTERRUPTED) && socketChannel.isOpen()) {
             // The system call was interrupted but the channel
@@ -358,18 +562,100 @@ public abstract class NioServerSession<T> extends NioSession {
         this.monitorIndex = monitorIndex;
     }
 
+    /**
+     * 由所属的IO线程调用，将未能立即发送的数据追加到暂存链表，不会阻塞IO线程
+     * @param buf 待发送的数据
+     */
 	public void putToWriteQueue(FastBuf buf) {
-		if (writeBufs == null) {
-			writeBufs = new ArrayBlockingQueue(16);
-		}
-		try {
-			writeBufs.put(buf);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
+		writeChain.add(buf);
 	}
 
+    /**
+     * 由其他线程调用，将待发送的数据追加到暂存链表并请求所属的IO线程在连接可写时发送
+     * @param buf 待发送的数据，发送完成后归还到IO线程的对象池
+     */
+    public void enqueueWrite(FastBuf buf) {
+        writeChain.add(buf);
+        scheduleFlush();
+    }
+
+    /**
+     * 其他线程向该会话投递待发送数据后调用，开启该连接的OP_WRITE事件并唤醒所属的Selector，
+     * 由该会话所属的IO线程调用drainOutbound批量发送数据
+     */
+    public void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        SelectionKey key = selectionKey;
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+        } catch (CancelledKeyException e) {
+            LOG.debug("schedule flush on cancelled key {}", l -> l.arg(key));
+        }
+    }
+
+    /**
+     * 由IO线程在连接可写时调用，将其他线程投递的待发送数据追加到buf中
+     * @param buf 本次批量发送使用的写缓冲
+     * @return 写缓冲已满但还有未追加的数据时返回true，否则返回false
+     */
+    public boolean drainOutbound(FastBuf buf) {
+        return false;
+    }
+
+    /**
+     * 是否还有其他线程投递但还未追加到写缓冲的数据
+     * @return 有待发送数据返回true
+     */
+    public boolean hasOutbound() {
+        return false;
+    }
+
+    /**
+     * IO线程发送完所有投递的数据并关闭OP_WRITE事件后调用，如果在此期间又有新的数据投递则重新占用发送标记
+     * @return 需要继续发送时返回true
+     */
+    public boolean completeFlush() {
+        flushScheduled.set(false);
+        return (hasOutbound() || hasPendingWrite()) && flushScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * 连接注册到IO线程时关联该线程的负载统计，并增加该线程的连接数
+     * @param load IO线程的负载统计
+     */
+    public void bindIoWorkerLoad(IoWorkerLoad load) {
+        releaseIoWorkerLoad();
+        load.connectionOpened();
+        this.ioWorkerLoad = load;
+    }
+
+    /**
+     * 连接关闭时解除与IO线程负载统计的关联，并减少该线程的连接数，多次调用只减少一次
+     */
+    public void releaseIoWorkerLoad() {
+        IoWorkerLoad load;
+        synchronized (this) {
+            load = ioWorkerLoad;
+            ioWorkerLoad = null;
+        }
+        if (load != null) {
+            load.connectionClosed();
+        }
+    }
+
+    public IoWorkerLoad getIoWorkerLoad() {
+        return ioWorkerLoad;
+    }
+
     public void close() {
+        releaseIoWorkerLoad();
+        channelClosed();
         try {
             socketChannel.close();
         } catch (IOException e) {
@@ -22,6 +22,7 @@ import io.edap.nio.AcceptDispatcherFactory;
 import io.edap.nio.IoSelectorManager;
 import io.edap.nio.ReadDispatcherFactory;
 import io.edap.nio.SelectorProvider;
+import io.edap.nio.enums.IoBalanceType;
 import io.edap.nio.enums.ThreadType;
 import io.edap.pool.Pool;
 import io.edap.pool.SimpleFastBufPool;
@@ -72,6 +73,14 @@ public abstract class Server<T, S extends NioServerSession> {
     private boolean nioSesionPooled;
 
     private ThreadType threadType;
+    /**
+     * 新连接分配IO线程的策略，为null时使用最少连接数策略
+     */
+    private IoBalanceType ioBalanceType;
+    /**
+     * 是否每个IO线程使用SO_REUSEPORT单独监听端口，由内核将新连接分配到各个IO线程
+     */
+    private boolean reusePort;
 
     private Pool<NioServerSession> nioSessionPool;
 
@@ -299,6 +308,28 @@ public abstract class Server<T, S extends NioServerSession> {
         this.threadType = threadType;
     }
 
+    /**
+     * 新连接分配IO线程的策略
+     */
+    public IoBalanceType getIoBalanceType() {
+        return ioBalanceType;
+    }
+
+    public void setIoBalanceType(IoBalanceType ioBalanceType) {
+        this.ioBalanceType = ioBalanceType;
+    }
+
+    /**
+     * 是否每个IO线程使用SO_REUSEPORT单独监听端口
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
     public SelectorProvider getSelectorProvider() {
         if (selectorProvider == null) {
             throw new RuntimeException("Server havn't set SelectorProvider!");
@@ -23,9 +23,11 @@ import io.edap.nio.ReadDispatcherFactory;
 import io.edap.nio.SelectorProvider;
 import io.edap.nio.impl.FastAcceptor;
 import io.edap.nio.impl.NormalAcceptor;
+import io.edap.nio.impl.ReusePortAcceptor;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
 import io.edap.nio.enums.EventDispatchType;
+import io.edap.nio.enums.IoBalanceType;
 import io.edap.nio.enums.ThreadType;
 import io.edap.pool.SimpleFastBufPool;
 import io.edap.util.CollectionUtils;
@@ -183,6 +185,8 @@ public class ServerGroup {
     public void run() {
         EventDispatchType eventDispatchType = parseEventDispatchType(edap.getConfig());
         ThreadType        threadType        = parseThreadType(edap.getConfig());
+        IoBalanceType     ioBalanceType     = parseIoBalanceType(edap.getConfig());
+        boolean           reusePort         = parseReusePort(edap.getConfig());
         List<SelectorProvider> providers = edap.getSelectorProviders();
         if (CollectionUtils.isEmpty(providers)) {
             LOG.error("SelectorProvider is null");
@@ -217,12 +221,25 @@ public class ServerGroup {
             s.setServerGroup(this);
             s.setSelectorProvider(provider);
             s.setThreadType(threadType);
+            if (s.getIoBalanceType() == null) {
+                s.setIoBalanceType(ioBalanceType);
+            }
+            if (reusePort) {
+                s.setReusePort(true);
+            }
+            if (s.isReusePort() && (!(fAcceptor instanceof FastAcceptor) || !ReusePortAcceptor.isReusePortSupported())) {
+                LOG.warn("server {} set reusePort but SO_REUSEPORT or fast dispatch not supported!",
+                        l -> l.arg(s.name()));
+                s.setReusePort(false);
+            }
             List<Server.Addr> addrs = s.getListenAddrs();
             Edap edap = getEdap();
             for (Server.Addr addr : addrs) {
                 ServerChannelContext scc = new ServerChannelContext();
                 Acceptor acpt;
-                if (fAcceptor instanceof FastAcceptor) {
+                if (s.isReusePort()) {
+                    acpt = new ReusePortAcceptor();
+                } else if (fAcceptor instanceof FastAcceptor) {
                     acpt = new FastAcceptor();
                 } else {
                     acpt = new NormalAcceptor();
@@ -288,6 +305,27 @@ public class ServerGroup {
         return eventDispatchType;
     }
 
+    private IoBalanceType parseIoBalanceType(EdapConfig config) {
+        String balanceTypeKey   = SERVER_GROUP_CONFIG_KEY + "." + this.getName() + ".ioBalanceType";
+        Object balanceTypeValue = ConfigUtils.getConfigValue(balanceTypeKey, edap.getConfig(),
+                "LEAST_CONNECTIONS");
+        IoBalanceType balanceType;
+        try {
+            balanceType = IoBalanceType.valueOf(((String)balanceTypeValue).toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("IoBalanceType parse error", e);
+            balanceType = IoBalanceType.LEAST_CONNECTIONS;
+        }
+
+        return balanceType;
+    }
+
+    private boolean parseReusePort(EdapConfig config) {
+        String reusePortKey   = SERVER_GROUP_CONFIG_KEY + "." + this.getName() + ".reusePort";
+        Object reusePortValue = ConfigUtils.getConfigValue(reusePortKey, edap.getConfig(), "false");
+        return Boolean.parseBoolean(String.valueOf(reusePortValue));
+    }
+
     private ThreadType parseThreadType(EdapConfig config) {
         String threadTypeKey   = SERVER_GROUP_CONFIG_KEY + "." + this.getName() + ".threadType";
         Object threadTypeValue = ConfigUtils.getConfigValue(threadTypeKey, edap.getConfig(),
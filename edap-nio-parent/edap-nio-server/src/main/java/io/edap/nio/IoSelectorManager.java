@@ -22,9 +22,16 @@ import io.edap.NioServerSession;
 import io.edap.Server;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
+import io.edap.ServerChannelContext;
+import io.edap.nio.enums.IoBalanceType;
 import io.edap.nio.event.BizEvent;
 import io.edap.nio.handler.BizEventHandler;
+import io.edap.nio.impl.CpuAffinityIoBalancer;
+import io.edap.nio.impl.LeastConnectionsIoBalancer;
+import io.edap.nio.impl.LeastRecentBytesIoBalancer;
+import io.edap.nio.impl.ReusePortReadDispatcher;
 import io.edap.nio.impl.RoundRobinDisruptorManager;
+import io.edap.nio.impl.RoundRobinIoBalancer;
 import io.edap.nio.util.EventHandleThreadFactory;
 import io.edap.util.SystemUtil;
 
@@ -32,11 +39,11 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class IoSelectorManager {
 
@@ -46,10 +53,10 @@ public class IoSelectorManager {
     private SelectorProvider      selectorProvider;
     private ReadDispatcherFactory dispatcherFactory;
     private IoWorker[]            ioWorkers;
+    private IoWorkerLoad[]        ioWorkerLoads;
+    private IoWorkerBalancer      balancer;
     private int                   ioThreadCount;
-    private volatile int          ioWorkerIndex;
     private Server.Addr           addr;
-    private static Lock           lock = new ReentrantLock();
 
     private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
 
@@ -68,6 +75,8 @@ public class IoSelectorManager {
         this.dispatcherFactory = server.getReadDispatcherFactory();
         if (server.getIoThreadCount() < 1) {
             ioThreadCount = SystemUtil.getCpuCount();
+        } else {
+            ioThreadCount = server.getIoThreadCount();
         }
 //        int reactorCount = ioThreadCount / 8;
 //        if (reactorCount < 1) {
@@ -75,9 +84,13 @@ public class IoSelectorManager {
 //        }
         int reactorCount = ioThreadCount;
 
-        ioWorkers = new IoWorker[reactorCount];
+        ioWorkers     = new IoWorker[reactorCount];
+        ioWorkerLoads = new IoWorkerLoad[reactorCount];
+        balancer      = createBalancer(server.getIoBalanceType());
         for (int i=0;i<reactorCount;i++) {
             IoWorker ioWorker = new IoWorker();
+            ioWorker.load     = new IoWorkerLoad(i);
+            ioWorkerLoads[i]  = ioWorker.load;
             EventDispatcherSet         eventDispatcherSet;
             Selector                   selector;
             ReadDispatcher             readDispatcher;
@@ -86,6 +99,10 @@ public class IoSelectorManager {
             try {
                 disruptorManager   = createDisruptorManager();
                 readDispatcher     = dispatcherFactory.createReadDispatcher(server, disruptorManager);
+                if (server.isReusePort()) {
+                    // 每个IO线程监听自己的端口，新连接直接在该线程的Selector中接收
+                    readDispatcher = new ReusePortReadDispatcher(readDispatcher, server, this, i);
+                }
                 info               = selectorProvider.openSelector(readDispatcher);
                 selector           = info.getSelector();
                 eventDispatcherSet = info.getEventDispatcherSet();
@@ -116,25 +133,62 @@ public class IoSelectorManager {
 
     public int getClientCount() {
         int total = 0;
-        for (int i=0;i<ioThreadCount;i++) {
-            total += ioWorkers[i].selector.keys().size();
+        for (int i=0;i<ioWorkers.length;i++) {
+            total += ioWorkerLoads[i].getConnectionCount();
         }
         return total;
     }
 
     public List<IoWorkerInfo> getWorkerInfoList() {
         List<IoWorkerInfo> infos = new ArrayList<>();
-        for (int i=0;i<ioThreadCount;i++) {
+        for (int i=0;i<ioWorkers.length;i++) {
             IoWorkerInfo ioWorkerInfo = new IoWorkerInfo();
-            ioWorkerInfo.clientCount  = ioWorkers[i].selector.keys().size();
+            ioWorkerInfo.clientCount  = ioWorkerLoads[i].getConnectionCount();
             ioWorkerInfo.workerStatus = ioWorkers[i].running?1:0;
             ioWorkerInfo.threadName   = ioWorkers[i].ioThread.getName();
+            ioWorkerInfo.readBytes    = ioWorkerLoads[i].getReadBytes();
+            ioWorkerInfo.writeBytes   = ioWorkerLoads[i].getWriteBytes();
             infos.add(ioWorkerInfo);
         }
 
         return infos;
     }
 
+    /**
+     * IO线程的个数
+     */
+    public int getWorkerCount() {
+        return ioWorkers.length;
+    }
+
+    public IoWorkerBalancer getBalancer() {
+        return balancer;
+    }
+
+    /**
+     * 设置新连接分配IO线程的策略，需要在开始接收连接前设置
+     * @param balancer 分配策略
+     */
+    public void setBalancer(IoWorkerBalancer balancer) {
+        this.balancer = balancer;
+    }
+
+    private static IoWorkerBalancer createBalancer(IoBalanceType balanceType) {
+        if (balanceType == null) {
+            return new LeastConnectionsIoBalancer();
+        }
+        switch (balanceType) {
+            case ROUND_ROBIN:
+                return new RoundRobinIoBalancer();
+            case LEAST_RECENT_BYTES:
+                return new LeastRecentBytesIoBalancer();
+            case CPU_AFFINITY:
+                return new CpuAffinityIoBalancer();
+            default:
+                return new LeastConnectionsIoBalancer();
+        }
+    }
+
     private DisruptorManager<BizEvent> createDisruptorManager() {
         DisruptorManager<BizEvent> manager = new RoundRobinDisruptorManager<>(
                 BizEvent::new, new BizEventHandler(server), BIZ_THREAD_FACTORY, 16,
@@ -144,41 +198,71 @@ public class IoSelectorManager {
         return manager;
     }
 
+    /**
+     * 按分配策略为新连接选择IO线程并注册读事件
+     * @param nioSession 新连接的会话
+     */
     public void registerNioSession(NioServerSession nioSession) {
-        LOG.trace("registerNioSession {}", l -> l.arg(nioSession));
-        SelectionKey key;
-        lock.lock();
-        IoWorker ioWorker;
-        try {
-            ioWorker = ioWorkers[ioWorkerIndex++];
-            if (ioWorkerIndex == ioWorkers.length) {
-                ioWorkerIndex = 0;
-            }
-            if (!ioWorker.running) {
-                ioWorker.running = true;
-                ioWorker.ioThread.start();
-            }
-        } finally {
-            lock.unlock();
-        }
+        int index = balancer.select(ioWorkerLoads, nioSession);
+        registerNioSession(nioSession, index);
+    }
+
+    /**
+     * 将新连接注册到指定的IO线程
+     * @param nioSession 新连接的会话
+     * @param index IO线程的下标
+     */
+    public void registerNioSession(NioServerSession nioSession, int index) {
+        LOG.trace("registerNioSession {} ioWorker {}", l -> l.arg(nioSession).arg(index));
+        IoWorker ioWorker = ioWorkers[index];
+        ioWorker.start();
         try {
 			nioSession.setSelector(ioWorker.selector);
-            key = nioSession.getSocketChannel().register(ioWorker.selector, SelectionKey.OP_READ, nioSession);
+            nioSession.bindIoWorkerLoad(ioWorker.load);
+            SelectionKey key = nioSession.getSocketChannel().register(ioWorker.selector, SelectionKey.OP_READ,
+                    nioSession);
+            nioSession.setSelectionKey(key);
         } catch (ClosedChannelException e) {
+            nioSession.releaseIoWorkerLoad();
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * SO_REUSEPORT模式下将IO线程自己监听的ServerSocketChannel注册到该线程的Selector中
+     * @param index IO线程的下标
+     * @param ssc 该线程监听的ServerSocketChannel
+     * @param scc 监听地址的上下文
+     * @throws ClosedChannelException ServerSocketChannel已经关闭时抛出
+     */
+    public void registerAcceptor(int index, ServerSocketChannel ssc, ServerChannelContext scc)
+            throws ClosedChannelException {
+        IoWorker ioWorker = ioWorkers[index];
+        ioWorker.start();
+        ssc.register(ioWorker.selector, SelectionKey.OP_ACCEPT, scc);
+    }
+
     class IoWorker {
-        private Selector selector;
-        private boolean  running;
-        private Thread   ioThread;
+        private Selector              selector;
+        private volatile boolean      running;
+        private Thread                ioThread;
+        private IoWorkerLoad          load;
+        private final AtomicBoolean   started = new AtomicBoolean();
+
+        void start() {
+            if (!running && started.compareAndSet(false, true)) {
+                running = true;
+                ioThread.start();
+            }
+        }
     }
 
     public class IoWorkerInfo {
         private int clientCount;
         private int workerStatus;
         private String threadName;
+        private long   readBytes;
+        private long   writeBytes;
 
 
         public int getClientCount() {
@@ -204,6 +288,28 @@ public class IoSelectorManager {
         public void setThreadName(String threadName) {
             this.threadName = threadName;
         }
+
+        /**
+         * 该IO线程累计读取的字节数
+         */
+        public long getReadBytes() {
+            return readBytes;
+        }
+
+        public void setReadBytes(long readBytes) {
+            this.readBytes = readBytes;
+        }
+
+        /**
+         * 该IO线程累计写出的字节数
+         */
+        public long getWriteBytes() {
+            return writeBytes;
+        }
+
+        public void setWriteBytes(long writeBytes) {
+            this.writeBytes = writeBytes;
+        }
     }
 
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio;
+
+import io.edap.NioServerSession;
+
+/**
+ * 新连接分配IO线程的策略，可能被多个接收连接的线程并发调用，实现类需要保证线程安全且不能阻塞
+ */
+public interface IoWorkerBalancer {
+
+    /**
+     * 为新连接选择处理IO的线程
+     * @param loads 所有IO线程的负载统计
+     * @param nioSession 新连接的会话
+     * @return 选中的IO线程的下标
+     */
+    int select(IoWorkerLoad[] loads, NioServerSession nioSession);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IO线程的负载统计，连接注册到IO线程时关联到会话，由会话在读写数据以及关闭时更新
+ */
+public class IoWorkerLoad {
+
+    /**
+     * IO线程在IoSelectorManager中的下标
+     */
+    private final int           index;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final LongAdder     readBytes       = new LongAdder();
+    private final LongAdder     writeBytes      = new LongAdder();
+
+    public IoWorkerLoad(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void connectionOpened() {
+        connectionCount.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        connectionCount.decrementAndGet();
+    }
+
+    public void addReadBytes(long bytes) {
+        readBytes.add(bytes);
+    }
+
+    public void addWriteBytes(long bytes) {
+        writeBytes.add(bytes);
+    }
+
+    /**
+     * 当前注册在该IO线程的连接数
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 该IO线程累计读取的字节数
+     */
+    public long getReadBytes() {
+        return readBytes.sum();
+    }
+
+    /**
+     * 该IO线程累计写出的字节数
+     */
+    public long getWriteBytes() {
+        return writeBytes.sum();
+    }
+}
@@ -70,7 +70,17 @@ public class AcceptEventHandler implements EventHandler<AcceptEvent> {
         LOG.trace("event:{}, sequence={}, endOfBatch={}",
                 l -> l.arg(event.getChannel()).arg(sequence).arg(endOfBatch));
         ServerChannelContext scc = event.getServerChannelCtx();
-        SocketChannel sc = event.getChannel();
+        scc.getIoSelectorManager().registerNioSession(createNioSession(scc, event.getChannel()));
+    }
+
+    /**
+     * 设置新连接的Socket参数，获取NioSession并关联SocketChannel以及文件描述符
+     * @param scc 监听地址的上下文
+     * @param sc 新接收的连接
+     * @return 关联好连接的NioSession
+     * @throws Exception 设置连接参数失败时抛出
+     */
+    public NioServerSession<?> createNioSession(ServerChannelContext scc, SocketChannel sc) throws Exception {
         sc.configureBlocking(false);
 		Socket socket = sc.socket();
 		socket.setReuseAddress(true);
@@ -92,7 +102,6 @@ public class AcceptEventHandler implements EventHandler<AcceptEvent> {
         nioSession.setEdap(scc.getEdap());
         nioSession.setMonitorIndex(scc.getMonitorIndex());
         nioSession.setLastReadTime(EDAP_TIME.currentTimeMillis());
-
-        scc.getIoSelectorManager().registerNioSession(nioSession);
+        return nioSession;
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.NioServerSession;
+import io.edap.nio.IoWorkerBalancer;
+import io.edap.nio.IoWorkerLoad;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 按连接的远端IP地址哈希固定分配IO线程，哈希不包含客户端的临时端口，同一个来源地址的连接总是由同一个IO线程处理。
+ * 只保证来源地址和IO线程的对应关系，并不把IO线程绑定到CPU，也不等同于网卡RSS的哈希。无法获取远端地址时退化为轮流分配
+ */
+public class CpuAffinityIoBalancer implements IoWorkerBalancer {
+
+    private final RoundRobinIoBalancer fallback = new RoundRobinIoBalancer();
+
+    @Override
+    public int select(IoWorkerLoad[] loads, NioServerSession nioSession) {
+        SocketChannel channel = nioSession.getSocketChannel();
+        Socket socket = channel == null ? null : channel.socket();
+        if (socket == null || !(socket.getRemoteSocketAddress() instanceof InetSocketAddress)) {
+            return fallback.select(loads, nioSession);
+        }
+        InetSocketAddress remote = (InetSocketAddress)socket.getRemoteSocketAddress();
+        int h = remote.getAddress().hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return (h & 0x7FFFFFFF) % loads.length;
+    }
+}
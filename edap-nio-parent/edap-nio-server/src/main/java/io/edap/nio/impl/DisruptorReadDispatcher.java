@@ -23,10 +23,9 @@ import io.edap.buffer.FastBuf;
 import io.edap.log.Logger;
 import io.edap.log.LoggerManager;
 import io.edap.nio.DisruptorManager;
+import io.edap.nio.FastBufChain;
 import io.edap.nio.ReadDispatcher;
 import io.edap.nio.event.BizEvent;
-import io.edap.pool.Pool;
-import io.edap.pool.impl.ThreadLocalPool;
 import io.edap.util.EdapTime;
 
 import java.io.IOException;
@@ -34,6 +33,8 @@ import java.net.SocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
+import static io.edap.NioServerSession.THREAD_WRITE_BUF_POOL;
+import static io.edap.NioServerSession.borrowWriteBuf;
 import static io.edap.nio.NioSession.THREAD_WRITE_BUF;
 import static io.edap.nio.util.NetUtil.getRemoteAddress;
 
@@ -41,10 +42,12 @@ public class DisruptorReadDispatcher implements ReadDispatcher {
 
     static Logger LOG = LoggerManager.getLogger(DisruptorReadDispatcher.class);
 
-    private Pool<FastBuf> bbPool;
-
     private Server        server;
 	private FastBuf       readBuf;
+    /**
+     * 聚集写时存放iovec数组的缓冲，每个IO线程一个
+     */
+    private final FastBuf iovBuf = new FastBuf(FastBufChain.IOV_MAX * FastBufChain.IOVEC_SIZE);
 
     private DisruptorManager<BizEvent> disruptorManager;
 
@@ -54,13 +57,8 @@ public class DisruptorReadDispatcher implements ReadDispatcher {
 
     public DisruptorReadDispatcher(Server server, DisruptorManager<BizEvent> disruptorManager) {
         this.server           = server;
-        this.bbPool           = new ThreadLocalPool<>();
         this.disruptorManager = disruptorManager;
 
-        for (int i = 0;i < 16; i++) {
-            bbPool.requite(new FastBuf(32768));
-        }
-
         NIO_SESSION_POOLED = server.isNioSesionPooled();
     }
 
@@ -85,23 +83,19 @@ public class DisruptorReadDispatcher implements ReadDispatcher {
                     if (!nioSession.decode(buf, false)) {
 						return;
 					}
-					FastBuf wbuf = nioSession.getWriteBuf();
-					if (wbuf == null) {
-						if (!nioSession.writeToChannel(writeBuf)) {
-							nioSession.putToWriteQueue(writeBuf);
-							FastBuf nbuf = bbPool.borrow();
-                            if (nbuf == null) {
-                                nbuf = new FastBuf(32768);
-                            }
-							THREAD_WRITE_BUF.set(nbuf);
-							nioSession.setSelectionKey(nioSession.getSocketChannel()
-									.register(nioSession.getSelector(), SelectionKey.OP_WRITE, nioSession));
+					// 会话在处理请求时可能已经把写缓冲转入暂存链表并换了新的写缓冲
+					writeBuf = THREAD_WRITE_BUF.get();
+					if (nioSession.hasPendingWrite()) {
+						// 还有未发送完成的数据时追加到暂存链表的尾部，保证响应的顺序
+						if (writeBuf.remain() > 0) {
+							queueWriteBuf(nioSession, writeBuf);
 						}
-					} else {
-						if (nioSession.writeToChannel(wbuf)) {
-							nioSession.removeWriteBuf(wbuf);
-                            bbPool.requite(wbuf);
+						if (!nioSession.flushWriteChain(iovBuf, THREAD_WRITE_BUF_POOL.get())) {
+							readKey.interestOpsOr(SelectionKey.OP_WRITE);
 						}
+					} else if (!nioSession.writeToChannel(writeBuf)) {
+						queueWriteBuf(nioSession, writeBuf);
+						readKey.interestOpsOr(SelectionKey.OP_WRITE);
 					}
 				}
 			} catch (IOException e) {
@@ -113,13 +107,9 @@ public class DisruptorReadDispatcher implements ReadDispatcher {
 //            }
 			}
 		} else if (readKey.isWritable()) {
-			FastBuf wbuf = nioSession.getWriteBuf();
 			try {
-				if (wbuf != null) {
-					if (nioSession.writeToChannel(wbuf)) {
-						nioSession.removeWriteBuf(wbuf);
-                        bbPool.requite(wbuf);
-					}
+				if (nioSession.flushWriteChain(iovBuf, THREAD_WRITE_BUF_POOL.get())) {
+					flushOutbound(readKey, nioSession);
 				}
 			} catch (IOException e) {
 				closeChannel(readKey, nioSession);
@@ -128,8 +118,46 @@ public class DisruptorReadDispatcher implements ReadDispatcher {
 		}
     }
 
+	/**
+	 * 将其他线程投递给该会话的数据批量追加到写缓冲中发送，全部发送完成后关闭OP_WRITE事件
+	 * @param key 该会话的SelectionKey
+	 * @param nioSession 需要发送数据的会话
+	 * @throws IOException 写数据失败时抛出
+	 */
+	private void flushOutbound(SelectionKey key, NioServerSession nioSession) throws IOException {
+		FastBuf writeBuf = THREAD_WRITE_BUF.get();
+		boolean more;
+		do {
+			writeBuf.clear();
+			more = nioSession.drainOutbound(writeBuf);
+			if (writeBuf.remain() == 0) {
+				break;
+			}
+			if (!nioSession.writeToChannel(writeBuf)) {
+				queueWriteBuf(nioSession, writeBuf);
+				return;
+			}
+		} while (more);
+		key.interestOpsAnd(~SelectionKey.OP_WRITE);
+		if (nioSession.completeFlush()) {
+			key.interestOpsOr(SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * 将未能立即发送完成的写缓冲追加到会话的暂存链表，并为当前IO线程换一个新的写缓冲
+	 */
+	private void queueWriteBuf(NioServerSession nioSession, FastBuf writeBuf) {
+		nioSession.putToWriteQueue(writeBuf);
+		THREAD_WRITE_BUF.set(borrowWriteBuf());
+	}
+
     private void closeChannel(SelectionKey readKey, NioServerSession nioSession) {
         SocketChannel channel = (SocketChannel)readKey.channel();
+        if (nioSession != null) {
+            nioSession.releaseIoWorkerLoad();
+            nioSession.channelClosed();
+        }
         try {
             SocketAddress remoteAddr = channel.getRemoteAddress();
             readKey.cancel();
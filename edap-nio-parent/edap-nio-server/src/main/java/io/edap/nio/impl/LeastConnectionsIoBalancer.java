@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.NioServerSession;
+import io.edap.nio.IoWorkerBalancer;
+import io.edap.nio.IoWorkerLoad;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分配到当前连接数最少的IO线程，连接数相同时从轮转的起点开始选择，避免连接集中到下标小的线程
+ */
+public class LeastConnectionsIoBalancer implements IoWorkerBalancer {
+
+    private final AtomicInteger seq = new AtomicInteger();
+
+    @Override
+    public int select(IoWorkerLoad[] loads, NioServerSession nioSession) {
+        int len   = loads.length;
+        int start = (seq.getAndIncrement() & 0x7FFFFFFF) % len;
+        int best  = start;
+        int min   = loads[start].getConnectionCount();
+        for (int i=1;i<len;i++) {
+            int index = start + i;
+            if (index >= len) {
+                index -= len;
+            }
+            int count = loads[index].getConnectionCount();
+            if (count < min) {
+                min  = count;
+                best = index;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.NioServerSession;
+import io.edap.nio.IoWorkerBalancer;
+import io.edap.nio.IoWorkerLoad;
+import io.edap.util.EdapTime;
+
+/**
+ * 分配到最近一段时间负载最小的IO线程。每个统计周期记录一次各线程累计的字节数，最近的流量为上一个完整周期的
+ * 字节数加上当前周期已经产生的字节数，每个连接按connectionBytes字节计入负载，避免同一周期内新建的连接在产生流量前
+ * 全部分配到同一个线程
+ */
+public class LeastRecentBytesIoBalancer implements IoWorkerBalancer {
+
+    private static final EdapTime EDAP_TIME = EdapTime.instance();
+
+    /**
+     * 每个连接默认计入的字节数
+     */
+    public static final long DEFAULT_CONNECTION_BYTES = 16 * 1024;
+
+    /**
+     * 统计周期的毫秒数
+     */
+    private final long      windowMillis;
+    /**
+     * 每个连接计入负载的字节数
+     */
+    private final long      connectionBytes;
+    private volatile Window window;
+
+    public LeastRecentBytesIoBalancer() {
+        this(1000);
+    }
+
+    public LeastRecentBytesIoBalancer(long windowMillis) {
+        this(windowMillis, DEFAULT_CONNECTION_BYTES);
+    }
+
+    public LeastRecentBytesIoBalancer(long windowMillis, long connectionBytes) {
+        this.windowMillis    = windowMillis;
+        this.connectionBytes = connectionBytes;
+    }
+
+    @Override
+    public int select(IoWorkerLoad[] loads, NioServerSession nioSession) {
+        Window w = roll(loads);
+        int  best     = 0;
+        long minScore = Long.MAX_VALUE;
+        int  minConns = Integer.MAX_VALUE;
+        for (int i=0;i<loads.length;i++) {
+            IoWorkerLoad load = loads[i];
+            long total  = load.getReadBytes() + load.getWriteBytes();
+            int  conns  = load.getConnectionCount();
+            long score  = w.windowBytes[i] + (total - w.totals[i]) + conns * connectionBytes;
+            if (score < minScore || (score == minScore && conns < minConns)) {
+                minScore = score;
+                minConns = conns;
+                best     = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 超过统计周期时记录各线程累计的字节数，多个线程同时进入时只有一个线程更新
+     * @return 当前的统计周期
+     */
+    private Window roll(IoWorkerLoad[] loads) {
+        long now = EDAP_TIME.currentTimeMillis();
+        Window w = window;
+        if (w != null && now - w.start < windowMillis) {
+            return w;
+        }
+        synchronized (this) {
+            w = window;
+            if (w != null && now - w.start < windowMillis) {
+                return w;
+            }
+            long[] newTotals = new long[loads.length];
+            long[] newWindow = new long[loads.length];
+            for (int i=0;i<loads.length;i++) {
+                newTotals[i] = loads[i].getReadBytes() + loads[i].getWriteBytes();
+                newWindow[i] = w == null ? 0 : newTotals[i] - w.totals[i];
+            }
+            w = new Window(now, newTotals, newWindow);
+            window = w;
+            return w;
+        }
+    }
+
+    /**
+     * 一个统计周期的快照，周期开始时间、累计字节数以及上一个周期的字节数一起发布，读取时不会看到不同周期的数据
+     */
+    private static final class Window {
+        final long   start;
+        final long[] totals;
+        final long[] windowBytes;
+
+        Window(long start, long[] totals, long[] windowBytes) {
+            this.start       = start;
+            this.totals      = totals;
+            this.windowBytes = windowBytes;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.nio.AbstractAcceptor;
+import io.edap.nio.IoSelectorManager;
+import io.edap.util.CollectionUtils;
+import io.edap.util.StringUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 每个IO线程使用SO_REUSEPORT单独监听同一个地址，由内核将新连接分配到各个IO线程，
+ * 连接在所属IO线程中直接接收和注册，不再经过单独的Acceptor线程
+ */
+public class ReusePortAcceptor extends AbstractAcceptor {
+
+    private List<ServerSocketChannel> serverSocketChannelList;
+
+    /**
+     * 当前运行环境是否支持SO_REUSEPORT
+     */
+    public static boolean isReusePortSupported() {
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            return ssc.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void accept() {
+        IoSelectorManager ioSelectorManager = serverChannelContext.getIoSelectorManager();
+        serverSocketChannelList = new ArrayList<>();
+        for (int i=0;i<ioSelectorManager.getWorkerCount();i++) {
+            ServerSocketChannel ssc = bindReusePort();
+            serverSocketChannelList.add(ssc);
+            try {
+                ioSelectorManager.registerAcceptor(i, ssc, serverChannelContext);
+            } catch (IOException e) {
+                throw new RuntimeException(addr + " register acceptor error", e);
+            }
+        }
+        LOG.info("serverGroup {} listen:{} with SO_REUSEPORT, acceptor count {}",
+                l -> l.arg(serverGroup.getName()).arg(addr).arg(serverSocketChannelList.size()));
+    }
+
+    private ServerSocketChannel bindReusePort() {
+        InetSocketAddress address;
+        try {
+            ServerSocketChannel ssc = ServerSocketChannel.open();
+            if (StringUtil.isEmpty(addr.host) || "*".equals(addr.host)) {
+                address = new InetSocketAddress(addr.port);
+            } else {
+                address = new InetSocketAddress(addr.host, addr.port);
+            }
+            ssc.configureBlocking(false);
+            ssc.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            ssc.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            ssc.socket().setReceiveBufferSize(16 * 1024);
+            ssc.bind(address, Math.max(addr.server.getBackLog(), 1024));
+            return ssc;
+        } catch (IOException e) {
+            throw new RuntimeException(addr + " bind error", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (CollectionUtils.isEmpty(serverSocketChannelList)) {
+            return;
+        }
+        for (ServerSocketChannel ssc : serverSocketChannelList) {
+            try {
+                ssc.close();
+                LOG.trace("ServerSocketChannel {} closed", l -> l.arg(ssc));
+            } catch (IOException e) {
+                LOG.error("ServerSocketChannel {} close error", l -> l.arg(ssc).arg(e));
+            }
+        }
+    }
+}
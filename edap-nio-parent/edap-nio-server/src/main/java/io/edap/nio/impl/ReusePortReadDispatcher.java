@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.Server;
+import io.edap.ServerChannelContext;
+import io.edap.log.Logger;
+import io.edap.log.LoggerManager;
+import io.edap.nio.IoSelectorManager;
+import io.edap.nio.ReadDispatcher;
+import io.edap.nio.handler.AcceptEventHandler;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * SO_REUSEPORT模式下IO线程的事件分发器，该线程自己监听的端口有新连接时直接接收并注册到本线程，
+ * 其他事件交给原有的分发器处理，新连接不经过单独的Acceptor线程以及线程间的队列
+ */
+public class ReusePortReadDispatcher implements ReadDispatcher {
+
+    static Logger LOG = LoggerManager.getLogger(ReusePortReadDispatcher.class);
+
+    /**
+     * 每次Accept事件最多接收的连接数，避免连接风暴时长时间占用IO线程
+     */
+    private static final int MAX_ACCEPT_PER_EVENT = 64;
+
+    private final ReadDispatcher     delegate;
+    private final IoSelectorManager  ioSelectorManager;
+    private final int                workerIndex;
+    private final AcceptEventHandler acceptEventHandler;
+
+    public ReusePortReadDispatcher(ReadDispatcher delegate, Server server, IoSelectorManager ioSelectorManager,
+                                   int workerIndex) {
+        this.delegate           = delegate;
+        this.ioSelectorManager  = ioSelectorManager;
+        this.workerIndex        = workerIndex;
+        this.acceptEventHandler = new AcceptEventHandler(server);
+    }
+
+    @Override
+    public void dispatch(SelectionKey key) {
+        if (key.isValid() && key.isAcceptable()) {
+            accept(key);
+        } else {
+            delegate.dispatch(key);
+        }
+    }
+
+    private void accept(SelectionKey acceptKey) {
+        ServerSocketChannel  ssc = (ServerSocketChannel)acceptKey.channel();
+        ServerChannelContext scc = (ServerChannelContext)acceptKey.attachment();
+        for (int i=0;i<MAX_ACCEPT_PER_EVENT;i++) {
+            SocketChannel sc;
+            try {
+                sc = ssc.accept();
+            } catch (IOException e) {
+                LOG.warn("accept error", e);
+                return;
+            }
+            if (sc == null) {
+                return;
+            }
+            try {
+                ioSelectorManager.registerNioSession(acceptEventHandler.createNioSession(scc, sc), workerIndex);
+            } catch (Exception e) {
+                LOG.warn("register channel {} error", l -> l.arg(sc).arg(e));
+                try {
+                    sc.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
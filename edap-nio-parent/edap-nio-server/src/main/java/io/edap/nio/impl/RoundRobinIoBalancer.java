@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.nio.impl;
+
+import io.edap.NioServerSession;
+import io.edap.nio.IoWorkerBalancer;
+import io.edap.nio.IoWorkerLoad;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按顺序轮流分配IO线程
+ */
+public class RoundRobinIoBalancer implements IoWorkerBalancer {
+
+    private final AtomicInteger seq = new AtomicInteger();
+
+    @Override
+    public int select(IoWorkerLoad[] loads, NioServerSession nioSession) {
+        return (seq.getAndIncrement() & 0x7FFFFFFF) % loads.length;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.test.nio;
+
+import io.edap.NioServerSession;
+import io.edap.buffer.FastBuf;
+import io.edap.nio.IoWorkerLoad;
+import io.edap.nio.impl.CpuAffinityIoBalancer;
+import io.edap.nio.impl.LeastConnectionsIoBalancer;
+import io.edap.nio.impl.LeastRecentBytesIoBalancer;
+import io.edap.nio.impl.RoundRobinIoBalancer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestIoWorkerBalancer {
+
+    @Test
+    public void testRoundRobin() {
+        IoWorkerLoad[] loads = createLoads(3);
+        RoundRobinIoBalancer balancer = new RoundRobinIoBalancer();
+        assertEquals(0, balancer.select(loads, null));
+        assertEquals(1, balancer.select(loads, null));
+        assertEquals(2, balancer.select(loads, null));
+        assertEquals(0, balancer.select(loads, null));
+    }
+
+    @Test
+    public void testLeastConnections() {
+        IoWorkerLoad[] loads = createLoads(4);
+        LeastConnectionsIoBalancer balancer = new LeastConnectionsIoBalancer();
+        for (int i=0;i<400;i++) {
+            loads[balancer.select(loads, null)].connectionOpened();
+        }
+        for (IoWorkerLoad load : loads) {
+            assertEquals(100, load.getConnectionCount());
+        }
+        loads[2].connectionClosed();
+        loads[2].connectionClosed();
+        assertEquals(2, balancer.select(loads, null));
+    }
+
+    @Test
+    public void testSessionRelease() {
+        IoWorkerLoad load = new IoWorkerLoad(0);
+        NioServerSession session = createSession();
+        session.bindIoWorkerLoad(load);
+        assertEquals(1, load.getConnectionCount());
+        session.releaseIoWorkerLoad();
+        session.releaseIoWorkerLoad();
+        assertEquals(0, load.getConnectionCount());
+        assertNull(session.getIoWorkerLoad());
+    }
+
+    @Test
+    public void testLeastRecentBytes() throws InterruptedException {
+        IoWorkerLoad[] loads = createLoads(3);
+        LeastRecentBytesIoBalancer balancer = new LeastRecentBytesIoBalancer(50);
+        loads[0].addReadBytes(1000);
+        loads[1].addWriteBytes(10);
+        loads[2].addReadBytes(500);
+        assertEquals(0, balancer.select(loads, null));
+
+        loads[0].addReadBytes(1000);
+        loads[1].addWriteBytes(5000);
+        loads[2].addReadBytes(100);
+        assertEquals(2, balancer.select(loads, null));
+
+        Thread.sleep(120);
+        balancer.select(loads, null);
+        Thread.sleep(120);
+        loads[1].addReadBytes(1);
+        assertEquals(0, balancer.select(loads, null));
+    }
+
+    @Test
+    public void testLeastRecentBytesConnections() {
+        IoWorkerLoad[] loads = createLoads(3);
+        LeastRecentBytesIoBalancer balancer = new LeastRecentBytesIoBalancer(60000, 1000);
+        loads[1].addReadBytes(100);
+        loads[2].addReadBytes(200);
+        // 同一周期内新建的连接还没有流量，也要分散到各个线程
+        int[] counts = new int[loads.length];
+        for (int i=0;i<30;i++) {
+            int index = balancer.select(loads, null);
+            loads[index].connectionOpened();
+            counts[index]++;
+        }
+        for (int count : counts) {
+            assertEquals(10, count);
+        }
+        loads[0].addWriteBytes(5000);
+        assertEquals(1, balancer.select(loads, null));
+    }
+
+    @Test
+    public void testCpuAffinityFallback() {
+        IoWorkerLoad[] loads = createLoads(4);
+        CpuAffinityIoBalancer balancer = new CpuAffinityIoBalancer();
+        Set<Integer> indexes = new HashSet<>();
+        for (int i=0;i<4;i++) {
+            int index = balancer.select(loads, createSession());
+            assertTrue(index >= 0 && index < loads.length);
+            indexes.add(index);
+        }
+        assertEquals(4, indexes.size());
+    }
+
+    @Test
+    public void testCpuAffinitySameAddress() throws IOException {
+        IoWorkerLoad[] loads = createLoads(4);
+        CpuAffinityIoBalancer balancer = new CpuAffinityIoBalancer();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            Set<Integer> indexes = new HashSet<>();
+            Set<Integer> ports = new HashSet<>();
+            for (int i=0;i<8;i++) {
+                try (Socket client = new Socket("127.0.0.1", server.socket().getLocalPort());
+                     SocketChannel channel = server.accept()) {
+                    NioServerSession session = createSession();
+                    session.setSocketChannel(channel);
+                    indexes.add(balancer.select(loads, session));
+                    ports.add(client.getLocalPort());
+                }
+            }
+            // 同一个地址不同临时端口的连接分配到同一个IO线程
+            assertEquals(8, ports.size());
+            assertEquals(1, indexes.size());
+        }
+    }
+
+    private static IoWorkerLoad[] createLoads(int count) {
+        IoWorkerLoad[] loads = new IoWorkerLoad[count];
+        for (int i=0;i<count;i++) {
+            loads[i] = new IoWorkerLoad(i);
+        }
+        return loads;
+    }
+
+    private static NioServerSession createSession() {
+        return new NioServerSession() {
+            @Override
+            public boolean decode(FastBuf fastBuf, boolean threadSwitch) {
+                return false;
+            }
+
+            @Override
+            public void handle(Object message) {
+            }
+        };
+    }
+}
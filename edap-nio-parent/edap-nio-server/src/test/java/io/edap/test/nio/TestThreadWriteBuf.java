@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.test.nio;
+
+import io.edap.NioServerSession;
+import io.edap.buffer.FastBuf;
+import io.edap.pool.Pool;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import static io.edap.NioServerSession.THREAD_WRITE_BUF_POOL;
+import static io.edap.nio.NioSession.THREAD_WRITE_BUF;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestThreadWriteBuf {
+
+    @Test
+    public void testQueueBorrowsPooledBuf() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            try (Socket client = new Socket()) {
+                client.setReceiveBufferSize(4096);
+                client.connect(server.getLocalAddress());
+                try (SocketChannel channel = server.accept()) {
+                    assertQueueBorrowsPooledBuf(channel);
+                }
+            }
+        }
+    }
+
+    private static void assertQueueBorrowsPooledBuf(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+        // 写满发送缓冲，之后的数据只能转入暂存链表
+        ByteBuffer fill = ByteBuffer.allocate(65536);
+        for (int idle=0;idle<3;) {
+            if (channel.write(fill) > 0) {
+                fill.clear();
+                idle = 0;
+            } else {
+                idle++;
+                sleep(20);
+            }
+        }
+        NioServerSession session = createSession();
+        session.setSocketChannel(channel);
+
+        Pool<FastBuf> pool = THREAD_WRITE_BUF_POOL.get();
+        while (pool.borrow() != null) {
+        }
+        FastBuf pooled = new FastBuf(32768);
+        pool.requite(pooled);
+        FastBuf wbuf = THREAD_WRITE_BUF.get();
+        wbuf.clear();
+        wbuf.write(new byte[32768]);
+
+        FastBuf next = session.flushThreadWriteBuf();
+        assertTrue(session.hasPendingWrite());
+        assertSame(pooled, next);
+        assertSame(pooled, THREAD_WRITE_BUF.get());
+        assertEquals(0, next.remain());
+
+        // 池中没有空闲的写缓冲时新建
+        next.write(new byte[16]);
+        FastBuf created = session.flushThreadWriteBuf();
+        assertNotSame(pooled, created);
+        assertEquals(32768, created.writeRemain());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static NioServerSession createSession() {
+        return new NioServerSession() {
+            @Override
+            public boolean decode(FastBuf fastBuf, boolean threadSwitch) {
+                return false;
+            }
+
+            @Override
+            public void handle(Object message) {
+            }
+        };
+    }
+}
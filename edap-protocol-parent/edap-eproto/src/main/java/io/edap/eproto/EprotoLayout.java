@@ -0,0 +1,779 @@
+package io.edap.eproto;
+
+import io.edap.protobuf.EncodeException;
+import io.edap.protobuf.ProtoException;
+import io.edap.protobuf.ProtoFieldInfo;
+import io.edap.protobuf.util.ProtoUtil;
+import io.edap.protobuf.wire.Field;
+import io.edap.util.ByteSlice;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static io.edap.util.UnsafeUtil.UNSAFE;
+import static io.edap.util.UnsafeUtil.fieldOffset;
+
+/**
+ * 消息类预先计算好的字段布局以及结构指纹。指纹由字段的tag、名称、protobuf类型、基数、java类型以及嵌套消息和枚举常量
+ * 递归计算得到，两端的指纹相同时说明对类结构的认知一致，可以使用位置编码：不写tag和wireType，按tag顺序依次写字段的值，
+ * 为null或者基础类型为0的字段只在消息开始的位图中占一位。指纹不同或者类中有不支持位置编码的字段(Map、Iterable、
+ * Object等)时由调用方退回带tag的编码。
+ *
+ * <p>位置编码的消息格式为：每64个字段一个varint64的位图(位为1表示有值)，然后依次为有值字段的值，repeated字段
+ * 先写varint的元素个数再写每个元素，嵌套消息直接写入不需要长度前缀。枚举写ordinal，常量列表已经计入指纹。和protobuf
+ * 一样，基础类型的默认值不写入，解码后保持对象创建时的值。</p>
+ */
+public final class EprotoLayout<T> implements EprotoEncoder<T>, EprotoDecoder<T> {
+
+    private static final ClassValue<EprotoLayout> LAYOUTS = new ClassValue<EprotoLayout>() {
+        @Override
+        protected EprotoLayout computeValue(Class<?> type) {
+            return new EprotoLayout<>(type);
+        }
+    };
+
+    private static final int BOOL     = 0;
+    private static final int INT32    = 1;
+    private static final int UINT32   = 2;
+    private static final int SINT32   = 3;
+    private static final int FIXED32  = 4;
+    private static final int SFIXED32 = 5;
+    private static final int FLOAT    = 6;
+    private static final int INT64    = 7;
+    private static final int UINT64   = 8;
+    private static final int SINT64   = 9;
+    private static final int FIXED64  = 10;
+    private static final int SFIXED64 = 11;
+    private static final int DOUBLE   = 12;
+    private static final int STRING   = 13;
+    private static final int BYTES    = 14;
+    private static final int ENUM     = 15;
+    private static final int MESSAGE  = 16;
+
+    /**
+     * 单个值的字段
+     */
+    private static final int SINGLE          = 0;
+    /**
+     * List类型的repeated字段
+     */
+    private static final int LIST            = 1;
+    /**
+     * 对象数组类型的repeated字段
+     */
+    private static final int ARRAY           = 2;
+    /**
+     * 基础类型数组的repeated字段
+     */
+    private static final int PRIMITIVE_ARRAY = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME  = 0x100000001b3L;
+
+    private final Class<T> type;
+    private final String   descriptor;
+    private final long     fingerprint;
+    /**
+     * 按tag排序的字段，类不支持位置编码时为null
+     */
+    private final Slot[]   slots;
+    private final Constructor<T> constructor;
+
+    @SuppressWarnings("unchecked")
+    private EprotoLayout(Class<T> type) {
+        this.type = type;
+        StringBuilder sb = new StringBuilder();
+        boolean positional = describe(type, new ArrayList<>(), sb);
+        this.descriptor  = sb.toString();
+        this.fingerprint = fnv64(descriptor);
+        Slot[] ss = null;
+        Constructor<T> ctor = null;
+        if (positional) {
+            List<ProtoFieldInfo> fields = sortedFields(type);
+            ss = new Slot[fields.size()];
+            for (int i = 0; i < ss.length; i++) {
+                ss[i] = buildSlot(fields.get(i));
+            }
+            try {
+                ctor = type.getDeclaredConstructor();
+                ctor.setAccessible(true);
+            } catch (NoSuchMethodException | RuntimeException e) {
+                ctor = null;
+            }
+        }
+        this.slots       = ss;
+        this.constructor = ctor;
+    }
+
+    /**
+     * 获取消息类的字段布局，每个类只计算一次
+     * @param type 消息的类型
+     * @return 字段布局
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EprotoLayout<T> of(Class<T> type) {
+        return LAYOUTS.get(type);
+    }
+
+    /**
+     * 消息类结构的64位指纹
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 计算指纹使用的类结构描述，便于排查两端指纹不一致的原因
+     */
+    public String descriptor() {
+        return descriptor;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * 类的所有字段以及嵌套的消息是否都支持位置编码
+     */
+    public boolean isPositional() {
+        return slots != null;
+    }
+
+    @Override
+    public void encode(EprotoWriter writer, T t) throws EncodeException {
+        if (slots == null) {
+            throw new EncodeException(new IllegalStateException(
+                    type.getName() + " can't use positional encoding"));
+        }
+        encode0(writer, t);
+    }
+
+    @Override
+    public T decode(EprotoReader reader) throws ProtoException {
+        if (slots == null) {
+            throw new ProtoException(type.getName() + " can't use positional encoding");
+        }
+        return decode0(reader);
+    }
+
+    private void encode0(EprotoWriter writer, Object msg) throws EncodeException {
+        Slot[] ss = slots;
+        int count = ss.length;
+        for (int start = 0; start < count; start += 64) {
+            int end = Math.min(start + 64, count);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                if (hasValue(ss[i], msg)) {
+                    bits |= 1L << (i & 63);
+                }
+            }
+            writer.writeUInt64(bits);
+        }
+        for (Slot slot : ss) {
+            if (slot.primitive) {
+                if (hasValue(slot, msg)) {
+                    writePrimitive(writer, slot, msg);
+                }
+                continue;
+            }
+            Object value = UNSAFE.getObject(msg, slot.offset);
+            if (value == null) {
+                continue;
+            }
+            switch (slot.container) {
+                case LIST:
+                    List<?> list = (List<?>) value;
+                    int size = list.size();
+                    writer.writeUInt32(size);
+                    for (int i = 0; i < size; i++) {
+                        writeValue(writer, slot, list.get(i));
+                    }
+                    break;
+                case ARRAY:
+                    Object[] array = (Object[]) value;
+                    writer.writeUInt32(array.length);
+                    for (Object item : array) {
+                        writeValue(writer, slot, item);
+                    }
+                    break;
+                case PRIMITIVE_ARRAY:
+                    writePrimitiveArray(writer, slot, value);
+                    break;
+                default:
+                    writeValue(writer, slot, value);
+            }
+        }
+    }
+
+    private T decode0(EprotoReader reader) throws ProtoException {
+        T msg = newInstance();
+        Slot[] ss = slots;
+        int count = ss.length;
+        long bits = 0;
+        long[] moreBits = null;
+        if (count > 0) {
+            bits = reader.readUInt64();
+            if (count > 64) {
+                moreBits = new long[(count - 1) >>> 6];
+                for (int i = 0; i < moreBits.length; i++) {
+                    moreBits[i] = reader.readUInt64();
+                }
+            }
+        }
+        for (int index = 0; index < count; index++) {
+            long word = index < 64 ? bits : moreBits[(index >>> 6) - 1];
+            if ((word & (1L << (index & 63))) == 0) {
+                continue;
+            }
+            Slot slot = ss[index];
+            if (slot.primitive) {
+                readPrimitive(reader, slot, msg);
+                continue;
+            }
+            Object value;
+            switch (slot.container) {
+                case LIST:
+                    int size = readSize(reader);
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue(reader, slot));
+                    }
+                    value = list;
+                    break;
+                case ARRAY:
+                    size = readSize(reader);
+                    Object[] array = (Object[]) Array.newInstance(slot.javaType, size);
+                    for (int i = 0; i < size; i++) {
+                        array[i] = readValue(reader, slot);
+                    }
+                    value = array;
+                    break;
+                case PRIMITIVE_ARRAY:
+                    value = readPrimitiveArray(reader, slot);
+                    break;
+                default:
+                    value = readValue(reader, slot);
+            }
+            UNSAFE.putObject(msg, slot.offset, value);
+        }
+        return msg;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() throws ProtoException {
+        try {
+            if (constructor != null) {
+                return constructor.newInstance();
+            }
+            return (T) UNSAFE.allocateInstance(type);
+        } catch (Exception e) {
+            throw new ProtoException(e);
+        }
+    }
+
+    /**
+     * 字段是否需要写入，引用类型不为null，基础类型不为0(浮点数按位比较，-0.0需要写入)
+     */
+    private static boolean hasValue(Slot slot, Object msg) {
+        long offset = slot.offset;
+        if (!slot.primitive) {
+            return UNSAFE.getObject(msg, offset) != null;
+        }
+        switch (slot.kind) {
+            case BOOL:
+                return UNSAFE.getBoolean(msg, offset);
+            case FLOAT:
+                return Float.floatToRawIntBits(UNSAFE.getFloat(msg, offset)) != 0;
+            case DOUBLE:
+                return Double.doubleToRawLongBits(UNSAFE.getDouble(msg, offset)) != 0;
+            case INT64:
+            case UINT64:
+            case SINT64:
+            case FIXED64:
+            case SFIXED64:
+                return UNSAFE.getLong(msg, offset) != 0;
+            default:
+                return UNSAFE.getInt(msg, offset) != 0;
+        }
+    }
+
+    private static int readSize(EprotoReader reader) throws ProtoException {
+        int size = reader.readUInt32();
+        if (size < 0) {
+            throw ProtoException.negativeSize();
+        }
+        return size;
+    }
+
+    private static void writePrimitive(EprotoWriter writer, Slot slot, Object msg) {
+        long offset = slot.offset;
+        switch (slot.kind) {
+            case BOOL:
+                writer.writeBool(UNSAFE.getBoolean(msg, offset));
+                break;
+            case INT32:
+                writer.writeInt32(UNSAFE.getInt(msg, offset));
+                break;
+            case UINT32:
+                writer.writeUInt32(UNSAFE.getInt(msg, offset));
+                break;
+            case SINT32:
+                writer.writeSInt32(UNSAFE.getInt(msg, offset));
+                break;
+            case FIXED32:
+            case SFIXED32:
+                writer.writeFixed32(UNSAFE.getInt(msg, offset));
+                break;
+            case FLOAT:
+                writer.writeFloat(UNSAFE.getFloat(msg, offset));
+                break;
+            case INT64:
+            case UINT64:
+                writer.writeInt64(UNSAFE.getLong(msg, offset));
+                break;
+            case SINT64:
+                writer.writeSInt64(UNSAFE.getLong(msg, offset));
+                break;
+            case FIXED64:
+            case SFIXED64:
+                writer.writeFixed64(UNSAFE.getLong(msg, offset));
+                break;
+            default:
+                writer.writeDouble(UNSAFE.getDouble(msg, offset));
+        }
+    }
+
+    private static void readPrimitive(EprotoReader reader, Slot slot, Object msg) throws ProtoException {
+        long offset = slot.offset;
+        switch (slot.kind) {
+            case BOOL:
+                UNSAFE.putBoolean(msg, offset, reader.readBool());
+                break;
+            case INT32:
+            case UINT32:
+                UNSAFE.putInt(msg, offset, reader.readUInt32());
+                break;
+            case SINT32:
+                UNSAFE.putInt(msg, offset, reader.readSInt32());
+                break;
+            case FIXED32:
+            case SFIXED32:
+                UNSAFE.putInt(msg, offset, reader.readFixed32());
+                break;
+            case FLOAT:
+                UNSAFE.putFloat(msg, offset, reader.readFloat());
+                break;
+            case INT64:
+            case UINT64:
+                UNSAFE.putLong(msg, offset, reader.readInt64());
+                break;
+            case SINT64:
+                UNSAFE.putLong(msg, offset, reader.readSInt64());
+                break;
+            case FIXED64:
+            case SFIXED64:
+                UNSAFE.putLong(msg, offset, reader.readFixed64());
+                break;
+            default:
+                UNSAFE.putDouble(msg, offset, reader.readDouble());
+        }
+    }
+
+    private static void writeValue(EprotoWriter writer, Slot slot, Object value) throws EncodeException {
+        if (value == null) {
+            throw new EncodeException(new NullPointerException(
+                    "repeated field " + slot.name + " contains null element"));
+        }
+        switch (slot.kind) {
+            case BOOL:
+                writer.writeBool(((Boolean) value).booleanValue());
+                break;
+            case INT32:
+            case UINT32:
+                writer.writeInt32(((Integer) value).intValue());
+                break;
+            case SINT32:
+                writer.writeSInt32(((Integer) value).intValue());
+                break;
+            case FIXED32:
+            case SFIXED32:
+                writer.writeFixed32(((Integer) value).intValue());
+                break;
+            case FLOAT:
+                writer.writeFloat(((Float) value).floatValue());
+                break;
+            case INT64:
+            case UINT64:
+                writer.writeInt64(((Long) value).longValue());
+                break;
+            case SINT64:
+                writer.writeSInt64(((Long) value).longValue());
+                break;
+            case FIXED64:
+            case SFIXED64:
+                writer.writeFixed64(((Long) value).longValue());
+                break;
+            case DOUBLE:
+                writer.writeDouble(((Double) value).doubleValue());
+                break;
+            case STRING:
+                writer.writeString((String) value);
+                break;
+            case BYTES:
+                if (value instanceof ByteSlice) {
+                    ByteSlice slice = (ByteSlice) value;
+                    writer.writeByteArray(slice.getBytes(), slice.getOffset(), slice.getLength());
+                } else {
+                    writer.writeBytes((byte[]) value);
+                }
+                break;
+            case ENUM:
+                writer.writeUInt32(((Enum<?>) value).ordinal());
+                break;
+            default:
+                slot.nested().encode0(writer, value);
+        }
+    }
+
+    private static Object readValue(EprotoReader reader, Slot slot) throws ProtoException {
+        switch (slot.kind) {
+            case BOOL:
+                return reader.readBool();
+            case INT32:
+            case UINT32:
+                return reader.readUInt32();
+            case SINT32:
+                return reader.readSInt32();
+            case FIXED32:
+            case SFIXED32:
+                return reader.readFixed32();
+            case FLOAT:
+                return reader.readFloat();
+            case INT64:
+            case UINT64:
+                return reader.readInt64();
+            case SINT64:
+                return reader.readSInt64();
+            case FIXED64:
+            case SFIXED64:
+                return reader.readFixed64();
+            case DOUBLE:
+                return reader.readDouble();
+            case STRING:
+                return reader.readString();
+            case BYTES:
+                return slot.javaType == ByteSlice.class ? reader.readByteSlice() : reader.readBytes();
+            case ENUM:
+                int ordinal = reader.readUInt32();
+                if (ordinal < 0 || ordinal >= slot.constants.length) {
+                    throw new ProtoException("invalid ordinal " + ordinal + " of " + slot.javaType.getName());
+                }
+                return slot.constants[ordinal];
+            default:
+                return slot.nested().decode0(reader);
+        }
+    }
+
+    private static void writePrimitiveArray(EprotoWriter writer, Slot slot, Object value) {
+        int len = Array.getLength(value);
+        writer.writeUInt32(len);
+        switch (slot.kind) {
+            case BOOL:
+                for (boolean v : (boolean[]) value) {
+                    writer.writeBool(v);
+                }
+                break;
+            case INT32:
+            case UINT32:
+                for (int v : (int[]) value) {
+                    writer.writeInt32(v);
+                }
+                break;
+            case SINT32:
+                for (int v : (int[]) value) {
+                    writer.writeSInt32(v);
+                }
+                break;
+            case FIXED32:
+            case SFIXED32:
+                for (int v : (int[]) value) {
+                    writer.writeFixed32(v);
+                }
+                break;
+            case FLOAT:
+                for (float v : (float[]) value) {
+                    writer.writeFloat(v);
+                }
+                break;
+            case INT64:
+            case UINT64:
+                for (long v : (long[]) value) {
+                    writer.writeInt64(v);
+                }
+                break;
+            case SINT64:
+                for (long v : (long[]) value) {
+                    writer.writeSInt64(v);
+                }
+                break;
+            case FIXED64:
+            case SFIXED64:
+                for (long v : (long[]) value) {
+                    writer.writeFixed64(v);
+                }
+                break;
+            default:
+                for (double v : (double[]) value) {
+                    writer.writeDouble(v);
+                }
+        }
+    }
+
+    private static Object readPrimitiveArray(EprotoReader reader, Slot slot) throws ProtoException {
+        int size = readSize(reader);
+        switch (slot.kind) {
+            case BOOL:
+                boolean[] bools = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    bools[i] = reader.readBool();
+                }
+                return bools;
+            case INT32:
+            case UINT32:
+            case SINT32:
+            case FIXED32:
+            case SFIXED32:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++) {
+                    ints[i] = slot.kind == SINT32 ? reader.readSInt32()
+                            : slot.kind >= FIXED32 ? reader.readFixed32() : reader.readUInt32();
+                }
+                return ints;
+            case FLOAT:
+                float[] floats = new float[size];
+                for (int i = 0; i < size; i++) {
+                    floats[i] = reader.readFloat();
+                }
+                return floats;
+            case INT64:
+            case UINT64:
+            case SINT64:
+            case FIXED64:
+            case SFIXED64:
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++) {
+                    longs[i] = slot.kind == SINT64 ? reader.readSInt64()
+                            : slot.kind >= FIXED64 ? reader.readFixed64() : reader.readInt64();
+                }
+                return longs;
+            default:
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++) {
+                    doubles[i] = reader.readDouble();
+                }
+                return doubles;
+        }
+    }
+
+    private static List<ProtoFieldInfo> sortedFields(Class<?> type) {
+        List<ProtoFieldInfo> fields;
+        try {
+            fields = new ArrayList<>(ProtoUtil.getProtoFields(type));
+        } catch (Exception e) {
+            return null;
+        }
+        fields.sort(Comparator.comparingInt(pfi -> pfi.protoField.tag()));
+        return fields;
+    }
+
+    private static Slot buildSlot(ProtoFieldInfo pfi) {
+        java.lang.reflect.Field field = pfi.field;
+        Slot slot = new Slot();
+        slot.name   = field.getName();
+        slot.offset = fieldOffset(field);
+        slot.kind   = kindOf(pfi.protoField.type());
+        Class<?> cls = field.getType();
+        if (cls.isArray() && cls != byte[].class) {
+            Class<?> component = cls.getComponentType();
+            slot.container = component.isPrimitive() ? PRIMITIVE_ARRAY : ARRAY;
+            slot.javaType  = component;
+        } else if (List.class.isAssignableFrom(cls)) {
+            slot.container = LIST;
+            slot.javaType  = elementClass(field.getGenericType());
+        } else {
+            slot.container = SINGLE;
+            slot.javaType  = cls;
+            slot.primitive = cls.isPrimitive();
+        }
+        if (slot.kind == ENUM) {
+            slot.constants = slot.javaType.getEnumConstants();
+        }
+        return slot;
+    }
+
+    /**
+     * 生成类结构的描述，返回类是否支持位置编码。已经在描述路径上的类(递归的消息)只记录其深度
+     */
+    private static boolean describe(Class<?> type, List<Class<?>> path, StringBuilder sb) {
+        int depth = path.indexOf(type);
+        if (depth >= 0) {
+            sb.append('^').append(depth);
+            return true;
+        }
+        List<ProtoFieldInfo> fields = ProtoUtil.parentMapType(type) == null ? sortedFields(type) : null;
+        if (fields == null) {
+            sb.append('?');
+            return false;
+        }
+        path.add(type);
+        boolean positional = true;
+        sb.append('{');
+        for (ProtoFieldInfo pfi : fields) {
+            Field.Type protoType = pfi.protoField.type();
+            Class<?> cls = pfi.field.getType();
+            Class<?> valueType = cls;
+            char container = 's';
+            if (cls.isArray() && cls != byte[].class) {
+                valueType = cls.getComponentType();
+                container = valueType.isPrimitive() ? 'p' : 'a';
+            } else if (List.class.isAssignableFrom(cls)) {
+                valueType = elementClass(pfi.field.getGenericType());
+                container = 'l';
+                positional &= cls.isAssignableFrom(ArrayList.class);
+            } else if (cls.isPrimitive()) {
+                container = 'v';
+            }
+            sb.append(pfi.protoField.tag()).append(':').append(pfi.field.getName()).append(':')
+                    .append(protoType.name()).append(':').append(pfi.protoField.cardinality().name())
+                    .append(':').append(container);
+            int kind = kindOf(protoType);
+            if (valueType == null || kind < 0 || !matches(kind, valueType)) {
+                sb.append('?');
+                positional = false;
+            } else if (kind == ENUM) {
+                sb.append('(');
+                for (Object c : valueType.getEnumConstants()) {
+                    sb.append(((Enum<?>) c).name()).append(',');
+                }
+                sb.append(')');
+            } else if (kind == MESSAGE) {
+                positional &= describe(valueType, path, sb);
+            }
+            sb.append(';');
+        }
+        sb.append('}');
+        path.remove(path.size() - 1);
+        return positional;
+    }
+
+    private static Class<?> elementClass(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+            if (args.length == 1 && args[0] instanceof Class) {
+                return (Class<?>) args[0];
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(int kind, Class<?> cls) {
+        switch (kind) {
+            case BOOL:
+                return cls == boolean.class || cls == Boolean.class;
+            case INT32:
+            case UINT32:
+            case SINT32:
+            case FIXED32:
+            case SFIXED32:
+                return cls == int.class || cls == Integer.class;
+            case FLOAT:
+                return cls == float.class || cls == Float.class;
+            case INT64:
+            case UINT64:
+            case SINT64:
+            case FIXED64:
+            case SFIXED64:
+                return cls == long.class || cls == Long.class;
+            case DOUBLE:
+                return cls == double.class || cls == Double.class;
+            case STRING:
+                return cls == String.class;
+            case BYTES:
+                return cls == byte[].class || cls == ByteSlice.class;
+            case ENUM:
+                return cls.isEnum();
+            default:
+                return !cls.isPrimitive() && !cls.isArray() && !cls.isInterface()
+                        && !Modifier.isAbstract(cls.getModifiers()) && !cls.getName().startsWith("java.");
+        }
+    }
+
+    private static int kindOf(Field.Type type) {
+        switch (type) {
+            case BOOL:     return BOOL;
+            case INT32:    return INT32;
+            case UINT32:   return UINT32;
+            case SINT32:   return SINT32;
+            case FIXED32:  return FIXED32;
+            case SFIXED32: return SFIXED32;
+            case FLOAT:    return FLOAT;
+            case INT64:    return INT64;
+            case UINT64:   return UINT64;
+            case SINT64:   return SINT64;
+            case FIXED64:  return FIXED64;
+            case SFIXED64: return SFIXED64;
+            case DOUBLE:   return DOUBLE;
+            case STRING:   return STRING;
+            case BYTES:    return BYTES;
+            case ENUM:     return ENUM;
+            case MESSAGE:  return MESSAGE;
+            default:       return -1;
+        }
+    }
+
+    private static long fnv64(String s) {
+        long h = FNV_OFFSET;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * 字段在位置编码中的信息
+     */
+    private static final class Slot {
+        String   name;
+        long     offset;
+        int      kind;
+        int      container;
+        boolean  primitive;
+        /**
+         * 单值字段的类型或者repeated字段的元素类型
+         */
+        Class<?> javaType;
+        Object[] constants;
+        /**
+         * 嵌套消息的布局，第一次使用时获取，避免递归的消息在创建布局时死循环
+         */
+        EprotoLayout<?> nested;
+
+        EprotoLayout<?> nested() {
+            EprotoLayout<?> layout = nested;
+            if (layout == null) {
+                layout = EprotoLayout.of(javaType);
+                nested = layout;
+            }
+            return layout;
+        }
+    }
+}
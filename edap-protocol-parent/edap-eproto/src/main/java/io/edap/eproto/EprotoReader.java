@@ -2,6 +2,7 @@ package io.edap.eproto;
 
 import io.edap.protobuf.ProtoException;
 import io.edap.protobuf.wire.Field;
+import io.edap.util.ByteSlice;
 
 import java.util.List;
 
@@ -182,6 +183,12 @@ public interface EprotoReader {
      * @throws ProtoException
      */
     byte[] readBytes() throws ProtoException;
+    /**
+     * 读取byte[]的视图，和输入数据共享内容，输入被复用前需要调用{@link ByteSlice#retain()}
+     * @return
+     * @throws ProtoException
+     */
+    ByteSlice readByteSlice() throws ProtoException;
     /**
      * 读取String的值
      * @return
@@ -5,6 +5,7 @@ import io.edap.eproto.EprotoReader;
 import io.edap.protobuf.ProtoException;
 import io.edap.protobuf.enums.ProtoBufStringCharset;
 import io.edap.protobuf.wire.Field;
+import io.edap.util.ByteSlice;
 import io.edap.util.StringUtil;
 
 import java.nio.charset.StandardCharsets;
@@ -23,6 +24,7 @@ import static io.edap.util.StringUtil.fastInstance;
 import static java.util.Collections.EMPTY_LIST;
 
 import static io.edap.eproto.EprotoReader.decodeZigZag32;
+import static io.edap.eproto.EprotoReader.decodeZigZag64;
 
 public class ByteArrayReader extends AbstractReader {
 
@@ -787,17 +789,17 @@ public class ByteArrayReader extends AbstractReader {
 
     @Override
     public long readInt64() throws ProtoException {
-        return 0;
+        return readRawVarint64();
     }
 
     @Override
     public long readUInt64() throws ProtoException {
-        return 0;
+        return readRawVarint64();
     }
 
     @Override
     public long readSInt64() throws ProtoException {
-        return 0;
+        return decodeZigZag64(readRawVarint64());
     }
 
     @Override
@@ -835,7 +837,7 @@ public class ByteArrayReader extends AbstractReader {
                 | ((_bs[_pos++] & 0xFFL) << 48)
                 | ((_bs[_pos++] & 0xFFL) << 56));
         pos = _pos;
-        return EprotoReader.decodeZigZag64(v);
+        return v;
     }
 
     @Override
@@ -875,6 +877,25 @@ public class ByteArrayReader extends AbstractReader {
         return data;
     }
 
+    @Override
+    public ByteSlice readByteSlice() throws ProtoException {
+        int size = readSInt32();
+        if (size == -1) {
+            return null;
+        } else if (size == 0) {
+            return ByteSlice.EMPTY;
+        }
+        if (size < 0) {
+            throw ProtoException.negativeSize();
+        }
+        if (limit - pos < size) {
+            throw ProtoException.truncatedMessage();
+        }
+        ByteSlice slice = ByteSlice.view(buf, pos, size);
+        pos += size;
+        return slice;
+    }
+
     @Override
     public String readString() throws ProtoException {
         int lenTag = readRawVarint32();
@@ -885,17 +906,22 @@ public class ByteArrayReader extends AbstractReader {
         } else {
             int len = getStringLen(lenTag) - 1;
             ProtoBufStringCharset psc = ProtoBufStringCharset.fromValue(getStringCharset(lenTag));
+            if (limit - pos < len) {
+                throw ProtoException.truncatedMessage();
+            }
             if (psc == ProtoBufStringCharset.LATIN1) {
                 byte[] data = new byte[len];
                 System.arraycopy(buf, pos, data, 0, len);
+                pos += len;
 				return fastInstance(data, (byte)0);
 			} else if (psc == ProtoBufStringCharset.UTF16) {
                 byte[] data = new byte[len];
                 System.arraycopy(buf, pos, data, 0, len);
+                pos += len;
                 if (IS_BYTE_ARRAY) {
 					return fastInstance(data, (byte)1);
 				} else {
-
+                    return new String(data, StandardCharsets.UTF_16LE);
                 }
             } else {
                 int index = 0;
@@ -921,10 +947,10 @@ public class ByteArrayReader extends AbstractReader {
                         }
                     }
                 }
+                pos = _pos;
                 return new String(_buf, oPos, _pos-oPos, StandardCharsets.UTF_8);
             }
         }
-        return null;
     }
 
     @Override
@@ -990,6 +1016,70 @@ public class ByteArrayReader extends AbstractReader {
         return (int) readRawVarint64SlowPath();
     }
 
+    long readRawVarint64() throws ProtoException {
+        fastpath: {
+            int tmpPos = pos;
+            if (tmpPos == limit) {
+                break fastpath;
+            }
+            long x;
+            int y;
+            if ((y = buf[tmpPos++]) >= 0) {
+                pos = tmpPos;
+                return y;
+            } else if (limit - tmpPos < 9) {
+                break fastpath;
+            } else if ((y ^= (buf[tmpPos++] << 7)) < 0) {
+                x = y ^ (~0 << 7);
+            } else if ((y ^= buf[tmpPos++] << 14) >= 0) {
+                x = y ^ ((~0 << 7) ^ (~0 << 14));
+            } else if ((y ^= buf[tmpPos++] << 21) < 0) {
+                x = y ^ ((~0 << 7) ^ (~0 << 14) ^ (~0 << 21));
+            } else if ((x = y ^ ((long)buf[tmpPos++] << 28)) >= 0L) {
+                x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28);
+            } else if ((x ^= ((long)buf[tmpPos++] << 35)) < 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35);
+            } else if ((x ^= ((long)buf[tmpPos++] << 42)) >= 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42);
+            } else if ((x ^= ((long)buf[tmpPos++] << 49)) < 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42)
+                        ^ (~0L << 49);
+            } else {
+                x ^= ((long) buf[tmpPos++] << 56);
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42)
+                        ^ (~0L << 49)
+                        ^ (~0L << 56);
+                if (x < 0L) {
+                    if (buf[tmpPos++] < 0L) {
+                        break fastpath;
+                    }
+                }
+            }
+            pos = tmpPos;
+            return x;
+        }
+        return readRawVarint64SlowPath();
+    }
+
     private long readRawVarint64SlowPath() throws ProtoException {
         long result = 0;
         for (int shift = 0; shift < 64 && pos < limit; shift += 7) {
@@ -2275,8 +2275,8 @@ public abstract class AbstractWriter implements EprotoWriter {
                 expand(1);
                 bs[pos++] = ZIGZAG32_ZERO;
             } else {
-                expand(length + 1);
-                writeUInt32_0(length);
+                expand(length + MAX_VARINT_SIZE);
+                writeUInt32_0(encodeZigZag32(length));
                 System.arraycopy(value, offset, bs, pos, length);
                 pos += length;
             }
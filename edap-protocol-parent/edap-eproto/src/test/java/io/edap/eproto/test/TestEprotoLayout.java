@@ -0,0 +1,146 @@
+package io.edap.eproto.test;
+
+import io.edap.eproto.EprotoLayout;
+import io.edap.eproto.reader.ByteArrayReader;
+import io.edap.eproto.test.message.AllType;
+import io.edap.eproto.test.message.Corpus;
+import io.edap.eproto.test.message.PositionalType;
+import io.edap.eproto.test.message.PositionalTypeV2;
+import io.edap.eproto.test.message.Proj;
+import io.edap.eproto.test.message.SliceType;
+import io.edap.eproto.writer.ByteArrayWriter;
+import io.edap.io.ByteArrayBufOut;
+import io.edap.protobuf.EncodeException;
+import io.edap.protobuf.ProtoException;
+import io.edap.util.ByteSlice;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEprotoLayout {
+
+    @Test
+    public void testFingerprint() {
+        EprotoLayout<PositionalType> layout = EprotoLayout.of(PositionalType.class);
+        assertSame(layout, EprotoLayout.of(PositionalType.class));
+        assertTrue(layout.isPositional());
+        assertFalse(layout.descriptor().contains(PositionalType.class.getSimpleName()));
+
+        EprotoLayout<PositionalTypeV2> v2 = EprotoLayout.of(PositionalTypeV2.class);
+        assertTrue(v2.isPositional());
+        assertNotEquals(layout.fingerprint(), v2.fingerprint());
+
+        // Map字段不支持位置编码
+        EprotoLayout<AllType> allType = EprotoLayout.of(AllType.class);
+        assertFalse(allType.isPositional());
+        assertThrows(EncodeException.class, () -> allType.encode(new ByteArrayWriter(new ByteArrayBufOut()),
+                new AllType()));
+    }
+
+    @Test
+    public void testCodec() throws EncodeException, ProtoException {
+        PositionalType msg = new PositionalType();
+        msg.field1 = true;
+        msg.field2 = new byte[]{1, 2, 3};
+        msg.field3 = -31.415926;
+        msg.field4 = Corpus.VIDEO;
+        msg.field5 = -5;
+        msg.field6 = Long.MIN_VALUE;
+        msg.field7 = 7.5f;
+        msg.field8 = Integer.MIN_VALUE;
+        msg.field9 = Long.MAX_VALUE;
+        msg.field10 = -10;
+        msg.field11 = proj(11L, "edap");
+        msg.field12 = -12;
+        msg.field13 = -13L;
+        msg.field14 = Long.MIN_VALUE;
+        msg.field15 = "中文edap";
+        msg.field16 = 16;
+        msg.field17 = -1L;
+        msg.field18 = Arrays.asList(1, -1, Integer.MAX_VALUE);
+        msg.field19 = new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE};
+        msg.field20 = Arrays.asList(proj(1L, "a"), proj(null, null));
+        msg.field21 = new String[]{"", "latin"};
+        msg.field22 = new PositionalType();
+        msg.field22.field15 = "child";
+
+        EprotoLayout<PositionalType> layout = EprotoLayout.of(PositionalType.class);
+        ByteArrayWriter writer = new ByteArrayWriter(new ByteArrayBufOut());
+        layout.encode(writer, msg);
+        byte[] data = writer.toByteArray();
+
+        PositionalType result = layout.decode(new ByteArrayReader(data));
+        assertEquals(msg.field1, result.field1);
+        assertArrayEquals(msg.field2, result.field2);
+        assertEquals(msg.field3, result.field3);
+        assertEquals(msg.field4, result.field4);
+        assertEquals(msg.field5, result.field5);
+        assertEquals(msg.field6, result.field6);
+        assertEquals(msg.field7, result.field7);
+        assertEquals(msg.field8, result.field8);
+        assertEquals(msg.field9, result.field9);
+        assertEquals(msg.field10, result.field10);
+        assertEquals(msg.field11.getId(), result.field11.getId());
+        assertEquals(msg.field11.getName(), result.field11.getName());
+        assertNull(result.field11.getRepoPath());
+        assertEquals(msg.field12, result.field12);
+        assertEquals(msg.field13, result.field13);
+        assertEquals(msg.field14, result.field14);
+        assertEquals(msg.field15, result.field15);
+        assertEquals(msg.field16, result.field16);
+        assertEquals(msg.field17, result.field17);
+        assertEquals(msg.field18, result.field18);
+        assertArrayEquals(msg.field19, result.field19);
+        assertEquals(2, result.field20.size());
+        assertEquals("a", result.field20.get(0).getName());
+        assertNull(result.field20.get(1).getId());
+        assertArrayEquals(msg.field21, result.field21);
+        assertEquals("child", result.field22.field15);
+        assertNull(result.field22.field22);
+
+        // 全部为null或者默认值的对象只写入位图
+        writer.reset();
+        layout.encode(writer, new PositionalType());
+        data = writer.toByteArray();
+        assertEquals(1, data.length);
+        result = layout.decode(new ByteArrayReader(data));
+        assertFalse(result.field1);
+        assertNull(result.field2);
+        assertNull(result.field20);
+        assertNull(result.field22);
+
+        msg.field18 = Arrays.asList(1, null);
+        writer.reset();
+        PositionalType nullItem = msg;
+        assertThrows(EncodeException.class, () -> layout.encode(writer, nullItem));
+    }
+
+    @Test
+    public void testByteSlice() throws EncodeException, ProtoException {
+        SliceType msg = new SliceType();
+        msg.id = 9;
+        msg.payload = ByteSlice.view("--payload--".getBytes(), 2, 7);
+        msg.empty = ByteSlice.EMPTY;
+
+        EprotoLayout<SliceType> layout = EprotoLayout.of(SliceType.class);
+        assertTrue(layout.isPositional());
+        ByteArrayWriter writer = new ByteArrayWriter(new ByteArrayBufOut());
+        layout.encode(writer, msg);
+        byte[] data = writer.toByteArray();
+
+        SliceType result = layout.decode(new ByteArrayReader(data));
+        assertEquals(9, result.id);
+        assertEquals(msg.payload, result.payload);
+        assertSame(data, result.payload.getBytes());
+        assertTrue(result.empty.isEmpty());
+    }
+
+    private static Proj proj(Long id, String name) {
+        Proj proj = new Proj();
+        proj.setId(id);
+        proj.setName(name);
+        return proj;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.eproto.test.message;
+
+import io.edap.protobuf.annotation.ProtoField;
+import io.edap.protobuf.wire.Field;
+import io.edap.util.ByteSlice;
+
+/**
+ * 使用ByteSlice声明bytes字段的对象
+ */
+public class SliceType {
+    @ProtoField(tag = 1, type = Field.Type.INT64)
+    public long id;
+    @ProtoField(tag = 2, type = Field.Type.BYTES)
+    public ByteSlice payload;
+    @ProtoField(tag = 3, type = Field.Type.BYTES)
+    public ByteSlice empty;
+}
@@ -33,6 +33,7 @@ import io.edap.protobuf.wire.Field.Type;
 import io.edap.protobuf.wire.exceptions.ProtoParseException;
 import io.edap.protobuf.wire.parser.ProtoParser;
 import io.edap.util.AsmUtil;
+import io.edap.util.ByteSlice;
 import io.edap.util.CollectionUtils;
 import io.edap.util.StringUtil;
 import io.edap.util.TimeUtil;
@@ -441,6 +442,11 @@ public class ProtoUtil {
                 return "";
             }
 
+            @Override
+            public String name() {
+                return field.getName();
+            }
+
             @Override
             public Class<? extends Annotation> annotationType() {
                 return null;
@@ -690,6 +696,7 @@ public class ProtoUtil {
                 break;
             case "[B":
             case "[Ljava.lang.Byte;":
+            case "io.edap.util.ByteSlice":
                 msgInfo = new MessageInfo();
                 msgInfo.setMessageName("BytesValue");
                 msgInfo.setImpFile("edap-idl/wrappers.proto");
@@ -718,6 +725,13 @@ public class ProtoUtil {
         return typeInfo;
     }
 
+    /**
+     * 声明为ByteSlice的字段按bytes类型编解码，解码时返回输入数据的视图而不是复制的数组
+     */
+    public static boolean isByteSlice(java.lang.reflect.Type type) {
+        return type == ByteSlice.class;
+    }
+
     public static boolean isRepeatedArray(java.lang.reflect.Type type) {
         if (type instanceof Class) {
             Class arrayCls = (Class)type;
@@ -782,6 +796,9 @@ public class ProtoUtil {
             typeInfo.setProtoType(Type.MAP);
             return typeInfo;
         }
+        if (isByteSlice(javaType)) {
+            return javaToProtoType((Class)javaType);
+        }
         if (AsmUtil.isPojo(javaType)) {
             typeInfo.setProtoType(Type.MESSAGE);
             return typeInfo;
@@ -867,6 +884,11 @@ public class ProtoUtil {
                 return "";
             }
 
+            @Override
+            public String name() {
+                return "";
+            }
+
             @Override
             public Class<? extends Annotation> annotationType() {
                 return null;
@@ -1595,8 +1617,13 @@ public class ProtoUtil {
                 rmi.setReturnType("Ljava/lang/String;");
                 break;
             case BYTES:
-                rmi.setMethod("readBytes");
-                rmi.setReturnType("[B");
+                if (isByteSlice(vaueType)) {
+                    rmi.setMethod("readByteSlice");
+                    rmi.setReturnType("Lio/edap/util/ByteSlice;");
+                } else {
+                    rmi.setMethod("readBytes");
+                    rmi.setReturnType("[B");
+                }
                 break;
             case MESSAGE:
                 rmi.setMethod("readMessage");
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf;
+
+import io.edap.buffer.FastBuf;
+import io.edap.protobuf.reader.FastBufReader;
+
+import static io.edap.util.UnsafeUtil.readByte;
+
+/**
+ * 以varint长度作为前缀的消息帧的解码器，帧的格式和protobuf-java的writeDelimitedTo相同。从FastBuf的读位置开始解码一个
+ * 完整的消息，消息直接在FastBuf的内存中解码，不复制到byte数组。FastBuf中的数据不足一帧时返回null并且不修改读位置，
+ * 调用方在读入更多的数据后重新调用即可，适用于NIO中一次读事件只收到部分消息的场景。
+ *
+ * <p>解码器保存了复用的FastBufReader，不是线程安全的。</p>
+ *
+ * @param <T> 消息的类型
+ */
+public class DelimitedMessageDecoder<T> {
+
+    /**
+     * 默认允许的最大帧长度，避免错误的长度前缀导致缓存无限增长
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private final ProtoBufDecoder<T> decoder;
+    private final int maxFrameLength;
+    private final FastBufReader reader = new FastBufReader();
+
+    public DelimitedMessageDecoder(Class<T> msgCls) {
+        this(ProtoBufCodecRegister.INSTANCE.getDecoder(msgCls));
+    }
+
+    public DelimitedMessageDecoder(ProtoBufDecoder<T> decoder) {
+        this(decoder, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public DelimitedMessageDecoder(ProtoBufDecoder<T> decoder, int maxFrameLength) {
+        this.decoder = decoder;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 解码FastBuf中读位置开始的一帧消息，成功后读位置移动到该帧的结尾
+     * @param buf 读入数据的FastBuf
+     * @return 解码后的消息，数据不足一帧时返回null
+     * @throws ProtoException 长度前缀或者消息的格式有误
+     */
+    public T decode(FastBuf buf) throws ProtoException {
+        long header = readHeader(buf);
+        if (header < 0) {
+            return null;
+        }
+        int len = (int)header;
+        long start = buf.rpos() + (header >>> 32);
+        if (buf.wpos() - start < len) {
+            return null;
+        }
+        T msg = decoder.decode(reader.wrap(start, len));
+        buf.rpos(start + len);
+        return msg;
+    }
+
+    /**
+     * 计算读位置开始的这一帧包括长度前缀在内的总字节数
+     * @param buf 读入数据的FastBuf
+     * @return 帧的总字节数，长度前缀还没有读全时返回-1
+     * @throws ProtoException 长度前缀格式有误或者超过最大帧长度
+     */
+    public int frameSize(FastBuf buf) throws ProtoException {
+        long header = readHeader(buf);
+        if (header < 0) {
+            return -1;
+        }
+        return (int)(header >>> 32) + (int)header;
+    }
+
+    /**
+     * 读取长度前缀，返回值高32位为前缀的字节数，低32位为消息的长度，前缀不完整时返回-1
+     */
+    private long readHeader(FastBuf buf) throws ProtoException {
+        long p = buf.rpos();
+        long end = buf.wpos();
+        int len = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (p == end) {
+                return -1;
+            }
+            byte b = readByte(p++);
+            len |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (len < 0) {
+                    throw ProtoException.negativeSize();
+                }
+                if (len > maxFrameLength) {
+                    throw new ProtoException("Frame length " + len + " exceeds the limit " + maxFrameLength);
+                }
+                return ((p - buf.rpos()) << 32) | len;
+            }
+        }
+        throw ProtoException.malformedVarint();
+    }
+}
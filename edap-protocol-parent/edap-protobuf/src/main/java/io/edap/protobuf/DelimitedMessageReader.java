@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf;
+
+import io.edap.buffer.FastBuf;
+import io.edap.util.UnsafeUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 从InputStream或者ReadableByteChannel中依次读取以varint长度为前缀的消息。数据读入堆外的FastBuf后由
+ * {@link DelimitedMessageDecoder}原地解码，已经解码的数据占用的空间会被后续数据复用，缓存只在单条消息超过容量时
+ * 扩大，所以读取任意多条消息时占用的内存只和最大的消息有关。
+ *
+ * @param <T> 消息的类型
+ */
+public class DelimitedMessageReader<T> implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final DelimitedMessageDecoder<T> decoder;
+    private FastBuf buf;
+    private boolean eof;
+
+    public DelimitedMessageReader(InputStream in, Class<T> msgCls) {
+        this(Channels.newChannel(in), new DelimitedMessageDecoder<>(msgCls), DEFAULT_BUFFER_SIZE);
+    }
+
+    public DelimitedMessageReader(ReadableByteChannel channel, Class<T> msgCls) {
+        this(channel, new DelimitedMessageDecoder<>(msgCls), DEFAULT_BUFFER_SIZE);
+    }
+
+    public DelimitedMessageReader(ReadableByteChannel channel, DelimitedMessageDecoder<T> decoder,
+                                  int bufferSize) {
+        this.channel = channel;
+        this.decoder = decoder;
+        this.buf     = new FastBuf(bufferSize);
+    }
+
+    /**
+     * 读取下一条消息
+     * @return 返回读取的消息，没有更多的消息时返回null
+     * @throws ProtoException 数据在消息的中间结束或者消息的格式有误
+     * @throws IOException 读取数据失败
+     */
+    public T read() throws IOException {
+        for (;;) {
+            T msg = decoder.decode(buf);
+            if (msg != null) {
+                return msg;
+            }
+            if (eof) {
+                if (buf.remain() > 0) {
+                    throw ProtoException.truncatedMessage();
+                }
+                return null;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 从channel读入数据，空间不足时先把未解码的数据移动到缓存的开始位置，单条消息超过缓存容量时扩大缓存
+     */
+    private void fill() throws IOException {
+        int remain = buf.remain();
+        if (remain == 0) {
+            buf.clear();
+        }
+        int frameSize = decoder.frameSize(buf);
+        int need = frameSize > 0 ? frameSize : remain + 1;
+        int capacity = buf.byteBuffer().capacity();
+        if (need > capacity) {
+            FastBuf newBuf = new FastBuf(Math.max(need, capacity << 1));
+            UnsafeUtil.UNSAFE.copyMemory(buf.rpos(), newBuf.address(), remain);
+            newBuf.wpos(newBuf.address() + remain);
+            buf = newBuf;
+        } else if (buf.rpos() + need > buf.address() + capacity || buf.writeRemain() == 0) {
+            UnsafeUtil.UNSAFE.copyMemory(buf.rpos(), buf.address(), remain);
+            buf.rpos(buf.address());
+            buf.wpos(buf.address() + remain);
+        }
+
+        ByteBuffer bb = buf.byteBuffer();
+        bb.clear();
+        bb.position((int)(buf.wpos() - buf.address()));
+        int n = channel.read(bb);
+        if (n < 0) {
+            eof = true;
+        } else {
+            buf.wpos(buf.wpos() + n);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
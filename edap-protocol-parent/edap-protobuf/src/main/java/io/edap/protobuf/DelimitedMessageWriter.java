@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf;
+
+import io.edap.buffer.FastBuf;
+import io.edap.io.BufOut;
+import io.edap.protobuf.writer.FastBufProtoBufWriter;
+import io.edap.util.UnsafeUtil;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import static io.edap.protobuf.util.ProtoUtil.computeRawVarint32Size;
+
+/**
+ * 向OutputStream或者WritableByteChannel依次写入以varint长度为前缀的消息，可以由{@link DelimitedMessageReader}
+ * 或者protobuf-java的parseDelimitedFrom读取。消息使用{@link FastBufProtoBufWriter}直接编码到堆外的FastBuf中，
+ * 缓存满时才写入channel；编码前只预留1个字节的长度前缀，消息长度超过127字节时再把消息体向后移动。超过缓存容量的
+ * 消息编码为byte数组后直接写入。
+ *
+ * <p>写入的数据在{@link #flush()}或者{@link #close()}后才保证写入channel。</p>
+ */
+public class DelimitedMessageWriter implements Closeable, Flushable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final FastBuf buf;
+    private final FastBufProtoBufWriter writer = new FastBufProtoBufWriter();
+
+    public DelimitedMessageWriter(OutputStream out) {
+        this(Channels.newChannel(out), DEFAULT_BUFFER_SIZE);
+    }
+
+    public DelimitedMessageWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DelimitedMessageWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buf     = new FastBuf(bufferSize);
+    }
+
+    /**
+     * 写入一条消息
+     * @param msg 需要写入的消息
+     * @throws EncodeException 消息编码失败
+     * @throws IOException 写入channel失败
+     */
+    public void write(Object msg) throws EncodeException, IOException {
+        ProtoBufEncoder encoder = ProtoBufCodecRegister.INSTANCE.getEncoder(msg.getClass());
+        if (writeBuffered(encoder, msg)) {
+            return;
+        }
+        if (buf.remain() > 0) {
+            flush();
+            if (writeBuffered(encoder, msg)) {
+                return;
+            }
+        }
+        writeLarge(encoder, msg);
+    }
+
+    /**
+     * 把消息编码到缓存中，剩余空间不足时回滚已写入的数据
+     * @return 缓存空间足够时返回true
+     */
+    private boolean writeBuffered(ProtoBufEncoder encoder, Object msg) throws EncodeException {
+        long mark = buf.wpos();
+        if (buf.writeRemain() < 1) {
+            return false;
+        }
+        buf.wpos(mark + 1);
+        writer.wrap(buf);
+        try {
+            encoder.encode(writer, msg);
+        } catch (EncodeException e) {
+            buf.wpos(mark);
+            if (FastBufProtoBufWriter.isOverflow(e)) {
+                return false;
+            }
+            throw e;
+        }
+        int len = writer.size();
+        int headLen = computeRawVarint32Size(len);
+        if (headLen > 1) {
+            if (len + headLen - 1 > buf.writeRemain()) {
+                buf.wpos(mark);
+                return false;
+            }
+            UnsafeUtil.UNSAFE.copyMemory(mark + 1, mark + headLen, len);
+        }
+        long p = mark;
+        int v = len;
+        while ((v & ~0x7F) != 0) {
+            UnsafeUtil.writeByte(p++, (byte)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        UnsafeUtil.writeByte(p, (byte)v);
+        buf.wpos(mark + headLen + len);
+        return true;
+    }
+
+    /**
+     * 超过缓存容量的消息编码为byte数组后直接写入channel
+     */
+    private void writeLarge(ProtoBufEncoder encoder, Object msg) throws EncodeException, IOException {
+        ProtoBufWriter standard = ProtoBuf.THREAD_WRITER.get();
+        standard.reset();
+        BufOut out = standard.getBufOut();
+        out.reset();
+        encoder.encode(standard, msg);
+        int len = standard.size();
+        byte[] head = new byte[computeRawVarint32Size(len)];
+        int v = len;
+        int i = 0;
+        while ((v & ~0x7F) != 0) {
+            head[i++] = (byte)((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        head[i] = (byte)v;
+        writeFully(ByteBuffer.wrap(head));
+        writeFully(ByteBuffer.wrap(out.getWriteBuf().bs, 0, len));
+        out.reset();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buf.remain() > 0) {
+            ByteBuffer bb = buf.byteBuffer();
+            bb.clear();
+            bb.limit((int)(buf.wpos() - buf.address()));
+            bb.position((int)(buf.rpos() - buf.address()));
+            writeFully(bb);
+        }
+        buf.clear();
+    }
+
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -298,4 +298,22 @@ public class ProtoBuf {
         ProtoBufDecoder<T> codec = REGISTER.getDecoder(cls, option);
         return (T)codec.decode(reader);
     }
-}
\ No newline at end of file
+
+    /**
+     * 将protobuf的字节数组反序列化为对象，只解码字段掩码中的字段，其他字段保持默认值
+     * @param <T> 对象类型
+     * @param bs 字节数组
+     * @param offset 数组开始的下标
+     * @param len protobuf数据的长度
+     * @param cls 给定的java对象的class
+     * @param fieldMask 需要解码的字段
+     * @return 返回java对象
+     * @throws io.edap.protobuf.ProtoException
+     */
+    public static <T> T toObject(byte [] bs, int offset, int len, Class<T> cls, ProtoBufFieldMask fieldMask)
+            throws io.edap.protobuf.ProtoException {
+        ByteArrayReader reader = new ByteArrayReader(bs, offset, len);
+        ProtoBufDecoder<T> codec = REGISTER.getDecoder(cls, fieldMask);
+        return codec.decode(reader);
+    }
+}
@@ -25,10 +25,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import static io.edap.protobuf.ProtoBufDecoderGenerator.getDecoderName;
@@ -39,31 +40,28 @@ import static io.edap.util.ClazzUtil.getClassMethods;
 import static io.edap.util.CollectionUtils.isEmpty;
 
 /**
- * ProtoBuf编解码器的注册器，负责统一注册和获取指定Class的编解码等功能
+ * ProtoBuf编解码器的注册器，负责统一注册和获取指定Class的编解码等功能。
+ *
+ * <p>编解码器保存在和Class绑定的{@link CodecSlots}中（通过ClassValue关联），Map字段相关的编解码器保存在所属类的
+ * CodecSlots中，业务类所在的ClassLoader卸载时生成的编解码器随之释放。生成编解码器时锁定对应的槽位，槽位中的字段
+ * 为volatile，编解码器生成完成后才对其他线程可见，获取已生成的编解码器不需要加锁。</p>
  */
 public enum ProtoBufCodecRegister {
 
     INSTANCE;
 
-    private final Map<Class, ProtoBufEncoder> encoders  = new HashMap<>();
-    private final Map<Class, ProtoBufEncoder> fencoders = new HashMap<>();
-    private final Map<Type, ProtoBufDecoder>  decoders  = new HashMap<>();
-
-    private final Map<Type, ProtoBufDecoder>  fdecoders  = new HashMap<>();
-    private final Map<Type, Class> mapEncoders     = new HashMap<>();
-    private final Map<Type, MapEntryEncoder> mapEntryEncoders = new HashMap<>();
-    private final Map<Type, MapEntryEncoder> mapEntryFastEncoders = new HashMap<>();
-    private final Map<Type, MapEntryDecoder> mapEntryDecoders = new HashMap<>();
-    private final Map<Type, MapEntryDecoder> mapEntryFastDecoders = new HashMap<>();
-
-    private final Map<Type, MapDecoder> mapDecoders = new HashMap<>();
-    private final Map<Type, MapDecoder> mapFastDecoders = new HashMap<>();
-
-    private final Map<Type, Class> fmapEncoders     = new HashMap<>();
-    private final Map<ClassLoader, ClassDefiner> encoderLoaders   = new HashMap<>();
-    private final Map<Type, ReentrantLock>   locks = new HashMap<>();
-    private final Map<Type, ReentrantLock>   mapEntryLocks = new HashMap<>();
-    private final Map<Type, ReentrantLock>   mapDecoderLocks = new HashMap<>();
+    private final ClassValue<CodecSlots> codecSlots = new ClassValue<CodecSlots>() {
+        @Override
+        protected CodecSlots computeValue(Class<?> type) {
+            ClassLoader cl = type.getClassLoader();
+            // 启动类加载器加载的类，编解码器定义在注册器所在的ClassLoader中
+            return new CodecSlots(getCodecDefiner(cl != null ? cl : ProtoBufCodecRegister.class.getClassLoader()));
+        }
+    };
+    /**
+     * 每个ClassLoader一个ClassDefiner，ClassDefiner弱引用ClassLoader，不影响ClassLoader的卸载
+     */
+    private final Map<ClassLoader, ClassDefiner> encoderLoaders = new WeakHashMap<>();
 
     private ProtoPersister protoPersister;
 
@@ -75,18 +73,6 @@ public enum ProtoBufCodecRegister {
         return this.protoPersister;
     }
 
-    private ReentrantLock getLock(Type msgCls) {
-        ReentrantLock lock = locks.get(msgCls);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            ReentrantLock old = locks.putIfAbsent(msgCls, lock);
-            if (old != null) {
-                lock = old;
-            }
-        }
-        return lock;
-    }
-
     /**
      * 获取指定Class的ProtoBuf的编码器实现，ProtoBufWrite的实现为默认实现，写入数据是从前向后顺序写。该方式在编码 length+data
      * 这类的编码时，由于需要先写data后才能确认长度，所以需要多一次的内存copy效率一般。
@@ -94,25 +80,22 @@ public enum ProtoBufCodecRegister {
      * @return
      */
     public ProtoBufEncoder getEncoder(Class msgCls) {
-        ProtoBufEncoder encoder = encoders.get(msgCls);
+        CodecSlots slots = codecSlots.get(msgCls);
+        ProtoBufEncoder encoder = slots.encoder;
         if (encoder != null) {
             return encoder;
         }
-        ReentrantLock lock = getLock(msgCls);
-        try {
-            lock.lock();
-            encoder = encoders.get(msgCls);
+        synchronized (slots) {
+            encoder = slots.encoder;
             if (encoder == null) {
-                encoder = generateEncoder(msgCls, new ProtoBufOption());
-                if (encoder != null) {
-                    encoders.put(msgCls, encoder);
+                try {
+                    encoder = generateEncoder(msgCls, new ProtoBufOption());
+                } catch (Throwable e) {
+                    throw new RuntimeException("generateEncoder " + msgCls.getName()
+                            + " error", e);
                 }
+                slots.encoder = encoder;
             }
-        } catch (Throwable e) {
-            throw new RuntimeException("generateEncoder " + msgCls.getName()
-                    + " error", e);
-        } finally {
-            lock.unlock();
         }
         return encoder;
     }
@@ -121,53 +104,47 @@ public enum ProtoBufCodecRegister {
         if (option == null || CodecType.FAST != option.getCodecType()) {
             return getEncoder(msgCls);
         }
-        ProtoBufEncoder encoder;
-        encoder = fencoders.get(msgCls);
+        CodecSlots slots = codecSlots.get(msgCls);
+        ProtoBufEncoder encoder = slots.fastEncoder;
         if (encoder != null) {
             return encoder;
         }
-        ReentrantLock lock = getLock(msgCls);
-        try {
-            lock.lock();
-            encoder = fencoders.get(msgCls);
+        synchronized (slots) {
+            encoder = slots.fastEncoder;
             if (encoder == null) {
-                encoder = generateEncoder(msgCls, option);
+                try {
+                    encoder = generateEncoder(msgCls, option);
+                } catch (Throwable e) {
+                    throw new RuntimeException("generateEncoder " + msgCls.getName()
+                            + " error", e);
+                }
                 if (encoder != null) {
                     AbstractEncoder aencoder = (AbstractEncoder)encoder;
                     aencoder.setProtoBufOption(option);
-                    fencoders.put(msgCls, encoder);
                 }
+                slots.fastEncoder = encoder;
             }
-        } catch (Throwable e) {
-            throw new RuntimeException("generateEncoder " + msgCls.getName()
-                    + " error", e);
-        } finally {
-            lock.unlock();
         }
         return encoder;
     }
 
     public ProtoBufDecoder getDecoder(Class msgCls) {
-        ProtoBufDecoder decoder;
-        decoder = decoders.get(msgCls);
+        CodecSlots slots = codecSlots.get(msgCls);
+        ProtoBufDecoder decoder = slots.decoder;
         if (decoder != null) {
             return decoder;
         }
-        ReentrantLock lock = getLock(msgCls);
-        try {
-            lock.lock();
-            decoder = decoders.get(msgCls);
+        synchronized (slots) {
+            decoder = slots.decoder;
             if (decoder == null) {
-                decoder = generateDecoder(msgCls, null);
-                if (decoder != null) {
-                    decoders.put(msgCls, decoder);
+                try {
+                    decoder = generateDecoder(msgCls, null);
+                } catch (Throwable e) {
+                    throw new RuntimeException("generateDecoder " + msgCls.getName()
+                            + " error", e);
                 }
+                slots.decoder = decoder;
             }
-        } catch (Throwable e) {
-            throw new RuntimeException("generateDecoder " + msgCls.getName()
-                    + " error", e);
-        } finally {
-            lock.unlock();
         }
         return decoder;
     }
@@ -176,314 +153,243 @@ public enum ProtoBufCodecRegister {
         if (option == null || CodecType.FAST != option.getCodecType()) {
             return getDecoder(msgCls);
         }
-        ProtoBufDecoder decoder;
-        decoder = fdecoders.get(msgCls);
+        CodecSlots slots = codecSlots.get(msgCls);
+        ProtoBufDecoder decoder = slots.fastDecoder;
         if (decoder != null) {
             return decoder;
         }
-        ReentrantLock lock = getLock(msgCls);
-        try {
-            lock.lock();
-            decoder = fdecoders.get(msgCls);
+        synchronized (slots) {
+            decoder = slots.fastDecoder;
             if (decoder == null) {
-                decoder = generateDecoder(msgCls, option);
-                if (decoder != null) {
-                    fdecoders.put(msgCls, decoder);
+                try {
+                    decoder = generateDecoder(msgCls, option);
+                } catch (Throwable e) {
+                    throw new RuntimeException("generateDecoder " + msgCls.getName()
+                            + " error", e);
                 }
+                slots.fastDecoder = decoder;
             }
-        } catch (Throwable e) {
-            throw new RuntimeException("generateDecoder " + msgCls.getName()
-                    + " error", e);
-        } finally {
-            lock.unlock();
         }
         return decoder;
     }
 
-    public MapDecoder getMapDecoder(Type mapType, Class ownerCls, ProtoBufOption option) {
-        Map<Type, MapDecoder> map;
-        if (option.getCodecType() == CodecType.FAST) {
-            map = mapFastDecoders;
-        } else {
-            map = mapDecoders;
-        }
-        MapDecoder decoder = map.get(mapType);
+    public ProtoBufDecoder getDecoder(Class msgCls, ProtoBufFieldMask fieldMask) {
+        return getDecoder(msgCls, null, fieldMask);
+    }
+
+    /**
+     * 获取只解码部分字段的解码器，不在字段掩码中的字段按tag跳过，同一个Class相同的字段掩码只生成一次解码器
+     * @param msgCls 消息的Class
+     * @param option 编解码的选项
+     * @param fieldMask 需要解码的字段，为null时返回完整的解码器
+     * @return 解码器
+     */
+    public ProtoBufDecoder getDecoder(Class msgCls, ProtoBufOption option, ProtoBufFieldMask fieldMask) {
+        if (fieldMask == null) {
+            return getDecoder(msgCls, option);
+        }
+        boolean fast = option != null && CodecType.FAST == option.getCodecType();
+        CodecSlots slots = codecSlots.get(msgCls);
+        Map<ProtoBufFieldMask, ProtoBufDecoder> decoders = fast ? slots.fastMaskDecoders : slots.maskDecoders;
+        ProtoBufDecoder decoder = decoders.get(fieldMask);
         if (decoder != null) {
             return decoder;
         }
-        ReentrantLock lock = mapDecoderLocks.get(mapType);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            ReentrantLock old = mapEntryLocks.putIfAbsent(mapType, lock);
-            if (old != null) {
-                lock = old;
+        synchronized (slots) {
+            decoder = decoders.get(fieldMask);
+            if (decoder == null) {
+                // 类名使用递增的序号，字段掩码的哈希值可能冲突
+                String decoderName = getDecoderName(msgCls, option) + "M" + (slots.maskSeq++);
+                try {
+                    ProtoBufDecoderGenerator generator = new ProtoBufDecoderGenerator(msgCls, option,
+                            fieldMask, decoderName);
+                    GeneratorClassInfo gci = generator.getClassInfo();
+                    Class decoderCls = slots.definer.define(decoderName, gci.clazzBytes, 0,
+                            gci.clazzBytes.length);
+                    if (!isEmpty(gci.inners)) {
+                        for (GeneratorClassInfo inner : gci.inners) {
+                            slots.definer.define(toLangName(inner.clazzName), inner.clazzBytes, 0,
+                                    inner.clazzBytes.length);
+                        }
+                    }
+                    decoder = (ProtoBufDecoder) newCodec(decoderCls);
+                } catch (IllegalArgumentException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException("generateDecoder " + msgCls.getName()
+                            + " fields [" + fieldMask + "] error", e);
+                }
+                decoders.put(fieldMask, decoder);
             }
         }
-        lock.lock();
-        try {
-            ClassDefiner definer;
-            if (ownerCls != null) {
-                definer = getCodecDefiner(ownerCls);
-            } else {
-                definer = getCodecDefiner(ProtoBufCodecRegister.class);
+        return decoder;
+    }
+
+    public MapDecoder getMapDecoder(Type mapType, Class ownerCls, ProtoBufOption option) {
+        boolean fast = option != null && option.getCodecType() == CodecType.FAST;
+        CodecSlots slots = codecSlots.get(ownerCls != null ? ownerCls : ProtoBufCodecRegister.class);
+        MapCodecs codecs = slots.getMapCodecs(mapType);
+        MapDecoder decoder = fast ? codecs.fastDecoder : codecs.decoder;
+        if (decoder != null) {
+            return decoder;
+        }
+        synchronized (codecs) {
+            decoder = fast ? codecs.fastDecoder : codecs.decoder;
+            if (decoder != null) {
+                return decoder;
             }
             String decoderName = buildMapDecoderName(mapType, option);
-            Class decoderCls = null;
-            try {
-                decoderCls = definer.loadClass(decoderName);
-            } catch (ClassNotFoundException e) {
-            }
-            if (decoderCls == null) {
+            Class decoderCls = loadOrDefine(slots.definer, decoderName, () -> {
                 MapDecoderGenerator mdeg = new MapDecoderGenerator(mapType, option);
-                GeneratorClassInfo gci = mdeg.getClassInfo();
-                saveClassFile("./" + toInternalName(gci.clazzName) + ".class", gci.clazzBytes);
-                try {
-                    decoderCls = definer.define(decoderName, gci.clazzBytes, 0, gci.clazzBytes.length);
-                } catch (Throwable e) {
-                    try {
-                        decoderCls = definer.loadClass(decoderName);
-                    } catch (ClassNotFoundException ex) {
-
-                    }
-                }
-            }
+                return mdeg.getClassInfo();
+            });
             if (decoderCls != null) {
-                decoder = (MapDecoder) decoderCls.getDeclaredConstructors()[0].newInstance(new Object[0]);
-                if (decoder != null) {
-                    map.put(mapType, decoder);
-                    return decoder;
+                decoder = (MapDecoder) newCodec(decoderCls);
+                if (fast) {
+                    codecs.fastDecoder = decoder;
+                } else {
+                    codecs.decoder = decoder;
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } finally {
-            lock.unlock();
         }
-
         return decoder;
     }
 
     public MapEntryDecoder getMapEntryDecoder(Type mapType, Class ownerCls, ProtoBufOption option) {
-        Map<Type, MapEntryDecoder> decodes;
-        if (option != null && option.getCodecType() == CodecType.FAST) {
-            decodes = mapEntryFastDecoders;
-        } else {
-            decodes = mapEntryDecoders;
-        }
-        MapEntryDecoder encoder = decodes.get(mapType);
-        if (encoder != null) {
-            return encoder;
-        }
-        ReentrantLock mapEntryLock = mapEntryLocks.get(mapType);
-        if (mapEntryLock == null) {
-            mapEntryLock = new ReentrantLock();
-            ReentrantLock old = mapEntryLocks.putIfAbsent(mapType, mapEntryLock);
-            if (old != null) {
-                mapEntryLock = old;
-            }
+        boolean fast = option != null && option.getCodecType() == CodecType.FAST;
+        CodecSlots slots = codecSlots.get(ownerCls != null ? ownerCls : ProtoBufCodecRegister.class);
+        MapCodecs codecs = slots.getMapCodecs(mapType);
+        MapEntryDecoder decoder = fast ? codecs.fastEntryDecoder : codecs.entryDecoder;
+        if (decoder != null) {
+            return decoder;
         }
-        mapEntryLock.lock();
-        try {
-            ClassDefiner definer;
-            if (ownerCls != null) {
-                definer = getCodecDefiner(ownerCls);
-            } else {
-                definer = getCodecDefiner(ProtoBufCodecRegister.class);
+        synchronized (codecs) {
+            decoder = fast ? codecs.fastEntryDecoder : codecs.entryDecoder;
+            if (decoder != null) {
+                return decoder;
             }
             String decoderName = buildMapEntryDecoderName(mapType, option);
-            Class encoderCls = null;
-            try {
-                encoderCls = definer.loadClass(decoderName);
-            } catch (ClassNotFoundException e) {
-            }
-            if (encoderCls == null) {
+            Class decoderCls = loadOrDefine(slots.definer, decoderName, () -> {
                 MapEntryDecoderGenerator meeg = new MapEntryDecoderGenerator(mapType, option);
-                GeneratorClassInfo gci = meeg.getClassInfo();
-                saveClassFile("./" + toInternalName(gci.clazzName) + ".class", gci.clazzBytes);
-                try {
-                    encoderCls = definer.define(decoderName, gci.clazzBytes, 0, gci.clazzBytes.length);
-                } catch (Throwable e) {
-                    try {
-                        encoderCls = definer.loadClass(decoderName);
-                    } catch (ClassNotFoundException ex) {
-
-                    }
-                }
-            }
-            if (encoderCls != null) {
-                encoder = (MapEntryDecoder) encoderCls.getDeclaredConstructors()[0].newInstance(new Object[0]);
-                if (encoder != null) {
-                    decodes.put(mapType, encoder);
-                    return encoder;
+                return meeg.getClassInfo();
+            });
+            if (decoderCls != null) {
+                decoder = (MapEntryDecoder) newCodec(decoderCls);
+                if (fast) {
+                    codecs.fastEntryDecoder = decoder;
+                } else {
+                    codecs.entryDecoder = decoder;
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } finally {
-            mapEntryLock.unlock();
         }
-        return null;
+        return decoder;
     }
 
     public MapEntryEncoder getMapEntryEncoder(Type mapType, Class ownerCls, ProtoBufOption option) {
-        Map<Type, MapEntryEncoder> encodes;
-        if (option != null && option.getCodecType() == CodecType.FAST) {
-            encodes = mapEntryFastEncoders;
-        } else {
-            encodes = mapEntryEncoders;
-        }
-        MapEntryEncoder encoder = encodes.get(mapType);
+        boolean fast = option != null && option.getCodecType() == CodecType.FAST;
+        CodecSlots slots = codecSlots.get(ownerCls != null ? ownerCls : ProtoBufCodecRegister.class);
+        MapCodecs codecs = slots.getMapCodecs(mapType);
+        MapEntryEncoder encoder = fast ? codecs.fastEntryEncoder : codecs.entryEncoder;
         if (encoder != null) {
             return encoder;
         }
-        ReentrantLock mapEntryLock = mapEntryLocks.get(mapType);
-        if (mapEntryLock == null) {
-            mapEntryLock = new ReentrantLock();
-            ReentrantLock old = mapEntryLocks.putIfAbsent(mapType, mapEntryLock);
-            if (old != null) {
-                mapEntryLock = old;
-            }
-        }
-        mapEntryLock.lock();
-        try {
-            ClassDefiner definer;
-            if (ownerCls != null) {
-                definer = getCodecDefiner(ownerCls);
-            } else {
-                definer = getCodecDefiner(ProtoBufCodecRegister.class);
+        synchronized (codecs) {
+            encoder = fast ? codecs.fastEntryEncoder : codecs.entryEncoder;
+            if (encoder != null) {
+                return encoder;
             }
             String encoderName = buildMapEntryEncoderName(mapType, option);
-            Class encoderCls = null;
-            try {
-                encoderCls = definer.loadClass(encoderName);
-            } catch (ClassNotFoundException e) {
-            }
-            if (encoderCls == null) {
+            Class encoderCls = loadOrDefine(slots.definer, encoderName, () -> {
                 MapEntryEncoderGenerator meeg = new MapEntryEncoderGenerator(mapType, option);
-                GeneratorClassInfo gci = meeg.getClassInfo();
-                saveClassFile("./" + toInternalName(gci.clazzName) + ".class", gci.clazzBytes);
-                try {
-                    encoderCls = definer.define(encoderName, gci.clazzBytes, 0, gci.clazzBytes.length);
-                } catch (Throwable e) {
-                    try {
-                        encoderCls = definer.loadClass(encoderName);
-                    } catch (ClassNotFoundException ex) {
-
-                    }
-                }
-            }
+                return meeg.getClassInfo();
+            });
             if (encoderCls != null) {
-                encoder = (MapEntryEncoder) encoderCls.getDeclaredConstructors()[0].newInstance(new Object[0]);
-                if (encoder != null) {
-                    encodes.put(mapType, encoder);
-                    return encoder;
+                encoder = (MapEntryEncoder) newCodec(encoderCls);
+                if (fast) {
+                    codecs.fastEntryEncoder = encoder;
+                } else {
+                    codecs.entryEncoder = encoder;
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } finally {
-            mapEntryLock.unlock();
         }
-        return null;
+        return encoder;
     }
 
     public Class generateMapEntryClass(Type mapType, Class ownerCls) {
-        Class mapEntryCls = mapEncoders.get(ownerCls);
+        return generateMapEntryClass(mapType, null, ownerCls);
+    }
+
+    public Class generateMapEntryClass(Type mapType, ProtoBufOption option, Class ownerCls) {
+        boolean fast = option != null && CodecType.FAST == option.getCodecType();
+        CodecSlots slots = codecSlots.get(ownerCls);
+        MapCodecs codecs = slots.getMapCodecs(mapType);
+        Class mapEntryCls = fast ? codecs.fastEntryClass : codecs.entryClass;
         if (mapEntryCls != null) {
             return mapEntryCls;
         }
-        String mapEntryName = "";
-        ClassDefiner definer = getCodecDefiner(ownerCls);
-        ReentrantLock lock = getLock(mapType);
-        try {
-            lock.lock();
-            mapEntryName = buildMapEncodeName(mapType, null);
-            MapEntryGenerator meg = new MapEntryGenerator(
-                    toInternalName(mapEntryName), mapType);
-            byte[] bs = meg.getEntryBytes();
-            saveClassFile("./" + toInternalName(mapEntryName) + ".class", bs);
-            mapEntryCls = definer.define(mapEntryName, bs, 0, bs.length);
+        synchronized (codecs) {
+            mapEntryCls = fast ? codecs.fastEntryClass : codecs.entryClass;
             if (mapEntryCls != null) {
-                mapEncoders.put(ownerCls, mapEntryCls);
+                return mapEntryCls;
             }
-        } catch (Throwable e) {
+            ClassDefiner definer = slots.definer;
+            String mapEntryName = buildMapEncodeName(mapType, fast ? option : null);
             try {
-                mapEntryCls = definer.loadClass(mapEntryName);
-                if (mapEntryCls != null) {
-                    mapEncoders.put(ownerCls, mapEntryCls);
-                    return mapEntryCls;
+                MapEntryGenerator meg = new MapEntryGenerator(
+                        toInternalName(mapEntryName), mapType);
+                byte[] bs = meg.getEntryBytes();
+                saveClassFile("./" + toInternalName(mapEntryName) + ".class", bs);
+                mapEntryCls = definer.define(mapEntryName, bs, 0, bs.length);
+            } catch (Throwable e) {
+                // 同一个Map类型的Entry类可能已经由其他所属类生成
+                try {
+                    mapEntryCls = definer.loadClass(mapEntryName);
+                } catch (ClassNotFoundException ex) {
+                    throw new RuntimeException("generateMapEntryClass "
+                            + mapType.getTypeName() + " error", ex);
                 }
-            } catch (ClassNotFoundException ex) {
-                throw new RuntimeException("generateMapEntryClass "
-                        + mapType.getTypeName() + " error", ex);
+                if (mapEntryCls == null) {
+                    throw new RuntimeException("generateMapEntryClass "
+                            + mapType.getTypeName() + " error", e);
+                }
+            }
+            if (fast) {
+                codecs.fastEntryClass = mapEntryCls;
+            } else {
+                codecs.entryClass = mapEntryCls;
             }
-            throw new RuntimeException("generateMapEntryClass "
-                    + mapType.getTypeName()+ " error", e);
-        } finally {
-            lock.unlock();
         }
         return mapEntryCls;
     }
 
-    public Class generateMapEntryClass(Type mapType, ProtoBufOption option, Class ownerCls) {
-        if (option == null || CodecType.FAST != option.getCodecType()) {
-            return generateMapEntryClass(mapType, ownerCls);
-        }
-        Class mapEntryCls = fmapEncoders.get(mapType);
-        if (mapEntryCls != null) {
-            return mapEntryCls;
+    /**
+     * 先从ClassLoader中加载已生成的编解码器类，不存在时生成并定义，定义失败时再尝试加载其他地方定义的类
+     */
+    private Class loadOrDefine(ClassDefiner definer, String className, ClassInfoSupplier generator) {
+        try {
+            return definer.loadClass(className);
+        } catch (ClassNotFoundException e) {
         }
-        String mapEntryName = "";
-        ClassDefiner definer = getCodecDefiner(ownerCls);
-        ReentrantLock lock = getLock(mapType);
         try {
-            lock.lock();
-            mapEntryName = buildMapEncodeName(mapType, option);
-            MapEntryGenerator meg = new MapEntryGenerator(
-                    toInternalName(mapEntryName), mapType);
-            byte[] bs = meg.getEntryBytes();
-            saveClassFile("./" + toInternalName(mapEntryName) + ".class", bs);
-            mapEntryCls = definer.define(mapEntryName, bs, 0, bs.length);
-            if (mapEntryCls != null) {
-                fmapEncoders.put(mapType, mapEntryCls);
-            }
+            GeneratorClassInfo gci = generator.get();
+            saveClassFile("./" + toInternalName(gci.clazzName) + ".class", gci.clazzBytes);
+            return definer.define(className, gci.clazzBytes, 0, gci.clazzBytes.length);
         } catch (Throwable e) {
             try {
-                mapEntryCls = definer.loadClass(mapEntryName);
-                if (mapEntryCls != null) {
-                    mapEncoders.put(mapType, mapEntryCls);
-                    return mapEntryCls;
-                }
+                return definer.loadClass(className);
             } catch (ClassNotFoundException ex) {
-                throw new RuntimeException("generateMapEntryClass "
-                        + mapType.getTypeName() + " error", ex);
+                return null;
             }
-            throw new RuntimeException("generateMapEntryClass "
-                    + mapType.getTypeName()+ " error", e);
-        } finally {
-            lock.unlock();
         }
-        return mapEntryCls;
     }
 
+    private static Object newCodec(Class codecCls) {
+        try {
+            return codecCls.getDeclaredConstructors()[0].newInstance(new Object[0]);
+        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
     private ProtoBufEncoder generateEncoder(Class cls, ProtoBufOption option) {
         ProtoBufEncoder codec = null;
@@ -621,26 +527,85 @@ public enum ProtoBufCodecRegister {
         } else {
             cls = (Class)type;
         }
-        ClassLoader cl = cls.getClassLoader();
-        ClassDefiner definer = encoderLoaders.get(cl);
-        if (definer == null) {
-            definer = new ClassDefiner(cl);
-            encoderLoaders.put(cl, definer);
+        return codecSlots.get(cls).definer;
+    }
+
+    private ClassDefiner getCodecDefiner(ClassLoader cl) {
+        synchronized (encoderLoaders) {
+            ClassDefiner definer = encoderLoaders.get(cl);
+            if (definer == null) {
+                definer = new ClassDefiner(cl);
+                encoderLoaders.put(cl, definer);
+            }
+            return definer;
         }
-        return definer;
     }
 
-    class ClassDefiner {
+    @FunctionalInterface
+    private interface ClassInfoSupplier {
+        GeneratorClassInfo get() throws IOException;
+    }
 
-        private ClassLoader loader;
-        private Method defineMethod;
+    /**
+     * 一个Class的编解码器，由ClassValue和Class关联，生成编解码器时锁定该对象
+     */
+    static final class CodecSlots {
+
+        final ClassDefiner definer;
+        volatile ProtoBufEncoder encoder;
+        volatile ProtoBufEncoder fastEncoder;
+        volatile ProtoBufDecoder decoder;
+        volatile ProtoBufDecoder fastDecoder;
+        /**
+         * 按字段掩码生成的解码器
+         */
+        final Map<ProtoBufFieldMask, ProtoBufDecoder> maskDecoders = new ConcurrentHashMap<>();
+        final Map<ProtoBufFieldMask, ProtoBufDecoder> fastMaskDecoders = new ConcurrentHashMap<>();
+        int maskSeq;
+        /**
+         * 该类中Map类型字段的编解码器，key为Map字段的泛型类型
+         */
+        private final Map<Type, MapCodecs> mapCodecs = new ConcurrentHashMap<>();
+
+        CodecSlots(ClassDefiner definer) {
+            this.definer = definer;
+        }
+
+        MapCodecs getMapCodecs(Type mapType) {
+            MapCodecs codecs = mapCodecs.get(mapType);
+            if (codecs == null) {
+                codecs = mapCodecs.computeIfAbsent(mapType, t -> new MapCodecs());
+            }
+            return codecs;
+        }
+    }
+
+    /**
+     * 一个Map类型的Entry类以及编解码器，生成时锁定该对象
+     */
+    static final class MapCodecs {
+        volatile Class entryClass;
+        volatile Class fastEntryClass;
+        volatile MapEntryEncoder entryEncoder;
+        volatile MapEntryEncoder fastEntryEncoder;
+        volatile MapEntryDecoder entryDecoder;
+        volatile MapEntryDecoder fastEntryDecoder;
+        volatile MapDecoder decoder;
+        volatile MapDecoder fastDecoder;
+    }
+
+    static class ClassDefiner {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final Method defineMethod;
 
         public ClassDefiner(ClassLoader cl) {
-            this.loader = cl;
+            this.loaderRef = new WeakReference<>(cl);
             this.defineMethod = getClassDefineMethod(cl);
         }
 
         public Class define(String className, byte[] bs, int offset, int len) {
+            ClassLoader loader = loader();
             if (defineMethod == null) {
                 throw  new RuntimeException(loader + " hasn't defineClass(String name, byte[] bs, int start, int len)");
             }
@@ -652,7 +617,15 @@ public enum ProtoBufCodecRegister {
         }
 
         public Class loadClass(String name) throws ClassNotFoundException {
-            return loader.loadClass(name);
+            return loader().loadClass(name);
+        }
+
+        private ClassLoader loader() {
+            ClassLoader loader = loaderRef.get();
+            if (loader == null) {
+                throw new IllegalStateException("ClassLoader has been unloaded");
+            }
+            return loader;
         }
 
         private Method getClassDefineMethod(ClassLoader loader) {
@@ -678,4 +651,4 @@ public enum ProtoBufCodecRegister {
             return null;
         }
     }
-}
\ No newline at end of file
+}
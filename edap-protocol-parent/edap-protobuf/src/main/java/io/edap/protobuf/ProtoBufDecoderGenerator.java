@@ -53,10 +53,20 @@ public class ProtoBufDecoderGenerator {
     static final String MAP_ENTRY_DECODER_NAME = toInternalName(MapEntryDecoder.class.getName());
 
     static final String PROTO_OPTION_NAME = toInternalName(ProtoBufOption.class.getName());
+    static final String FIELD_MASK_NAME = toInternalName(ProtoBufFieldMask.class.getName());
 
     private ClassWriter cw;
     private final Class pojoCls;
     private final ProtoBufOption option;
+    /**
+     * 只解码的字段，为null时解码所有的字段
+     */
+    private final ProtoBufFieldMask fieldMask;
+    private final String decoderName;
+    /**
+     * 使用字段掩码时嵌套消息类型的子掩码，值为null时使用完整的解码器
+     */
+    private final Map<Class, ProtoBufFieldMask> pojoMasks = new HashMap<>();
 
     private List<GeneratorClassInfo> inners;
     private String parentName;
@@ -79,8 +89,22 @@ public class ProtoBufDecoderGenerator {
     private final java.lang.reflect.Type parentMapType;
 
     public ProtoBufDecoderGenerator(Class pojoCls, ProtoBufOption option) {
+        this(pojoCls, option, null, getDecoderName(pojoCls, option));
+    }
+
+    /**
+     * 生成只解码部分字段的解码器
+     * @param pojoCls 消息的Class
+     * @param option 编解码的选项
+     * @param fieldMask 需要解码的字段
+     * @param decoderName 生成解码器的类名，同一个Class不同的字段掩码需要使用不同的类名
+     */
+    public ProtoBufDecoderGenerator(Class pojoCls, ProtoBufOption option, ProtoBufFieldMask fieldMask,
+                                    String decoderName) {
         this.pojoCls = pojoCls;
         this.option = option;
+        this.fieldMask = fieldMask;
+        this.decoderName = decoderName;
         this.parentMapType = ProtoUtil.parentMapType(pojoCls);
     }
 
@@ -89,7 +113,7 @@ public class ProtoBufDecoderGenerator {
         inners = new ArrayList<>();
         pojoName = toInternalName(pojoCls.getName());
         parentName = toInternalName(AbstractDecoder.class.getName());
-        pojoCodecName = toInternalName(getDecoderName(pojoCls, option));
+        pojoCodecName = toInternalName(decoderName);
         gci.clazzName = pojoCodecName;
         String pojoCodecDescriptor = getDecoderDescriptor(pojoCls);
         String[] ifaceName = new String[]{IFACE_NAME};
@@ -100,12 +124,15 @@ public class ProtoBufDecoderGenerator {
                 pojoCodecDescriptor, parentName, ifaceName);
 
         List<ProtoFieldInfo> fields = ProtoUtil.getProtoFields(pojoCls);
+        if (fieldMask != null) {
+            fields = filterFields(fields);
+        }
         List<java.lang.reflect.Type> pojoTypes = new ArrayList<>();
         for (ProtoFieldInfo pfi : fields) {
             if (pfi.field.getType().getName().equals("java.lang.String")) {
                 stringFields.add(pfi);
             }
-            if (isPojo(pfi.field.getGenericType())
+            if (isPojo(pfi.field.getGenericType()) && !isByteSlice(pfi.field.getType())
                     && !pojoTypes.contains(pfi.field.getGenericType())) {
                 pojoTypes.add(pfi.field.getGenericType());
             } else if (isRepeatedArray(pfi.field.getGenericType()) && !isPacked(pfi)) {
@@ -421,8 +448,7 @@ public class ProtoBufDecoderGenerator {
                     mv.visitVarInsn(ALOAD, aArrayTag.get(pfi.protoField.tag()));
                     mv.visitVarInsn(ALOAD, 1);
                     mv.visitVarInsn(ALOAD, 0);
-                    String decodeName = getDecoderName((Class)itemType, option);
-                    if (!toInternalName(decodeName).equals(pojoCodecName)) {
+                    if (!isSelfDecoder(itemType)) {
                         mv.visitFieldInsn(GETFIELD, pojoCodecName, pname,
                                 "L" + IFACE_NAME + ";");
                     }
@@ -561,8 +587,7 @@ public class ProtoBufDecoderGenerator {
                     mv.visitVarInsn(ALOAD, aListTag.get(pfi.protoField.tag()));
                     mv.visitVarInsn(ALOAD, 1);
                     mv.visitVarInsn(ALOAD, 0);
-                    String decodeName = getDecoderName((Class)itemType, option);
-                    if (!toInternalName(decodeName).equals(pojoCodecName)) {
+                    if (!isSelfDecoder(itemType)) {
                         mv.visitFieldInsn(GETFIELD, pojoCodecName, pname,
                                 "L" + IFACE_NAME + ";");
                     }
@@ -641,7 +666,7 @@ public class ProtoBufDecoderGenerator {
                             "(Ljava/lang/Object;)Z", true);
                     mv.visitInsn(POP);
                 }
-            } else if (isPojo(pfi.field.getGenericType())) {
+            } else if (isPojo(pfi.field.getGenericType()) && !isByteSlice(pfi.field.getType())) {
 
                 String pname = getPojoDecoderName(pfi.field.getType());
                 String pojo = toInternalName(pfi.field.getType().getName());
@@ -652,8 +677,7 @@ public class ProtoBufDecoderGenerator {
                 mv.visitVarInsn(ALOAD, varPojo);
                 mv.visitVarInsn(ALOAD, 1);
                 mv.visitVarInsn(ALOAD, 0);
-                String decodeName = getDecoderName((Class)pfi.field.getGenericType(), option);
-                if (!toInternalName(decodeName).equals(pojoCodecName)) {
+                if (!isSelfDecoder(pfi.field.getGenericType())) {
                     mv.visitFieldInsn(GETFIELD, pojoCodecName, pname,
                             "L" + IFACE_NAME + ";");
                 }
@@ -1182,8 +1206,7 @@ public class ProtoBufDecoderGenerator {
         for (java.lang.reflect.Type type : pojoTypes) {
             String itemType = toInternalName(((Class)type).getName());
             String codecName = getPojoDecoderName(type);
-            String encoderName = toInternalName(getDecoderName((Class)type, option));
-            if (!encoderName.equals(pojoCodecName)) {
+            if (!isSelfDecoder(type)) {
                 FieldVisitor fvPojoDecoder = cw.visitField(ACC_PRIVATE, codecName, "L" + IFACE_NAME + ";",
                         "L" + IFACE_NAME + "<L" + itemType + ";>;", null);
                 fvPojoDecoder.visitEnd();
@@ -1230,8 +1253,7 @@ public class ProtoBufDecoderGenerator {
         }
         for (java.lang.reflect.Type type : pojoTypes) {
             String codecName = getPojoDecoderName(type);
-            String encoderName = toInternalName(getDecoderName((Class)type, option));
-            if (!encoderName.equals(pojoCodecName)) {
+            if (!isSelfDecoder(type)) {
                 mv.visitVarInsn(ALOAD, 0);
                 mv.visitFieldInsn(GETSTATIC, REGISTER_NAME,
                         "INSTANCE", "L" + REGISTER_NAME + ";");
@@ -1239,8 +1261,19 @@ public class ProtoBufDecoderGenerator {
                 mv.visitLdcInsn(org.objectweb.asm.Type.getType(tdescriptor));
                 mv.visitFieldInsn(GETSTATIC, pojoCodecName, "PROTO_BUF_OPTION",
                         "L" + PROTO_OPTION_NAME + ";");
-                mv.visitMethodInsn(INVOKEVIRTUAL, REGISTER_NAME, "getDecoder",
-                        "(Ljava/lang/Class;L" + PROTO_OPTION_NAME +";)L" + IFACE_NAME + ";", false);
+                ProtoBufFieldMask subMask = pojoMasks.get(type);
+                if (subMask != null) {
+                    // 嵌套消息只解码子掩码中的字段
+                    mv.visitLdcInsn(subMask.toString());
+                    mv.visitMethodInsn(INVOKESTATIC, FIELD_MASK_NAME, "parse",
+                            "(Ljava/lang/String;)L" + FIELD_MASK_NAME + ";", false);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, REGISTER_NAME, "getDecoder",
+                            "(Ljava/lang/Class;L" + PROTO_OPTION_NAME + ";L" + FIELD_MASK_NAME + ";)L"
+                                    + IFACE_NAME + ";", false);
+                } else {
+                    mv.visitMethodInsn(INVOKEVIRTUAL, REGISTER_NAME, "getDecoder",
+                            "(Ljava/lang/Class;L" + PROTO_OPTION_NAME + ";)L" + IFACE_NAME + ";", false);
+                }
                 mv.visitFieldInsn(PUTFIELD, pojoCodecName,
                         codecName, "L" + IFACE_NAME + ";");
             }
@@ -1371,6 +1404,55 @@ public class ProtoBufDecoderGenerator {
 
     }
 
+    /**
+     * 只保留字段掩码中的字段，同时记录嵌套消息类型的子掩码，同一个类型的多个字段使用子掩码的并集
+     */
+    private List<ProtoFieldInfo> filterFields(List<ProtoFieldInfo> allFields) {
+        List<ProtoFieldInfo> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (ProtoFieldInfo pfi : allFields) {
+            String name = pfi.field.getName();
+            names.add(name);
+            if (!fieldMask.includes(name)) {
+                continue;
+            }
+            fields.add(pfi);
+            java.lang.reflect.Type type = pfi.field.getGenericType();
+            java.lang.reflect.Type itemType = null;
+            if (isPojo(type)) {
+                itemType = type;
+            } else if (type instanceof Class && ((Class)type).isArray()) {
+                itemType = ((Class)type).getComponentType();
+            } else if (isList(type)) {
+                itemType = ((ParameterizedType)type).getActualTypeArguments()[0];
+            }
+            if (itemType instanceof Class && isPojo(itemType)) {
+                ProtoBufFieldMask subMask = fieldMask.subMask(name);
+                if (pojoMasks.containsKey(itemType)) {
+                    subMask = ProtoBufFieldMask.union(pojoMasks.get(itemType), subMask);
+                }
+                pojoMasks.put((Class)itemType, subMask);
+            }
+        }
+        for (String name : fieldMask.toString().split(",")) {
+            String fieldName = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+            if (!names.contains(fieldName)) {
+                throw new IllegalArgumentException(pojoCls.getName() + " hasn't proto field [" + fieldName + "]");
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 嵌套消息的解码器是否为当前生成的解码器，使用字段掩码时嵌套消息都从注册器中获取
+     */
+    private boolean isSelfDecoder(java.lang.reflect.Type type) {
+        if (fieldMask != null) {
+            return false;
+        }
+        return toInternalName(getDecoderName((Class)type, option)).equals(pojoCodecName);
+    }
+
     private String getMapCodecName(Class mapCls) {
         return "DecoderMap" + mapCls.getSimpleName();
     }
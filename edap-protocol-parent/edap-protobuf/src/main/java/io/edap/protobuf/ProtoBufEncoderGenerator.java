@@ -114,7 +114,7 @@ public class ProtoBufEncoderGenerator {
         List<java.lang.reflect.Type> pojoTypes = new ArrayList<>();
 
         for (ProtoFieldInfo pfi : fields) {
-            if (isPojo(pfi.field.getGenericType())
+            if (isPojo(pfi.field.getGenericType()) && !isByteSlice(pfi.field.getType())
                     && !pojoTypes.contains(pfi.field.getGenericType())) {
                 pojoTypes.add(pfi.field.getGenericType());
             } else if (isArray(pfi.field.getGenericType())) {
@@ -194,7 +194,7 @@ public class ProtoBufEncoderGenerator {
             for (ProtoFieldInfo pfi : fields) {
                 String rType = getDescriptor(pfi.field.getType());
 
-                if (isPojo(pfi.field.getGenericType())) {
+                if (isPojo(pfi.field.getGenericType()) && !isByteSlice(pfi.field.getType())) {
                     mv.visitVarInsn(ALOAD, 1);
                     mv.visitFieldInsn(GETSTATIC, pojoCodecName, "tag" + pfi.protoField.tag(), "[B");
                     visitTagOpcode(mv, pfi.protoField.tag());
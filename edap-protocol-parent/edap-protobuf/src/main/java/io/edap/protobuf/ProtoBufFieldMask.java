@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 解码时需要读取的字段集合，每个字段使用java字段名的路径表示，嵌套消息的字段使用"."分隔，例如"header.routingKey"。
+ * 只给出消息字段的名称时解码该字段的全部内容。使用该掩码生成的解码器只解码掩码中的字段，其他字段按tag直接跳过，
+ * 不会为其创建String或者嵌套的对象，适用于只需要读取消息中少数几个字段的场景。
+ *
+ * <p>路径只能深入单个消息以及消息的List、数组类型的字段，Map以及其他类型的字段只能整体读取。</p>
+ */
+public final class ProtoBufFieldMask {
+
+    /**
+     * 需要读取的字段以及该字段的子掩码，子掩码为null时读取该字段的全部内容
+     */
+    private final Map<String, ProtoBufFieldMask> fields;
+    private final String spec;
+
+    private ProtoBufFieldMask(Map<String, ProtoBufFieldMask> fields) {
+        this.fields = Collections.unmodifiableMap(fields);
+        List<String> paths = new ArrayList<>();
+        collectPaths("", paths);
+        this.spec = String.join(",", paths);
+    }
+
+    /**
+     * 根据字段路径创建掩码
+     * @param paths 字段路径，例如"id"，"header.routingKey"
+     * @return 字段掩码
+     */
+    public static ProtoBufFieldMask of(String... paths) {
+        return of(Arrays.asList(paths));
+    }
+
+    public static ProtoBufFieldMask of(Iterable<String> paths) {
+        Map<String, List<String>> children = new TreeMap<>();
+        for (String path : paths) {
+            if (path == null || path.trim().isEmpty()) {
+                throw new IllegalArgumentException("field path can't be empty");
+            }
+            path = path.trim();
+            int dot = path.indexOf('.');
+            String name = dot < 0 ? path : path.substring(0, dot);
+            if (name.isEmpty() || dot == path.length() - 1) {
+                throw new IllegalArgumentException("illegal field path [" + path + "]");
+            }
+            if (dot < 0) {
+                // 读取整个字段时忽略该字段的子路径
+                children.put(name, null);
+            } else if (!children.containsKey(name)) {
+                children.put(name, new ArrayList<>(Collections.singletonList(path.substring(dot + 1))));
+            } else if (children.get(name) != null) {
+                children.get(name).add(path.substring(dot + 1));
+            }
+        }
+        if (children.isEmpty()) {
+            throw new IllegalArgumentException("field mask can't be empty");
+        }
+        Map<String, ProtoBufFieldMask> fields = new TreeMap<>();
+        for (Map.Entry<String, List<String>> entry : children.entrySet()) {
+            fields.put(entry.getKey(), entry.getValue() == null ? null : of(entry.getValue()));
+        }
+        return new ProtoBufFieldMask(fields);
+    }
+
+    /**
+     * 解析{@link #toString()}输出的以逗号分隔的字段路径，生成的解码器使用该方法还原嵌套消息的掩码
+     * @param spec 逗号分隔的字段路径
+     * @return 字段掩码
+     */
+    public static ProtoBufFieldMask parse(String spec) {
+        return of(spec.split(","));
+    }
+
+    /**
+     * 合并两个掩码，任意一个为null（读取全部字段）时返回null
+     */
+    public static ProtoBufFieldMask union(ProtoBufFieldMask m1, ProtoBufFieldMask m2) {
+        if (m1 == null || m2 == null) {
+            return null;
+        }
+        List<String> paths = new ArrayList<>();
+        m1.collectPaths("", paths);
+        m2.collectPaths("", paths);
+        return of(paths);
+    }
+
+    /**
+     * 是否需要读取该字段
+     * @param field java字段名
+     */
+    public boolean includes(String field) {
+        return fields.containsKey(field);
+    }
+
+    /**
+     * 字段的子掩码
+     * @param field java字段名
+     * @return 该字段的子掩码，读取整个字段或者不包含该字段时返回null
+     */
+    public ProtoBufFieldMask subMask(String field) {
+        return fields.get(field);
+    }
+
+    private void collectPaths(String prefix, List<String> paths) {
+        for (Map.Entry<String, ProtoBufFieldMask> entry : fields.entrySet()) {
+            if (entry.getValue() == null) {
+                paths.add(prefix + entry.getKey());
+            } else {
+                entry.getValue().collectPaths(prefix + entry.getKey() + ".", paths);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProtoBufFieldMask)) {
+            return false;
+        }
+        return spec.equals(((ProtoBufFieldMask) o).spec);
+    }
+
+    @Override
+    public int hashCode() {
+        return spec.hashCode();
+    }
+
+    /**
+     * 按字段名排序后以逗号分隔的字段路径，内容相同的掩码返回相同的字符串
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -17,6 +17,7 @@
 package io.edap.protobuf;
 
 import io.edap.protobuf.wire.Field.Type;
+import io.edap.util.ByteSlice;
 
 import java.nio.charset.Charset;
 import java.util.List;
@@ -219,6 +220,13 @@ public interface ProtoBufReader {
      * @throws ProtoException
      */
     byte[] readBytes() throws ProtoException;
+    /**
+     * 读取一个byte[]的视图，能直接访问输入数组的Reader返回和输入共享数据的视图，输入被复用前需要调用
+     * {@link ByteSlice#retain()}
+     * @return
+     * @throws ProtoException
+     */
+    ByteSlice readByteSlice() throws ProtoException;
     /**
      * 读取String的值
      * @return
@@ -20,6 +20,7 @@ import io.edap.io.BufOut;
 import io.edap.io.BufWriter;
 import io.edap.protobuf.model.ProtoBufOption;
 import io.edap.protobuf.wire.Field.Type;
+import io.edap.util.ByteSlice;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -112,6 +113,7 @@ public interface ProtoBufWriter extends BufWriter {
     void writeString(byte[] fieldData, String value);
     void writeBytes(byte[] fieldData, byte[] value);
     void writeBytes(byte[] fieldData, Byte[] value);
+    void writeBytes(byte[] fieldData, ByteSlice value);
     void writeByteArray(byte[] fieldData, byte[] value, int offset, int length);
     void writeByteArray(byte[] value, int offset, int length);
     void writeBytes(byte[] bs);
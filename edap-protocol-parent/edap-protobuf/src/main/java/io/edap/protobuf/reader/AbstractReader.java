@@ -18,6 +18,7 @@ package io.edap.protobuf.reader;
 
 import io.edap.protobuf.ProtoException;
 import io.edap.protobuf.ProtoBufReader;
+import io.edap.util.ByteSlice;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -186,6 +187,11 @@ public abstract class AbstractReader implements ProtoBufReader {
     @Override
     public abstract byte[] readBytes() throws ProtoException;
 
+    @Override
+    public ByteSlice readByteSlice() throws ProtoException {
+        return ByteSlice.wrap(readBytes());
+    }
+
     @Override
     public abstract String readString() throws ProtoException;
 
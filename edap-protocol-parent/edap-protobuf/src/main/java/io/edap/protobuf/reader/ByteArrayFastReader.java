@@ -115,8 +115,11 @@ public class ByteArrayFastReader extends ByteArrayReader {
 
     @Override
     boolean skipString() throws ProtoException {
+        // 长度为编码标识以及字符串内容的字节数，-1为null，直接跳过不需要解码字符串
         int len = readRawVarint32();
-        readString(len);
+        if (len > 0) {
+            skipRawBytes(len);
+        }
         return true;
     }
 
@@ -21,6 +21,7 @@ import io.edap.protobuf.ProtoBufDecoder;
 import io.edap.protobuf.ProtoException;
 import io.edap.protobuf.ext.AnyCodec;
 import io.edap.protobuf.wire.Field.Type;
+import io.edap.util.ByteSlice;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -328,6 +329,20 @@ public class ByteArrayReader extends AbstractReader {
         return bs;
     }
 
+    @Override
+    public ByteSlice readByteSlice() throws ProtoException {
+        int len = readRawVarint32();
+        if (len < 0) {
+            throw ProtoException.negativeSize();
+        }
+        if (len > limit - pos) {
+            throw ProtoException.truncatedMessage();
+        }
+        ByteSlice slice = ByteSlice.view(buf, pos, len);
+        pos += len;
+        return slice;
+    }
+
     @Override
     public String readString() throws ProtoException {
         int len = readRawVarint32();
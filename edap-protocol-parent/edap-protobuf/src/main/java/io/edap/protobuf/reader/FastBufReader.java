@@ -0,0 +1,730 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf.reader;
+
+import io.edap.buffer.FastBuf;
+import io.edap.protobuf.MapDecoder;
+import io.edap.protobuf.ProtoBufDecoder;
+import io.edap.protobuf.ProtoException;
+import io.edap.protobuf.ext.AnyCodec;
+import io.edap.protobuf.wire.Field.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.edap.protobuf.wire.WireFormat.FIXED_32_SIZE;
+import static io.edap.protobuf.wire.WireFormat.FIXED_64_SIZE;
+import static io.edap.util.UnsafeUtil.copyMemory;
+import static io.edap.util.UnsafeUtil.readByte;
+
+/**
+ * 直接从FastBuf堆外内存中解码的ProtoBufReader，编码格式和ByteArrayReader相同。用于从网络或者文件读入的FastBuf中
+ * 原地解码消息，不需要先把消息复制到byte数组。读取的范围为[address, address+len)，调用方需要保证这段内存在解码期间
+ * 有效，并且是一个完整的消息，数据不完整时抛出{@link ProtoException#truncatedMessage()}。
+ *
+ * <p>{@link #getPos()}以及{@link #getByte(int)}使用相对于开始地址的偏移量。可以使用{@link #wrap(long, int)}
+ * 重复使用同一个Reader解码多个消息。</p>
+ */
+public class FastBufReader extends AbstractReader {
+    /**
+     * 本次解码的开始地址
+     */
+    protected long start;
+    /**
+     * 当前读取的地址
+     */
+    protected long pos;
+    /**
+     * 当前消息可读的结束地址，解码嵌套的消息时临时修改
+     */
+    protected long limit;
+    protected long originalLimit;
+    protected char[] tmp;
+
+    public FastBufReader() {
+    }
+
+    /**
+     * 读取FastBuf中[rpos, wpos)之间的数据，不会修改FastBuf的读写位置
+     * @param buf 数据所在的FastBuf
+     */
+    public FastBufReader(FastBuf buf) {
+        this(buf.rpos(), buf.remain());
+    }
+
+    public FastBufReader(long address, int len) {
+        wrap(address, len);
+    }
+
+    /**
+     * 设置需要解码的内存范围
+     * @param address 开始的内存地址
+     * @param len 数据的长度
+     * @return 返回自身
+     */
+    public FastBufReader wrap(long address, int len) {
+        this.start = address;
+        this.pos   = address;
+        this.limit = address + len;
+        this.originalLimit = limit;
+        return this;
+    }
+
+    @Override
+    public byte getByte(int p) {
+        return readByte(start + p);
+    }
+
+    @Override
+    public byte getByte() {
+        return readByte(pos++);
+    }
+
+    @Override
+    public int getPos() {
+        return (int)(pos - start);
+    }
+
+    /**
+     * 当前读取位置的内存地址
+     */
+    public long address() {
+        return pos;
+    }
+
+    @Override
+    public List<Integer> readPackedInt32(Type type) throws ProtoException {
+        List<Integer> list = new ArrayList<>();
+        int len = readRawVarint32();
+        long old = pos;
+        switch (type) {
+            case INT32:
+            case UINT32:
+                while (pos - old < len) {
+                    list.add(readRawVarint32());
+                }
+                break;
+            case SINT32:
+                while (pos - old < len) {
+                    list.add(readSInt32());
+                }
+                break;
+            case FIXED32:
+            case SFIXED32:
+                while (pos - old < len) {
+                    list.add(readRawLittleEndian32());
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+        return list;
+    }
+
+    protected void expandLocalIntegerArray(Integer [] intArray, int len) {
+        if (len >= intArray.length) {
+            Integer[] tmp2 = new Integer[len*2];
+            System.arraycopy(intArray, 0, tmp2, 0, len);
+            intArray = tmp2;
+            LOCAL_TMP_INTEGER_ARRAY.set(intArray);
+        }
+    }
+
+    protected void expandLocalIntArray(int [] intArray, int len) {
+        if (len >= intArray.length) {
+            int[] tmp2 = new int[len*2];
+            System.arraycopy(intArray, 0, tmp2, 0, len);
+            intArray = tmp2;
+            LOCAL_TMP_INT_ARRAY.set(intArray);
+        }
+    }
+
+    @Override
+    public Integer[] readPackedInt32Array(Type type) throws ProtoException {
+        Integer[] tmp = LOCAL_TMP_INTEGER_ARRAY.get();
+        int len = readRawVarint32();
+        expandLocalIntegerArray(tmp, len);
+        long old = pos;
+        int i = 0;
+        switch (type) {
+            case INT32:
+            case UINT32:
+                while (pos - old < len) {
+                    tmp[i++] = readRawVarint32();
+                }
+                break;
+            case SINT32:
+                while (pos - old < len) {
+                    tmp[i++] = readSInt32();
+                }
+                break;
+            case FIXED32:
+            case SFIXED32:
+                while (pos - old < len) {
+                    tmp[i++] = readRawLittleEndian32();
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+
+        Integer [] res = new Integer[i];
+        System.arraycopy(tmp, 0, res, 0, i);
+        return res;
+    }
+
+    @Override
+    public int[] readPackedInt32ArrayValue(Type type) throws ProtoException {
+        int[] tmp = LOCAL_TMP_INT_ARRAY.get();
+        int len = readRawVarint32();
+        expandLocalIntArray(tmp, len);
+        long old = pos;
+        int i = 0;
+        switch (type) {
+            case INT32:
+            case UINT32:
+                while (pos - old < len) {
+                    tmp[i++] = readRawVarint32();
+                }
+                break;
+            case SINT32:
+                while (pos - old < len) {
+                    tmp[i++] = readSInt32();
+                }
+                break;
+            case FIXED32:
+            case SFIXED32:
+                while (pos - old < len) {
+                    tmp[i++] = readRawLittleEndian32();
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+
+        int [] res = new int[i];
+        System.arraycopy(tmp, 0, res, 0, i);
+        return res;
+    }
+
+    public boolean[] readPackedBoolValues() throws ProtoException {
+        int len = readRawVarint32();
+        boolean[] vs = new boolean[len];
+        for (int i=0;i<len;i++) {
+            vs[i] = readUInt32()==1?true:false;
+        }
+        return vs;
+    }
+
+    public Boolean[] readPackedBools() throws ProtoException {
+        int len = readRawVarint32();
+        Boolean[] vs = new Boolean[len];
+        for (int i=0;i<len;i++) {
+            vs[i] = readUInt32()==1?true:false;
+        }
+        return vs;
+    }
+
+
+    protected void expandLocalLongArray(Long [] intArray, int len) {
+        if (len >= intArray.length) {
+            Long[] tmp2 = new Long[len*2];
+            System.arraycopy(intArray, 0, tmp2, 0, len);
+            intArray = tmp2;
+            LOCAL_TMP_LONG_ARRAY.set(intArray);
+        }
+    }
+
+    protected void expandLocalLongValueArray(long [] intArray, int len) {
+        if (len >= intArray.length) {
+            long[] tmp2 = new long[len*2];
+            System.arraycopy(intArray, 0, tmp2, 0, len);
+            intArray = tmp2;
+            LOCAL_TMP_LONG_VALUE_ARRAY.set(intArray);
+        }
+    }
+
+    @Override
+    public Long[] readPackedInt64Array(Type type) throws ProtoException {
+        Long[] tmp = LOCAL_TMP_LONG_ARRAY.get();
+        int len = readRawVarint32();
+        long old = pos;
+        int i = 0;
+        switch (type) {
+            case INT64:
+            case UINT64:
+                while (pos - old < len) {
+                    tmp[i++] = readRawVarint64();
+                    expandLocalLongArray(tmp, i);
+                }
+                break;
+            case SINT64:
+                while (pos - old < len) {
+                    tmp[i++] = readSInt64();
+                    expandLocalLongArray(tmp, i);
+                }
+                break;
+            case FIXED64:
+            case SFIXED64:
+                while (pos - old < len) {
+                    tmp[i++] = readSFixed64();
+                    expandLocalLongArray(tmp, i);
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+
+        Long [] res = new Long[i];
+        System.arraycopy(tmp, 0, res, 0, i);
+        return res;
+    }
+
+    @Override
+    public long[] readPackedInt64ArrayValue(Type type) throws ProtoException {
+        long[] tmp = LOCAL_TMP_LONG_VALUE_ARRAY.get();
+        int len = readRawVarint32();
+        long old = pos;
+        int i = 0;
+        switch (type) {
+            case INT64:
+            case UINT64:
+                while (pos - old < len) {
+                    tmp[i++] = readRawVarint64();
+                    expandLocalLongValueArray(tmp, i);
+                }
+                break;
+            case SINT64:
+                while (pos - old < len) {
+                    tmp[i++] = readSInt64();
+                    expandLocalLongValueArray(tmp, i);
+                }
+                break;
+            case FIXED64:
+            case SFIXED64:
+                while (pos - old < len) {
+                    tmp[i++] = readSFixed64();
+                    expandLocalLongValueArray(tmp, i);
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+
+        long [] res = new long[i];
+        System.arraycopy(tmp, 0, res, 0, i);
+        return res;
+    }
+
+    @Override
+    public List<Long> readPackedInt64(Type type)
+            throws ProtoException {
+        List<Long> list = new ArrayList<>();
+        int len = readRawVarint32();
+        long old = pos;
+        switch (type) {
+            case INT64:
+            case UINT64:
+                while (pos - old < len) {
+                    list.add(readRawVarint64());
+                }
+                break;
+            case SINT64:
+                while (pos - old < len) {
+                    list.add(readSInt64());
+                }
+                break;
+            case FIXED64:
+            case SFIXED64:
+                while (pos - old < len) {
+                    list.add(readFixed64());
+                }
+                break;
+            default:
+                throw ProtoException.malformedVarint();
+        }
+        return list;
+    }
+
+    @Override
+    public byte[] readBytes() throws ProtoException {
+        int len = readRawVarint32();
+        checkRemain(len);
+        byte[] bs = new byte[len];
+        copyMemory(pos, bs, 0, len);
+        pos += len;
+        return bs;
+    }
+
+    @Override
+    public String readString() throws ProtoException {
+        int len = readRawVarint32();
+        if (len < 0) {
+            return null;
+        }
+        checkRemain(len);
+        char[] cs;
+        if (len < 4096 && tmp == null) {
+            cs = LOCAL_TMP_CHAR_ARRAY.get();
+        } else {
+            cs = new char[len];
+        }
+        int index = 0;
+        long tmpPos = pos;
+        for (int i=0;i<len;i++) {
+            int b = readByte(tmpPos++);
+            if ((b & 0x80) == 0) {
+                cs[index++] = (char)b;
+            } else {
+                byte b2 = readByte(tmpPos++);
+                i++;
+                if ((b & 0xE0) == 0xC0) {
+                    cs[index++] = (char)(((b & 0x1F) << 6) + (b2 & 0x3F));
+                } else {
+                    byte b3 = readByte(tmpPos++);
+                    i++;
+                    if ((b & 0xF0) == 0xE0) {
+                        cs[index++] = (char)(((b & 0x0F) << 12)
+                                + ((b2 & 0x3F) << 6) + (b3 & 0x3F));
+                    } else {
+                        byte b4 = readByte(tmpPos++);
+                        i++;
+                        if ((b & 0xF8) == 0xF0) {
+                            b = ((b & 0x07) << 18) + ((b2 & 0x3F) << 12)
+                                    + ((b3 & 0x3F) << 6) + (b4 & 0x3F);
+                        } else {
+                            throw new RuntimeException();
+                        }
+                        if (b >= 0x10000) {
+                            if (b >= 0x110000) {
+                                throw new RuntimeException();
+                            }
+                            int sup = b - 0x10000;
+                            cs[index++] = (char)((sup >>> 10) + 0xd800);
+                            cs[index++] = (char)((sup & 0x3ff) + 0xdc00);
+                        }
+                    }
+                }
+            }
+        }
+        String s = new String(cs, 0, index);
+        pos += len;
+        return s;
+    }
+
+    @Override
+    public String readString(int charLen) throws ProtoException {
+        if (charLen < 0) {
+            return null;
+        } else if (charLen == 0) {
+            return "";
+        }
+        char[] cs;
+        if (charLen <= 4096) {
+            cs = LOCAL_TMP_CHAR_ARRAY.get();
+        } else {
+            cs = new char[charLen];
+        }
+        int index = 0;
+        long tmpPos = pos;
+        while (index<charLen) {
+            int b = readByte(tmpPos++);
+            if ((b & 0x80) == 0) {
+                cs[index++] = (char)b;
+            } else {
+                byte b2 = readByte(tmpPos++);
+                if ((b & 0xE0) == 0xC0) {
+                    cs[index++] = (char)(((b & 0x1F) << 6) + (b2 & 0x3F));
+                } else {
+                    byte b3 = readByte(tmpPos++);
+                    if ((b & 0xF0) == 0xE0) {
+                        cs[index++] = (char)(((b & 0x0F) << 12)
+                                + ((b2 & 0x3F) << 6) + (b3 & 0x3F));
+                    } else {
+                        byte b4 = readByte(tmpPos++);
+                        if ((b & 0xF8) == 0xF0) {
+                            b = ((b & 0x07) << 18) + ((b2 & 0x3F) << 12)
+                                    + ((b3 & 0x3F) << 6) + (b4 & 0x3F);
+                        } else {
+                            throw new RuntimeException();
+                        }
+                        if (b >= 0x10000) {
+                            if (b >= 0x110000) {
+                                throw new RuntimeException();
+                            }
+                            int sup = b - 0x10000;
+                            cs[index++] = (char)((sup >>> 10) + 0xd800);
+                            cs[index++] = (char)((sup & 0x3ff) + 0xdc00);
+                        }
+                    }
+                }
+            }
+        }
+        String s = new String(cs, 0, charLen);
+        pos = tmpPos;
+        return s;
+    }
+
+    @Override
+    public Object readObject() throws ProtoException {
+        return AnyCodec.decode(this);
+    }
+
+    @Override
+    boolean skipRawVarint() throws ProtoException {
+        long len = limit - pos;
+        for (long i = 0; i < len; i++) {
+            if (readByte(pos++) >= 0) {
+                return true;
+            }
+        }
+        throw ProtoException.malformedVarint();
+    }
+
+    @Override
+    boolean skipString() throws ProtoException {
+        return true;
+    }
+
+    @Override
+    boolean skipRawBytes(int len) throws ProtoException {
+        if (len >= 0 && limit - pos >= len) {
+            pos += len;
+            return true;
+        }
+        throw ProtoException.truncatedMessage();
+    }
+
+    @Override
+    boolean skipMessage(int tag) throws ProtoException {
+        int len = readRawVarint32();
+        return skipRawBytes(len);
+    }
+
+
+    @Override
+    int readRawVarint32() throws ProtoException {
+        fastpath: {
+            long tmpPos = pos;
+            if (tmpPos == limit) {
+                break fastpath;
+            }
+            int x;
+            if ((x = readByte(tmpPos++)) >= 0) {
+                pos = tmpPos;
+                return x;
+            } else if (limit - tmpPos < 9) {
+                break fastpath;
+            } else if ((x ^= (readByte(tmpPos++) << 7)) < 0) {
+                x ^= (~0 << 7);
+            } else if ((x ^= (readByte(tmpPos++) << 14)) >= 0) {
+                x ^= (~0 << 7) ^ (~0 << 14);
+            } else if ((x ^= (readByte(tmpPos++) << 21)) < 0) {
+                x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21);
+            } else {
+                int y = readByte(tmpPos++);
+                x ^= y << 28;
+                x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21) ^ (~0 << 28);
+                if (y < 0
+                        && readByte(tmpPos++) < 0
+                        && readByte(tmpPos++) < 0
+                        && readByte(tmpPos++) < 0
+                        && readByte(tmpPos++) < 0
+                        && readByte(tmpPos++) < 0) {
+                    break fastpath;
+                }
+            }
+            pos = tmpPos;
+            return x;
+        }
+        return (int) readRawVarint64SlowPath();
+    }
+
+    @Override
+    long readRawVarint64() throws ProtoException {
+        fastpath: {
+            long tmpPos = pos;
+            if (tmpPos == limit) {
+                break fastpath;
+            }
+            long x;
+            int y;
+            if ((y = readByte(tmpPos++)) >= 0) {
+                pos = tmpPos;
+                return y;
+            } else if (limit - tmpPos < 9) {
+                break fastpath;
+            } else if ((y ^= (readByte(tmpPos++) << 7)) < 0) {
+                x = y ^ (~0 << 7);
+            } else if ((y ^= readByte(tmpPos++) << 14) >= 0) {
+                x = y ^ ((~0 << 7) ^ (~0 << 14));
+            } else if ((y ^= readByte(tmpPos++) << 21) < 0) {
+                x = y ^ ((~0 << 7) ^ (~0 << 14) ^ (~0 << 21));
+            } else if ((x = y ^ ((long)readByte(tmpPos++) << 28)) >= 0L) {
+                x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28);
+            } else if ((x ^= ((long)readByte(tmpPos++) << 35)) < 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35);
+            } else if ((x ^= ((long)readByte(tmpPos++) << 42)) >= 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42);
+            } else if ((x ^= ((long)readByte(tmpPos++) << 49)) < 0L) {
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42)
+                        ^ (~0L << 49);
+            } else {
+                x ^= ((long)readByte(tmpPos++) << 56);
+                x ^= (~0L << 7)
+                        ^ (~0L << 14)
+                        ^ (~0L << 21)
+                        ^ (~0L << 28)
+                        ^ (~0L << 35)
+                        ^ (~0L << 42)
+                        ^ (~0L << 49)
+                        ^ (~0L << 56);
+                if (x < 0L) {
+                    if (readByte(tmpPos++) < 0L) {
+                        break fastpath;
+                    }
+                }
+            }
+            pos = tmpPos;
+            return x;
+        }
+        return readRawVarint64SlowPath();
+    }
+
+    private long readRawVarint64SlowPath() throws ProtoException {
+        long result = 0;
+        for (int shift = 0; shift < 64 && pos < limit; shift += 7) {
+            final byte b = readByte(pos++);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw ProtoException.malformedVarint();
+    }
+
+    @Override
+    long readRawLittleEndian64() throws ProtoException {
+        if (limit - pos < FIXED_64_SIZE) {
+            throw ProtoException.truncatedMessage();
+        }
+        long p = pos;
+        pos += 8;
+        return (  ((readByte(p++) & 0xffL))
+                | ((readByte(p++) & 0xffL) << 8)
+                | ((readByte(p++) & 0xffL) << 16)
+                | ((readByte(p++) & 0xffL) << 24)
+                | ((readByte(p++) & 0xffL) << 32)
+                | ((readByte(p++) & 0xffL) << 40)
+                | ((readByte(p++) & 0xffL) << 48)
+                | ((readByte(p++) & 0xffL) << 56));
+    }
+
+    @Override
+    int readRawLittleEndian32() throws ProtoException {
+        if (limit - pos < FIXED_32_SIZE) {
+            throw ProtoException.truncatedMessage();
+        }
+        return   (((readByte(pos++) & 0xFF))
+                | ((readByte(pos++) & 0xFF) << 8)
+                | ((readByte(pos++) & 0xFF) << 16)
+                | ((readByte(pos++) & 0xFF) << 24));
+    }
+
+    @Override
+    boolean skipObject() throws ProtoException {
+        return AnyCodec.skipObject(this);
+    }
+
+
+    @Override
+    public int readTag() throws ProtoException {
+        if (pos >= limit) {
+            return 0;
+        }
+        return readInt32();
+    }
+
+    @Override
+    public <K, V> Map<K, V> readMap(MapDecoder<K, V> mapDecoder, int tag) throws ProtoException {
+        int len = readUInt32();
+        long oldLimit = limit;
+
+        if (len < 0 || pos + len > originalLimit) {
+            throw ProtoException.truncatedMessage();
+        }
+        limit = pos + len;
+        Map t = mapDecoder.decode(this);
+        limit = oldLimit;
+        return t;
+    }
+
+    @Override
+    public <T> T readMessage(ProtoBufDecoder<T> codec) throws ProtoException {
+        int len = readUInt32();
+        long oldLimit = limit;
+
+        if (len < 0 || pos + len > originalLimit) {
+            throw ProtoException.truncatedMessage();
+        }
+        limit = pos + len;
+        T t = codec.decode(this);
+        limit = oldLimit;
+        return t;
+    }
+
+    @Override
+    public void reset() {
+        pos = start;
+        limit = originalLimit;
+    }
+
+    @Override
+    public void skip(int len) {
+        if (pos + len > limit) {
+            pos = limit;
+        } else {
+            pos += len;
+        }
+    }
+
+    @Override
+    public boolean isFastCodec() {
+        return false;
+    }
+
+    private void checkRemain(int len) throws ProtoException {
+        if (len < 0 || limit - pos < len) {
+            throw ProtoException.truncatedMessage();
+        }
+    }
+}
@@ -17,119 +17,95 @@
 
 package io.edap.protobuf.writer;
 
-import io.edap.buffer.FastBuf;
-import io.edap.io.BufOut;
+import io.edap.protobuf.EncodeException;
+import io.edap.protobuf.MapEntryEncoder;
+import io.edap.protobuf.ProtoBufEncoder;
 import io.edap.protobuf.ProtoBufEnum;
 import io.edap.protobuf.ProtoBufWriter;
+import io.edap.protobuf.ext.AnyCodec;
+import io.edap.protobuf.model.ProtoBufOption;
+import io.edap.protobuf.util.ProtoUtil;
 import io.edap.protobuf.wire.Field;
-import io.edap.util.CollectionUtils;
+import io.edap.util.ByteSlice;
 import io.edap.util.StringUtil;
-import io.edap.util.UnsafeUtil;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static io.edap.protobuf.ProtoBufWriter.encodeZigZag32;
 import static io.edap.protobuf.ProtoBufWriter.encodeZigZag64;
+import static io.edap.protobuf.util.ProtoUtil.computeRawVarint32Size;
 import static io.edap.protobuf.wire.WireFormat.*;
 import static io.edap.util.CollectionUtils.isEmpty;
-import static io.edap.util.StringUtil.*;
-
-
+import static io.edap.util.StringUtil.IS_BYTE_ARRAY;
+import static io.edap.util.StringUtil.isLatin1;
+import static io.edap.util.UnsafeUtil.UNSAFE;
+import static io.edap.util.UnsafeUtil.copyMemory;
+import static io.edap.util.UnsafeUtil.putByte;
+
+/**
+ * ProtoBufWriter的基类，实现protobuf的编码逻辑。数据通过base对象加偏移量的方式写入，base为byte数组时写入数组，
+ * base为null时偏移量为堆外内存的地址，子类只需要初始化base、start、pos、end并实现空间不足时的expand。
+ */
 public abstract class AbstractWriter implements ProtoBufWriter {
 
-    static final ThreadLocal<FastBuf> LOCAL_FAST_BUF =
-            new ThreadLocal<FastBuf>() {
-                @Override
-                protected FastBuf initialValue() {
-                    return new FastBuf(4096);
-                }
-            };
-
-    public BufOut.WriteBuf wbuf;
-    protected BufOut out;
-    protected byte[] bs;
-    protected int pos;
+    /**
+     * 写入数据的对象，写入byte数组时为该数组，写入堆外内存时为null
+     */
+    protected Object base;
+    /**
+     * 本次编码开始的偏移量，写入堆外内存时为内存地址
+     */
+    protected long start;
+    /**
+     * 当前写入的偏移量
+     */
+    protected long pos;
+    /**
+     * 可写的结束偏移量
+     */
+    protected long end;
 
-    public AbstractWriter(BufOut out) {
-        this.out = out;
-        wbuf = out.getWriteBuf();
-        bs = wbuf.bs;
-        pos = wbuf.start;
-    }
+    /**
+     * 保证至少还有minLength个字节可写，空间不足时byte数组扩容，容量固定的输出对象抛出异常
+     * @param minLength 需要的字节数
+     */
+    @Override
+    public abstract void expand(int minLength);
 
     @Override
     public void setPos(int pos) {
-        this.pos = pos;
+        this.pos = start + pos;
     }
 
     @Override
     public int size() {
-        return pos;
+        return (int)(pos - start);
     }
 
     public int getPos() {
-        return pos;
-    }
-
-    @Override
-    public BufOut getBufOut() {
-        return out;
+        return size();
     }
 
     @Override
-    public void toStream(OutputStream stream) throws IOException {
-        stream.write(bs, 0, pos);
+    public void writeByte(byte b) {
+        expand(1);
+        putByte(base, pos++, b);
     }
 
     @Override
-    public byte[] toByteArray() {
-        byte[] data = new byte[pos];
-        System.arraycopy(bs, 0, data, 0, pos);
-        return data;
-    }
-
-    public void writeFieldData(final byte[] fieldData) {
-        int len = fieldData.length;
-        byte[] _bs = bs;
-        int _p = pos;
-        if (len == 1) {
-            _bs[_p++] = fieldData[0];
-        } else if (len == 2) {
-            _bs[_p++] = fieldData[0];
-            _bs[_p++] = fieldData[1];
-        } else {
-            for (int i = 0; i < len; i++) {
-                _bs[_p++] = fieldData[i];
-            }
-        }
-        pos = _p;
-    }
-
-    public void writeFieldData2(final byte[] fieldData) {
-        int len = fieldData.length;
-        if (len == 1) {
-            bs[pos++] = fieldData[0];
-        } else if (len == 2) {
-            bs[pos++] = fieldData[0];
-            bs[pos++] = fieldData[1];
-        } else {
-            for (int i = 0; i < len; i++) {
-                bs[pos++] = fieldData[i];
-            }
+    public void writeBytes(byte[] bs) {
+        if (bs == null || bs.length == 0) {
+            return;
         }
+        expand(bs.length);
+        writeByteArray_0(bs, 0, bs.length);
     }
 
     @Override
-    public void writeByte(final byte b) {
-        expand(1);
-        this.bs[pos++] = b;
-    }
-
-    @Override
-    public void writeBool(final byte[] fieldData, final Boolean value) {
+    public void writeBool(byte[] fieldData, Boolean value) {
         if (value == null) {
             return;
         }
@@ -137,183 +113,153 @@ public abstract class AbstractWriter implements ProtoBufWriter {
     }
 
     @Override
-    public void writeBool(final byte[] fieldData, final boolean value) {
+    public void writeBool(byte[] fieldData, boolean value) {
         if (!value) {
             return;
         }
         expand(fieldData.length + 1);
         writeFieldData(fieldData);
-        bs[pos++] = (byte) (value ? 1 : 0);
+        putByte(base, pos++, (byte)1);
     }
 
     @Override
-    public void writeInt32(final byte[] fieldData, final Integer value) {
-        if (value == null) {
+    public void writePackedBools(byte[] fieldData, List<Boolean> values) {
+        if (isEmpty(values)) {
             return;
         }
-        writeInt32(fieldData, value.intValue());
+        int size = values.size();
+        expand(fieldData.length + MAX_VARINT_SIZE + size);
+        writeFieldData(fieldData);
+        writeUInt32_0(size);
+        for (int i=0;i<size;i++) {
+            putByte(base, pos++, (byte)(values.get(i) ? 1 : 0));
+        }
     }
 
     @Override
-    public void writeInt32(final byte[] fieldData, final int value) {
-        if (value == 0) {
+    public void writePackedBools(byte[] fieldData, Iterable<Boolean> values) {
+        if (values == null || !values.iterator().hasNext()) {
             return;
         }
-        if (value > 0) {
-            expand(MAX_VARLONG_SIZE);
-            writeFieldData(fieldData);
-            writeUInt32_0(value);
-        } else {
-            expand(MAX_VARLONG_SIZE + MAX_VARINT_SIZE);
-            writeByteArray_0(fieldData, 0, fieldData.length);
-            writeUInt64_0(value);
+        int size = 0;
+        for (Boolean v : values) {
+            size++;
         }
-    }
-
-    @Override
-    public void writeUInt32(final byte[] fieldData, final Integer value) {
-        if (value == null) {
-            return;
+        expand(fieldData.length + MAX_VARINT_SIZE + size);
+        writeFieldData(fieldData);
+        writeUInt32_0(size);
+        for (Boolean v : values) {
+            putByte(base, pos++, (byte)(v != null && v ? 1 : 0));
         }
-        writeUInt32(fieldData, value.intValue());
     }
 
     @Override
-    public void writeUInt32(final byte[] fieldData, final int value) {
-        if (value == 0) {
+    public void writeSInt32(byte[] fieldData, Byte b) {
+        if (b == null) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
-        writeFieldData(fieldData);
-        writeUInt32_0(value);
+        writeSInt32_0(fieldData, b);
     }
 
     @Override
-    public final void writeInt32(int value) {
-        if (0 == value) {
-            return;
-        }
-        if (value >= 0) {
-            expand(MAX_VARINT_SIZE);
-            writeUInt32_0(value);
-        } else {
-            expand(MAX_VARLONG_SIZE);
-            writeUInt64_0(value);
-        }
+    public void writeSInt32(byte[] fieldData, byte b) {
+        writeSInt32(fieldData, (int)b);
     }
 
     @Override
-    public void writeInt32(int value, boolean needEncodeZero) {
-        if (!needEncodeZero && value == 0) {
+    public void writeSInt32(byte[] fieldData, Short s) {
+        if (s == null) {
             return;
         }
-        if (value >= 0) {
-            expand(MAX_VARINT_SIZE);
-            writeUInt32_0(value);
-        } else {
-            expand(MAX_VARLONG_SIZE);
-            writeUInt64_0(value);
-        }
-    }
-
-    public final void writeInt32_0(int value) {
-        if (value > 0) {
-            writeUInt32_0(value);
-        } else {
-            writeUInt64_0(value);
-        }
+        writeSInt32_0(fieldData, s);
     }
 
     @Override
-    public final void writeUInt32(int value) {
-        expand(MAX_VARINT_SIZE);
-        writeUInt32_0(value);
+    public void writeSInt32(byte[] fieldData, short s) {
+        writeSInt32(fieldData, (int)s);
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final Byte value) {
-        if (value == null) {
+    public void writeSInt32(byte[] fieldData, Character c) {
+        if (c == null) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
-        writeFieldData(fieldData);
-        writeUInt32_0(encodeZigZag32(value));
+        writeSInt32_0(fieldData, c);
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final byte value) {
-        writeSInt32(fieldData, (int)value);
+    public void writeSInt32(byte[] fieldData, char c) {
+        writeSInt32(fieldData, (int)c);
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final Short value) {
+    public void writeSInt32(byte[] fieldData, Integer value) {
         if (value == null) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
-        writeFieldData(fieldData);
-        writeUInt32_0(encodeZigZag32(value));
-    }
-
-    @Override
-    public final void writeSInt32(final byte[] fieldData, final short value) {
-        writeSInt32(fieldData, (int)value);
+        writeSInt32(fieldData, value.intValue());
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final Character value) {
-        if (value == null) {
+    public void writeSInt32(byte[] fieldData, int value) {
+        if (value == 0) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
+        writeSInt32_0(fieldData, value);
+    }
+
+    private void writeSInt32_0(byte[] fieldData, int value) {
+        expand(fieldData.length + MAX_VARINT_SIZE);
         writeFieldData(fieldData);
         writeUInt32_0(encodeZigZag32(value));
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final char value) {
-        writeSInt32(fieldData, (int)value);
+    public void writeInt32(byte[] fieldData, Integer value) {
+        if (value == null) {
+            return;
+        }
+        writeInt32(fieldData, value.intValue());
     }
 
     @Override
-    public final void writeSInt32(final byte[] fieldData, final Integer value) {
-        if (value == null) {
+    public void writeInt32(byte[] fieldData, int value) {
+        if (value == 0) {
             return;
         }
-        writeSInt32(fieldData, value.intValue());
+        expand(fieldData.length + MAX_VARLONG_SIZE);
+        writeFieldData(fieldData);
+        writeInt32_0(value);
     }
 
     @Override
-    public void writeSInt32(final byte[] fieldData, final int value) {
-        if (0 == value) {
+    public void writeUInt32(byte[] fieldData, int value) {
+        if (value == 0) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
+        expand(fieldData.length + MAX_VARINT_SIZE);
         writeFieldData(fieldData);
-        writeUInt32_0(encodeZigZag32(value));
+        writeUInt32_0(value);
     }
 
     @Override
-    public void writeSInt32(final int value, boolean needEncoderZero) {
-        if (0 == value && !needEncoderZero) {
+    public void writeUInt32(byte[] fieldData, Integer value) {
+        if (value == null) {
             return;
         }
-        expand(MAX_VARLONG_SIZE);
-        writeUInt32_0(encodeZigZag32(value));
+        writeUInt32(fieldData, value.intValue());
     }
 
     @Override
-    public void writeFixed32(final byte[] fieldData, final Integer value) {
-        if (value == null || value.intValue() == 0) {
+    public void writeFixed32(byte[] fieldData, Integer value) {
+        if (value == null) {
             return;
         }
-        expand(fieldData.length + FIXED_32_SIZE);
-        writeFieldData(fieldData);
-        writeFixed32_0(value);
+        writeFixed32(fieldData, value.intValue());
     }
 
     @Override
-    public void writeFixed32(final byte[] fieldData, final int value) {
+    public void writeFixed32(byte[] fieldData, int value) {
         if (value == 0) {
             return;
         }
@@ -323,403 +269,587 @@ public abstract class AbstractWriter implements ProtoBufWriter {
     }
 
     @Override
-    public void writeSFixed32(final byte[] fieldData, final Integer value) {
-        if (value == null || value.intValue() == 0) {
-            return;
-        }
+    public void writeSFixed32(byte[] fieldData, Integer value) {
         writeFixed32(fieldData, value);
     }
 
     @Override
-    public void writeSFixed32(final byte[] fieldData, final int value) {
+    public void writeSFixed32(byte[] fieldData, int value) {
         writeFixed32(fieldData, value);
     }
 
     @Override
-    public void writeLong(byte[] fieldData, Long value) {
-        if (value == null || value.longValue() == 0) {
+    public void writeFloat(byte[] fieldData, Float value) {
+        if (value == null) {
             return;
         }
-        writeLong(fieldData, value.longValue());
+        writeFixed32(fieldData, Float.floatToRawIntBits(value));
     }
 
     @Override
-    public void writeLong(byte[] fieldData, long value) {
-        writeInt64(fieldData, value);
+    public void writeFloat(byte[] fieldData, float value) {
+        writeFixed32(fieldData, Float.floatToRawIntBits(value));
     }
 
     @Override
-    public final void writeInt64(final byte[] fieldData, final long value) {
-        writeUInt64(fieldData, value);
+    public void writePackedInts(byte[] fieldData, int[] values, Field.Type type) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        int size = values.length;
+        switch (type) {
+            case INT32:
+            case UINT32:
+                long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeInt32_0(values[i]);
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case SINT32:
+                oldPos = startLengthDelimited(fieldData, size * MAX_VARINT_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeUInt32_0(encodeZigZag32(values[i]));
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case FIXED32:
+            case SFIXED32:
+                expand(fieldData.length + MAX_VARINT_SIZE + (size << 2));
+                writeFieldData(fieldData);
+                writeUInt32_0(size << 2);
+                for (int i=0;i<size;i++) {
+                    writeFixed32_0(values[i]);
+                }
+            default:
+                break;
+        }
     }
 
     @Override
-    public void writeUInt64(final byte[] fieldData, final Long value) {
-        if (value == null || value.longValue() == 0) {
+    public void writePackedInts(byte[] fieldData, Integer[] values, Field.Type type) {
+        if (values == null || values.length == 0) {
             return;
         }
-        expand(MAX_VARINT_SIZE + MAX_VARLONG_SIZE);
-        writeFieldData(fieldData);
-        writeUInt64_0(value);
+        writePackedInts(fieldData, Arrays.asList(values), values.length, type);
     }
 
     @Override
-    public void writeUInt64(final byte[] fieldData, final long value) {
-        if (value == 0) {
+    public void writePackedInts(byte[] fieldData, List<Integer> values, Field.Type type) {
+        if (isEmpty(values)) {
             return;
         }
-        expand(MAX_VARINT_SIZE + MAX_VARLONG_SIZE);
-        writeFieldData(fieldData);
-        writeUInt64_0(value);
+        writePackedInts(fieldData, values, values.size(), type);
     }
 
     @Override
-    public final void writeSInt64(final byte[] fieldData, final Long value) {
-        if (value == null || value.longValue() == 0) {
+    public void writePackedInts(byte[] fieldData, Iterable<Integer> values, Field.Type type) {
+        if (values == null || !values.iterator().hasNext()) {
             return;
         }
-        writeUInt64(fieldData, encodeZigZag64(value.longValue()));
+        int size = 0;
+        for (Integer v : values) {
+            size++;
+        }
+        writePackedInts(fieldData, values, size, type);
     }
 
-    @Override
-    public final void writeSInt64(final byte[] fieldData, final long value) {
-        writeUInt64(fieldData, encodeZigZag64(value));
+    private void writePackedInts(byte[] fieldData, Iterable<Integer> values, int size, Field.Type type) {
+        switch (type) {
+            case INT32:
+            case UINT32:
+                long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (Integer v : values) {
+                    writeInt32_0(v);
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case SINT32:
+                oldPos = startLengthDelimited(fieldData, size * MAX_VARINT_SIZE);
+                for (Integer v : values) {
+                    writeUInt32_0(encodeZigZag32(v));
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case FIXED32:
+            case SFIXED32:
+                expand(fieldData.length + MAX_VARINT_SIZE + (size << 2));
+                writeFieldData(fieldData);
+                writeUInt32_0(size << 2);
+                for (Integer v : values) {
+                    writeFixed32_0(v);
+                }
+            default:
+                break;
+        }
     }
 
     @Override
-    public void writePackedBools(byte[] fieldData, List<Boolean> values) {
-        if (isEmpty(values)) {
+    public void writePackedFloats(byte[] fieldData, float[] values) {
+        if (values == null || values.length == 0) {
             return;
         }
-        expand(MAX_VARINT_SIZE * 2 + values.size());
-        int size = values.size();
-        writeFieldData(fieldData);
-        writeInt32_0(size);
-        for (int i=0;i<size;i++) {
-            if (values.get(i)) {
-                writeByte((byte) 1);
-            } else {
-                writeByte((byte)0);
-            }
+        startFixedArray(fieldData, values.length << 2);
+        for (float value : values) {
+            writeFixed32_0(Float.floatToRawIntBits(value));
         }
     }
 
     @Override
-    public void writePackedBools(byte[] fieldData, Iterable<Boolean> values) {
-        if (values == null || !values.iterator().hasNext()) {
+    public void writePackedFloats(byte[] fieldData, Float[] values) {
+        if (values == null || values.length == 0) {
             return;
         }
-        List<Integer> vs = new ArrayList<>();
-        for (Boolean v : values) {
-            vs.add(v!=null&&v.booleanValue()?1:0);
+        startFixedArray(fieldData, values.length << 2);
+        for (Float value : values) {
+            writeFixed32_0(Float.floatToRawIntBits(value));
         }
-        writePackedInts(fieldData, vs, Field.Type.UINT32);
     }
 
     @Override
-    public void writeFixed64(final byte[] fieldData, final Long value) {
-        if (value == null) {
+    public void writePackedFloats(byte[] fieldData, List<Float> values) {
+        if (isEmpty(values)) {
             return;
         }
-        writeFixed64(fieldData, value.longValue());
+        startFixedArray(fieldData, values.size() << 2);
+        for (Float value : values) {
+            writeFixed32_0(Float.floatToRawIntBits(value));
+        }
     }
 
     @Override
-    public void writeFixed64(final byte[] fieldData, final long value) {
-        if (value == 0) {
+    public void writePackedFloats(byte[] fieldData, Iterable<Float> values) {
+        if (values == null || !values.iterator().hasNext()) {
             return;
         }
-        expand(MAX_VARINT_SIZE + FIXED_64_SIZE);
-        writeFieldData(fieldData);
-        writeFixed64_0(value);
+        int size = 0;
+        for (Float f : values) {
+            size++;
+        }
+        startFixedArray(fieldData, size << 2);
+        for (Float value : values) {
+            writeFixed32_0(Float.floatToRawIntBits(value));
+        }
     }
 
     @Override
-    public final void writeSFixed64(final byte[] fieldData, final Long value) {
-        if (value == null) {
+    public void writePackedBooleans(byte[] fieldData, boolean[] values) {
+        if (values == null || values.length == 0) {
             return;
         }
-        writeFixed64(fieldData, value);
+        startFixedArray(fieldData, values.length);
+        for (boolean value : values) {
+            putByte(base, pos++, (byte)(value ? 1 : 0));
+        }
     }
 
     @Override
-    public final void writeSFixed64(final byte[] fieldData, final long value) {
-        writeFixed64(fieldData, value);
+    public void writePackedBooleans(byte[] fieldData, Boolean[] values) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        startFixedArray(fieldData, values.length);
+        for (Boolean value : values) {
+            putByte(base, pos++, (byte)(value ? 1 : 0));
+        }
     }
 
     @Override
-    public final void writeFloat(final byte[] fieldData, final Float value) {
-        if (value == null) {
+    public void writePackedBooleans(byte[] fieldData, List<Boolean> values) {
+        if (isEmpty(values)) {
             return;
         }
-        writeFixed32(fieldData, Float.floatToRawIntBits(value));
+        startFixedArray(fieldData, values.size());
+        for (Boolean value : values) {
+            putByte(base, pos++, (byte)(value ? 1 : 0));
+        }
     }
 
     @Override
-    public final void writeFloat(final byte[] fieldData, final float value) {
-        writeFixed32(fieldData, Float.floatToRawIntBits(value));
+    public void writePackedBooleans(byte[] fieldData, Iterable<Boolean> values) {
+        if (values == null || !values.iterator().hasNext()) {
+            return;
+        }
+        int size = 0;
+        for (Boolean b : values) {
+            size++;
+        }
+        startFixedArray(fieldData, size);
+        for (Boolean value : values) {
+            putByte(base, pos++, (byte)(value ? 1 : 0));
+        }
     }
 
     @Override
-    public final void writeDouble(final byte[] fieldData, final Double value) {
+    public void writeLong(byte[] fieldData, Long value) {
         if (value == null) {
             return;
         }
-        writeFixed64(fieldData, Double.doubleToRawLongBits(value));
+        writeUInt64(fieldData, value.longValue());
     }
 
     @Override
-    public final void writeDouble(final byte[] fieldData, final double value) {
-        writeFixed64(fieldData, Double.doubleToRawLongBits(value));
+    public void writeLong(byte[] fieldData, long value) {
+        writeUInt64(fieldData, value);
     }
 
     @Override
-    public final void writeEnum(final byte[] fieldData, Integer value) {
+    public void writeInt64(byte[] fieldData, long value) {
+        writeUInt64(fieldData, value);
+    }
+
+    @Override
+    public void writeUInt64(byte[] fieldData, Long value) {
         if (value == null) {
             return;
         }
-        writeUInt32(fieldData, value.intValue());
+        writeUInt64(fieldData, value.longValue());
     }
 
     @Override
-    public <E extends Enum<E>> void writeListEnum(byte[] fieldData, List<E> vs) {
-        if (isEmpty(vs)) {
+    public void writeUInt64(byte[] fieldData, long value) {
+        if (value == 0) {
             return;
         }
-        int size = vs.size();
-        int[] values = new int[size];
-        for (int i=0;i<size;i++) {
-            values[i] = vs.get(i).ordinal();
-        }
-        writePackedInts(fieldData, values, Field.Type.UINT32);
+        expand(fieldData.length + MAX_VARLONG_SIZE);
+        writeFieldData(fieldData);
+        writeUInt64_0(value);
     }
 
     @Override
-    public <E extends Enum<E>> void writeListEnum(byte[] fieldData, Iterable<E> vs) {
-        if (vs == null || !vs.iterator().hasNext()) {
+    public void writeSInt64(byte[] fieldData, Long value) {
+        if (value == null) {
             return;
         }
-        List<Integer> values = new ArrayList<>();
-        int i = 0;
-        for (E e : vs) {
-            values.add(e.ordinal());
-        }
-        writePackedInts(fieldData, values, Field.Type.UINT32);
+        writeUInt64(fieldData, encodeZigZag64(value.longValue()));
     }
 
     @Override
-    public <E extends ProtoBufEnum> void writeListProtoEnum(byte[] fieldData, List<E> vs) {
-        if (CollectionUtils.isEmpty(vs)) {
-            return;
-        }
-        int size = vs.size();
-        int[] values = new int[size];
-        for (int i=0;i<size;i++) {
-            values[i] = vs.get(i).getValue();
-        }
-        writePackedInts(fieldData, values, Field.Type.UINT32);
+    public void writeSInt64(byte[] fieldData, long value) {
+        writeUInt64(fieldData, encodeZigZag64(value));
     }
 
     @Override
-    public <E extends ProtoBufEnum> void writeListProtoEnum(byte[] fieldData, Iterable<E> vs) {
-        if (vs == null || !vs.iterator().hasNext()) {
+    public void writeFixed64(byte[] fieldData, Long value) {
+        if (value == null) {
             return;
         }
-        List<Integer> values = new ArrayList<>();
-        for (E e : vs) {
-            values.add(e.getValue());
-        }
-        writePackedInts(fieldData, values, Field.Type.UINT32);
+        writeFixed64(fieldData, value.longValue());
     }
 
     @Override
-    public void writeString(final byte[] fieldData, final String value) {
-        if (value == null || value.length() == 0) {
+    public void writeFixed64(byte[] fieldData, long value) {
+        if (value == 0) {
             return;
         }
-        expand(fieldData.length);
+        expand(fieldData.length + FIXED_64_SIZE);
         writeFieldData(fieldData);
-        writeString(value);
+        writeFixed64_0(value);
     }
 
     @Override
-    public void writeStringUtf8(final String value, int len) {
-        String v = value;
-        int charLen = v.length();
-        // 如果jvm是9以上版本，并且字符串为Latin1的编码，长度大于5时直接copy字符串对象额value字节数组
-        if (IS_BYTE_ARRAY && isLatin1(v) && charLen > 5) {
-            expand(charLen);
-            writeByteArray_0(StringUtil.getValue(v), 0, charLen);
-            return;
-        }
-        // 转为utf8后最大的所需字节数
-        int maxBytes = charLen * 3;
-        // 如果所需最大字节数小于3k + 编码int最大字节数 则直接扩容所需最大字节数
-        if (maxBytes <= 3072) {
-            expand(maxBytes + 1);
-            int _pos = pos;
-            pos += writeChars(v, 0, charLen, _pos);
-            return;
-        }
-
-        // 每次取最大为1024个字符进行写入
-        int start = 0;
-        int end = Math.min((start + 1024), charLen);
+    public void writeSFixed64(byte[] fieldData, Long value) {
+        writeFixed64(fieldData, value);
+    }
 
-        int oldPos = pos;
-        int _pos   = oldPos + 1;
-        expand(maxBytes);
-        while (start < charLen) {
-            expand(3072);
-            _pos += writeChars(v, start, end, _pos);
-            pos = _pos;
-            start += 1024;
-            end = Math.min((start + 1024), charLen);
-        }
+    @Override
+    public void writeSFixed64(byte[] fieldData, long value) {
+        writeFixed64(fieldData, value);
     }
 
     @Override
-    public void writeString(final String value) {
+    public void writeDouble(byte[] fieldData, Double value) {
         if (value == null) {
-            writeInt32(-1);
-            return;
-        }
-        //char[] cs = (char[])UnsafeMemory.getValue(value, StringUtil.STRING_VALUE_OFFSET);
-        int charLen = value.length();
-        if (charLen == 0) {
-            writeInt32(0, true);
             return;
         }
-        writeString0(value);
+        writeFixed64(fieldData, Double.doubleToRawLongBits(value));
     }
 
-    /**
-     * 将不为空的字符串写入到缓存中
-     * @param value
-     */
-    private final void writeString0(final String value) {
-        String v = value;
-        int charLen = v.length();
-        // 如果jvm是9以上版本，并且字符串为Latin1的编码，长度大于5时直接copy字符串对象额value字节数组
-        if (IS_BYTE_ARRAY && isLatin1(v)) {
-            byte[] data = StringUtil.getValue(v);
-            writeByteArray(data, 0, charLen);
-            return;
-        }
-        // 转为utf8后最大的所需字节数
-        int maxBytes = charLen * 3;
-        // 如果所需最大字节数小于3k + 编码int最大字节数 则直接扩容所需最大字节数
-        if (maxBytes <= 3072) {
-            expand(maxBytes + 1);
-            int _pos = pos;
-            pos++;
-            int len;
-            if (charLen <= 16) {
-                len = writeChars(getCharValue(v), 0, charLen, pos);
-            } else {
-                len = writeChars(getCharValue(v), 0, charLen, pos);
-            }
-            pos += len;
-            pos += writeLenMoveBytes(bs, _pos, len);
+    @Override
+    public void writeDouble(byte[] fieldData, double value) {
+        writeFixed64(fieldData, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void writePackedLongs(byte[] fieldData, Long[] values, Field.Type type) {
+        if (values == null || values.length == 0) {
             return;
         }
+        int size = values.length;
+        switch (type) {
+            case INT64:
+            case UINT64:
+                long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeUInt64_0(values[i]);
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case SINT64:
+                oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeUInt64_0(encodeZigZag64(values[i]));
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case FIXED64:
+            case SFIXED64:
+                startFixedArray(fieldData, size << 3);
+                for (int i=0;i<size;i++) {
+                    writeFixed64_0(values[i]);
+                }
+            default:
+        }
+    }
 
-        // 每次取最大为1024个字符进行写入
-        int start = 0;
-        int end = Math.min((start + 1024), charLen);
+    @Override
+    public void writePackedLongs(byte[] fieldData, long[] values, Field.Type type) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        int size = values.length;
+        switch (type) {
+            case INT64:
+            case UINT64:
+                long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeUInt64_0(values[i]);
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case SINT64:
+                oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (int i=0;i<size;i++) {
+                    writeUInt64_0(encodeZigZag64(values[i]));
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case FIXED64:
+            case SFIXED64:
+                startFixedArray(fieldData, size << 3);
+                for (int i=0;i<size;i++) {
+                    writeFixed64_0(values[i]);
+                }
+            default:
+        }
+    }
 
-        int oldPos = pos;
-        pos++;
-        int _pos   = oldPos + 1;
-        expand(maxBytes + 1);
-		char[] chars = getCharValue(v);
-        while (start < charLen) {
-            expand(3072);
-            _pos += writeChars(chars, start, end, _pos);
-            pos = _pos;
-            start += 1024;
-            end = Math.min((start + 1024), charLen);
+    @Override
+    public void writePackedLongs(byte[] fieldData, List<Long> values, Field.Type type) {
+        if (isEmpty(values)) {
+            return;
         }
-        int len = _pos - oldPos - 1;
-        pos += writeLenMoveBytes(bs, oldPos, len);
+        writePackedLongs(fieldData, values, values.size(), type);
     }
 
-    protected final int writeChars(final String value, int start, int end, int pos) {
-        String v = value;
-//        int p = pos;
-//        byte[] _bs = this.bs;
-        FastBuf buf = LOCAL_FAST_BUF.get();
-        buf.clear();
-        if (buf.remain() < v.length() * 3) {
-            FastBuf bufNew = new FastBuf(v.length() * 3);
-            buf = bufNew;
-            LOCAL_FAST_BUF.set(buf);
+    @Override
+    public void writePackedLongs(byte[] fieldData, Iterable<Long> values, Field.Type type) {
+        if (values == null || !values.iterator().hasNext()) {
+            return;
+        }
+        int size = 0;
+        for (Long l : values) {
+            size++;
         }
+        writePackedLongs(fieldData, values, size, type);
+    }
 
-        for (int i=start;i<end;i++) {
-            char c = v.charAt(i);
-            if ((c & ~0x7F) == 0) {
-                //_bs[p++] = (byte) c;
-                buf.writeNotCheck((byte) c);
-            } else if (c < 0x800) {
-//                _bs[p++] = (byte) ((0xF << 6) | (c >> 6));
-//                _bs[p++] = (byte) ( 0x80 | (0x3F & c));
-                buf.writeNotCheck((byte) ((0xF << 6) | (c >>> 6)));
-                buf.writeNotCheck((byte) ( 0x80 | (0x3F & c)));
-            } else if (Character.isHighSurrogate(c)) {
-                int codePoint = Character.toCodePoint((char) c, (char) value.charAt(i+1));
-//                _bs[p++] = (byte) (0xF0 | ((codePoint >> 18) & 0x07));
-//                _bs[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
-//                _bs[p++] = (byte) (0x80 | ((codePoint >>  6) & 0x3F));
-//                _bs[p++] = (byte) (0x80 | ( codePoint        & 0x3F));
-                buf.writeNotCheck((byte) (0xF0 | ((codePoint >> 18) & 0x07)));
-                buf.writeNotCheck((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
-                buf.writeNotCheck((byte) (0x80 | ((codePoint >>  6) & 0x3F)));
-                buf.writeNotCheck((byte) (0x80 | ( codePoint        & 0x3F)));
-                i++;
-            } else {
-//                _bs[p++] = (byte) ((0xF << 5) | (c >>> 12));
-//                _bs[p++] = (byte) (0x80 | (0x3F & (c >>> 6)));
-//                _bs[p++] = (byte) (0x80 | (0x3F & c));
-                buf.writeNotCheck((byte) ((0xF << 5) | (c >>> 12)));
-                buf.writeNotCheck((byte) (0x80 | (0x3F & (c >>> 6))));
-                buf.writeNotCheck((byte) (0x80 | (0x3F & c)));
-            }
+    private void writePackedLongs(byte[] fieldData, Iterable<Long> values, int size, Field.Type type) {
+        switch (type) {
+            case INT64:
+            case UINT64:
+                long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (long l : values) {
+                    writeUInt64_0(l);
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case SINT64:
+                oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+                for (long l : values) {
+                    writeUInt64_0(encodeZigZag64(l));
+                }
+                endLengthDelimited(oldPos);
+                return;
+            case FIXED64:
+            case SFIXED64:
+                startFixedArray(fieldData, size << 3);
+                for (long l : values) {
+                    writeFixed64_0(l);
+                }
+            default:
         }
-        int len = (int)(buf.wpos() - buf.address());
-        buf.writeTo(bs, pos, len);
-        return len;
     }
 
-    protected final int writeChars( final char[] value, int start, int end, int pos){
-        int p = pos;
-        byte[] _bs = this.bs;
-        int i = start;
-        for (;i < end; i++) {
-            char c = value[i];
-            if (c < 128) {
-                UnsafeUtil.writeByte(_bs, p++, (byte) c);
-            } else if (c < 0x800) {
-                UnsafeUtil.writeByte(_bs, p++, (byte) ((0xF << 6) | (c >>> 6)));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | (0x3F & c)));
-            } else if (c >= '\ud800' && c <= '\udfff') {
-                int codePoint = Character.toCodePoint((char) c, (char) value[i + 1]);
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0xF0 | ((codePoint >> 18) & 0x07)));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | (codePoint & 0x3F)));
-                i++;
-            } else {
-                UnsafeUtil.writeByte(_bs, p++, (byte) ((0xF << 5) | (c >>> 12)));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | (0x3F & (c >>> 6))));
-                UnsafeUtil.writeByte(_bs, p++, (byte) (0x80 | (0x3F & c)));
-            }
+    @Override
+    public void writePackedDoubles(byte[] fieldData, double[] values) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        startFixedArray(fieldData, values.length << 3);
+        for (double value : values) {
+            writeFixed64_0(Double.doubleToLongBits(value));
+        }
+    }
+
+    @Override
+    public void writePackedDoubles(byte[] fieldData, Double[] values) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        startFixedArray(fieldData, values.length << 3);
+        for (Double value : values) {
+            writeFixed64_0(Double.doubleToLongBits(value == null ? 0 : value));
+        }
+    }
+
+    @Override
+    public void writePackedDoubles(byte[] fieldData, List<Double> values) {
+        if (isEmpty(values)) {
+            return;
+        }
+        startFixedArray(fieldData, values.size() << 3);
+        for (Double value : values) {
+            writeFixed64_0(Double.doubleToLongBits(value));
+        }
+    }
+
+    @Override
+    public void writePackedDoubles(byte[] fieldData, Iterable<Double> values) {
+        if (values == null || !values.iterator().hasNext()) {
+            return;
+        }
+        int size = 0;
+        for (Double value : values) {
+            size++;
+        }
+        startFixedArray(fieldData, size << 3);
+        for (Double value : values) {
+            writeFixed64_0(Double.doubleToLongBits(value));
+        }
+    }
+
+    @Override
+    public void writeEnum(byte[] fieldData, Integer value) {
+        if (value == null) {
+            return;
+        }
+        writeUInt32(fieldData, value.intValue());
+    }
+
+    @Override
+    public <E extends Enum<E>> void writeArrayEnum(byte[] fieldData, E[] vs) {
+        if (vs == null || vs.length == 0) {
+            return;
+        }
+        long oldPos = startLengthDelimited(fieldData, vs.length * MAX_VARINT_SIZE);
+        for (E e : vs) {
+            writeUInt32_0(e.ordinal());
+        }
+        endLengthDelimited(oldPos);
+    }
+
+    @Override
+    public <E extends Enum<E>> void writeListEnum(byte[] fieldData, List<E> vs) {
+        if (isEmpty(vs)) {
+            return;
+        }
+        writeListEnum(fieldData, vs, vs.size());
+    }
+
+    @Override
+    public <E extends Enum<E>> void writeListEnum(byte[] fieldData, Iterable<E> vs) {
+        if (vs == null || !vs.iterator().hasNext()) {
+            return;
+        }
+        int size = 0;
+        for (E e : vs) {
+            size++;
+        }
+        writeListEnum(fieldData, vs, size);
+    }
+
+    private <E extends Enum<E>> void writeListEnum(byte[] fieldData, Iterable<E> vs, int size) {
+        long oldPos = startLengthDelimited(fieldData, size * MAX_VARINT_SIZE);
+        for (E e : vs) {
+            writeUInt32_0(e.ordinal());
+        }
+        endLengthDelimited(oldPos);
+    }
+
+    @Override
+    public <E extends ProtoBufEnum> void writeListProtoEnum(byte[] fieldData, List<E> vs) {
+        if (isEmpty(vs)) {
+            return;
+        }
+        writeListProtoEnum(fieldData, vs, vs.size());
+    }
+
+    @Override
+    public <E extends ProtoBufEnum> void writeListProtoEnum(byte[] fieldData, Iterable<E> vs) {
+        if (vs == null || !vs.iterator().hasNext()) {
+            return;
+        }
+        int size = 0;
+        for (E e : vs) {
+            size++;
+        }
+        writeListProtoEnum(fieldData, vs, size);
+    }
+
+    private <E extends ProtoBufEnum> void writeListProtoEnum(byte[] fieldData, Iterable<E> vs, int size) {
+        long oldPos = startLengthDelimited(fieldData, size * MAX_VARLONG_SIZE);
+        for (E e : vs) {
+            writeInt32_0(e.getValue());
         }
-        return p - pos;
+        endLengthDelimited(oldPos);
     }
 
     @Override
-    public void writeBytes(final byte[] fieldData, final byte[] value) {
+    public void writeString(byte[] fieldData, String value) {
+        if (value == null || value.length() == 0) {
+            return;
+        }
+        expand(fieldData.length);
+        writeFieldData(fieldData);
+        writeString(value);
+    }
+
+    @Override
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt32(-1);
+            return;
+        }
+        int charLen = value.length();
+        if (charLen == 0) {
+            writeInt32(0, true);
+            return;
+        }
+        if (IS_BYTE_ARRAY && isLatin1(value)) {
+            writeByteArray(StringUtil.getValue(value), 0, charLen);
+            return;
+        }
+        expand(MAX_VARINT_SIZE + charLen * 3);
+        long oldPos = pos++;
+        writeChars(value, 0, charLen);
+        endLengthDelimited(oldPos);
+    }
+
+    @Override
+    public void writeStringUtf8(String value, int len) {
+        int charLen = value.length();
+        if (IS_BYTE_ARRAY && isLatin1(value) && charLen > 5) {
+            expand(charLen);
+            writeByteArray_0(StringUtil.getValue(value), 0, charLen);
+            return;
+        }
+        expand(charLen * 3);
+        writeChars(value, 0, charLen);
+    }
+
+    @Override
+    public void writeBytes(byte[] fieldData, byte[] value) {
         if (value == null) {
             return;
         }
@@ -727,110 +857,283 @@ public abstract class AbstractWriter implements ProtoBufWriter {
     }
 
     @Override
-    public void writeBytes(final byte[] fieldData, final Byte[] value) {
+    public void writeBytes(byte[] fieldData, ByteSlice value) {
+        if (value == null) {
+            return;
+        }
+        writeByteArray(fieldData, value.getBytes(), value.getOffset(), value.getLength());
+    }
+
+    @Override
+    public void writeBytes(byte[] fieldData, Byte[] value) {
         if (value == null) {
             return;
         }
         int length = value.length;
-        expand(length + MAX_VARINT_SIZE * 2);
+        expand(fieldData.length + MAX_VARINT_SIZE + length);
         writeFieldData(fieldData);
         writeUInt32_0(length);
-
-        int p = pos;
-        byte[] _bs = this.bs;
+        Object b = base;
+        long p = pos;
         for (int i=0;i<length;i++) {
-            _bs[p++] = value[i].byteValue();
+            putByte(b, p++, value[i]);
         }
         pos = p;
     }
 
     @Override
-    public void writeBytes(byte[] value) {
-        if (value == null || value.length == 0) {
+    public void writeByteArray(byte[] fieldData, byte[] value, int offset, int length) {
+        expand(fieldData.length + MAX_VARINT_SIZE + length);
+        writeFieldData(fieldData);
+        writeUInt32_0(length);
+        writeByteArray_0(value, offset, length);
+    }
+
+    @Override
+    public void writeByteArray(byte[] value, int offset, int length) {
+        expand(MAX_VARINT_SIZE + length);
+        writeUInt32_0(length);
+        writeByteArray_0(value, offset, length);
+    }
+
+    @Override
+    public void writeInt32(int value) {
+        if (value == 0) {
+            return;
+        }
+        expand(MAX_VARLONG_SIZE);
+        writeInt32_0(value);
+    }
+
+    @Override
+    public void writeInt32(int value, boolean needEncodeZero) {
+        if (!needEncodeZero && value == 0) {
+            return;
+        }
+        expand(MAX_VARLONG_SIZE);
+        if (value >= 0) {
+            writeUInt32_0(value);
+        } else {
+            writeUInt64_0(value);
+        }
+    }
+
+    @Override
+    public void writeSInt32(int value, boolean needEncoeZero) {
+        if (!needEncoeZero && value == 0) {
             return;
         }
-        int len = value.length;
-        expand(len);
-        System.arraycopy(value, 0, bs, pos, len);
-        pos += len;
+        expand(MAX_VARINT_SIZE);
+        writeUInt32_0(encodeZigZag32(value));
+    }
+
+    @Override
+    public void writeUInt32(int value) {
+        expand(MAX_VARINT_SIZE);
+        writeUInt32_0(value);
+    }
+
+    @Override
+    public void writeFixed32(int value) {
+        expand(FIXED_32_SIZE);
+        writeFixed32_0(value);
+    }
+
+    @Override
+    public void writeFixed64(long value) {
+        expand(FIXED_64_SIZE);
+        writeFixed64_0(value);
+    }
+
+    @Override
+    public void writeUInt64(long value) {
+        expand(MAX_VARLONG_SIZE);
+        writeUInt64_0(value);
     }
 
     @Override
-    public void writeByteArray(final byte[] fieldData, final byte[] value,
-                                     int offset, int length) {
-        expand(length + MAX_VARINT_SIZE * 2);
+    public void writeObject(byte[] fieldData, Object v, ProtoBufOption option) throws EncodeException {
+        expand(fieldData.length);
         writeFieldData(fieldData);
-        writeUInt32_0(length);
-        writeByteArray_0(value, offset, length);
+        AnyCodec.encode(this, v);
     }
 
     @Override
-    public void writeByteArray(final byte[] value, int offset, int length) {
-        expand(length + 5);
-        writeUInt32_0(length);
-        System.arraycopy(value, offset, bs, pos, length);
-        pos += length;
+    public void writeObject(Object v) throws EncodeException {
+        if (v == null) {
+            return;
+        }
+        AnyCodec.encode(this, v);
+    }
+
+    @Override
+    public void writeObjects(Iterator<Object> objects) throws EncodeException {
+        if (objects == null) {
+            return;
+        }
+        expand(1);
+        long oldPos = pos++;
+        int count = 0;
+        while (objects.hasNext()) {
+            count++;
+            AnyCodec.encode(this, objects.next());
+        }
+        // 长度位置写入的是对象的个数
+        pos += writeLenMoveBytes(oldPos, count, (int)(pos - oldPos - 1));
+    }
+
+    @Override
+    public <K, V> void writeMap(byte[] fieldData, int tag, Map<K, V> map,
+                                MapEntryEncoder<K, V> mapEncoder) throws EncodeException {
+        if (isEmpty(map)) {
+            return;
+        }
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            long oldPos = startLengthDelimited(fieldData, 0);
+            mapEncoder.encode(this, entry);
+            endLengthDelimited(oldPos);
+        }
+    }
+
+    @Override
+    public <K, V> void writeMapMessage(byte[] fieldData, int tag, Map<K, V> map,
+                                       MapEntryEncoder<K, V> mapEncoder) throws EncodeException {
+        if (isEmpty(map)) {
+            return;
+        }
+        expand(fieldData.length);
+        writeFieldData(fieldData);
+        long outOldPos = pos;
+        byte[] mapMsgTagData = ProtoUtil.buildFieldData(1, Field.Type.MAP, Field.Cardinality.REPEATED);
+        expand(mapMsgTagData.length);
+        writeFieldData(mapMsgTagData);
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            mapEncoder.encode(this, entry);
+        }
+        // 长度写在外层字段标记之后的第一个字节处
+        endLengthDelimited(outOldPos);
+    }
+
+    @Override
+    public <T> void writeMessage(T msg, ProtoBufEncoder<T> encoder) throws EncodeException {
+        expand(1);
+        long oldPos = pos++;
+        encoder.encode(this, msg);
+        endLengthDelimited(oldPos);
+    }
+
+    @Override
+    public <T> void writeMessage(byte[] fieldData, int tag, T msg, ProtoBufEncoder<T> encoder) throws EncodeException {
+        if (msg == null) {
+            return;
+        }
+        writeMessage0(fieldData, tag, msg, encoder);
+    }
+
+    @Override
+    public <T> void writeMessages(byte[] fieldData, int tag, T[] msgs, ProtoBufEncoder<T> encoder) throws EncodeException {
+        if (msgs == null) {
+            return;
+        }
+        for (T msg : msgs) {
+            writeMessage0(fieldData, tag, msg, encoder);
+        }
+    }
+
+    @Override
+    public <T> void writeMessages(byte[] fieldData, int tag, List<T> msgs, ProtoBufEncoder<T> encoder) throws EncodeException {
+        if (isEmpty(msgs)) {
+            return;
+        }
+        int size = msgs.size();
+        for (int i=0;i<size;i++) {
+            writeMessage0(fieldData, tag, msgs.get(i), encoder);
+        }
+    }
+
+    @Override
+    public <T> void writeMessages(byte[] fieldData, int tag, Iterable<T> msgs, ProtoBufEncoder<T> encoder) throws EncodeException {
+        if (msgs == null) {
+            return;
+        }
+        for (T msg : msgs) {
+            writeMessage0(fieldData, tag, msg, encoder);
+        }
+    }
+
+    public <T> void writeMessage0(byte[] fieldData, int tag, T msg, ProtoBufEncoder<T> encoder) throws EncodeException {
+        long oldPos = startLengthDelimited(fieldData, 0);
+        encoder.encode(this, msg);
+        endLengthDelimited(oldPos);
     }
 
-    protected void writeByteArray_0(final byte[] value, int offset, int length) {
-        System.arraycopy(value, offset, bs, pos, length);
+    /**
+     * 写入字段标记并预留1个字节的长度，长度超过127时在{@link #endLengthDelimited(long)}中将数据后移
+     * @param fieldData 字段标记
+     * @param maxLen 数据的最大长度
+     * @return 长度所在的地址
+     */
+    private long startLengthDelimited(byte[] fieldData, int maxLen) {
+        expand(fieldData.length + 1 + maxLen);
+        writeFieldData(fieldData);
+        return pos++;
+    }
+
+    /**
+     * 将lenPos之后写入的字节数写入lenPos处
+     */
+    private void endLengthDelimited(long lenPos) {
+        int len = (int)(pos - lenPos - 1);
+        pos += writeLenMoveBytes(lenPos, len, len);
+    }
+
+    private void startFixedArray(byte[] fieldData, int len) {
+        expand(fieldData.length + MAX_VARINT_SIZE + len);
+        writeFieldData(fieldData);
+        writeUInt32_0(len);
+    }
+
+    /**
+     * 在p处写入varint编码的value，value超过1个字节时将p之后的moveLen个字节后移
+     * @return 后移的字节数
+     */
+    private int writeLenMoveBytes(long p, int value, int moveLen) {
+        int size = computeRawVarint32Size(value);
+        if (size > 1) {
+            expand(size - 1);
+            UNSAFE.copyMemory(base, p + 1, base, p + size, moveLen);
+        }
+        Object b = base;
+        long cur = p;
+        while ((value & ~0x7F) != 0) {
+            putByte(b, cur++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        putByte(b, cur, (byte) value);
+        return size - 1;
+    }
+
+    public void writeFieldData(byte[] fieldData) {
+        int len = fieldData.length;
+        Object b = base;
+        long p = pos;
+        for (int i=0;i<len;i++) {
+            putByte(b, p++, fieldData[i]);
+        }
+        pos = p;
+    }
+
+    protected void writeByteArray_0(byte[] value, int offset, int length) {
+        copyMemory(value, offset, base, pos, length);
         pos += length;
     }
 
-    protected int writeLenMoveBytes(byte[] bs, int p, int len) {
-        if ((len & ~0x7F) == 0) {
-            bs[p] = (byte) len;
-            return 0;
+    public final void writeInt32_0(int value) {
+        if (value > 0) {
+            writeUInt32_0(value);
         } else {
-            byte[] _bs = bs;
-            int value = len;
-            _bs[p++] = (byte) ((value & 0x7F) | 0x80);
-            value >>>= 7;
-            if ((value & ~0x7F) == 0) {
-                expand(1);
-                _bs = this.bs;
-                System.arraycopy(_bs, p, _bs, p+1, len);
-                _bs[p++] = (byte) value;
-                return 1;
-            } else {
-                byte b2 = (byte) ((value & 0x7F) | 0x80);
-                value >>>= 7;
-                if ((value & ~0x7F) == 0) {
-                    expand(2);
-                    _bs = this.bs;
-                    System.arraycopy(_bs, p, _bs, p+2, len);
-                    _bs[p++] = b2;
-                    _bs[p++] = (byte) value;
-                    return 2;
-                } else {
-                    byte b3 = (byte) ((value & 0x7F) | 0x80);
-                    value >>>= 7;
-                    if ((value & ~0x7F) == 0) {
-                        expand(3);
-                        _bs = this.bs;
-                        System.arraycopy(_bs, p, _bs, p+3, len);
-                        _bs[p++] = b2;
-                        _bs[p++] = b3;
-                        _bs[p++] = (byte) value;
-                        return 3;
-                    } else {
-                        byte b4 = (byte) ((value & 0x7F) | 0x80);
-                        value >>>= 7;
-                        if ((value & ~0x7F) == 0) {
-                            expand(4);
-                            _bs = this.bs;
-                            System.arraycopy(_bs, p, _bs, p+4, len);
-                            _bs[p++] = b2;
-                            _bs[p++] = b3;
-                            _bs[p++] = b4;
-                            _bs[p++] = (byte) value;
-                            return 4;
-                        }
-                    }
-                }
-            }
+            writeUInt64_0(value);
         }
-        return 0;
     }
 
     /**
@@ -838,179 +1141,87 @@ public abstract class AbstractWriter implements ProtoBufWriter {
      * @param value
      */
     protected void writeUInt32_0(int value) {
-        /**/
-        byte[] _bs = this.bs;
-        int p = pos;
+        Object b = base;
+        long p = pos;
         if ((value & ~0x7F) == 0) {
-            _bs[p++] = (byte) value;
+            putByte(b, p++, (byte) value);
         } else {
-            _bs[p++] = (byte) ((value & 0x7F) | 0x80);
+            putByte(b, p++, (byte) ((value & 0x7F) | 0x80));
             value >>>= 7;
             if ((value & ~0x7F) == 0) {
-                _bs[p++] = (byte) value;
+                putByte(b, p++, (byte) value);
             } else {
-                _bs[p++] = (byte) ((value & 0x7F) | 0x80);
+                putByte(b, p++, (byte) ((value & 0x7F) | 0x80));
                 value >>>= 7;
                 if ((value & ~0x7F) == 0) {
-                    _bs[p++] = (byte) value;
+                    putByte(b, p++, (byte) value);
                 } else {
-                    _bs[p++] = (byte) ((value & 0x7F) | 0x80);
+                    putByte(b, p++, (byte) ((value & 0x7F) | 0x80));
                     value >>>= 7;
                     if ((value & ~0x7F) == 0) {
-                        _bs[p++] = (byte) value;
+                        putByte(b, p++, (byte) value);
                     } else {
-                        _bs[p++] = (byte) ((value & 0x7F) | 0x80);
+                        putByte(b, p++, (byte) ((value & 0x7F) | 0x80));
                         value >>>= 7;
-                        if ((value & ~0x7F) == 0) {
-                            _bs[p++] = (byte) value;
-                        }
+                        putByte(b, p++, (byte) value);
                     }
                 }
             }
         }
         pos = p;
-        /**/
-        /*
-        byte[] bs = this.bs;
-        int start = pos;
-        while (true) {
-            if ((value & ~0x7F) == 0) {
-                bs[start++] = (byte) value;
-                pos = start;
-                return;
-            } else {
-                bs[start++] = (byte) ((value & 0x7F) | 0x80);
-                value >>>= 7;
-            }
-        }
-        */
-    }
-
-    @Override
-    public void writeUInt64(long value) {
-        expand(MAX_VARLONG_SIZE);
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        while (true) {
-            if ((value & ~0x7FL) == 0) {
-                _bs[_pos++] = (byte) value;
-                pos = _pos;
-                return;
-            } else {
-                _bs[_pos++] = ((byte) (((int) value & 0x7F) | 0x80));
-                value >>>= 7;
-            }
-        }
-
     }
 
     protected void writeUInt64_0(long value) {
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        while (true) {
-            if ((value & ~0x7FL) == 0) {
-                _bs[_pos++] = (byte) value;
-                pos = _pos;
-                return;
-            } else {
-                _bs[_pos++] = ((byte) (((int) value & 0x7F) | 0x80));
-                value >>>= 7;
-            }
+        Object b = base;
+        long p = pos;
+        while ((value & ~0x7FL) != 0) {
+            putByte(b, p++, (byte) (((int) value & 0x7F) | 0x80));
+            value >>>= 7;
         }
-    }
-
-    @Override
-    public void writeFixed32(int value) {
-        expand(FIXED_32_SIZE);
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        _bs[_pos++] = (byte) ((int) (value      ) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >>  8) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >> 16) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >> 24) & 0xFF);
-        pos = _pos;
+        putByte(b, p++, (byte) value);
+        pos = p;
     }
 
     protected void writeFixed32_0(int value) {
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        _bs[_pos++] = (byte) ((int) (value      ) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >>  8) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >> 16) & 0xFF);
-        _bs[_pos++] = (byte) ((int) (value >> 24) & 0xFF);
-        pos = _pos;
-    }
-
-    @Override
-    public void writeFixed64(long value) {
-        expand(FIXED_64_SIZE);
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        _bs[_pos++] = ((byte) ((int) (value      ) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >>  8) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 16) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 24) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 32) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 40) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 48) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 56) & 0xFF));
-        pos = _pos;
+        Object b = base;
+        long p = pos;
+        putByte(b, p++, (byte) (value      ));
+        putByte(b, p++, (byte) (value >>  8));
+        putByte(b, p++, (byte) (value >> 16));
+        putByte(b, p++, (byte) (value >> 24));
+        pos = p;
     }
 
     protected void writeFixed64_0(long value) {
-        byte[] _bs  = bs;
-        int    _pos = pos;
-        _bs[_pos++] = ((byte) ((int) (value      ) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >>  8) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 16) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 24) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 32) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 40) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 48) & 0xFF));
-        _bs[_pos++] = ((byte) ((int) (value >> 56) & 0xFF));
-        pos = _pos;
-    }
-
-    @Override
-    public void expand(int minLength) {
-        if (bs.length - pos <= minLength) {
-            if (wbuf.out.hasBuf()) {
-                wbuf.out.write(wbuf.bs, 0, wbuf.start);
-                wbuf.writeLen += wbuf.start;
-                wbuf.start = 0;
-            } else {
-                int len = wbuf.len * 2;
-                if (len < minLength + pos) {
-                    len = minLength + pos;
-                }
-                byte[] res = new byte[len];
-                System.arraycopy(bs, 0, res, 0, pos);
-
-                wbuf.bs = res;
-                wbuf.out.setLocalBytes(res);
-                bs = res;
-            }
-        }
-    }
-
-    public void reset() {
-        pos = 0;
-        wpos = 0;
-    }
-
-    @Override
-    public void setWPos(int wpos) {
-        this.wpos = 0;
+        writeFixed32_0((int) value);
+        writeFixed32_0((int) (value >> 32));
     }
 
     /**
-     * 写入FastBuf的下标
+     * 将字符串按UTF-8编码写入，调用前需要保证有charLen * 3个字节的空间
      */
-    private int wpos = 0;
-    @Override
-    public int toFastBuf(FastBuf buf) {
-        int len = buf.write(bs, wpos, pos);
-        wpos += len;
-        return len;
+    private void writeChars(String value, int start, int end) {
+        Object b = base;
+        long p = pos;
+        for (int i=start;i<end;i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                putByte(b, p++, (byte) c);
+            } else if (c < 0x800) {
+                putByte(b, p++, (byte) ((0xF << 6) | (c >>> 6)));
+                putByte(b, p++, (byte) (0x80 | (0x3F & c)));
+            } else if (Character.isSurrogate(c)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                putByte(b, p++, (byte) (0xF0 | ((codePoint >> 18) & 0x07)));
+                putByte(b, p++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                putByte(b, p++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                putByte(b, p++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                putByte(b, p++, (byte) ((0xF << 5) | (c >>> 12)));
+                putByte(b, p++, (byte) (0x80 | (0x3F & (c >>> 6))));
+                putByte(b, p++, (byte) (0x80 | (0x3F & c)));
+            }
+        }
+        pos = p;
     }
-}
\ No newline at end of file
+}
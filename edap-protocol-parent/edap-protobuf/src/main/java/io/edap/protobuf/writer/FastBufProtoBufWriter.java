@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.edap.protobuf.writer;
+
+import io.edap.buffer.FastBuf;
+import io.edap.io.BufOut;
+import io.edap.util.UnsafeUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+
+/**
+ * 直接写入FastBuf堆外内存的ProtoBufWriter，编码逻辑和StandardProtoBufWriter共用AbstractWriter，编码结果相同。
+ * 用于把消息直接编码到发送给连接的写缓冲中，省去先编码到byte数组再复制到FastBuf的过程。FastBuf的容量是固定的，
+ * 剩余空间不足时抛出{@link BufferOverflowException}（生成的编码器会将其包装为EncodeException，可以使用
+ * {@link #isOverflow(Throwable)}判断），已写入的数据不会提交到FastBuf，调用方可以改用StandardProtoBufWriter重新编码。
+ *
+ * <p>写入的数据在调用{@link #finish()}后才提交到FastBuf。</p>
+ */
+public class FastBufProtoBufWriter extends AbstractWriter {
+
+    private FastBuf buf;
+
+    public FastBufProtoBufWriter() {
+    }
+
+    public FastBufProtoBufWriter(FastBuf buf) {
+        wrap(buf);
+    }
+
+    /**
+     * 从FastBuf当前的写位置开始写入数据
+     * @param buf 写入数据的FastBuf
+     * @return 当前writer
+     */
+    public FastBufProtoBufWriter wrap(FastBuf buf) {
+        this.buf   = buf;
+        this.base  = null;
+        this.start = buf.wpos();
+        this.pos   = start;
+        this.end   = start + buf.writeRemain();
+        return this;
+    }
+
+    /**
+     * 将写入的数据提交到FastBuf，FastBuf的写位置移动到数据的结尾
+     * @return 本次写入的字节数
+     */
+    public int finish() {
+        buf.wpos(pos);
+        return size();
+    }
+
+    /**
+     * 判断编码失败的异常是否由FastBuf剩余空间不足引起
+     * @param e 编码时抛出的异常
+     * @return 异常链中有BufferOverflowException时返回true
+     */
+    public static boolean isOverflow(Throwable e) {
+        while (e != null) {
+            if (e instanceof BufferOverflowException) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    @Override
+    public BufOut getBufOut() {
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        pos = start;
+    }
+
+    @Override
+    public void setWPos(int wPos) {
+
+    }
+
+    @Override
+    public void expand(int minLength) {
+        if (end - pos < minLength) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    @Override
+    public int toFastBuf(FastBuf fastBuf) {
+        if (fastBuf == buf) {
+            return finish();
+        }
+        int len = Math.min(size(), fastBuf.writeRemain());
+        UnsafeUtil.UNSAFE.copyMemory(start, fastBuf.wpos(), len);
+        fastBuf.wpos(fastBuf.wpos() + len);
+        return len;
+    }
+
+    @Override
+    public void toStream(OutputStream stream) throws IOException {
+        stream.write(toByteArray());
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] data = new byte[size()];
+        UnsafeUtil.copyMemory(start, data, 0, data.length);
+        return data;
+    }
+}
@@ -37,7 +37,9 @@ import static io.edap.protobuf.wire.WireFormat.*;
 import static io.edap.util.CollectionUtils.isEmpty;
 import static io.edap.util.StringUtil.*;
 import static io.edap.util.StringUtil.getCharValue;
+import static io.edap.util.UnsafeUtil.copyMemory;
 import static io.edap.util.UnsafeUtil.copyUtf16le;
+import static io.edap.util.UnsafeUtil.putByte;
 
 public class FastProtoBufWriter extends StandardProtoBufWriter {
 
@@ -108,20 +110,20 @@ public class FastProtoBufWriter extends StandardProtoBufWriter {
             int length = data.length;
             expand(length + 6);
             writeUInt32_0(length + 1);
-            int _pos = pos;
+            long _pos = pos;
             if (isLatin1(v)) {
-                bs[_pos++] = LATIN1_BYTE;
+                putByte(base, _pos++, LATIN1_BYTE);
             } else {
-                bs[_pos++] = UTF16LE_BYTE;
+                putByte(base, _pos++, UTF16LE_BYTE);
             }
-            System.arraycopy(data, 0, bs, _pos, length);
+            copyMemory(data, 0, base, _pos, length);
             pos = _pos + length;
         } else {
             int charLen = v.length();
             expand(charLen * 2 + 6);
-            int _pos = pos;
-            bs[_pos++] = UTF16LE_BYTE;
-            copyUtf16le((char[]) UnsafeUtil.getValue(value, VALUE_FIELD_OFFSET), 0, bs, _pos, charLen);
+            long _pos = pos;
+            putByte(base, _pos++, UTF16LE_BYTE);
+            copyUtf16le((char[]) UnsafeUtil.getValue(value, VALUE_FIELD_OFFSET), 0, base, _pos, charLen);
             pos += charLen * 2+1;
         }
     }
@@ -131,6 +133,7 @@ public class FastProtoBufWriter extends StandardProtoBufWriter {
         if (v == null) {
             return;
         }
+        expand(fieldData.length);
         writeFieldData(fieldData);
         codec.encode(this, v);
         writeUInt32(WireFormat.makeTag(tag, WireType.END_GROUP));
@@ -162,6 +165,7 @@ public class FastProtoBufWriter extends StandardProtoBufWriter {
     }
 
     public <T> void writeMessage0(byte[] fieldData, int tag, T v, ProtoBufEncoder<T> codec, int end) throws EncodeException {
+        expand(fieldData.length);
         writeFieldData(fieldData);
         codec.encode(this, v);
         writeUInt32(end);
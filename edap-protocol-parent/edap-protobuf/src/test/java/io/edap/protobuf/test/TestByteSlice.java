@@ -0,0 +1,86 @@
+package io.edap.protobuf.test;
+
+import io.edap.protobuf.CodecType;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoException;
+import io.edap.protobuf.model.ProtoBufOption;
+import io.edap.protobuf.test.message.v3.OneBytes;
+import io.edap.protobuf.test.message.v3.SliceBytes;
+import io.edap.util.ByteSlice;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestByteSlice {
+
+    @Test
+    public void testSlice() {
+        byte[] bs = "hello edap".getBytes(StandardCharsets.UTF_8);
+        ByteSlice view = ByteSlice.view(bs, 6, 4);
+        assertTrue(view.isShared());
+        assertEquals("edap", view.toString());
+        assertEquals('d', view.byteAt(1));
+        assertEquals(ByteSlice.of("edap"), view);
+        assertEquals(ByteSlice.of("edap").hashCode(), view.hashCode());
+        assertEquals(ByteSlice.of("da"), view.slice(1, 2));
+        assertArrayEquals("edap".getBytes(StandardCharsets.UTF_8), view.toByteArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> ByteSlice.view(bs, 6, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.slice(3, 2));
+
+        ByteSlice retained = view.retain();
+        assertNotSame(view, retained);
+        assertFalse(retained.isShared());
+        assertSame(retained, retained.retain());
+
+        // 源缓冲区复用后视图的内容跟随变化，retain后的数据不受影响
+        bs[6] = 'E';
+        assertEquals("Edap", view.toString());
+        assertEquals("edap", retained.toString());
+        assertSame(ByteSlice.EMPTY, ByteSlice.view(bs, 0, 0).retain());
+    }
+
+    @Test
+    public void testCodec() throws ProtoException {
+        SliceBytes msg = new SliceBytes();
+        msg.setValue(ByteSlice.view("xxhello".getBytes(StandardCharsets.UTF_8), 2, 5));
+        msg.id = 100;
+        msg.payload = ByteSlice.of("中文payload");
+        byte[] data = ProtoBuf.toByteArray(msg);
+
+        SliceBytes result = ProtoBuf.toObject(data, SliceBytes.class);
+        assertEquals("hello", result.getValue().toString());
+        assertEquals(100, result.id);
+        assertEquals(msg.payload, result.payload);
+        assertTrue(result.payload.isShared());
+        assertSame(data, result.payload.getBytes());
+
+        ProtoBufOption option = new ProtoBufOption();
+        option.setCodecType(CodecType.FAST);
+        byte[] fast = ProtoBuf.toByteArray(msg, option);
+        result = ProtoBuf.toObject(fast, SliceBytes.class, option);
+        assertEquals("hello", result.getValue().toString());
+        assertEquals(msg.payload, result.payload);
+        assertSame(fast, result.getValue().getBytes());
+
+        // 和byte[]声明的字段在编码上兼容
+        OneBytes oneBytes = ProtoBuf.toObject(data, OneBytes.class);
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), oneBytes.getValue());
+        result = ProtoBuf.toObject(ProtoBuf.toByteArray(oneBytes), SliceBytes.class);
+        assertEquals("hello", result.getValue().toString());
+        assertNull(result.payload);
+
+        // 转发时直接写入视图，不需要复制为byte[]
+        SliceBytes forward = new SliceBytes();
+        forward.setValue(result.getValue());
+        assertArrayEquals(ProtoBuf.toByteArray(oneBytes), ProtoBuf.toByteArray(forward));
+
+        byte[] empty = ProtoBuf.toByteArray(new SliceBytes());
+        assertEquals(0, empty.length);
+        result = ProtoBuf.toObject(data, 0, data.length, SliceBytes.class);
+        Arrays.fill(data, (byte) 0);
+        assertNotEquals(msg.payload, result.payload);
+    }
+}
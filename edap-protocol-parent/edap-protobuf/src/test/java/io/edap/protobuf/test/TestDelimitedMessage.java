@@ -0,0 +1,231 @@
+package io.edap.protobuf.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.protobuf.DelimitedMessageDecoder;
+import io.edap.protobuf.DelimitedMessageReader;
+import io.edap.protobuf.DelimitedMessageWriter;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoBufCodecRegister;
+import io.edap.protobuf.ProtoBufDecoder;
+import io.edap.protobuf.ProtoException;
+import io.edap.protobuf.reader.FastBufReader;
+import io.edap.protobuf.test.message.v3.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.edap.protobuf.ProtoBuf.conver2HexStr;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDelimitedMessage {
+
+    private static Proj proj(long id, String name, int repeat) {
+        Proj proj = new Proj();
+        proj.setId(id);
+        proj.setName(name);
+        StringBuilder path = new StringBuilder("https://www.easyea.com/");
+        for (int i = 0; i < repeat; i++) {
+            path.append(name).append('/');
+        }
+        proj.setRepoPath(path.toString());
+        return proj;
+    }
+
+    private static ListMessage listMessage(int index) {
+        ListMessage msg = new ListMessage();
+        msg.list = new ArrayList<>();
+        // 消息的大小从几个字节到几KB不等，覆盖长度前缀为1到2个字节以及超过缓存容量的情况
+        for (int i = 0; i < index % 7; i++) {
+            msg.list.add(proj(index * 10L + i, "项目" + index + "😀", index % 40));
+        }
+        return msg;
+    }
+
+    private static void assertListMessage(ListMessage expect, ListMessage actual) {
+        assertEquals(conver2HexStr(ProtoBuf.toByteArray(expect)), conver2HexStr(ProtoBuf.toByteArray(actual)));
+    }
+
+    /**
+     * 每次最多只返回几个字节的InputStream，模拟网络中消息被拆分为多次到达的情况
+     */
+    private static InputStream trickle(byte[] data, int maxRead) {
+        return new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, maxRead));
+            }
+        };
+    }
+
+    @Test
+    public void testFastBufReader() throws Exception {
+        AllType allType = new AllType();
+        allType.field1 = true;
+        allType.field2 = "abcdefwxyz".getBytes(StandardCharsets.UTF_8);
+        allType.field3 = 31.415926;
+        allType.field4 = Corpus.WEB;
+        allType.field6 = 5671506337319861521L;
+        allType.field7 = 3.1415f;
+        allType.field8 = -128;
+        allType.field9 = -5671506337319861522L;
+        allType.field11 = proj(2, "edao", 40);
+        allType.field15 = -5671506337319861524L;
+        allType.field16 = "中文字符串，需要按UTF-8编码😀";
+        allType.field19 = "latin1 string";
+        byte[] bs = ProtoBuf.toByteArray(allType);
+
+        FastBuf buf = new FastBuf(1024);
+        buf.write(new byte[]{1, 2, 3});
+        buf.rpos(buf.wpos());
+        buf.write(bs);
+        ProtoBufDecoder<AllType> decoder = ProtoBufCodecRegister.INSTANCE.getDecoder(AllType.class);
+        FastBufReader reader = new FastBufReader(buf);
+        AllType result = decoder.decode(reader);
+        assertEquals(conver2HexStr(bs), conver2HexStr(ProtoBuf.toByteArray(result)));
+        assertEquals(bs.length, reader.getPos());
+
+        for (int i = 0; i < 50; i++) {
+            ListMessage msg = listMessage(i);
+            bs = ProtoBuf.toByteArray(msg);
+            buf = new FastBuf(bs.length + 1);
+            buf.write(bs);
+            ProtoBufDecoder<ListMessage> listDecoder = ProtoBufCodecRegister.INSTANCE.getDecoder(ListMessage.class);
+            assertListMessage(msg, listDecoder.decode(reader.wrap(buf.address(), bs.length)));
+        }
+
+        // 数据不完整时不能读取超出范围的内存
+        buf = new FastBuf(1024);
+        buf.write(ProtoBuf.toByteArray(listMessage(6)));
+        FastBufReader truncated = new FastBufReader(buf.address(), buf.remain() - 3);
+        ProtoBufDecoder<ListMessage> listDecoder = ProtoBufCodecRegister.INSTANCE.getDecoder(ListMessage.class);
+        assertThrows(ProtoException.class, () -> listDecoder.decode(truncated));
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        List<ListMessage> msgs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            msgs.add(listMessage(i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DelimitedMessageWriter writer = new DelimitedMessageWriter(Channels.newChannel(out), 512)) {
+            for (ListMessage msg : msgs) {
+                writer.write(msg);
+            }
+        }
+        byte[] data = out.toByteArray();
+
+        ByteArrayOutputStream expect = new ByteArrayOutputStream();
+        for (ListMessage msg : msgs) {
+            byte[] bs = ProtoBuf.toByteArray(msg);
+            int v = bs.length;
+            while ((v & ~0x7F) != 0) {
+                expect.write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            expect.write(v);
+            expect.write(bs);
+        }
+        assertArrayEquals(expect.toByteArray(), data);
+
+        for (int maxRead : new int[]{1, 7, 8192}) {
+            DelimitedMessageReader<ListMessage> reader = new DelimitedMessageReader<>(
+                    Channels.newChannel(trickle(data, maxRead)),
+                    new DelimitedMessageDecoder<>(ListMessage.class), 64);
+            for (ListMessage msg : msgs) {
+                assertListMessage(msg, reader.read());
+            }
+            assertNull(reader.read());
+            assertNull(reader.read());
+            reader.close();
+        }
+
+        DelimitedMessageReader<ListMessage> reader = new DelimitedMessageReader<>(
+                new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1)), ListMessage.class);
+        for (int i = 0; i < msgs.size() - 1; i++) {
+            assertListMessage(msgs.get(i), reader.read());
+        }
+        assertThrows(ProtoException.class, reader::read);
+    }
+
+    @Test
+    public void testProtobufJava() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DelimitedMessageWriter writer = new DelimitedMessageWriter(out);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            OneString oneString = new OneString();
+            oneString.setValue(value.toString());
+            writer.write(oneString);
+            value.append((char)('a' + i % 26));
+        }
+        writer.flush();
+
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        value.setLength(0);
+        for (int i = 0; i < 300; i++) {
+            OneStringOuterClass.OneString pb = OneStringOuterClass.OneString.parseDelimitedFrom(in);
+            assertEquals(value.toString(), pb.getValue());
+            value.append((char)('a' + i % 26));
+        }
+        assertNull(OneStringOuterClass.OneString.parseDelimitedFrom(in));
+
+        out.reset();
+        for (int i = 0; i < 300; i++) {
+            OneStringOuterClass.OneString.newBuilder().setValue("v" + i).build().writeDelimitedTo(out);
+        }
+        DelimitedMessageReader<OneString> reader = new DelimitedMessageReader<>(
+                new ByteArrayInputStream(out.toByteArray()), OneString.class);
+        for (int i = 0; i < 300; i++) {
+            assertEquals("v" + i, reader.read().getValue());
+        }
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testPartialFrame() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DelimitedMessageWriter writer = new DelimitedMessageWriter(out);
+        writer.write(listMessage(6));
+        writer.write(listMessage(13));
+        writer.close();
+        byte[] data = out.toByteArray();
+
+        DelimitedMessageDecoder<ListMessage> decoder = new DelimitedMessageDecoder<>(ListMessage.class);
+        FastBuf buf = new FastBuf(data.length);
+        List<ListMessage> result = new ArrayList<>();
+        for (byte b : data) {
+            long rpos = buf.rpos();
+            assertNull(decoder.decode(buf));
+            assertEquals(rpos, buf.rpos());
+            buf.write(b);
+            ListMessage msg = decoder.decode(buf);
+            if (msg != null) {
+                result.add(msg);
+            }
+        }
+        assertEquals(2, result.size());
+        assertListMessage(listMessage(6), result.get(0));
+        assertListMessage(listMessage(13), result.get(1));
+        assertEquals(0, buf.remain());
+
+        FastBuf bad = new FastBuf(16);
+        bad.write(new byte[]{(byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff, (byte)0x7f});
+        assertThrows(ProtoException.class, () -> decoder.decode(bad));
+        DelimitedMessageDecoder<ListMessage> limited = new DelimitedMessageDecoder<>(
+                ProtoBufCodecRegister.INSTANCE.getDecoder(ListMessage.class), 100);
+        FastBuf large = new FastBuf(16);
+        large.write(new byte[]{(byte)0xe5, 0x00});
+        assertThrows(ProtoException.class, () -> limited.decode(large));
+        assertEquals(-1, limited.frameSize(new FastBuf(16)));
+    }
+}
@@ -0,0 +1,197 @@
+package io.edap.protobuf.test;
+
+import io.edap.buffer.FastBuf;
+import io.edap.protobuf.EncodeException;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoBufCodecRegister;
+import io.edap.protobuf.ProtoBufEncoder;
+import io.edap.protobuf.test.message.v3.*;
+import io.edap.protobuf.writer.FastBufProtoBufWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.edap.protobuf.ProtoBuf.conver2HexStr;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFastBufProtoBufWriter {
+
+    private static byte[] encode(Object obj, FastBuf buf) throws EncodeException {
+        ProtoBufEncoder encoder = ProtoBufCodecRegister.INSTANCE.getEncoder(obj.getClass());
+        FastBufProtoBufWriter writer = new FastBufProtoBufWriter(buf);
+        encoder.encode(writer, obj);
+        long start = buf.wpos();
+        int len = writer.finish();
+        assertEquals(start + len, buf.wpos());
+        byte[] bs = new byte[len];
+        buf.get(start, bs);
+        return bs;
+    }
+
+    private static void assertSameBytes(Object obj) throws EncodeException {
+        FastBuf buf = new FastBuf(64 * 1024);
+        // 从非起始位置开始写入，和HttpResponse中先写入响应头的情况一致
+        buf.write("HTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.UTF_8));
+        byte[] expect = ProtoBuf.toByteArray(obj);
+        byte[] actual = encode(obj, buf);
+        assertEquals(conver2HexStr(expect), conver2HexStr(actual), obj.getClass().getName());
+    }
+
+    private static Proj proj(long id, String name, int repeat) {
+        Proj proj = new Proj();
+        proj.setId(id);
+        proj.setName(name);
+        StringBuilder path = new StringBuilder("https://www.easyea.com/");
+        for (int i = 0; i < repeat; i++) {
+            path.append(name).append('/');
+        }
+        proj.setRepoPath(path.toString());
+        return proj;
+    }
+
+    @Test
+    public void testSameAsStandardWriter() throws EncodeException {
+        AllType allType = new AllType();
+        allType.field1 = true;
+        allType.field2 = "abcdefwxyz".getBytes(StandardCharsets.UTF_8);
+        allType.field3 = 31.415926;
+        allType.field4 = Corpus.WEB;
+        allType.field5 = 127;
+        allType.field6 = 5671506337319861521L;
+        allType.field7 = 3.1415f;
+        allType.field8 = -128;
+        allType.field9 = -5671506337319861522L;
+        Map<String, Project> projects = new LinkedHashMap<>();
+        Project project = new Project();
+        project.setId(1L);
+        project.setName("edap");
+        project.setRepoPath("https://www.easyea.com/edap/edap.git");
+        projects.put("edap", project);
+        allType.field10 = projects;
+        // 嵌套消息超过127个字节，长度需要2个字节
+        allType.field11 = proj(2, "edao", 40);
+        allType.field12 = -129;
+        allType.field13 = 5671506337319861523L;
+        allType.field14 = -130;
+        allType.field15 = -5671506337319861524L;
+        allType.field16 = "中文字符串，需要按UTF-8编码😀";
+        allType.field17 = 131;
+        allType.field18 = 5671506337319861525L;
+        allType.field19 = "latin1 string";
+        assertSameBytes(allType);
+
+        ListInt32 listInt32 = new ListInt32();
+        listInt32.list = Arrays.asList(1, -1, 0, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, 3, 4, 5, 6, 7, 8);
+        assertSameBytes(listInt32);
+        ListSint32 listSint32 = new ListSint32();
+        listSint32.list = listInt32.list;
+        assertSameBytes(listSint32);
+        ListFixed32 listFixed32 = new ListFixed32();
+        listFixed32.list = listInt32.list;
+        assertSameBytes(listFixed32);
+        ListInt64 listInt64 = new ListInt64();
+        listInt64.list = Arrays.asList(1L, -1L, 0L, Long.MAX_VALUE, Long.MIN_VALUE);
+        assertSameBytes(listInt64);
+        ListSint64 listSint64 = new ListSint64();
+        listSint64.list = listInt64.list;
+        assertSameBytes(listSint64);
+        ListDouble listDouble = new ListDouble();
+        listDouble.list = Arrays.asList(1.5, -2.25, 0d);
+        assertSameBytes(listDouble);
+        ListFloat listFloat = new ListFloat();
+        listFloat.list = Arrays.asList(1.5f, -2.25f, 0f);
+        assertSameBytes(listFloat);
+        ListBool listBool = new ListBool();
+        listBool.values = Arrays.asList(true, false, true);
+        assertSameBytes(listBool);
+        ListString listString = new ListString();
+        listString.list = Arrays.asList("a", "中文", "edap-protobuf");
+        assertSameBytes(listString);
+        ListEnum listEnum = new ListEnum();
+        listEnum.list = Arrays.asList(Corpus.WEB, Corpus.UNIVERSAL, Corpus.VIDEO);
+        assertSameBytes(listEnum);
+        ListProtoEnum listProtoEnum = new ListProtoEnum();
+        listProtoEnum.list = Arrays.asList(ProtoEnumCorpus.WEB, ProtoEnumCorpus.IMAGES);
+        assertSameBytes(listProtoEnum);
+        ListMessage listMessage = new ListMessage();
+        List<Proj> projs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            projs.add(proj(i, "proj" + i, i));
+        }
+        listMessage.list = projs;
+        assertSameBytes(listMessage);
+        ArrayMessage arrayMessage = new ArrayMessage();
+        arrayMessage.list = projs.toArray(new Proj[0]);
+        assertSameBytes(arrayMessage);
+
+        ArrayInt32Unboxed arrayInt32 = new ArrayInt32Unboxed();
+        arrayInt32.list = new int[]{1, -1, 300, Integer.MIN_VALUE};
+        assertSameBytes(arrayInt32);
+        ArraySint32Unboxed arraySint32 = new ArraySint32Unboxed();
+        arraySint32.list = arrayInt32.list;
+        assertSameBytes(arraySint32);
+        ArrayInt64Unboxed arrayInt64 = new ArrayInt64Unboxed();
+        arrayInt64.list = new long[]{1L, -1L, 1L << 40};
+        assertSameBytes(arrayInt64);
+        ArrayFixed64Unboxed arrayFixed64 = new ArrayFixed64Unboxed();
+        arrayFixed64.list = arrayInt64.list;
+        assertSameBytes(arrayFixed64);
+        ArrayDoubleUnboxed arrayDouble = new ArrayDoubleUnboxed();
+        arrayDouble.values = new double[]{1.5, -0.5};
+        assertSameBytes(arrayDouble);
+        ArrayFloatUnboxed arrayFloat = new ArrayFloatUnboxed();
+        arrayFloat.list = new float[]{1.5f, -0.5f};
+        assertSameBytes(arrayFloat);
+        ArrayBoolUnboxed arrayBool = new ArrayBoolUnboxed();
+        arrayBool.values = new boolean[]{true, false};
+        assertSameBytes(arrayBool);
+        ArrayEnum arrayEnum = new ArrayEnum();
+        arrayEnum.values = new Corpus[]{Corpus.NEWS, Corpus.UNIVERSAL};
+        assertSameBytes(arrayEnum);
+
+        OneMap oneMap = new OneMap();
+        oneMap.setValue(projects);
+        assertSameBytes(oneMap);
+    }
+
+    @Test
+    public void testDecode() throws EncodeException {
+        ListMessage listMessage = new ListMessage();
+        List<Proj> projs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            projs.add(proj(i + 1, "项目" + i, i % 50));
+        }
+        listMessage.list = projs;
+        byte[] bs = encode(listMessage, new FastBuf(1024 * 1024));
+        ListMessage result = ProtoBuf.toObject(bs, ListMessage.class);
+        assertEquals(projs.size(), result.list.size());
+        for (int i = 0; i < projs.size(); i++) {
+            assertEquals(projs.get(i).getId(), result.list.get(i).getId());
+            assertEquals(projs.get(i).getName(), result.list.get(i).getName());
+            assertEquals(projs.get(i).getRepoPath(), result.list.get(i).getRepoPath());
+        }
+    }
+
+    @Test
+    public void testOverflow() throws EncodeException {
+        ListMessage listMessage = new ListMessage();
+        List<Proj> projs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            projs.add(proj(i, "proj" + i, 5));
+        }
+        listMessage.list = projs;
+        FastBuf buf = new FastBuf(1024);
+        buf.write(new byte[]{1, 2, 3});
+        long wpos = buf.wpos();
+        EncodeException e = assertThrows(EncodeException.class, () -> encode(listMessage, buf));
+        assertTrue(FastBufProtoBufWriter.isOverflow(e));
+        assertFalse(FastBufProtoBufWriter.isOverflow(new EncodeException(new IllegalStateException("error"))));
+        // 空间不足时不提交写入的数据
+        assertEquals(wpos, buf.wpos());
+    }
+}
@@ -0,0 +1,166 @@
+package io.edap.protobuf.test;
+
+import io.edap.protobuf.CodecType;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoBufCodecRegister;
+import io.edap.protobuf.ProtoBufDecoder;
+import io.edap.protobuf.ProtoBufFieldMask;
+import io.edap.protobuf.model.ProtoBufOption;
+import io.edap.protobuf.reader.ByteArrayFastReader;
+import io.edap.protobuf.test.message.v3.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFieldMask {
+
+    private static Proj proj(long id, String name) {
+        Proj proj = new Proj();
+        proj.setId(id);
+        proj.setName(name);
+        proj.setRepoPath("https://www.easyea.com/" + name);
+        return proj;
+    }
+
+    private static AllType allType() {
+        AllType allType = new AllType();
+        allType.field1 = true;
+        allType.field2 = "abcdefwxyz".getBytes(StandardCharsets.UTF_8);
+        allType.field3 = 31.415926;
+        allType.field4 = Corpus.WEB;
+        allType.field5 = 127;
+        allType.field6 = 5671506337319861521L;
+        allType.field7 = 3.1415f;
+        allType.field8 = -128;
+        allType.field9 = -5671506337319861522L;
+        Map<String, Project> projects = new HashMap<>();
+        Project project = new Project();
+        project.setId(1L);
+        project.setName("edap");
+        projects.put("edap", project);
+        allType.field10 = projects;
+        allType.field11 = proj(2, "edao");
+        allType.field12 = -129;
+        allType.field13 = 5671506337319861523L;
+        allType.field14 = -130;
+        allType.field15 = -5671506337319861524L;
+        allType.field16 = "中文字符串😀";
+        allType.field17 = 131;
+        allType.field18 = 5671506337319861525L;
+        allType.field19 = "latin1 string";
+        return allType;
+    }
+
+    @Test
+    public void testMask() {
+        ProtoBufFieldMask mask = ProtoBufFieldMask.of("b.y", "a", "b.x", "c.z", "c");
+        assertEquals("a,b.x,b.y,c", mask.toString());
+        assertEquals(mask, ProtoBufFieldMask.parse(mask.toString()));
+        assertTrue(mask.includes("a"));
+        assertTrue(mask.includes("b"));
+        assertFalse(mask.includes("x"));
+        assertNull(mask.subMask("a"));
+        assertNull(mask.subMask("c"));
+        assertEquals(ProtoBufFieldMask.of("x", "y"), mask.subMask("b"));
+        assertEquals("a,b.x,b.y,b.z,c", ProtoBufFieldMask.union(mask, ProtoBufFieldMask.of("b.z")).toString());
+        assertNull(ProtoBufFieldMask.union(mask, null));
+
+        assertThrows(IllegalArgumentException.class, () -> ProtoBufFieldMask.of());
+        assertThrows(IllegalArgumentException.class, () -> ProtoBufFieldMask.of("a."));
+        assertThrows(IllegalArgumentException.class, () -> ProtoBufFieldMask.of(".a"));
+    }
+
+    @Test
+    public void testDecodeFields() throws Exception {
+        byte[] bs = ProtoBuf.toByteArray(allType());
+        AllType result = ProtoBuf.toObject(bs, 0, bs.length, AllType.class,
+                ProtoBufFieldMask.of("field9", "field16"));
+        assertEquals(-5671506337319861522L, result.field9);
+        assertEquals("中文字符串😀", result.field16);
+        assertNull(result.field1);
+        assertNull(result.field2);
+        assertNull(result.field10);
+        assertNull(result.field11);
+        assertNull(result.field15);
+        // 没有解码的String字段不设置默认值
+        assertNull(result.field19);
+
+        result = ProtoBuf.toObject(bs, 0, bs.length, AllType.class,
+                ProtoBufFieldMask.of("field11.id", "field10", "field18"));
+        assertEquals(2L, result.field11.getId());
+        assertNull(result.field11.getName());
+        assertNull(result.field11.getRepoPath());
+        assertEquals("edap", result.field10.get("edap").getName());
+        assertEquals(5671506337319861525L, result.field18);
+        assertNull(result.field16);
+
+        result = ProtoBuf.toObject(bs, 0, bs.length, AllType.class, ProtoBufFieldMask.of("field11"));
+        assertEquals("https://www.easyea.com/edao", result.field11.getRepoPath());
+        assertNull(result.field9);
+    }
+
+    @Test
+    public void testRepeatedMessage() throws Exception {
+        ListMessage listMessage = new ListMessage();
+        listMessage.list = new ArrayList<>();
+        ArrayMessage arrayMessage = new ArrayMessage();
+        arrayMessage.list = new Proj[10];
+        for (int i = 0; i < 10; i++) {
+            listMessage.list.add(proj(i + 1, "proj" + i));
+            arrayMessage.list[i] = proj(i + 1, "proj" + i);
+        }
+        byte[] bs = ProtoBuf.toByteArray(listMessage);
+        ListMessage list = ProtoBuf.toObject(bs, 0, bs.length, ListMessage.class,
+                ProtoBufFieldMask.of("list.name"));
+        assertEquals(10, list.list.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("proj" + i, list.list.get(i).getName());
+            assertNull(list.list.get(i).getId());
+            assertNull(list.list.get(i).getRepoPath());
+        }
+
+        bs = ProtoBuf.toByteArray(arrayMessage);
+        ArrayMessage array = ProtoBuf.toObject(bs, 0, bs.length, ArrayMessage.class,
+                ProtoBufFieldMask.of("list.id", "list.repoPath"));
+        assertEquals(10, array.list.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, array.list[i].getId());
+            assertNull(array.list[i].getName());
+            assertEquals("https://www.easyea.com/proj" + i, array.list[i].getRepoPath());
+        }
+    }
+
+    @Test
+    public void testFastCodec() throws Exception {
+        ProtoBufOption option = new ProtoBufOption();
+        option.setCodecType(CodecType.FAST);
+        byte[] bs = ProtoBuf.toByteArray(allType(), option);
+        ProtoBufDecoder<AllType> decoder = ProtoBufCodecRegister.INSTANCE.getDecoder(AllType.class, option,
+                ProtoBufFieldMask.of("field11.name", "field17"));
+        AllType result = decoder.decode(new ByteArrayFastReader(bs));
+        assertEquals("edao", result.field11.getName());
+        assertNull(result.field11.getId());
+        assertEquals(131, result.field17);
+        assertNull(result.field16);
+    }
+
+    @Test
+    public void testCache() {
+        ProtoBufCodecRegister register = ProtoBufCodecRegister.INSTANCE;
+        ProtoBufDecoder decoder = register.getDecoder(AllType.class, ProtoBufFieldMask.of("field1", "field2"));
+        assertSame(decoder, register.getDecoder(AllType.class, ProtoBufFieldMask.of("field2", "field1")));
+        assertSame(decoder, register.getDecoder(AllType.class, ProtoBufFieldMask.parse("field1,field2")));
+        assertNotSame(decoder, register.getDecoder(AllType.class, ProtoBufFieldMask.of("field1")));
+        assertNotSame(decoder, register.getDecoder(AllType.class));
+        assertSame(register.getDecoder(AllType.class), register.getDecoder(AllType.class,
+                (ProtoBufFieldMask) null));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> register.getDecoder(AllType.class, ProtoBufFieldMask.of("field1", "unknown")));
+    }
+}
@@ -0,0 +1,137 @@
+package io.edap.protobuf.test;
+
+import io.edap.protobuf.CodecType;
+import io.edap.protobuf.ProtoBuf;
+import io.edap.protobuf.ProtoBufCodecRegister;
+import io.edap.protobuf.ProtoBufDecoder;
+import io.edap.protobuf.ProtoBufEncoder;
+import io.edap.protobuf.model.ProtoBufOption;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestProtoBufCodecRegister {
+
+    private static final int THREADS = 16;
+
+    public static class ColdItem {
+        public Long id;
+        public String name;
+    }
+
+    public static class ColdMsg1 {
+        public Long id;
+        public String name;
+        public ColdItem item;
+    }
+
+    public static class ColdMsg2 {
+        public Integer count;
+        public List<ColdItem> items;
+    }
+
+    /**
+     * 同一个类中有两个不同类型的Map字段
+     */
+    public static class ColdMapMsg {
+        public Map<String, Integer> counts;
+        public Map<String, ColdItem> items;
+    }
+
+    private static ColdItem item(long id, String name) {
+        ColdItem item = new ColdItem();
+        item.id = id;
+        item.name = name;
+        return item;
+    }
+
+    @Test
+    public void testConcurrentFirstUse() throws Exception {
+        ProtoBufOption fastOption = new ProtoBufOption();
+        fastOption.setCodecType(CodecType.FAST);
+        Class[] classes = {ColdMsg1.class, ColdMsg2.class, ColdMapMsg.class};
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    ProtoBufCodecRegister register = ProtoBufCodecRegister.INSTANCE;
+                    Object[] codecs = new Object[classes.length * 4];
+                    for (int i = 0; i < classes.length; i++) {
+                        codecs[i * 4]     = register.getEncoder(classes[i]);
+                        codecs[i * 4 + 1] = register.getEncoder(classes[i], fastOption);
+                        codecs[i * 4 + 2] = register.getDecoder(classes[i]);
+                        codecs[i * 4 + 3] = register.getDecoder(classes[i], fastOption);
+                    }
+                    return codecs;
+                }));
+            }
+            Object[] first = futures.get(0).get(60, TimeUnit.SECONDS);
+            for (Object codec : first) {
+                assertNotNull(codec);
+            }
+            for (Future<Object[]> future : futures) {
+                Object[] codecs = future.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < codecs.length; i++) {
+                    assertSame(first[i], codecs[i]);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertNotSame(ProtoBufCodecRegister.INSTANCE.getEncoder(ColdMsg1.class),
+                ProtoBufCodecRegister.INSTANCE.getEncoder(ColdMsg1.class, fastOption));
+
+        ColdMsg1 msg1 = new ColdMsg1();
+        msg1.id = 1L;
+        msg1.name = "msg1";
+        msg1.item = item(2, "item");
+        ColdMsg1 result1 = ProtoBuf.toObject(ProtoBuf.toByteArray(msg1), ColdMsg1.class);
+        assertEquals(msg1.name, result1.name);
+        assertEquals(msg1.item.name, result1.item.name);
+
+        ColdMsg2 msg2 = new ColdMsg2();
+        msg2.count = 2;
+        msg2.items = new ArrayList<>();
+        msg2.items.add(item(3, "a"));
+        msg2.items.add(item(4, "b"));
+        ColdMsg2 result2 = ProtoBuf.toObject(ProtoBuf.toByteArray(msg2), ColdMsg2.class);
+        assertEquals(2, result2.items.size());
+        assertEquals("b", result2.items.get(1).name);
+    }
+
+    @Test
+    public void testMapFields() {
+        ColdMapMsg msg = new ColdMapMsg();
+        msg.counts = new HashMap<>();
+        msg.counts.put("a", 1);
+        msg.counts.put("b", 2);
+        msg.items = new HashMap<>();
+        msg.items.put("x", item(5, "x"));
+        byte[] bs = ProtoBuf.toByteArray(msg);
+        ColdMapMsg result = ProtoBuf.toObject(bs, ColdMapMsg.class);
+        assertEquals(msg.counts, result.counts);
+        assertEquals(1, result.items.size());
+        assertEquals("x", result.items.get("x").name);
+        assertEquals(5L, result.items.get("x").id);
+
+        ProtoBufOption fastOption = new ProtoBufOption();
+        fastOption.setCodecType(CodecType.FAST);
+        bs = ProtoBuf.toByteArray(msg, fastOption);
+        result = ProtoBuf.toObject(bs, ColdMapMsg.class, fastOption);
+        assertEquals(msg.counts, result.counts);
+        assertEquals("x", result.items.get("x").name);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 The edap Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.edap.protobuf.test.message.v3;
+
+import io.edap.util.ByteSlice;
+
+/**
+ * 使用ByteSlice声明的bytes字段，解码时直接引用输入数据
+ */
+public class SliceBytes {
+
+    private ByteSlice value;
+    public long id;
+    public ByteSlice payload;
+
+    public ByteSlice getValue() {
+        return value;
+    }
+
+    public void setValue(ByteSlice value) {
+        this.value = value;
+    }
+}